@@ -0,0 +1,104 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.Durabilidade;
+import com.livraria.data.RegistroPedidos;
+import com.livraria.model.LinhaPedido;
+import com.livraria.service.AnaliseVendas;
+import com.livraria.service.GerenciadorLivros;
+import com.livraria.service.JanelaVendas;
+import com.livraria.service.TotalVendas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede as consultas da AnaliseVendas sobre um registro de pedidos sintético:
+ * as consultas por período, que percorrem o registro inteiro em paralelo, e a
+ * mesma consulta respondida pelos contadores mantidos a cada compra. Uma linha
+ * por segundo, a partir de um instante fixo, com ISBNs sorteados com semente fixa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AnaliseVendasBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int linhas;
+
+    private static final int TAMANHO = 100_000;
+    private static final long INICIO = 1_700_000_000_000L;
+    private static final long HORA = TimeUnit.HOURS.toMillis(1);
+
+    private Path pasta;
+    private GerenciadorLivros gerenciador;
+    private AnaliseVendas analise;
+
+    @Setup(Level.Trial)
+    public void prepararRegistro() throws IOException {
+        pasta = CatalogoSintetico.prepararPastaDeDados(TAMANHO);
+        gerenciador = new GerenciadorLivros();
+        String[] isbns = CatalogoSintetico.isbns(TAMANHO);
+        Path arquivo = pasta.resolve("pedidos.bin");
+        Random sorteio = new Random(42);
+        try (RegistroPedidos registro = new RegistroPedidos(arquivo)) {
+            List<LinhaPedido> lote = new ArrayList<>(10_000);
+            for (int i = 0; i < linhas; i++) {
+                lote.add(new LinhaPedido(isbns[sorteio.nextInt(TAMANHO)], 1 + sorteio.nextInt(3),
+                        1_000 + sorteio.nextInt(20_000), INICIO + i * 1_000L));
+                if (lote.size() == 10_000) {
+                    registro.acrescentar(lote);
+                    registro.descarregar(Durabilidade.NENHUMA);
+                    lote.clear();
+                }
+            }
+            registro.acrescentar(lote);
+        }
+        analise = new AnaliseVendas(gerenciador, new RegistroPedidos(arquivo));
+    }
+
+    @TearDown(Level.Trial)
+    public void apagarRegistro() throws IOException {
+        analise.close();
+        CatalogoSintetico.apagar(pasta);
+    }
+
+    @Benchmark
+    public List<TotalVendas> maisVendidosNoPeriodo() {
+        return analise.maisVendidos(10, INICIO, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<TotalVendas> receitaPorCategoriaNoPeriodo() {
+        return analise.receitaPorCategoria(INICIO, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<JanelaVendas> vendasPorHora() {
+        return analise.vendasPorPeriodo(INICIO, INICIO + linhas * 1_000L, HORA);
+    }
+
+    @Benchmark
+    public List<TotalVendas> maisVendidosPelosContadores() {
+        return analise.maisVendidos(10);
+    }
+}
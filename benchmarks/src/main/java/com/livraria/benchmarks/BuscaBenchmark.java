@@ -0,0 +1,122 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.model.Livro;
+import com.livraria.service.ArmazenamentoCatalogo;
+import com.livraria.service.ConsultaCatalogo;
+import com.livraria.service.GerenciadorLivros;
+import com.livraria.service.PaginaLivros;
+import com.livraria.service.Sugestao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede as buscas do GerenciadorLivros: por ISBN (índice por chave) e por
+ * título (índice textual). A busca por título usa uma palavra do vocabulário
+ * sintético, então cada consulta encontra cerca de 10% do catálogo, e um
+ * título completo, que encontra um único livro. A navegação lê a segunda
+ * página (20 livros) de uma categoria, por preço, e por título numa faixa de
+ * preço. O autocompletar pede as 10 melhores sugestões de um prefixo curto
+ * (uma letra) e de um longo (uma palavra e meia). Cada busca é medida com as duas formas de armazenamento do catálogo
+ * (mapa de objetos e colunas).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int tamanho;
+
+    @Param({"MAPA", "COLUNAR", "COLUNAR_FORA_DO_HEAP"})
+    public ArmazenamentoCatalogo armazenamento;
+
+    private Path pasta;
+    private GerenciadorLivros gerenciador;
+    private String tituloExistente;
+    private String[] isbns;
+    private ConsultaCatalogo categoriaPorPreco;
+    private ConsultaCatalogo faixaPorTitulo;
+
+    @Setup(Level.Trial)
+    public void prepararCatalogo() throws IOException {
+        pasta = CatalogoSintetico.prepararPastaDeDados(tamanho);
+        gerenciador = new GerenciadorLivros(ModoPersistencia.REESCRITA_COMPLETA, armazenamento);
+        isbns = CatalogoSintetico.isbns(tamanho);
+        tituloExistente = gerenciador.getTodosLivros().iterator().next().getTitulo();
+        categoriaPorPreco = segundaPagina(ConsultaCatalogo.todos()
+                .naCategoria(gerenciador.contarPorCategoria().keySet().iterator().next())
+                .ordenadaPor(ConsultaCatalogo.Ordenacao.PRECO));
+        faixaPorTitulo = segundaPagina(ConsultaCatalogo.todos().comPrecoEntre(20, 60));
+    }
+
+    private ConsultaCatalogo segundaPagina(ConsultaCatalogo primeira) {
+        return primeira.aPartirDe(gerenciador.navegar(primeira).getProximoCursor());
+    }
+
+    @TearDown(Level.Trial)
+    public void apagarCatalogo() throws IOException {
+        CatalogoSintetico.apagar(pasta);
+    }
+
+    @Benchmark
+    public Optional<Livro> buscarLivroPorIsbn() {
+        return gerenciador.buscarLivroPorIsbn(isbns[ThreadLocalRandom.current().nextInt(tamanho)]);
+    }
+
+    @Benchmark
+    public Optional<Livro> buscarLivroPorIsbnInexistente() {
+        return gerenciador.buscarLivroPorIsbn("000");
+    }
+
+    @Benchmark
+    public List<Livro> buscarLivrosPorTituloPalavra() {
+        return gerenciador.buscarLivrosPorTitulo("sertao");
+    }
+
+    @Benchmark
+    public List<Livro> buscarLivrosPorTituloCompleto() {
+        return gerenciador.buscarLivrosPorTitulo(tituloExistente);
+    }
+
+    @Benchmark
+    public PaginaLivros navegarCategoriaPorPreco() {
+        return gerenciador.navegar(categoriaPorPreco);
+    }
+
+    @Benchmark
+    public PaginaLivros navegarFaixaDePrecoPorTitulo() {
+        return gerenciador.navegar(faixaPorTitulo);
+    }
+
+    @Benchmark
+    public List<Sugestao> sugerirPrefixoCurto() {
+        return gerenciador.sugerir("s", 10);
+    }
+
+    @Benchmark
+    public List<Sugestao> sugerirPrefixoLongo() {
+        return gerenciador.sugerir("sertao vi", 10);
+    }
+}
@@ -0,0 +1,95 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.model.ItemCarrinho;
+import com.livraria.service.CarrinhoDeCompras;
+import com.livraria.service.GerenciadorLivros;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o fluxo do cliente: adicionar um item (que grava o arquivo do carrinho)
+ * e a compra completa, cuja baixa de estoque depende do modo de persistência
+ * do catálogo (reescrita completa do livros.txt ou acréscimo ao log).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarrinhoBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int tamanho;
+
+    @Param({"REESCRITA_COMPLETA", "LOG_DE_ALTERACOES"})
+    public ModoPersistencia modo;
+
+    private static final int ITENS_POR_CARRINHO = 16;
+
+    private Path pasta;
+    private GerenciadorLivros gerenciador;
+    private CarrinhoDeCompras carrinho;
+    private String[] isbns;
+
+    @Setup(Level.Trial)
+    public void prepararCatalogo() throws IOException {
+        pasta = CatalogoSintetico.prepararPastaDeDados(tamanho);
+        gerenciador = new GerenciadorLivros(modo);
+        carrinho = new CarrinhoDeCompras(gerenciador, "benchmark");
+        isbns = CatalogoSintetico.isbns(tamanho);
+    }
+
+    @TearDown(Level.Iteration)
+    public void esvaziarCarrinho() {
+        // Cada iteração começa com o carrinho vazio.
+        List<String> isbns = new ArrayList<>();
+        for (ItemCarrinho item : carrinho.getItens()) {
+            isbns.add(item.getLivro().getIsbn());
+        }
+        isbns.forEach(carrinho::removerItem);
+    }
+
+    @TearDown(Level.Trial)
+    public void apagarCatalogo() throws IOException {
+        CatalogoSintetico.apagar(pasta);
+    }
+
+    private String isbnAleatorio() {
+        return isbns[ThreadLocalRandom.current().nextInt(tamanho)];
+    }
+
+    @Benchmark
+    public void adicionarItem() {
+        // Sorteia entre poucos livros para que o carrinho tenha um tamanho realista:
+        // as primeiras chamadas criam itens e as demais aumentam a quantidade.
+        int indice = ThreadLocalRandom.current().nextInt(Math.min(ITENS_POR_CARRINHO, tamanho));
+        carrinho.adicionarItem(isbns[indice], 1);
+    }
+
+    @Benchmark
+    public void finalizarCompra() {
+        carrinho.adicionarItem(isbnAleatorio(), 1);
+        carrinho.adicionarItem(isbnAleatorio(), 2);
+        carrinho.finalizarCompra();
+    }
+}
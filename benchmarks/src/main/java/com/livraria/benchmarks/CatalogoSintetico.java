@@ -0,0 +1,137 @@
+package com.livraria.benchmarks;
+
+import com.livraria.model.Livro;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Gera catálogos sintéticos para os benchmarks.
+ * Os títulos e autores são combinações de palavras sorteadas com semente fixa,
+ * então duas execuções com o mesmo tamanho produzem exatamente o mesmo catálogo.
+ *
+ * A pasta de dados da aplicação é lida uma única vez (propriedade
+ * livraria.dados, na inicialização da classe DadosLivraria). Isso funciona
+ * porque o JMH executa cada combinação de benchmark e parâmetros em uma JVM
+ * própria; não rode estes benchmarks com -f 0.
+ */
+final class CatalogoSintetico {
+    // Estoque alto para que as compras repetidas dos benchmarks nunca esgotem um livro.
+    static final int ESTOQUE_INICIAL = 1_000_000_000;
+
+    private static final String[] PALAVRAS = {
+        "Amor", "Guerra", "Mar", "Sertão", "Cidade", "Noite", "Sombra", "Viagem", "Jardim", "Segredo",
+        "Tempo", "Rio", "Memórias", "Príncipe", "Montanha", "Estrela", "Caminho", "Silêncio", "Fogo", "Lua"
+    };
+    private static final String[] NOMES = {
+        "Ana", "Bruno", "Carla", "Diego", "Elisa", "Fábio", "Gabriela", "Heitor", "Iara", "João"
+    };
+    private static final String[] SOBRENOMES = {
+        "Silva", "Souza", "Oliveira", "Santos", "Lima", "Pereira", "Costa", "Almeida", "Ribeiro", "Gomes"
+    };
+    private static final String[] CATEGORIAS = {
+        "Ficção", "Romance", "Aventura", "Infantil", "Poesia", "História", "Ciência", "Biografia"
+    };
+
+    private CatalogoSintetico() {
+    }
+
+    /**
+     * @param indice A posição do livro no catálogo.
+     * @return O ISBN do livro nessa posição (13 dígitos).
+     */
+    static String isbn(int indice) {
+        return String.format("978%010d", indice);
+    }
+
+    /**
+     * @param tamanho A quantidade de livros do catálogo.
+     * @return Os ISBNs de todas as posições, para que os benchmarks não meçam a
+     *         formatação do ISBN a cada chamada.
+     */
+    static String[] isbns(int tamanho) {
+        String[] isbns = new String[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            isbns[i] = isbn(i);
+        }
+        return isbns;
+    }
+
+    /**
+     * Gera os livros de um catálogo.
+     *
+     * @param tamanho A quantidade de livros.
+     * @return Os livros, em ordem de ISBN.
+     */
+    static List<Livro> gerar(int tamanho) {
+        Random aleatorio = new Random(42);
+        List<Livro> livros = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            String titulo = PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " "
+                    + PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " " + i;
+            String autor = NOMES[aleatorio.nextInt(NOMES.length)] + " "
+                    + SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)];
+            String categoria = CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)];
+            long precoCentavos = 990 + aleatorio.nextInt(20_000);
+            livros.add(Livro.comPrecoEmCentavos(isbn(i), titulo, autor, categoria, precoCentavos, ESTOQUE_INICIAL));
+        }
+        return livros;
+    }
+
+    /**
+     * Cria uma pasta temporária com um livros.txt sintético e a define como pasta
+     * de dados da aplicação. Deve ser chamado antes de qualquer uso de
+     * DadosLivraria na JVM.
+     *
+     * @param tamanho A quantidade de livros.
+     * @return A pasta criada.
+     * @throws IOException Se a pasta ou o arquivo não puderem ser criados.
+     */
+    static Path prepararPastaDeDados(int tamanho) throws IOException {
+        Path pasta = Files.createTempDirectory("livraria-bench-");
+        try (BufferedWriter saida = Files.newBufferedWriter(pasta.resolve("livros.txt"), StandardCharsets.UTF_8)) {
+            for (Livro livro : gerar(tamanho)) {
+                saida.write(livro.getIsbn() + ";" + livro.getTitulo() + ";" + livro.getAutor() + ";"
+                        + livro.getCategoria() + ";" + (livro.getPrecoCentavos() / 100) + "."
+                        + String.format("%02d", livro.getPrecoCentavos() % 100) + ";" + livro.getEstoque());
+                saida.newLine();
+            }
+        }
+        System.setProperty("livraria.dados", pasta.toString());
+        silenciarSaida();
+        return pasta;
+    }
+
+    /**
+     * Apaga uma pasta criada por {@link #prepararPastaDeDados(int)}.
+     *
+     * @param pasta A pasta a ser apagada.
+     * @throws IOException Se algum arquivo não puder ser apagado.
+     */
+    static void apagar(Path pasta) throws IOException {
+        if (pasta == null) {
+            return;
+        }
+        try (Stream<Path> caminhos = Files.walk(pasta)) {
+            for (Path caminho : (Iterable<Path>) caminhos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(caminho);
+            }
+        }
+    }
+
+    // A aplicação imprime uma mensagem a cada operação; no benchmark isso só
+    // mediria o console. Os resultados do JMH não passam pelo System.out.
+    private static void silenciarSaida() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,104 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.data.ModoPersistencia;
+import com.livraria.service.ArmazenamentoCatalogo;
+import com.livraria.service.CarrinhoDeCompras;
+import com.livraria.service.GerenciadorLivros;
+import com.livraria.service.MotorCompras;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mede compras simultâneas de um mesmo título (uma promoção relâmpago): cada
+ * thread tem o seu carrinho, põe nele um exemplar do título disputado e
+ * finaliza a compra. Compara o caminho direto, em que cada compra retira o
+ * estoque na própria thread, com o MotorCompras, em que um único escritor
+ * aplica as compras em lotes. As gravações vão para um GravadorAssincrono sem
+ * durabilidade, para que a medida seja a da disputa pelo estoque, e não a do
+ * disco.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CompraConcorrenteBenchmark {
+
+    /** Como as baixas de estoque são aplicadas. */
+    public enum Caminho {
+        DIRETO, MOTOR
+    }
+
+    @Param({"DIRETO", "MOTOR"})
+    public Caminho caminho;
+
+    private static final int TAMANHO = 10_000;
+    private static final int CAPACIDADE_FILA = 4096;
+
+    private Path pasta;
+    private GravadorAssincrono gravador;
+    private GerenciadorLivros gerenciador;
+    private MotorCompras motor;
+    private String isbnDisputado;
+    private final AtomicInteger sessoes = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void prepararCatalogo() throws IOException {
+        pasta = CatalogoSintetico.prepararPastaDeDados(TAMANHO);
+        gravador = new GravadorAssincrono(100, Durabilidade.NENHUMA);
+        gerenciador = new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES, ArmazenamentoCatalogo.MAPA, gravador);
+        if (caminho == Caminho.MOTOR) {
+            motor = new MotorCompras(gerenciador, CAPACIDADE_FILA);
+            gerenciador.usarMotorCompras(motor);
+        }
+        isbnDisputado = CatalogoSintetico.isbn(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void apagarCatalogo() throws IOException {
+        if (motor != null) {
+            gerenciador.usarMotorCompras(null);
+            motor.close();
+        }
+        gravador.close();
+        CatalogoSintetico.apagar(pasta);
+    }
+
+    /** O carrinho de cada thread (uma sessão por thread). */
+    @State(Scope.Thread)
+    public static class Cliente {
+        CarrinhoDeCompras carrinho;
+
+        @Setup(Level.Trial)
+        public void abrirCarrinho(CompraConcorrenteBenchmark benchmark) {
+            carrinho = new CarrinhoDeCompras(benchmark.gerenciador, "cliente-" + benchmark.sessoes.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    public boolean comprarTituloDisputado(Cliente cliente) {
+        cliente.carrinho.adicionarItem(isbnDisputado, 1);
+        return cliente.carrinho.finalizarCompra();
+    }
+}
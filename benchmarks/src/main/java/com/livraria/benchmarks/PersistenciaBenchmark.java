@@ -0,0 +1,95 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.DadosLivraria;
+import com.livraria.model.Livro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a carga e a gravação do catálogo completo (DadosLivraria).
+ * Na carga, usarSnapshot=false apaga o snapshot binário antes de cada chamada,
+ * o que mede a leitura do livros.txt; com true mede a leitura do livros.bin.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Carga {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int tamanho;
+
+        @Param({"false", "true"})
+        public boolean usarSnapshot;
+
+        private Path pasta;
+
+        @Setup(Level.Trial)
+        public void prepararCatalogo() throws IOException {
+            pasta = CatalogoSintetico.prepararPastaDeDados(tamanho);
+            DadosLivraria.carregarLivros(); // Gera o livros.bin.
+        }
+
+        @Setup(Level.Invocation)
+        public void prepararCarga() throws IOException {
+            if (!usarSnapshot) {
+                Files.deleteIfExists(pasta.resolve("livros.bin"));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void apagarCatalogo() throws IOException {
+            CatalogoSintetico.apagar(pasta);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Gravacao {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int tamanho;
+
+        private Path pasta;
+        private List<Livro> livros;
+
+        @Setup(Level.Trial)
+        public void prepararCatalogo() throws IOException {
+            pasta = CatalogoSintetico.prepararPastaDeDados(tamanho);
+            livros = DadosLivraria.carregarLivros();
+        }
+
+        @TearDown(Level.Trial)
+        public void apagarCatalogo() throws IOException {
+            CatalogoSintetico.apagar(pasta);
+        }
+    }
+
+    @Benchmark
+    public List<Livro> carregarLivros(Carga carga) {
+        return DadosLivraria.carregarLivros();
+    }
+
+    @Benchmark
+    public void salvarLivros(Gravacao gravacao) {
+        DadosLivraria.salvarLivros(gravacao.livros);
+    }
+}
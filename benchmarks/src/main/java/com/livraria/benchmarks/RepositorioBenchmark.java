@@ -0,0 +1,97 @@
+package com.livraria.benchmarks;
+
+import com.livraria.data.Durabilidade;
+import com.livraria.data.RepositorioLivraria;
+import com.livraria.data.RepositorioMemoria;
+import com.livraria.data.TipoRepositorio;
+import com.livraria.model.Livro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara os repositórios (TEXTO, MAPEADO e MEMORIA) sobre o mesmo catálogo
+ * sintético: o tempo de carga do catálogo inteiro e a latência de cada
+ * gravação de preço e estoque de um livro (modo SampleTime, que mostra os
+ * percentis). Como no GerenciadorLivros, o repositório é compactado a cada
+ * 10 mil gravações parciais, então a compactação do log de texto aparece na
+ * cauda. Ao fim de cada execução, o tamanho em disco de cada repositório é
+ * impresso na saída de erro (o JMH não tem uma medida para isso).
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositorioBenchmark {
+
+    // Gravações parciais entre duas compactações (como LIMITE_REGISTROS_LOG do GerenciadorLivros).
+    private static final int LIMITE_REGISTROS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Repositorio {
+        @Param({"10000", "100000", "1000000"})
+        public int tamanho;
+
+        @Param({"TEXTO", "MAPEADO", "MEMORIA"})
+        public TipoRepositorio tipo;
+
+        private Path pasta;
+        private RepositorioLivraria repositorio;
+        private List<Livro> livros;
+        private int proximo;
+        private int registros;
+
+        @Setup(Level.Trial)
+        public void prepararRepositorio() throws IOException {
+            pasta = CatalogoSintetico.prepararPastaDeDados(tamanho);
+            repositorio = tipo == TipoRepositorio.MEMORIA
+                    ? new RepositorioMemoria(CatalogoSintetico.gerar(tamanho))
+                    : tipo.criar();
+            // A primeira carga gera o livros.bin (TEXTO) ou o livros.dat (MAPEADO).
+            livros = repositorio.carregarLivros();
+        }
+
+        @TearDown(Level.Trial)
+        public void apagarRepositorio() throws IOException {
+            System.err.printf("%n%s com %d livros: %d bytes em disco%n", tipo, tamanho,
+                    repositorio.getTamanhoEmDisco());
+            repositorio.close();
+            CatalogoSintetico.apagar(pasta);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Livro> carregarLivros(Repositorio estado) {
+        return estado.repositorio.carregarLivros();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void atualizarLivro(Repositorio estado) {
+        Livro livro = estado.livros.get(estado.proximo);
+        estado.proximo = (estado.proximo + 1) % estado.livros.size();
+        livro.setEstoque(livro.getEstoque() - 1);
+        estado.repositorio.registrarAtualizacoes(List.of(livro), Durabilidade.FLUSH);
+        if (++estado.registros >= LIMITE_REGISTROS) {
+            estado.repositorio.compactarLivros(estado.livros, Durabilidade.FLUSH);
+            estado.registros = 0;
+        }
+    }
+}
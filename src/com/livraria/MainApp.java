@@ -1,9 +1,15 @@
 package com.livraria; // Pacote principal da aplicação. 
 
+import com.livraria.carga.ConfiguracaoCarga; // Parâmetros do gerador de carga.
+import com.livraria.carga.GeradorCarga; // Gerador de carga sintética (modo "carga").
+import com.livraria.carga.ResultadoCarga;
+import com.livraria.metricas.Metricas; // Importa o registro de métricas de desempenho. 
 import com.livraria.model.Livro; // Importa a classe Livro para criar objetos de exemplo. 
 import com.livraria.service.CarrinhoDeCompras; // Importa a classe de serviço do carrinho. 
 import com.livraria.service.GerenciadorLivros; // Importa a classe de serviço do gerenciador de livros. 
 
+import java.io.IOException;
+
 /**
  * Classe principal da aplicação.
  * Esta classe atua como o ponto de entrada do programa (contém o método
@@ -12,14 +18,23 @@ import com.livraria.service.GerenciadorLivros; // Importa a classe de serviço d
  * 'View' simplificada
  * que invoca as operações dos 'Controllers' (GerenciadorLivros e
  * CarrinhoDeCompras).
+ * Com o argumento "carga", em vez da simulação roteirizada, executa o
+ * GeradorCarga: clientes simultâneos sobre um catálogo sintético, configurados
+ * pelas propriedades -Dlivraria.carga.* (veja ConfiguracaoCarga).
  */
 public class MainApp {
     /**
      * Método principal que é executado quando o programa é iniciado.
      * 
-     * @param args Argumentos da linha de comando (não usados neste projeto).
+     * @param args Vazio para a simulação roteirizada, ou "carga" para o gerador de carga.
+     * @throws IOException Se os arquivos temporários do gerador de carga não puderem ser criados.
+     * @throws InterruptedException Se o gerador de carga for interrompido.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("carga")) {
+            executarCarga();
+            return;
+        }
         // 1. Cria instâncias dos 'Controllers' (camada de serviço/lógica de negócio).
         // GerenciadorLivros lida com operações do catálogo (CRUD de livros).
         GerenciadorLivros gerenciadorLivros = new GerenciadorLivros();
@@ -70,5 +85,23 @@ public class MainApp {
         System.out.println("Livros disponíveis (após a compra, estoque atualizado):");
         gerenciadorLivros.getTodosLivros().forEach(System.out::println); // Exibe os livros novamente para verificar o
                                                                          // estoque atualizado.
+        // Tempos e contagens de cada operação durante a simulação (também disponíveis via JMX).
+        System.out.println("\n--- Métricas ---");
+        System.out.print(Metricas.relatorio());
+    }
+
+    // Executa o gerador de carga e imprime o relatório. Termina com código 1 se o
+    // estoque ficou inconsistente (para uso em scripts de teste de longa duração).
+    private static void executarCarga() throws IOException, InterruptedException {
+        ConfiguracaoCarga configuracao = ConfiguracaoCarga.dasPropriedades();
+        System.out.println("Gerando carga: " + configuracao);
+        ResultadoCarga resultado = new GeradorCarga(configuracao).executar();
+        System.out.println("\n--- Resultado da Carga ---");
+        System.out.print(resultado.relatorio());
+        System.out.println("\n--- Métricas ---");
+        System.out.print(Metricas.relatorio());
+        if (resultado.getViolacoes() > 0 || resultado.getDivergenciasGravadas() > 0) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,429 @@
+package com.livraria.carga; // Pacote do gerador de carga sintética.
+
+import com.livraria.data.TipoRepositorio;
+import com.livraria.service.ArmazenamentoCatalogo;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parâmetros de uma execução do {@link GeradorCarga}: o catálogo sintético, os
+ * clientes simulados, a mistura de operações e a duração. É imutável; cada
+ * método "com..." devolve uma nova configuração:
+ * <pre>
+ * ConfiguracaoCarga.padrao().comLivros(1_000_000).comClientes(64).comDuracaoSegundos(600)
+ * </pre>
+ * {@link #dasPropriedades()} lê os mesmos valores das propriedades
+ * -Dlivraria.carga.* (veja o Javadoc de cada método "com...").
+ */
+public final class ConfiguracaoCarga {
+
+    /**
+     * As operações de um cliente simulado.
+     */
+    public enum TipoOperacao {
+        /** Busca por duas palavras de título ou autor (buscarLivros). */
+        BUSCA,
+        /** Adiciona um livro ao carrinho. */
+        ADICAO,
+        /** Muda a quantidade de um item do carrinho (ou adiciona um, se estiver vazio). */
+        ATUALIZACAO,
+        /** Finaliza a compra (ou adiciona um livro, se o carrinho estiver vazio). */
+        COMPRA
+    }
+
+    private final int livros;
+    private final int estoqueInicial;
+    private final int livrosQuentes;
+    private final double fracaoQuente;
+    private final int clientes;
+    private final long duracaoSegundos;
+    private final long aquecimentoSegundos;
+    private final double pensamentoMillis;
+    private final Map<TipoOperacao, Integer> mistura;
+    private final TipoRepositorio repositorio;
+    private final ArmazenamentoCatalogo armazenamento;
+    private final int filaCompras;
+    private final long reservasMinutos;
+    private final long semente;
+
+    private ConfiguracaoCarga(int livros, int estoqueInicial, int livrosQuentes, double fracaoQuente, int clientes,
+            long duracaoSegundos, long aquecimentoSegundos, double pensamentoMillis,
+            Map<TipoOperacao, Integer> mistura, TipoRepositorio repositorio, ArmazenamentoCatalogo armazenamento,
+            int filaCompras, long reservasMinutos, long semente) {
+        this.livros = livros;
+        this.estoqueInicial = estoqueInicial;
+        this.livrosQuentes = livrosQuentes;
+        this.fracaoQuente = fracaoQuente;
+        this.clientes = clientes;
+        this.duracaoSegundos = duracaoSegundos;
+        this.aquecimentoSegundos = aquecimentoSegundos;
+        this.pensamentoMillis = pensamentoMillis;
+        this.mistura = mistura;
+        this.repositorio = repositorio;
+        this.armazenamento = armazenamento;
+        this.filaCompras = filaCompras;
+        this.reservasMinutos = reservasMinutos;
+        this.semente = semente;
+    }
+
+    /**
+     * @return A configuração padrão: 100 mil livros com 100 unidades cada, 80%
+     *         dos acessos concentrados em mil livros, 16 clientes por 30
+     *         segundos (após 5 de aquecimento), 5 ms de pensamento em média e a
+     *         mistura busca=50, adicao=25, atualizacao=10, compra=15, com o
+     *         repositório em memória e o catálogo inteiro carregado (MAPA).
+     */
+    public static ConfiguracaoCarga padrao() {
+        return new ConfiguracaoCarga(100_000, 100, 1_000, 0.8, 16, 30, 5, 5,
+                lerMistura("busca=50,adicao=25,atualizacao=10,compra=15"), TipoRepositorio.MEMORIA,
+                ArmazenamentoCatalogo.MAPA, 0, 0, 42);
+    }
+
+    /**
+     * Lê a configuração das propriedades do sistema; as ausentes ficam com o
+     * valor de {@link #padrao()}.
+     *
+     * @return A configuração lida.
+     * @throws IllegalArgumentException Se alguma propriedade tiver um valor inválido.
+     */
+    public static ConfiguracaoCarga dasPropriedades() {
+        ConfiguracaoCarga padrao = padrao();
+        String mistura = System.getProperty("livraria.carga.mistura");
+        return padrao.comLivros(Integer.getInteger("livraria.carga.livros", padrao.livros))
+                .comEstoqueInicial(Integer.getInteger("livraria.carga.estoque", padrao.estoqueInicial))
+                .comLivrosQuentes(Integer.getInteger("livraria.carga.quentes", padrao.livrosQuentes),
+                        Double.parseDouble(System.getProperty("livraria.carga.fracaoQuente",
+                                String.valueOf(padrao.fracaoQuente))))
+                .comClientes(Integer.getInteger("livraria.carga.clientes", padrao.clientes))
+                .comDuracaoSegundos(Long.getLong("livraria.carga.duracao", padrao.duracaoSegundos))
+                .comAquecimentoSegundos(Long.getLong("livraria.carga.aquecimento", padrao.aquecimentoSegundos))
+                .comPensamentoMillis(Double.parseDouble(System.getProperty("livraria.carga.pensamento",
+                        String.valueOf(padrao.pensamentoMillis))))
+                .comMistura(mistura != null ? lerMistura(mistura) : padrao.mistura)
+                .comRepositorio(TipoRepositorio.valueOf(System.getProperty("livraria.carga.repositorio",
+                        padrao.repositorio.name())))
+                .comArmazenamento(ArmazenamentoCatalogo.valueOf(System.getProperty("livraria.carga.armazenamento",
+                        padrao.armazenamento.name())))
+                .comFilaCompras(Integer.getInteger("livraria.carga.fila", padrao.filaCompras))
+                .comReservasMinutos(Long.getLong("livraria.carga.reservas", padrao.reservasMinutos))
+                .comSemente(Long.getLong("livraria.carga.semente", padrao.semente));
+    }
+
+    // Lê uma mistura no formato "busca=50,adicao=25,...": pesos relativos (não precisam somar 100).
+    private static Map<TipoOperacao, Integer> lerMistura(String texto) {
+        Map<TipoOperacao, Integer> pesos = new EnumMap<>(TipoOperacao.class);
+        for (String parte : texto.split(",")) {
+            String[] chaveValor = parte.trim().split("=");
+            if (chaveValor.length != 2) {
+                throw new IllegalArgumentException("Mistura inválida (esperado operacao=peso): " + parte);
+            }
+            try {
+                pesos.put(TipoOperacao.valueOf(chaveValor[0].trim().toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(chaveValor[1].trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Mistura inválida: " + parte);
+            }
+        }
+        return pesos;
+    }
+
+    /**
+     * @param livros Quantidade de livros do catálogo sintético (-Dlivraria.carga.livros).
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comLivros(int livros) {
+        if (livros <= 0) {
+            throw new IllegalArgumentException("O catálogo precisa ter pelo menos um livro.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param estoqueInicial Estoque de cada livro no início (-Dlivraria.carga.estoque).
+     *                       Valores baixos fazem os livros quentes esgotarem.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comEstoqueInicial(int estoqueInicial) {
+        if (estoqueInicial < 0) {
+            throw new IllegalArgumentException("O estoque inicial não pode ser negativo.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param livrosQuentes Quantidade de livros muito procurados (-Dlivraria.carga.quentes),
+     *                      os primeiros do catálogo.
+     * @param fracaoQuente  Fração dos acessos a livros que vai para eles
+     *                      (-Dlivraria.carga.fracaoQuente, de 0 a 1); o resto é uniforme.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comLivrosQuentes(int livrosQuentes, double fracaoQuente) {
+        if (livrosQuentes <= 0 || fracaoQuente < 0 || fracaoQuente > 1) {
+            throw new IllegalArgumentException("Livros quentes deve ser positivo e a fração, de 0 a 1.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param clientes Quantidade de clientes simultâneos (-Dlivraria.carga.clientes),
+     *                 cada um numa thread e com o seu carrinho.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comClientes(int clientes) {
+        if (clientes <= 0) {
+            throw new IllegalArgumentException("É preciso pelo menos um cliente.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param duracaoSegundos Duração da medição (-Dlivraria.carga.duracao), sem o aquecimento.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comDuracaoSegundos(long duracaoSegundos) {
+        if (duracaoSegundos <= 0) {
+            throw new IllegalArgumentException("A duração deve ser positiva.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param aquecimentoSegundos Tempo de carga antes da medição (-Dlivraria.carga.aquecimento),
+     *                            para o compilador JIT e os caches; não entra no relatório.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comAquecimentoSegundos(long aquecimentoSegundos) {
+        if (aquecimentoSegundos < 0) {
+            throw new IllegalArgumentException("O aquecimento não pode ser negativo.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param pensamentoMillis Pausa média entre duas operações de um cliente
+     *                         (-Dlivraria.carga.pensamento), sorteada com distribuição
+     *                         exponencial; 0 para operações sem pausa (vazão máxima).
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comPensamentoMillis(double pensamentoMillis) {
+        if (pensamentoMillis < 0) {
+            throw new IllegalArgumentException("O tempo de pensamento não pode ser negativo.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param mistura Peso de cada operação (-Dlivraria.carga.mistura, no formato
+     *                "busca=50,adicao=25,atualizacao=10,compra=15"); operações
+     *                ausentes têm peso 0.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comMistura(Map<TipoOperacao, Integer> mistura) {
+        Map<TipoOperacao, Integer> copia = new EnumMap<>(TipoOperacao.class);
+        int total = 0;
+        for (TipoOperacao tipo : TipoOperacao.values()) {
+            int peso = mistura.getOrDefault(tipo, 0);
+            if (peso < 0) {
+                throw new IllegalArgumentException("Peso negativo na mistura: " + tipo);
+            }
+            copia.put(tipo, peso);
+            total += peso;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("A mistura precisa de pelo menos uma operação com peso.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, copia, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param repositorio Onde o catálogo sintético é guardado (-Dlivraria.carga.repositorio).
+     *                    TEXTO e MAPEADO gravam numa pasta temporária, apagada no fim.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comRepositorio(TipoRepositorio repositorio) {
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param armazenamento Como o GerenciadorLivros guarda o catálogo
+     *                      (-Dlivraria.carga.armazenamento). SOB_DEMANDA exige o
+     *                      repositório MAPEADO; com ele, a mistura sem busca mostra
+     *                      o tempo de inicialização e a memória só dos livros usados.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comArmazenamento(ArmazenamentoCatalogo armazenamento) {
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param filaCompras Capacidade da fila do MotorCompras (-Dlivraria.carga.fila);
+     *                    0 para baixar o estoque na thread de cada cliente.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comFilaCompras(int filaCompras) {
+        if (filaCompras < 0) {
+            throw new IllegalArgumentException("A fila de compras não pode ser negativa.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param reservasMinutos Validade das reservas de estoque dos carrinhos
+     *                        (-Dlivraria.carga.reservas); 0 desativa as reservas.
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comReservasMinutos(long reservasMinutos) {
+        if (reservasMinutos < 0) {
+            throw new IllegalArgumentException("A validade das reservas não pode ser negativa.");
+        }
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @param semente Semente dos sorteios (-Dlivraria.carga.semente): o mesmo
+     *                valor gera o mesmo catálogo e a mesma sequência de escolhas
+     *                de cada cliente (a intercalação entre as threads varia).
+     * @return Uma nova configuração.
+     */
+    public ConfiguracaoCarga comSemente(long semente) {
+        return new ConfiguracaoCarga(livros, estoqueInicial, livrosQuentes, fracaoQuente, clientes, duracaoSegundos,
+                aquecimentoSegundos, pensamentoMillis, mistura, repositorio, armazenamento, filaCompras,
+                reservasMinutos, semente);
+    }
+
+    /**
+     * @return Quantidade de livros do catálogo sintético.
+     */
+    public int getLivros() {
+        return livros;
+    }
+
+    /**
+     * @return Estoque de cada livro no início.
+     */
+    public int getEstoqueInicial() {
+        return estoqueInicial;
+    }
+
+    /**
+     * @return Livros quentes, limitado ao tamanho do catálogo.
+     */
+    public int getLivrosQuentes() {
+        return Math.min(livrosQuentes, livros);
+    }
+
+    /**
+     * @return Fração dos acessos a livros que vai para os livros quentes.
+     */
+    public double getFracaoQuente() {
+        return fracaoQuente;
+    }
+
+    /**
+     * @return Quantidade de clientes simultâneos.
+     */
+    public int getClientes() {
+        return clientes;
+    }
+
+    /**
+     * @return Duração da medição, em segundos.
+     */
+    public long getDuracaoSegundos() {
+        return duracaoSegundos;
+    }
+
+    /**
+     * @return Duração do aquecimento, em segundos.
+     */
+    public long getAquecimentoSegundos() {
+        return aquecimentoSegundos;
+    }
+
+    /**
+     * @return Pausa média entre duas operações de um cliente, em milissegundos.
+     */
+    public double getPensamentoMillis() {
+        return pensamentoMillis;
+    }
+
+    /**
+     * @param tipo A operação.
+     * @return O peso da operação na mistura.
+     */
+    public int getPeso(TipoOperacao tipo) {
+        return mistura.get(tipo);
+    }
+
+    /**
+     * @return Onde o catálogo sintético é guardado.
+     */
+    public TipoRepositorio getRepositorio() {
+        return repositorio;
+    }
+
+    /**
+     * @return Como o GerenciadorLivros guarda o catálogo.
+     */
+    public ArmazenamentoCatalogo getArmazenamento() {
+        return armazenamento;
+    }
+
+    /**
+     * @return Capacidade da fila do motor de compras (0: sem motor).
+     */
+    public int getFilaCompras() {
+        return filaCompras;
+    }
+
+    /**
+     * @return Validade das reservas de estoque, em minutos (0: sem reservas).
+     */
+    public long getReservasMinutos() {
+        return reservasMinutos;
+    }
+
+    /**
+     * @return Semente dos sorteios.
+     */
+    public long getSemente() {
+        return semente;
+    }
+
+    @Override
+    public String toString() {
+        return livros + " livros (estoque " + estoqueInicial + ", " + getLivrosQuentes() + " quentes com "
+                + Math.round(fracaoQuente * 100) + "% dos acessos), " + clientes + " clientes, " + duracaoSegundos
+                + " s (+" + aquecimentoSegundos + " s de aquecimento), pensamento " + pensamentoMillis
+                + " ms, mistura " + mistura + ", repositório " + repositorio
+                + (armazenamento != ArmazenamentoCatalogo.MAPA ? ", armazenamento " + armazenamento : "")
+                + (filaCompras > 0 ? ", motor de compras com fila " + filaCompras : "")
+                + (reservasMinutos > 0 ? ", reservas de " + reservasMinutos + " min" : "");
+    }
+}
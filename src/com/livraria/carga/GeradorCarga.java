@@ -0,0 +1,391 @@
+package com.livraria.carga; // Pacote do gerador de carga sintética.
+
+import com.livraria.carga.ConfiguracaoCarga.TipoOperacao;
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioLivraria;
+import com.livraria.metricas.HistogramaLatencia;
+import com.livraria.metricas.Metricas;
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Livro;
+import com.livraria.service.CarrinhoDeCompras;
+import com.livraria.service.GerenciadorLivros;
+import com.livraria.service.MotorCompras;
+import com.livraria.service.ReservasEstoque;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Gerador de carga sintética ("soak test"): cria um catálogo sintético, abre
+ * um GerenciadorLivros sobre ele e simula clientes simultâneos, cada um numa
+ * thread e com o seu CarrinhoDeCompras, que buscam, adicionam e alteram
+ * itens e finalizam compras na mistura e no ritmo da {@link ConfiguracaoCarga}.
+ * Depois do aquecimento, mede a latência de cada operação (do ponto de vista
+ * do cliente), o coletor de lixo e a alocação; no fim, confere se o estoque de
+ * cada livro é exatamente o inicial menos o vendido e o reservado, e se o
+ * repositório gravou o mesmo estoque que está em memória.
+ * <p>
+ * Os arquivos da execução (o catálogo, com os repositórios TEXTO e MAPEADO,
+ * e o log das reservas) ficam numa pasta temporária, apagada no fim, definida
+ * como pasta de dados da aplicação (propriedade livraria.dados, lida uma única
+ * vez pela DadosLivraria): a execução deve acontecer antes de qualquer outro
+ * uso da DadosLivraria na JVM, e os dados reais nunca são tocados.
+ */
+public class GeradorCarga {
+    private static final String[] PALAVRAS = {
+        "Amor", "Guerra", "Mar", "Sertão", "Cidade", "Noite", "Sombra", "Viagem", "Jardim", "Segredo",
+        "Tempo", "Rio", "Memórias", "Príncipe", "Montanha", "Estrela", "Caminho", "Silêncio", "Fogo", "Lua"
+    };
+    private static final String[] NOMES = {
+        "Ana", "Bruno", "Carla", "Diego", "Elisa", "Fábio", "Gabriela", "Heitor", "Iara", "João"
+    };
+    private static final String[] SOBRENOMES = {
+        "Silva", "Souza", "Oliveira", "Santos", "Lima", "Pereira", "Costa", "Almeida", "Ribeiro", "Gomes"
+    };
+    private static final String[] CATEGORIAS = {
+        "Ficção", "Romance", "Aventura", "Infantil", "Poesia", "História", "Ciência", "Biografia"
+    };
+
+    private final ConfiguracaoCarga configuracao;
+    private final String[] isbns;
+    private final Map<String, Integer> posicoes; // ISBN -> posição no catálogo sintético.
+    private final AtomicIntegerArray vendidas; // Unidades vendidas de cada livro, com o aquecimento.
+    private final LongAdder comprasConcluidas = new LongAdder();
+    private final Map<TipoOperacao, HistogramaLatencia> latencias = new EnumMap<>(TipoOperacao.class);
+    private final Map<TipoOperacao, LongAdder> falhas = new EnumMap<>(TipoOperacao.class);
+    private final LongAdder bytesAlocados = new LongAdder();
+    private volatile boolean alocacaoMedida = true;
+    private long inicioMedicao; // System.nanoTime() do fim do aquecimento.
+    private long fimMedicao;
+
+    /**
+     * Cria um gerador para uma configuração. Cada gerador executa uma única vez.
+     *
+     * @param configuracao O catálogo, os clientes, a mistura e a duração.
+     */
+    public GeradorCarga(ConfiguracaoCarga configuracao) {
+        this.configuracao = configuracao;
+        this.isbns = new String[configuracao.getLivros()];
+        this.posicoes = new HashMap<>(configuracao.getLivros() * 2);
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = String.format("978%010d", i);
+            posicoes.put(isbns[i], i);
+        }
+        this.vendidas = new AtomicIntegerArray(isbns.length);
+        for (TipoOperacao tipo : TipoOperacao.values()) {
+            latencias.put(tipo, new HistogramaLatencia());
+            falhas.put(tipo, new LongAdder());
+        }
+    }
+
+    /**
+     * Executa a carga: aquecimento, medição e verificação do estoque. Durante a
+     * execução, as mensagens que a aplicação imprime a cada operação são
+     * descartadas (o System.out é restaurado no fim). As métricas da aplicação
+     * (Metricas) são zeradas no fim do aquecimento, então Metricas.relatorio()
+     * depois da execução cobre só a medição.
+     *
+     * @return O resultado, com o relatório.
+     * @throws IOException Se a pasta temporária ou os arquivos do repositório não puderem ser criados.
+     * @throws InterruptedException Se a thread for interrompida enquanto espera os clientes.
+     */
+    public ResultadoCarga executar() throws IOException, InterruptedException {
+        // Mesmo com o repositório em memória, as reservas gravam o seu log na pasta de dados.
+        Path pasta = Files.createTempDirectory("livraria-carga-");
+        System.setProperty("livraria.dados", pasta.toString());
+        PrintStream saidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        RepositorioLivraria repositorio = configuracao.getRepositorio().criar();
+        GravadorAssincrono gravador = new GravadorAssincrono(100, Durabilidade.FLUSH);
+        MotorCompras motor = null;
+        ReservasEstoque reservas = null;
+        try {
+            repositorio.salvarLivros(gerarCatalogo(), Durabilidade.FLUSH);
+            long inicioCarga = System.nanoTime();
+            GerenciadorLivros gerenciador = new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES,
+                    configuracao.getArmazenamento(), gravador, repositorio);
+            gerenciador.usarMensagens(false); // Como no servidor HTTP.
+            long cargaCatalogoMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioCarga);
+            if (configuracao.getFilaCompras() > 0) {
+                motor = new MotorCompras(gerenciador, configuracao.getFilaCompras());
+                gerenciador.usarMotorCompras(motor);
+            }
+            if (configuracao.getReservasMinutos() > 0) {
+                reservas = new ReservasEstoque(gerenciador,
+                        TimeUnit.MINUTES.toMillis(configuracao.getReservasMinutos()));
+                gerenciador.usarReservas(reservas);
+            }
+
+            inicioMedicao = System.nanoTime() + TimeUnit.SECONDS.toNanos(configuracao.getAquecimentoSegundos());
+            fimMedicao = inicioMedicao + TimeUnit.SECONDS.toNanos(configuracao.getDuracaoSegundos());
+            List<Cliente> clientes = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < configuracao.getClientes(); i++) {
+                Cliente cliente = new Cliente(gerenciador, i);
+                Thread thread = new Thread(cliente, "cliente-carga-" + i);
+                clientes.add(cliente);
+                threads.add(thread);
+                thread.start();
+            }
+            LockSupport.parkNanos(inicioMedicao - System.nanoTime());
+            Metricas.zerarTudo();
+            long[] coletaInicial = medirColetor();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long[] coletaFinal = medirColetor();
+            double segundosMedidos = (System.nanoTime() - inicioMedicao) / 1e9;
+
+            // Confere o estoque com os clientes parados e sem reservas vencendo durante a conferência.
+            if (motor != null) {
+                gerenciador.usarMotorCompras(null);
+                motor.close();
+                motor = null;
+            }
+            if (reservas != null) {
+                gerenciador.usarReservas(null);
+                reservas.close(); // As reservas em aberto continuam valendo.
+            }
+            int[] reservado = new int[isbns.length];
+            if (reservas != null) {
+                for (Cliente cliente : clientes) {
+                    for (ItemCarrinho item : cliente.carrinho.copiarItens()) {
+                        String isbn = item.getLivro().getIsbn();
+                        reservado[posicoes.get(isbn)] += reservas.getReservado(cliente.carrinho.getIdSessao(), isbn);
+                    }
+                }
+            }
+            List<String> exemplos = new ArrayList<>();
+            long violacoes = 0;
+            Map<String, Integer> estoques = new HashMap<>(isbns.length * 2);
+            for (Livro livro : gerenciador.getTodosLivros()) {
+                estoques.put(livro.getIsbn(), livro.getEstoque());
+            }
+            for (int i = 0; i < isbns.length; i++) {
+                Integer estoque = estoques.get(isbns[i]);
+                int esperado = configuracao.getEstoqueInicial() - vendidas.get(i) - reservado[i];
+                if (estoque == null || estoque != esperado || estoque < 0) {
+                    violacoes++;
+                    if (exemplos.size() < ResultadoCarga.EXEMPLOS_VIOLACAO) {
+                        exemplos.add(isbns[i] + ": estoque " + estoque + ", esperado " + esperado + " (inicial "
+                                + configuracao.getEstoqueInicial() + ", vendidas " + vendidas.get(i)
+                                + ", reservadas " + reservado[i] + ")");
+                    }
+                }
+            }
+            // Depois da última gravação, o repositório deve ter o mesmo estoque que a memória.
+            gravador.flush();
+            long divergencias = 0;
+            for (Livro gravado : repositorio.carregarLivros()) {
+                if (!Integer.valueOf(gravado.getEstoque()).equals(estoques.get(gravado.getIsbn()))) {
+                    divergencias++;
+                }
+            }
+
+            long total = 0;
+            for (int i = 0; i < isbns.length; i++) {
+                total += vendidas.get(i);
+            }
+            Map<TipoOperacao, Long> recusas = new EnumMap<>(TipoOperacao.class);
+            falhas.forEach((tipo, contador) -> recusas.put(tipo, contador.sum()));
+            return new ResultadoCarga(configuracao, cargaCatalogoMillis, segundosMedidos, latencias, recusas,
+                    comprasConcluidas.sum(), total, coletaFinal[0] - coletaInicial[0],
+                    coletaFinal[1] - coletaInicial[1], alocacaoMedida ? bytesAlocados.sum() : -1, violacoes,
+                    divergencias, exemplos);
+        } finally {
+            if (motor != null) {
+                motor.close();
+            }
+            if (reservas != null) {
+                reservas.close(); // Sem efeito se já foram fechadas.
+            }
+            gravador.close();
+            repositorio.close();
+            System.setOut(saidaOriginal);
+            apagar(pasta);
+        }
+    }
+
+    // Mesmo esquema de títulos e autores dos benchmarks: palavras sorteadas com semente fixa.
+    private List<Livro> gerarCatalogo() {
+        Random aleatorio = new Random(configuracao.getSemente());
+        List<Livro> livros = new ArrayList<>(isbns.length);
+        for (int i = 0; i < isbns.length; i++) {
+            String titulo = PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " "
+                    + PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " " + i;
+            String autor = NOMES[aleatorio.nextInt(NOMES.length)] + " "
+                    + SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)];
+            String categoria = CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)];
+            livros.add(Livro.comPrecoEmCentavos(isbns[i], titulo, autor, categoria, 990 + aleatorio.nextInt(20_000),
+                    configuracao.getEstoqueInicial()));
+        }
+        return livros;
+    }
+
+    // Quantidade e tempo total (ms) das coletas de todos os coletores até agora.
+    private static long[] medirColetor() {
+        long[] total = new long[2];
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total[0] += Math.max(0, coletor.getCollectionCount());
+            total[1] += Math.max(0, coletor.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Bytes alocados até agora pela thread atual, ou -1 se a JVM não mede.
+    private static long alocadosPelaThread() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void apagar(Path pasta) throws IOException {
+        try (Stream<Path> caminhos = Files.walk(pasta)) {
+            for (Path caminho : (Iterable<Path>) caminhos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(caminho);
+            }
+        }
+    }
+
+    // Um cliente simulado: sorteia operações até o fim da medição, com o seu próprio carrinho.
+    private final class Cliente implements Runnable {
+        private final GerenciadorLivros gerenciador;
+        private final CarrinhoDeCompras carrinho;
+        private final Random aleatorio;
+        private final int pesoTotal;
+
+        Cliente(GerenciadorLivros gerenciador, int numero) {
+            this.gerenciador = gerenciador;
+            this.carrinho = new CarrinhoDeCompras(gerenciador, "carga-" + numero);
+            this.aleatorio = new Random(configuracao.getSemente() * 31 + numero);
+            int soma = 0;
+            for (TipoOperacao tipo : TipoOperacao.values()) {
+                soma += configuracao.getPeso(tipo);
+            }
+            this.pesoTotal = soma;
+        }
+
+        @Override
+        public void run() {
+            long alocadosNoInicio = -1;
+            while (true) {
+                long agora = System.nanoTime();
+                if (agora >= fimMedicao) {
+                    break;
+                }
+                boolean medindo = agora >= inicioMedicao;
+                if (medindo && alocadosNoInicio < 0) {
+                    alocadosNoInicio = alocadosPelaThread();
+                    if (alocadosNoInicio < 0) {
+                        alocacaoMedida = false;
+                        alocadosNoInicio = 0;
+                    }
+                }
+                executarUma(medindo);
+                pensar();
+            }
+            if (alocadosNoInicio >= 0 && alocacaoMedida) {
+                bytesAlocados.add(alocadosPelaThread() - alocadosNoInicio);
+            }
+        }
+
+        private void executarUma(boolean medindo) {
+            TipoOperacao tipo = sortearOperacao();
+            List<ItemCarrinho> itens = carrinho.copiarItens();
+            if (itens.isEmpty() && (tipo == TipoOperacao.ATUALIZACAO || tipo == TipoOperacao.COMPRA)) {
+                tipo = TipoOperacao.ADICAO; // Nada a alterar ou comprar: o cliente escolhe um livro.
+            }
+            boolean aceita;
+            long inicio = System.nanoTime();
+            switch (tipo) {
+                case BUSCA:
+                    gerenciador.buscarLivros(PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " "
+                            + NOMES[aleatorio.nextInt(NOMES.length)] + " "
+                            + SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)]);
+                    aceita = true;
+                    break;
+                case ADICAO:
+                    aceita = carrinho.adicionarItem(isbns[sortearLivro()], 1 + aleatorio.nextInt(2));
+                    break;
+                case ATUALIZACAO:
+                    aceita = carrinho.atualizarQuantidadeItem(
+                            itens.get(aleatorio.nextInt(itens.size())).getLivro().getIsbn(), 1 + aleatorio.nextInt(3));
+                    break;
+                default:
+                    aceita = carrinho.finalizarCompra();
+                    break;
+            }
+            long duracao = System.nanoTime() - inicio;
+            if (medindo) {
+                latencias.get(tipo).registrar(duracao);
+                if (!aceita) {
+                    falhas.get(tipo).increment();
+                }
+            }
+            if (tipo == TipoOperacao.COMPRA) {
+                if (aceita) {
+                    // Só este cliente altera o próprio carrinho: a cópia tirada antes é o que foi comprado.
+                    for (ItemCarrinho item : itens) {
+                        vendidas.addAndGet(posicoes.get(item.getLivro().getIsbn()), item.getQuantidade());
+                    }
+                    comprasConcluidas.increment();
+                } else {
+                    // Algum livro esgotou: o cliente desiste do carrinho.
+                    for (ItemCarrinho item : itens) {
+                        carrinho.removerItem(item.getLivro().getIsbn());
+                    }
+                }
+            }
+        }
+
+        private TipoOperacao sortearOperacao() {
+            int sorteio = aleatorio.nextInt(pesoTotal);
+            for (TipoOperacao tipo : TipoOperacao.values()) {
+                sorteio -= configuracao.getPeso(tipo);
+                if (sorteio < 0) {
+                    return tipo;
+                }
+            }
+            return TipoOperacao.BUSCA; // Não acontece: os pesos somam pesoTotal.
+        }
+
+        // Os livros quentes (os primeiros do catálogo) recebem a fração configurada dos acessos.
+        private int sortearLivro() {
+            if (aleatorio.nextDouble() < configuracao.getFracaoQuente()) {
+                return aleatorio.nextInt(configuracao.getLivrosQuentes());
+            }
+            return aleatorio.nextInt(isbns.length);
+        }
+
+        // Pausa com distribuição exponencial em torno da média configurada.
+        private void pensar() {
+            double media = configuracao.getPensamentoMillis();
+            if (media > 0) {
+                double pausa = -Math.log(1 - aleatorio.nextDouble()) * media;
+                LockSupport.parkNanos((long) (pausa * 1_000_000));
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.livraria.carga; // Pacote do gerador de carga sintética.
+
+import com.livraria.carga.ConfiguracaoCarga.TipoOperacao;
+import com.livraria.metricas.HistogramaLatencia;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * O resultado de uma execução do {@link GeradorCarga}: vazão e latências de
+ * cada operação durante a medição (o aquecimento fica de fora), o trabalho do
+ * coletor de lixo e a alocação dos clientes, e as violações de consistência
+ * do estoque encontradas no fim.
+ */
+public class ResultadoCarga {
+    // Quantas violações são descritas no relatório (as demais só são contadas).
+    static final int EXEMPLOS_VIOLACAO = 10;
+
+    private final ConfiguracaoCarga configuracao;
+    private final long cargaCatalogoMillis;
+    private final double segundosMedidos;
+    private final Map<TipoOperacao, HistogramaLatencia> latencias;
+    private final Map<TipoOperacao, Long> falhas;
+    private final long comprasConcluidas;
+    private final long unidadesVendidas;
+    private final long coletas;
+    private final long tempoColetaMillis;
+    private final long bytesAlocados; // -1 se a JVM não mede a alocação por thread.
+    private final long violacoes;
+    private final long divergenciasGravadas;
+    private final List<String> exemplosViolacao;
+
+    ResultadoCarga(ConfiguracaoCarga configuracao, long cargaCatalogoMillis, double segundosMedidos,
+            Map<TipoOperacao, HistogramaLatencia> latencias, Map<TipoOperacao, Long> falhas,
+            long comprasConcluidas, long unidadesVendidas, long coletas, long tempoColetaMillis, long bytesAlocados,
+            long violacoes, long divergenciasGravadas, List<String> exemplosViolacao) {
+        this.configuracao = configuracao;
+        this.cargaCatalogoMillis = cargaCatalogoMillis;
+        this.segundosMedidos = segundosMedidos;
+        this.latencias = new EnumMap<>(latencias);
+        this.falhas = new EnumMap<>(falhas);
+        this.comprasConcluidas = comprasConcluidas;
+        this.unidadesVendidas = unidadesVendidas;
+        this.coletas = coletas;
+        this.tempoColetaMillis = tempoColetaMillis;
+        this.bytesAlocados = bytesAlocados;
+        this.violacoes = violacoes;
+        this.divergenciasGravadas = divergenciasGravadas;
+        this.exemplosViolacao = List.copyOf(exemplosViolacao);
+    }
+
+    /**
+     * @return A configuração executada.
+     */
+    public ConfiguracaoCarga getConfiguracao() {
+        return configuracao;
+    }
+
+    /**
+     * @return Tempo de criação do GerenciadorLivros (carga do catálogo), em milissegundos.
+     */
+    public long getCargaCatalogoMillis() {
+        return cargaCatalogoMillis;
+    }
+
+    /**
+     * @return Duração real da medição, em segundos.
+     */
+    public double getSegundosMedidos() {
+        return segundosMedidos;
+    }
+
+    /**
+     * @param tipo A operação.
+     * @return As latências da operação durante a medição, em nanossegundos.
+     */
+    public HistogramaLatencia getLatencias(TipoOperacao tipo) {
+        return latencias.get(tipo);
+    }
+
+    /**
+     * @param tipo A operação.
+     * @return Quantas vezes a operação foi recusada (falta de estoque) durante a medição.
+     */
+    public long getFalhas(TipoOperacao tipo) {
+        return falhas.get(tipo);
+    }
+
+    /**
+     * @return Operações por segundo durante a medição, somando todos os tipos.
+     */
+    public double getVazao() {
+        long total = 0;
+        for (HistogramaLatencia histograma : latencias.values()) {
+            total += histograma.getQuantidade();
+        }
+        return total / segundosMedidos;
+    }
+
+    /**
+     * @return Compras concluídas em toda a execução (com o aquecimento).
+     */
+    public long getComprasConcluidas() {
+        return comprasConcluidas;
+    }
+
+    /**
+     * @return Unidades vendidas em toda a execução (com o aquecimento).
+     */
+    public long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+
+    /**
+     * @return Coletas de lixo durante a medição.
+     */
+    public long getColetas() {
+        return coletas;
+    }
+
+    /**
+     * @return Tempo total das coletas de lixo durante a medição, em milissegundos.
+     */
+    public long getTempoColetaMillis() {
+        return tempoColetaMillis;
+    }
+
+    /**
+     * @return Bytes alocados pelas threads dos clientes durante a medição, ou -1
+     *         se a JVM não mede a alocação por thread.
+     */
+    public long getBytesAlocados() {
+        return bytesAlocados;
+    }
+
+    /**
+     * @return Livros cujo estoque final não bate com o inicial menos o vendido
+     *         e o reservado (ou ficou negativo). Deve ser 0.
+     */
+    public long getViolacoes() {
+        return violacoes;
+    }
+
+    /**
+     * @return Livros cujo estoque gravado no repositório difere do estoque em
+     *         memória depois da última gravação. Deve ser 0.
+     */
+    public long getDivergenciasGravadas() {
+        return divergenciasGravadas;
+    }
+
+    /**
+     * Monta o relatório em texto (tempos em microssegundos).
+     *
+     * @return O relatório.
+     */
+    public String relatorio() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Configuração: ").append(configuracao).append(System.lineSeparator());
+        sb.append(String.format(Locale.ROOT, "Carga do catálogo: %d ms; medição: %.1f s; vazão: %.1f operações/s%n",
+                cargaCatalogoMillis, segundosMedidos, getVazao()));
+        sb.append(String.format(Locale.ROOT, "%-12s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Operação", "qtd", "ops/s", "falhas", "média(us)", "p50", "p99", "p99.9", "máx"));
+        for (TipoOperacao tipo : TipoOperacao.values()) {
+            HistogramaLatencia histograma = latencias.get(tipo);
+            sb.append(String.format(Locale.ROOT, "%-12s %10d %10.1f %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    tipo.name().toLowerCase(Locale.ROOT), histograma.getQuantidade(),
+                    histograma.getQuantidade() / segundosMedidos, falhas.get(tipo), histograma.getMedia() / 1000.0,
+                    histograma.percentil(50) / 1000.0, histograma.percentil(99) / 1000.0,
+                    histograma.percentil(99.9) / 1000.0, histograma.getMaximo() / 1000.0));
+        }
+        sb.append(String.format(Locale.ROOT, "Compras concluídas: %d (%d unidades)%n", comprasConcluidas,
+                unidadesVendidas));
+        sb.append(String.format(Locale.ROOT, "Coletor de lixo: %d coletas, %d ms (%.2f%% da medição)%n", coletas,
+                tempoColetaMillis, tempoColetaMillis / (segundosMedidos * 10)));
+        if (bytesAlocados >= 0) {
+            sb.append(String.format(Locale.ROOT, "Alocação dos clientes: %.1f MB/s (%.1f KB por operação)%n",
+                    bytesAlocados / segundosMedidos / (1 << 20),
+                    bytesAlocados / 1024.0 / Math.max(1, getVazao() * segundosMedidos)));
+        } else {
+            sb.append("Alocação dos clientes: não medida nesta JVM").append(System.lineSeparator());
+        }
+        sb.append(String.format(Locale.ROOT, "Violações de estoque: %d; divergências no repositório: %d%n",
+                violacoes, divergenciasGravadas));
+        for (String exemplo : exemplosViolacao) {
+            sb.append("  ").append(exemplo).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
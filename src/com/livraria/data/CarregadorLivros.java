@@ -0,0 +1,286 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.Dinheiro;
+import com.livraria.model.Livro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer; // Arquivo mapeado em memória: lido direto pelo sistema operacional.
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Carregador rápido do arquivo de livros (formato
+ * ISBN;Título;Autor;Categoria;Preço;Estoque).
+ * O arquivo é mapeado em memória e dividido em partes que começam sempre no
+ * início de uma linha. As partes são interpretadas em paralelo, uma por
+ * núcleo, com um leitor de campos escrito à mão (sem expressões regulares e sem
+ * criar um array por linha). Linhas inválidas são informadas com o seu número.
+ */
+public class CarregadorLivros {
+    // Uma parte nunca é menor que isso: arquivos pequenos são lidos por uma só thread.
+    private static final long TAMANHO_MINIMO_PARTE = 1 << 20; // 1 MB
+    // Limite de cada mapeamento (um MappedByteBuffer não passa de 2 GB).
+    private static final long TAMANHO_MAXIMO_PARTE = 256L << 20; // 256 MB
+    private static final int CAMPOS = 6;
+
+    /**
+     * Resultado de uma carga: os livros lidos, na ordem do arquivo, e as linhas
+     * que não puderam ser interpretadas.
+     */
+    public static class ResultadoCarga {
+        private final List<Livro> livros;
+        private final List<String> erros;
+
+        ResultadoCarga(List<Livro> livros, List<String> erros) {
+            this.livros = livros;
+            this.erros = erros;
+        }
+
+        public List<Livro> getLivros() {
+            return livros;
+        }
+
+        /**
+         * @return Uma mensagem por linha inválida, já com o número da linha.
+         */
+        public List<String> getErros() {
+            return erros;
+        }
+    }
+
+    /**
+     * Carrega todos os livros de um arquivo.
+     *
+     * @param arquivo O caminho do arquivo de livros.
+     * @return Os livros lidos e os erros encontrados.
+     * @throws IOException Se o arquivo não puder ser aberto ou lido.
+     */
+    public static ResultadoCarga carregar(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long[] limites = dividirEmPartes(canal);
+            // Cada parte é interpretada de forma independente; a ordem das partes é mantida.
+            List<Parte> partes = IntStream.range(0, limites.length - 1)
+                    .parallel()
+                    .mapToObj(i -> analisarParte(canal, limites[i], limites[i + 1]))
+                    .collect(Collectors.toList());
+
+            // Junta os resultados e converte os números de linha locais em números globais.
+            int totalLivros = 0;
+            for (Parte parte : partes) {
+                if (parte.falha != null) {
+                    throw parte.falha;
+                }
+                totalLivros += parte.livros.size();
+            }
+            List<Livro> livros = new ArrayList<>(totalLivros);
+            List<String> erros = new ArrayList<>();
+            int linhasAnteriores = 0;
+            for (Parte parte : partes) {
+                livros.addAll(parte.livros);
+                for (int i = 0; i < parte.linhasComErro.size(); i++) {
+                    erros.add("Linha " + (linhasAnteriores + parte.linhasComErro.get(i)) + ": "
+                            + parte.mensagensDeErro.get(i));
+                }
+                linhasAnteriores += parte.linhas;
+            }
+            return new ResultadoCarga(livros, erros);
+        }
+    }
+
+    // Resultado parcial de uma parte do arquivo.
+    private static class Parte {
+        final List<Livro> livros = new ArrayList<>();
+        final List<Integer> linhasComErro = new ArrayList<>(); // Números de linha dentro da parte.
+        final List<String> mensagensDeErro = new ArrayList<>();
+        int linhas; // Quantidade de linhas que começam nesta parte.
+        IOException falha; // Erro de leitura (repassado a quem chamou).
+
+        void erro(int linha, String mensagem) {
+            linhasComErro.add(linha);
+            mensagensDeErro.add(mensagem);
+        }
+    }
+
+    // Calcula os limites das partes: cada limite (exceto o último) é o início de uma linha.
+    private static long[] dividirEmPartes(FileChannel canal) throws IOException {
+        long tamanho = canal.size();
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        long quantidade = Math.min(tamanho / TAMANHO_MINIMO_PARTE, nucleos * 4L);
+        quantidade = Math.max(quantidade, (tamanho + TAMANHO_MAXIMO_PARTE - 1) / TAMANHO_MAXIMO_PARTE);
+        int partes = (int) Math.max(1, quantidade);
+
+        long[] limites = new long[partes + 1];
+        for (int i = 1; i < partes; i++) {
+            long alvo = Math.max(tamanho * i / partes, limites[i - 1]);
+            limites[i] = inicioDaProximaLinha(canal, alvo, tamanho);
+        }
+        limites[partes] = tamanho;
+        return limites;
+    }
+
+    // A partir de 'posicao', encontra o primeiro byte depois do próximo '\n'.
+    private static long inicioDaProximaLinha(FileChannel canal, long posicao, long tamanho) throws IOException {
+        if (posicao == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long atual = posicao - 1; // Se o byte anterior já é '\n', a linha começa exatamente em 'posicao'.
+        while (atual < tamanho) {
+            buffer.clear();
+            int lidos = canal.read(buffer, atual);
+            if (lidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < lidos; i++) {
+                if (buffer.get(i) == '\n') {
+                    return atual + i + 1;
+                }
+            }
+            atual += lidos;
+        }
+        return tamanho;
+    }
+
+    // Interpreta todas as linhas de uma parte do arquivo.
+    private static Parte analisarParte(FileChannel canal, long inicio, long fim) {
+        Parte parte = new Parte();
+        try {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+            int tamanho = mapa.limit();
+            byte[] linha = new byte[512]; // Reaproveitado para todas as linhas da parte.
+            int[] separadores = new int[CAMPOS - 1]; // Posições dos ';' da linha atual.
+            int pos = 0;
+            while (pos < tamanho) {
+                int fimLinha = pos;
+                while (fimLinha < tamanho && mapa.get(fimLinha) != '\n') {
+                    fimLinha++;
+                }
+                parte.linhas++;
+                int comprimento = fimLinha - pos;
+                if (comprimento > 0 && mapa.get(fimLinha - 1) == '\r') {
+                    comprimento--; // Aceita arquivos com quebra de linha do Windows.
+                }
+                if (comprimento > 0) { // Linhas em branco são simplesmente ignoradas.
+                    if (comprimento > linha.length) {
+                        linha = new byte[Math.max(comprimento, linha.length * 2)];
+                    }
+                    mapa.get(pos, linha, 0, comprimento);
+                    analisarLinha(linha, comprimento, separadores, parte);
+                }
+                pos = fimLinha + 1;
+            }
+        } catch (IOException e) {
+            parte.falha = e;
+        }
+        return parte;
+    }
+
+    // Interpreta uma linha; em caso de problema registra o erro e descarta a linha.
+    private static void analisarLinha(byte[] linha, int comprimento, int[] separadores, Parte parte) {
+        int encontrados = 0;
+        for (int i = 0; i < comprimento; i++) {
+            if (linha[i] == ';') {
+                if (encontrados == separadores.length) {
+                    parte.erro(parte.linhas, "mais de " + CAMPOS + " campos");
+                    return;
+                }
+                separadores[encontrados++] = i;
+            }
+        }
+        if (encontrados != separadores.length) {
+            parte.erro(parte.linhas, "esperados " + CAMPOS + " campos, encontrados " + (encontrados + 1));
+            return;
+        }
+        long precoCentavos = lerCentavos(linha, separadores[3] + 1, separadores[4]);
+        if (precoCentavos == Long.MIN_VALUE) {
+            parte.erro(parte.linhas, "preço inválido");
+            return;
+        }
+        long estoque = lerInteiro(linha, separadores[4] + 1, comprimento);
+        if (estoque == Long.MIN_VALUE || estoque > Integer.MAX_VALUE || estoque < Integer.MIN_VALUE) {
+            parte.erro(parte.linhas, "estoque inválido");
+            return;
+        }
+        parte.livros.add(Livro.comPrecoEmCentavos(
+                texto(linha, 0, separadores[0]),
+                texto(linha, separadores[0] + 1, separadores[1]),
+                texto(linha, separadores[1] + 1, separadores[2]),
+                texto(linha, separadores[2] + 1, separadores[3]),
+                precoCentavos, (int) estoque));
+    }
+
+    private static String texto(byte[] linha, int inicio, int fim) {
+        return new String(linha, inicio, fim - inicio, StandardCharsets.UTF_8);
+    }
+
+    // Lê um valor em reais (ex: "45.00") diretamente como centavos, sem passar por
+    // double. Devolve Long.MIN_VALUE se o campo for inválido.
+    private static long lerCentavos(byte[] linha, int inicio, int fim) {
+        while (inicio < fim && linha[inicio] == ' ') {
+            inicio++;
+        }
+        while (fim > inicio && linha[fim - 1] == ' ') {
+            fim--;
+        }
+        boolean negativo = inicio < fim && linha[inicio] == '-';
+        int i = negativo ? inicio + 1 : inicio;
+        long mantissa = 0;
+        int digitos = 0;
+        int casasDecimais = -1; // -1 enquanto o ponto não aparece.
+        for (; i < fim; i++) {
+            byte b = linha[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digitos++;
+                if (casasDecimais >= 0) {
+                    casasDecimais++;
+                }
+            } else if (b == '.' && casasDecimais < 0) {
+                casasDecimais = 0;
+            } else {
+                break; // Formato não trivial (ex: notação científica).
+            }
+        }
+        if (i == fim && digitos > 0 && digitos <= 16 && casasDecimais <= 2) {
+            // Completa até duas casas decimais: "45" -> 4500, "45.5" -> 4550, "45.00" -> 4500.
+            long centavos = mantissa * (casasDecimais == 2 ? 1 : casasDecimais == 1 ? 10 : 100);
+            return negativo ? -centavos : centavos;
+        }
+        try {
+            return Dinheiro.interpretar(texto(linha, inicio, fim)); // Caminho lento, raramente usado.
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Lê um número inteiro. Devolve Long.MIN_VALUE se o campo for inválido.
+    private static long lerInteiro(byte[] linha, int inicio, int fim) {
+        while (inicio < fim && linha[inicio] == ' ') {
+            inicio++;
+        }
+        while (fim > inicio && linha[fim - 1] == ' ') {
+            fim--;
+        }
+        boolean negativo = inicio < fim && linha[inicio] == '-';
+        int i = negativo ? inicio + 1 : inicio;
+        if (i == fim || fim - i > 18) {
+            return Long.MIN_VALUE;
+        }
+        long valor = 0;
+        for (; i < fim; i++) {
+            byte b = linha[i];
+            if (b < '0' || b > '9') {
+                return Long.MIN_VALUE;
+            }
+            valor = valor * 10 + (b - '0');
+        }
+        return negativo ? -valor : valor;
+    }
+}
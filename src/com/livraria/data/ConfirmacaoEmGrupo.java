@@ -0,0 +1,94 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+/**
+ * Agrupa gravações em disco de várias threads em uma única gravação
+ * ("group commit").
+ * Cada thread altera os dados em memória e chama {@link #confirmar()}. A
+ * primeira thread a chegar vira a 'líder': espera uma pequena janela de tempo
+ * para que outras alterações se juntem ao grupo e então executa a ação de
+ * persistência uma única vez, liberando todas as threads cujas alterações
+ * foram cobertas por essa gravação.
+ */
+public class ConfirmacaoEmGrupo {
+    private final long janelaMillis; // Tempo que a líder espera por outras alterações.
+    private final Runnable acaoDePersistencia; // Grava em disco tudo o que estiver pendente.
+
+    private long solicitadas; // Número de confirmações pedidas até agora.
+    private long confirmadas; // Número de confirmações já gravadas em disco.
+    private boolean liderAtiva; // Indica se alguma thread está executando a gravação.
+
+    /**
+     * Construtor da ConfirmacaoEmGrupo.
+     *
+     * @param janelaMillis       Tempo de espera da líder antes de gravar.
+     * @param acaoDePersistencia Ação que grava em disco todas as alterações
+     *                           pendentes no momento em que é executada.
+     */
+    public ConfirmacaoEmGrupo(long janelaMillis, Runnable acaoDePersistencia) {
+        this.janelaMillis = janelaMillis;
+        this.acaoDePersistencia = acaoDePersistencia;
+    }
+
+    /**
+     * Garante que as alterações feitas em memória pela thread atual (antes desta
+     * chamada) estejam gravadas em disco. Bloqueia até que uma gravação que as
+     * inclua termine. Uma interrupção não encerra a espera (quem chamou vai
+     * tratar as alterações como gravadas); a marca de interrupção da thread é
+     * restaurada antes de retornar.
+     */
+    public void confirmar() {
+        long minhaVez;
+        synchronized (this) {
+            minhaVez = ++solicitadas;
+        }
+        boolean interrompida = false;
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (confirmadas >= minhaVez) {
+                        return; // Outra thread já gravou as nossas alterações.
+                    }
+                    if (liderAtiva) {
+                        try {
+                            wait(); // Aguarda a gravação em andamento terminar.
+                        } catch (InterruptedException e) {
+                            interrompida = true; // Continua esperando: a gravação ainda não terminou.
+                        }
+                        continue;
+                    }
+                    liderAtiva = true; // Esta thread passa a ser a líder do próximo grupo.
+                }
+                gravarComoLider();
+            }
+        } finally {
+            if (interrompida) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Espera a janela, grava uma vez e libera todas as threads cobertas pela gravação.
+    private void gravarComoLider() {
+        long alvo = 0;
+        try {
+            if (janelaMillis > 0) {
+                Thread.sleep(janelaMillis); // Dá tempo para outras compras entrarem no grupo.
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (this) {
+                // Tudo o que foi solicitado até aqui já está em memória e será gravado agora.
+                alvo = solicitadas;
+            }
+            acaoDePersistencia.run();
+        } finally {
+            synchronized (this) {
+                confirmadas = Math.max(confirmadas, alvo);
+                liderAtiva = false;
+                notifyAll(); // Acorda as seguidoras (e uma possível próxima líder).
+            }
+        }
+    }
+}
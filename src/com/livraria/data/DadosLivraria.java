@@ -1,13 +1,31 @@
 package com.livraria.data; // Pacote para classes que lidam com dados e persistência. 
 
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.Dinheiro;
 import com.livraria.model.Livro;
 import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Reserva;
 
 import java.io.*; // Classes para operações de entrada/saída (arquivos). 
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList; // Para usar listas dinâmicas. 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List; // Interface para listas. 
+import java.util.Map;
 import java.util.Optional; // Usado para lidar com valores que podem estar presentes ou ausentes. 
-import java.util.stream.Collectors; // Para operações com Streams (Java 8+). 
+import java.util.function.Consumer;
+import java.util.function.Function; // Representa a busca de um livro a partir do ISBN.
 
 /**
  * Classe responsável por simular a persistência de dados em arquivos de texto.
@@ -16,88 +34,489 @@ import java.util.stream.Collectors; // Para operações com Streams (Java 8+).
  * Em um sistema real, isso seria uma conexão com um banco de dados.
  */
 public class DadosLivraria {
+    // Pasta dos arquivos de dados. Pode ser trocada com -Dlivraria.dados=<pasta>
+    // (usado, por exemplo, pelos benchmarks para trabalhar em uma pasta temporária).
+    private static final String DIRETORIO_DADOS = System.getProperty("livraria.dados", "data");
     // Constantes para os nomes dos arquivos que simulam o banco de dados.
-    private static final String ARQUIVO_LIVROS = "data/livros.txt";
-    private static final String ARQUIVO_CARRINHO = "data/carrinho_atual.txt";
+    private static final String ARQUIVO_LIVROS = DIRETORIO_DADOS + "/livros.txt";
+    private static final String ARQUIVO_CARRINHO = DIRETORIO_DADOS + "/carrinho_atual.txt";
+    // Carrinhos por sessão: um arquivo por carrinho, distribuído em 256 subpastas
+    // (data/carrinhos/00 ... data/carrinhos/ff) para que nenhuma pasta fique enorme.
+    private static final String DIRETORIO_CARRINHOS = DIRETORIO_DADOS + "/carrinhos";
+    // Log de alterações (somente acréscimo) aplicado sobre o arquivo de livros na carga.
+    // Cada linha é um registro: "A;<livro>" (adição), "U;ISBN;Preço;Estoque" (atualização)
+    // ou "R;ISBN" (remoção).
+    private static final String ARQUIVO_LOG_LIVROS = DIRETORIO_DADOS + "/livros.log";
+    // Reservas de estoque dos carrinhos (somente acréscimo): cada linha é o estado atual de
+    // uma reserva, "sessão;ISBN;quantidade;vencimento", e a última linha de cada par
+    // sessão/ISBN prevalece (quantidade 0: reserva encerrada).
+    private static final String ARQUIVO_RESERVAS = DIRETORIO_DADOS + "/reservas.log";
+    // Registro binário dos pedidos concluídos (veja RegistroPedidos).
+    private static final String ARQUIVO_PEDIDOS = DIRETORIO_DADOS + "/pedidos.bin";
+    // Catálogo em registros de tamanho fixo (veja RepositorioMapeado).
+    private static final String ARQUIVO_LIVROS_MAPEADO = DIRETORIO_DADOS + "/livros.dat";
+    // Snapshot binário do livros.txt, usado para acelerar a inicialização.
+    private static final String ARQUIVO_LIVROS_BINARIO = DIRETORIO_DADOS + "/livros.bin";
+
+    // Métricas de leitura e gravação (veja com.livraria.metricas.Metricas).
+    private static final Operacao CARGA_LIVROS = Metricas.operacao("dados.carregarLivros");
+    private static final Operacao GRAVACAO_LIVROS = Metricas.operacao("dados.salvarLivros");
+    private static final Operacao COMPACTACAO = Metricas.operacao("dados.compactarLivros");
+    private static final Operacao GRAVACAO_LOG = Metricas.operacao("dados.acrescentarLog");
+    private static final Operacao CARGA_CARRINHO = Metricas.operacao("dados.carregarCarrinho");
+    private static final Operacao GRAVACAO_CARRINHO = Metricas.operacao("dados.salvarCarrinho");
+    private static final Operacao DESCARGA = Metricas.operacao("dados.flush"); // Esvaziar o buffer no arquivo.
+    private static final Operacao SINCRONIZACAO = Metricas.operacao("dados.fsync"); // Forçar os dados até o disco.
+    private static final Contador BYTES_LIVROS = Metricas.contador("dados.bytesGravados.livros");
+    private static final Contador BYTES_LOG = Metricas.contador("dados.bytesGravados.log");
+    private static final Contador BYTES_CARRINHOS = Metricas.contador("dados.bytesGravados.carrinhos");
+    private static final Operacao CARGA_RESERVAS = Metricas.operacao("dados.carregarReservas");
+    private static final Operacao GRAVACAO_RESERVAS = Metricas.operacao("dados.registrarReservas");
+    private static final Contador BYTES_RESERVAS = Metricas.contador("dados.bytesGravados.reservas");
+
+    // Assinatura do livros.txt logo após a última gravação feita por este processo, para
+    // que o MonitorCatalogo não recarregue o que acabou de ser gravado aqui.
+    private static volatile String assinaturaGravada;
 
     /**
-     * Carrega a lista de livros do arquivo de texto.
+     * Carrega a lista de livros: lê o arquivo de texto (snapshot) e em seguida
+     * reaplica os registros do log de alterações, se existir.
      * 
      * @return Uma lista de objetos Livro.
      */
     public static List<Livro> carregarLivros() {
-        List<Livro> livros = new ArrayList<>(); // Cria uma nova lista vazia para armazenar os livros.
-        // O bloco try-with-resources garante que o BufferedReader será fechado
-        // automaticamente.
-        try (BufferedReader br = new BufferedReader(new FileReader(ARQUIVO_LIVROS))) {
-            String linha;
-            // Lê cada linha do arquivo até o final.
-            while ((linha = br.readLine()) != null) {
-                String[] partes = linha.split(";"); // Divide a linha em partes usando ';' como delimitador.
-                // Verifica se a linha tem o número correto de partes para um livro.
-                if (partes.length == 6) {
-                    // Cria um novo objeto Livro com os dados da linha e o adiciona à lista.
-                    livros.add(new Livro(
-                            partes[0], partes[1], partes[2], partes[3],
-                            Double.parseDouble(partes[4].trim()), // Converte String para double.
-                            Integer.parseInt(partes[5].trim()) // Converte String para int.
-                    ));
-                }
+        long inicio = System.nanoTime();
+        try {
+            // Mapa por ISBN para que o log possa ser reaplicado sem percorrer a lista.
+            Map<String, Livro> livros = new LinkedHashMap<>();
+            for (Livro livro : carregarSnapshotLivros()) {
+                livros.putIfAbsent(livro.getIsbn(), livro);
+            }
+            reaplicarLog(livros);
+            return new ArrayList<>(livros.values());
+        } finally {
+            CARGA_LIVROS.registrar(inicio);
+        }
+    }
+
+    // Lê o arquivo de livros propriamente dito, sem considerar o log. Se o snapshot
+    // binário existir e corresponder ao livros.txt, ele é usado; caso contrário o
+    // texto é lido pelo CarregadorLivros (arquivo mapeado em memória e interpretado
+    // em paralelo) e um novo snapshot binário é gravado para a próxima inicialização.
+    private static List<Livro> carregarSnapshotLivros() {
+        Path texto = Paths.get(ARQUIVO_LIVROS);
+        Path binario = Paths.get(ARQUIVO_LIVROS_BINARIO);
+        List<Livro> doBinario = SnapshotBinario.carregarSeAtual(binario, texto);
+        if (doBinario != null) {
+            return doBinario;
+        }
+        try {
+            CarregadorLivros.ResultadoCarga resultado = CarregadorLivros.carregar(texto);
+            for (String erro : resultado.getErros()) {
+                System.err.println("Linha inválida em " + ARQUIVO_LIVROS + " ignorada. " + erro);
+            }
+            try {
+                SnapshotBinario.gravar(resultado.getLivros(), binario, texto);
+            } catch (IOException e) {
+                System.err.println("Erro ao gravar o snapshot binário: " + e.getMessage());
             }
-        } catch (IOException e) { // Captura exceções de I/O (ex: arquivo não encontrado, erro de
-                                  // leitura/escrita).
+            return resultado.getLivros();
+        } catch (NoSuchFileException e) {
+            System.err.println("Erro ao carregar livros: arquivo " + ARQUIVO_LIVROS + " não encontrado.");
+        } catch (IOException e) { // Captura exceções de I/O (ex: erro de leitura).
             System.err.println("Erro ao carregar livros: " + e.getMessage()); // Exibe o erro no console de erros.
         }
-        return livros; // Retorna a lista de livros carregados.
+        return new ArrayList<>();
     }
 
     /**
-     * Salva a lista atual de livros no arquivo de texto, sobrescrevendo o conteúdo
+     * Salva a coleção atual de livros no arquivo de texto, sobrescrevendo o conteúdo
      * existente.
      * 
-     * @param livros A lista de livros a ser salva.
+     * @param livros Os livros a serem salvos.
+     */
+    public static void salvarLivros(Collection<Livro> livros) {
+        salvarLivros(livros, Durabilidade.FLUSH);
+    }
+
+    /**
+     * Salva a coleção atual de livros no arquivo de texto, com a durabilidade
+     * escolhida. O arquivo é escrito em um temporário e renomeado, então uma
+     * falha no meio da gravação nunca deixa o catálogo pela metade.
+     * 
+     * @param livros       Os livros a serem salvos.
+     * @param durabilidade FSYNC para forçar o arquivo até o disco antes de retornar.
+     */
+    public static void salvarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        try {
+            gravarArquivoLivros(Paths.get(ARQUIVO_LIVROS), livros, durabilidade);
+            assinaturaGravada = assinaturaArquivoLivros();
+            // O arquivo agora contém o estado completo; um log antigo não deve mais ser reaplicado.
+            Files.deleteIfExists(Paths.get(ARQUIVO_LOG_LIVROS));
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar livros: " + e.getMessage());
+            GRAVACAO_LIVROS.contarFalha();
+        } finally {
+            GRAVACAO_LIVROS.registrar(inicio);
+        }
+    }
+
+    /**
+     * Registra no log a adição de um livro (uma única linha acrescentada ao final
+     * do arquivo, sem reescrever o catálogo).
+     * 
+     * @param livro O livro adicionado.
+     */
+    public static void registrarAdicao(Livro livro) {
+        acrescentarAoLog("A;" + formatarLivro(livro));
+    }
+
+    /**
+     * Registra no log a atualização de preço e estoque de um livro.
+     * 
+     * @param livro O livro já com os novos valores.
+     */
+    public static void registrarAtualizacao(Livro livro) {
+        acrescentarAoLog("U;" + livro.getIsbn() + ";" + Dinheiro.formatarDecimal(livro.getPrecoCentavos()) + ";" + livro.getEstoque());
+    }
+
+    /**
+     * Registra no log a atualização de vários livros de uma só vez, com uma única
+     * abertura e gravação do arquivo (usado para agrupar as baixas de estoque).
+     * 
+     * @param livros Os livros já com os novos valores.
+     */
+    public static void registrarAtualizacoes(Collection<Livro> livros) {
+        registrarAtualizacoes(livros, Durabilidade.FLUSH);
+    }
+
+    /**
+     * Registra no log a atualização de vários livros de uma só vez, com a
+     * durabilidade escolhida (veja {@link #registrarAtualizacoes(Collection)}).
+     * 
+     * @param livros       Os livros já com os novos valores.
+     * @param durabilidade FSYNC para forçar o log até o disco antes de retornar.
+     */
+    public static void registrarAtualizacoes(Collection<Livro> livros, Durabilidade durabilidade) {
+        List<String> registros = new ArrayList<>(livros.size());
+        for (Livro livro : livros) {
+            registros.add("U;" + livro.getIsbn() + ";" + Dinheiro.formatarDecimal(livro.getPrecoCentavos()) + ";" + livro.getEstoque());
+        }
+        acrescentarAoLog(registros, durabilidade);
+    }
+
+    /**
+     * Registra no log a remoção de um livro.
+     * 
+     * @param isbn O ISBN do livro removido.
+     */
+    public static void registrarRemocao(String isbn) {
+        acrescentarAoLog("R;" + isbn);
+    }
+
+    /**
+     * Registra no log o estado atual de vários livros de uma só vez, com uma
+     * única gravação (usado pela gravação em segundo plano, que junta todas as
+     * alterações de um mesmo livro em um único registro). Cada livro presente
+     * vira um registro de adição com todos os campos, que substitui o livro na
+     * carga; cada ISBN removido vira um registro de remoção.
+     * 
+     * @param livrosAtuais   Livros alterados que continuam no catálogo, já com os novos valores.
+     * @param isbnsRemovidos ISBNs de livros que saíram do catálogo.
+     * @param durabilidade   FSYNC para forçar o log até o disco antes de retornar.
+     */
+    public static void registrarAlteracoes(Collection<Livro> livrosAtuais, Collection<String> isbnsRemovidos,
+            Durabilidade durabilidade) {
+        List<String> registros = new ArrayList<>(livrosAtuais.size() + isbnsRemovidos.size());
+        for (Livro livro : livrosAtuais) {
+            registros.add("A;" + formatarLivro(livro));
+        }
+        for (String isbn : isbnsRemovidos) {
+            registros.add("R;" + isbn);
+        }
+        acrescentarAoLog(registros, durabilidade);
+    }
+
+    /**
+     * Compacta o log: grava um novo arquivo de livros com o estado atual e apaga o
+     * log. O novo arquivo é escrito em um arquivo temporário e depois renomeado,
+     * de modo que uma falha no meio do processo nunca deixa o catálogo pela
+     * metade. Se o programa parar entre a troca e a exclusão do log, a próxima
+     * carga apenas reaplica registros que já estão no arquivo (o que não altera o
+     * resultado).
+     * 
+     * @param livros O estado atual do catálogo.
+     */
+    public static void compactarLivros(Collection<Livro> livros) {
+        compactarLivros(livros, Durabilidade.FLUSH);
+    }
+
+    /**
+     * Compacta o log com a durabilidade escolhida (veja {@link #compactarLivros(Collection)}).
+     * 
+     * @param livros       O estado atual do catálogo.
+     * @param durabilidade FSYNC para forçar o novo arquivo até o disco antes de apagar o log.
+     */
+    public static void compactarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        try {
+            gravarArquivoLivros(Paths.get(ARQUIVO_LIVROS), livros, durabilidade);
+            assinaturaGravada = assinaturaArquivoLivros();
+            Files.deleteIfExists(Paths.get(ARQUIVO_LOG_LIVROS));
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar o log de livros: " + e.getMessage());
+            COMPACTACAO.contarFalha();
+        } finally {
+            COMPACTACAO.registrar(inicio);
+        }
+    }
+
+    /**
+     * @return O arquivo de livros (livros.txt) da pasta de dados.
+     */
+    public static Path getArquivoLivros() {
+        return Paths.get(ARQUIVO_LIVROS);
+    }
+
+    /**
+     * @return O arquivo do catálogo em registros de tamanho fixo (livros.dat) da pasta de dados.
+     */
+    public static Path getArquivoLivrosMapeado() {
+        return Paths.get(ARQUIVO_LIVROS_MAPEADO);
+    }
+
+    /**
+     * @return Bytes ocupados pelo catálogo em texto: livros.txt, o log de
+     *         alterações e o snapshot binário.
+     */
+    public static long getTamanhoArquivosLivros() {
+        long tamanho = 0;
+        for (String arquivo : new String[] {ARQUIVO_LIVROS, ARQUIVO_LOG_LIVROS, ARQUIVO_LIVROS_BINARIO}) {
+            File existente = new File(arquivo);
+            tamanho += existente.length(); // 0 se o arquivo não existe.
+        }
+        return tamanho;
+    }
+
+    /**
+     * Identifica o conteúdo atual do arquivo de livros sem lê-lo: tamanho, data
+     * de modificação e identificação do arquivo no sistema (que muda quando ele
+     * é substituído por outro, mesmo com o mesmo tamanho).
+     * 
+     * @return A assinatura, ou null se o arquivo não existir.
      */
-    public static void salvarLivros(List<Livro> livros) {
-        // O bloco try-with-resources garante que o BufferedWriter será fechado
-        // automaticamente.
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(ARQUIVO_LIVROS))) {
-            // Itera sobre cada livro na lista.
+    public static String assinaturaArquivoLivros() {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(Paths.get(ARQUIVO_LIVROS), BasicFileAttributes.class);
+            return atributos.size() + "/" + atributos.lastModifiedTime() + "/" + atributos.fileKey();
+        } catch (IOException e) {
+            return null; // Não existe (por exemplo, no meio de uma substituição).
+        }
+    }
+
+    /**
+     * @param assinatura Uma assinatura obtida de {@link #assinaturaArquivoLivros()}.
+     * @return true se é a do arquivo de livros gravado pela última vez por este processo.
+     */
+    public static boolean isGravacaoPropria(String assinatura) {
+        return assinatura != null && assinatura.equals(assinaturaGravada);
+    }
+
+    // Grava um arquivo de livros completo em um temporário e o renomeia por cima do destino.
+    static void gravarArquivoLivros(Path destino, Collection<Livro> livros) throws IOException {
+        gravarArquivoLivros(destino, livros, Durabilidade.FLUSH);
+    }
+
+    private static void gravarArquivoLivros(Path destino, Collection<Livro> livros, Durabilidade durabilidade)
+            throws IOException {
+        Path temporario = Paths.get(destino + ".tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile());
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(arquivo, StandardCharsets.UTF_8))) {
             for (Livro livro : livros) {
-                // Escreve os atributos do livro na linha, separados por ';'.
-                bw.write(livro.getIsbn() + ";" + livro.getTitulo() + ";" + livro.getAutor() + ";" +
-                        livro.getCategoria() + ";" + livro.getPreco() + ";" + livro.getEstoque());
-                bw.newLine(); // Adiciona uma nova linha após cada registro de livro.
+                bw.write(formatarLivro(livro));
+                bw.newLine();
             }
+            descarregar(bw);
+            forcar(arquivo, durabilidade);
+        }
+        BYTES_LIVROS.adicionar(Files.size(temporario));
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forcarPasta(destino, durabilidade);
+    }
+
+    private static void acrescentarAoLog(String registro) {
+        acrescentarAoLog(List.of(registro), Durabilidade.FLUSH);
+    }
+
+    private static void acrescentarAoLog(List<String> registros) {
+        acrescentarAoLog(registros, Durabilidade.FLUSH);
+    }
+
+    // Acrescenta linhas ao final do log (o 'true' do FileOutputStream abre em modo append).
+    private static void acrescentarAoLog(List<String> registros, Durabilidade durabilidade) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try (FileOutputStream arquivo = new FileOutputStream(ARQUIVO_LOG_LIVROS, true);
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(arquivo, StandardCharsets.UTF_8))) {
+            long tamanhoAntes = arquivo.getChannel().position(); // Em modo append, o fim do arquivo.
+            for (String registro : registros) {
+                bw.write(registro);
+                bw.newLine();
+            }
+            descarregar(bw);
+            forcar(arquivo, durabilidade);
+            if (tamanhoAntes == 0) {
+                forcarPasta(Paths.get(ARQUIVO_LOG_LIVROS), durabilidade); // O log acabou de ser criado.
+            }
+            BYTES_LOG.adicionar(arquivo.getChannel().position() - tamanhoAntes);
         } catch (IOException e) {
-            System.err.println("Erro ao salvar livros: " + e.getMessage());
+            System.err.println("Erro ao registrar alteração no log: " + e.getMessage());
+            GRAVACAO_LOG.contarFalha();
+        } finally {
+            GRAVACAO_LOG.registrar(inicio);
         }
     }
 
+    // Reaplica, na ordem, os registros do log sobre os livros carregados do arquivo.
+    // Os registros gravam valores absolutos, então reaplicá-los mais de uma vez é seguro.
+    private static void reaplicarLog(Map<String, Livro> livros) {
+        File log = new File(ARQUIVO_LOG_LIVROS);
+        if (!log.exists()) {
+            return;
+        }
+        try (BufferedReader br = Files.newBufferedReader(log.toPath(), StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = br.readLine()) != null) {
+                String[] partes = linha.split(";");
+                try {
+                    if (partes[0].equals("A") && partes.length == 7) {
+                        Livro livro = interpretarLivro(partes, 1);
+                        livros.put(livro.getIsbn(), livro);
+                    } else if (partes[0].equals("U") && partes.length == 4) {
+                        Livro livro = livros.get(partes[1]);
+                        if (livro != null) {
+                            livro.setPrecoCentavos(Dinheiro.interpretar(partes[2]));
+                            livro.setEstoque(Integer.parseInt(partes[3]));
+                        }
+                    } else if (partes[0].equals("R") && partes.length == 2) {
+                        livros.remove(partes[1]);
+                    }
+                } catch (NumberFormatException e) {
+                    // Linha incompleta (ex: gravação interrompida); é ignorada como no arquivo de livros.
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao reaplicar o log de livros: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lê um arquivo de livros (por exemplo, o arquivo de um fornecedor) linha a
+     * linha, entregando cada livro ao destino assim que é lido, sem guardar o
+     * arquivo inteiro em memória. O formato é o mesmo do livros.txt
+     * (ISBN;Título;Autor;Categoria;Preço;Estoque), em UTF-8; linhas em branco e
+     * um cabeçalho começando com "ISBN;" são ignorados.
+     * 
+     * @param arquivo O arquivo a ser lido.
+     * @param destino Recebe cada livro, na ordem do arquivo.
+     * @return Quantidade de linhas inválidas (ignoradas).
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    public static int lerLivros(Path arquivo, Consumer<Livro> destino) throws IOException {
+        int invalidas = 0;
+        int numero = 0;
+        try (BufferedReader br = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = br.readLine()) != null) {
+                numero++;
+                if (linha.isBlank() || (numero == 1 && linha.regionMatches(true, 0, "ISBN;", 0, 5))) {
+                    continue;
+                }
+                String[] partes = linha.split(";");
+                try {
+                    if (partes.length != 6) {
+                        throw new NumberFormatException("esperados 6 campos, encontrados " + partes.length);
+                    }
+                    destino.accept(interpretarLivro(partes, 0));
+                } catch (NumberFormatException e) {
+                    if (++invalidas <= 10) { // As primeiras bastam para achar o problema no arquivo.
+                        System.err.println("Linha inválida em " + arquivo + " ignorada. Linha " + numero + ": "
+                                + e.getMessage());
+                    }
+                }
+            }
+        }
+        return invalidas;
+    }
+
+    // Converte um livro para o formato de linha ISBN;Título;Autor;Categoria;Preço;Estoque.
+    private static String formatarLivro(Livro livro) {
+        return livro.getIsbn() + ";" + livro.getTitulo() + ";" + livro.getAutor() + ";" +
+                livro.getCategoria() + ";" + Dinheiro.formatarDecimal(livro.getPrecoCentavos()) + ";" +
+                livro.getEstoque();
+    }
+
+    // Cria um Livro a partir dos seis campos que começam na posição 'inicio'.
+    private static Livro interpretarLivro(String[] partes, int inicio) {
+        return Livro.comPrecoEmCentavos(
+                partes[inicio], partes[inicio + 1], partes[inicio + 2], partes[inicio + 3],
+                Dinheiro.interpretar(partes[inicio + 4]), // Converte o preço para centavos.
+                Integer.parseInt(partes[inicio + 5].trim()) // Converte String para int.
+        );
+    }
+
     /**
      * Carrega a lista de itens do carrinho do arquivo de texto.
-     * Requer a lista de todos os livros para poder associar o ISBN a um objeto
-     * Livro completo.
+     * Requer uma função de busca por ISBN (normalmente o índice do catálogo) para
+     * poder associar o ISBN a um objeto Livro completo.
      * 
-     * @param todosLivros A lista de todos os livros disponíveis no sistema.
+     * @param buscarPorIsbn Função que devolve o Livro correspondente a um ISBN.
      * @return Uma lista de objetos ItemCarrinho.
      */
-    public static List<ItemCarrinho> carregarCarrinho(List<Livro> todosLivros) {
+    public static List<ItemCarrinho> carregarCarrinho(Function<String, Optional<Livro>> buscarPorIsbn) {
+        return lerCarrinho(new File(ARQUIVO_CARRINHO), buscarPorIsbn);
+    }
+
+    /**
+     * Carrega o carrinho de uma sessão (cliente) a partir do seu próprio arquivo.
+     * Uma sessão sem arquivo simplesmente começa com o carrinho vazio.
+     * 
+     * @param idSessao      O identificador da sessão.
+     * @param buscarPorIsbn Função que devolve o Livro correspondente a um ISBN.
+     * @return Uma lista de objetos ItemCarrinho.
+     */
+    public static List<ItemCarrinho> carregarCarrinho(String idSessao,
+            Function<String, Optional<Livro>> buscarPorIsbn) {
+        File arquivo = arquivoDoCarrinho(idSessao);
+        if (!arquivo.exists()) {
+            return new ArrayList<>();
+        }
+        return lerCarrinho(arquivo, buscarPorIsbn);
+    }
+
+    private static List<ItemCarrinho> lerCarrinho(File arquivo, Function<String, Optional<Livro>> buscarPorIsbn) {
+        long inicio = System.nanoTime();
         List<ItemCarrinho> carrinho = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(ARQUIVO_CARRINHO))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(arquivo))) {
             String linha;
             while ((linha = br.readLine()) != null) {
                 String[] partes = linha.split(";");
                 if (partes.length == 2) { // Formato: ISBN;Quantidade
                     String isbn = partes[0];
                     int quantidade = Integer.parseInt(partes[1]);
-                    // Busca o objeto Livro correspondente ao ISBN na lista de todos os livros.
-                    Optional<Livro> livroOpt = todosLivros.stream().filter(l -> l.getIsbn().equals(isbn)).findFirst();
+                    // Resolve o ISBN pelo índice do catálogo, sem percorrer a lista de livros.
+                    Optional<Livro> livroOpt = buscarPorIsbn.apply(isbn);
                     // Se o livro for encontrado, cria um ItemCarrinho e o adiciona à lista.
                     livroOpt.ifPresent(livro -> carrinho.add(new ItemCarrinho(livro, quantidade)));
                 }
             }
         } catch (IOException e) {
             System.err.println("Erro ao carregar carrinho: " + e.getMessage());
+        } finally {
+            CARGA_CARRINHO.registrar(inicio);
         }
         return carrinho;
     }
@@ -109,14 +528,251 @@ public class DadosLivraria {
      * @param carrinho A lista de itens do carrinho a ser salva.
      */
     public static void salvarCarrinho(List<ItemCarrinho> carrinho) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(ARQUIVO_CARRINHO))) {
-            for (ItemCarrinho item : carrinho) {
-                // Salva apenas o ISBN do livro e a quantidade do item no carrinho.
-                bw.write(item.getLivro().getIsbn() + ";" + item.getQuantidade());
-                bw.newLine();
-            }
+        salvarCarrinho(carrinho, Durabilidade.FLUSH);
+    }
+
+    /**
+     * Salva o carrinho único com a durabilidade escolhida.
+     * 
+     * @param carrinho     A lista de itens do carrinho a ser salva.
+     * @param durabilidade FSYNC para forçar o arquivo até o disco antes de retornar.
+     */
+    public static void salvarCarrinho(List<ItemCarrinho> carrinho, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        try {
+            gravarCarrinho(Paths.get(ARQUIVO_CARRINHO), carrinho, durabilidade);
         } catch (IOException e) {
             System.err.println("Erro ao salvar carrinho: " + e.getMessage());
+            GRAVACAO_CARRINHO.contarFalha();
+        } finally {
+            GRAVACAO_CARRINHO.registrar(inicio);
+        }
+    }
+
+    /**
+     * Salva o carrinho de uma sessão no seu próprio arquivo. Somente esse arquivo
+     * é reescrito; os carrinhos das outras sessões não são tocados. Um carrinho
+     * vazio tem o seu arquivo apagado.
+     * 
+     * @param idSessao O identificador da sessão.
+     * @param carrinho A lista de itens do carrinho a ser salva.
+     */
+    public static void salvarCarrinho(String idSessao, List<ItemCarrinho> carrinho) {
+        salvarCarrinho(idSessao, carrinho, Durabilidade.FLUSH);
+    }
+
+    /**
+     * Salva o carrinho de uma sessão com a durabilidade escolhida (veja
+     * {@link #salvarCarrinho(String, List)}).
+     * 
+     * @param idSessao     O identificador da sessão.
+     * @param carrinho     A lista de itens do carrinho a ser salva.
+     * @param durabilidade FSYNC para forçar o arquivo até o disco antes de retornar.
+     */
+    public static void salvarCarrinho(String idSessao, List<ItemCarrinho> carrinho, Durabilidade durabilidade) {
+        Path destino = arquivoDoCarrinho(idSessao).toPath();
+        long inicio = System.nanoTime();
+        try {
+            if (carrinho.isEmpty()) {
+                if (Files.deleteIfExists(destino)) {
+                    forcarPasta(destino, durabilidade);
+                }
+                return;
+            }
+            Files.createDirectories(destino.getParent());
+            gravarCarrinho(destino, carrinho, durabilidade);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar carrinho da sessão " + idSessao + ": " + e.getMessage());
+            GRAVACAO_CARRINHO.contarFalha();
+        } finally {
+            GRAVACAO_CARRINHO.registrar(inicio);
+        }
+    }
+
+    // Grava em um temporário e renomeia, para nunca deixar um carrinho pela metade.
+    private static void gravarCarrinho(Path destino, List<ItemCarrinho> carrinho, Durabilidade durabilidade)
+            throws IOException {
+        Path temporario = Paths.get(destino + ".tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile());
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(arquivo, StandardCharsets.UTF_8))) {
+            escreverItens(bw, carrinho);
+            descarregar(bw);
+            forcar(arquivo, durabilidade);
+        }
+        BYTES_CARRINHOS.adicionar(Files.size(temporario));
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forcarPasta(destino, durabilidade);
+    }
+
+    // Esvazia o buffer no arquivo, medindo o tempo gasto (o fechamento em seguida não tem mais o que gravar).
+    private static void descarregar(Writer saida) throws IOException {
+        long inicio = System.nanoTime();
+        saida.flush();
+        DESCARGA.registrar(inicio);
+    }
+
+    // No modo FSYNC, força os dados já descarregados até o disco.
+    private static void forcar(FileOutputStream arquivo, Durabilidade durabilidade) throws IOException {
+        if (durabilidade == Durabilidade.FSYNC) {
+            long inicio = System.nanoTime();
+            arquivo.getChannel().force(true);
+            SINCRONIZACAO.registrar(inicio);
+        }
+    }
+
+    // No modo FSYNC, força a pasta do arquivo até o disco, para que uma renomeação,
+    // criação ou exclusão também sobreviva a uma queda de energia.
+    private static void forcarPasta(Path arquivo, Durabilidade durabilidade) {
+        if (durabilidade != Durabilidade.FSYNC) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        Path pasta = arquivo.toAbsolutePath().getParent();
+        try (FileChannel canal = FileChannel.open(pasta, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Alguns sistemas (ex: Windows) não permitem abrir pastas; o arquivo já foi forçado.
+        } finally {
+            SINCRONIZACAO.registrar(inicio);
+        }
+    }
+
+    private static void escreverItens(BufferedWriter bw, List<ItemCarrinho> carrinho) throws IOException {
+        for (ItemCarrinho item : carrinho) {
+            // Salva apenas o ISBN do livro e a quantidade do item no carrinho.
+            bw.write(item.getLivro().getIsbn() + ";" + item.getQuantidade());
+            bw.newLine();
+        }
+    }
+
+    /**
+     * Carrega as reservas de estoque gravadas: o estado final de cada par
+     * sessão/ISBN no log de reservas, sem as encerradas. As vencidas também são
+     * devolvidas; quem carrega decide o que fazer com elas.
+     * 
+     * @return As reservas em aberto no momento da última gravação.
+     */
+    public static List<Reserva> carregarReservas() {
+        long inicio = System.nanoTime();
+        Map<String, Reserva> reservas = new LinkedHashMap<>(); // "sessão;ISBN" -> último estado.
+        File arquivo = new File(ARQUIVO_RESERVAS);
+        if (!arquivo.exists()) {
+            return new ArrayList<>();
+        }
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(arquivo), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = br.readLine()) != null) {
+                String[] partes = linha.split(";", -1);
+                if (partes.length != 4) {
+                    continue; // Uma linha incompleta (queda durante a gravação) é ignorada.
+                }
+                try {
+                    Reserva reserva = new Reserva(partes[0], partes[1], Integer.parseInt(partes[2]),
+                            Long.parseLong(partes[3]));
+                    String chave = partes[0] + ";" + partes[1];
+                    if (reserva.getQuantidade() > 0) {
+                        reservas.put(chave, reserva);
+                    } else {
+                        reservas.remove(chave);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Linha inválida em " + ARQUIVO_RESERVAS + " ignorada: " + linha);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar reservas: " + e.getMessage());
+            CARGA_RESERVAS.contarFalha();
+        } finally {
+            CARGA_RESERVAS.registrar(inicio);
+        }
+        return new ArrayList<>(reservas.values());
+    }
+
+    /**
+     * Acrescenta ao log de reservas o estado atual de cada reserva alterada,
+     * com uma única gravação.
+     * 
+     * @param reservas     As reservas alteradas (quantidade 0 para as encerradas).
+     * @param durabilidade FSYNC para forçar o log até o disco antes de retornar.
+     */
+    public static void registrarReservas(Collection<Reserva> reservas, Durabilidade durabilidade) {
+        if (reservas.isEmpty()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try (FileOutputStream arquivo = new FileOutputStream(ARQUIVO_RESERVAS, true);
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(arquivo, StandardCharsets.UTF_8))) {
+            long tamanhoAntes = arquivo.getChannel().position();
+            escreverReservas(bw, reservas);
+            descarregar(bw);
+            forcar(arquivo, durabilidade);
+            if (tamanhoAntes == 0) {
+                forcarPasta(Paths.get(ARQUIVO_RESERVAS), durabilidade);
+            }
+            BYTES_RESERVAS.adicionar(arquivo.getChannel().position() - tamanhoAntes);
+        } catch (IOException e) {
+            System.err.println("Erro ao registrar reservas: " + e.getMessage());
+            GRAVACAO_RESERVAS.contarFalha();
+        } finally {
+            GRAVACAO_RESERVAS.registrar(inicio);
+        }
+    }
+
+    /**
+     * Compacta o log de reservas: reescreve-o só com as reservas em aberto (em
+     * um temporário renomeado em seguida, como o catálogo).
+     * 
+     * @param reservas     As reservas em aberto.
+     * @param durabilidade FSYNC para forçar o novo log até o disco.
+     */
+    public static void compactarReservas(Collection<Reserva> reservas, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        Path destino = Paths.get(ARQUIVO_RESERVAS);
+        Path temporario = Paths.get(ARQUIVO_RESERVAS + ".tmp");
+        try {
+            try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile());
+                    BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(arquivo, StandardCharsets.UTF_8))) {
+                escreverReservas(bw, reservas);
+                descarregar(bw);
+                forcar(arquivo, durabilidade);
+            }
+            BYTES_RESERVAS.adicionar(Files.size(temporario));
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forcarPasta(destino, durabilidade);
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar reservas: " + e.getMessage());
+            GRAVACAO_RESERVAS.contarFalha();
+        } finally {
+            GRAVACAO_RESERVAS.registrar(inicio);
+        }
+    }
+
+    /**
+     * Abre o registro de pedidos concluídos da pasta de dados (data/pedidos.bin).
+     * 
+     * @return O registro, que deve ser fechado por quem o abriu.
+     * @throws IOException Se o registro não puder ser aberto.
+     */
+    public static RegistroPedidos abrirRegistroPedidos() throws IOException {
+        return new RegistroPedidos(Paths.get(ARQUIVO_PEDIDOS));
+    }
+
+    private static void escreverReservas(BufferedWriter bw, Collection<Reserva> reservas) throws IOException {
+        for (Reserva reserva : reservas) {
+            bw.write(reserva.getIdSessao() + ";" + reserva.getIsbn() + ";" + reserva.getQuantidade() + ";"
+                    + reserva.getExpiraEmMillis());
+            bw.newLine();
+        }
+    }
+
+    // Caminho do arquivo de uma sessão: data/carrinhos/<subpasta>/<idSessao>.txt.
+    // O identificador só pode conter letras, dígitos, '-' e '_' (evita caminhos como "../").
+    private static File arquivoDoCarrinho(String idSessao) {
+        if (idSessao == null || !idSessao.matches("[A-Za-z0-9_-]{1,64}")) {
+            throw new IllegalArgumentException("Identificador de sessão inválido: " + idSessao);
         }
+        String subpasta = String.format("%02x", idSessao.hashCode() & 0xFF);
+        return new File(DIRETORIO_CARRINHOS + File.separator + subpasta, idSessao + ".txt");
     }
 }
\ No newline at end of file
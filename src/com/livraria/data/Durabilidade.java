@@ -0,0 +1,28 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+/**
+ * Define o quanto uma gravação feita pelo GravadorAssincrono está protegida
+ * quando termina.
+ */
+public enum Durabilidade {
+    /**
+     * Cada lote é gravado, sem nenhuma garantia pedida: nem descarga explícita,
+     * nem fsync. Como os arquivos da livraria são fechados (ou escritos no canal
+     * ou no mapeamento) a cada gravação, o resultado hoje é o mesmo de FLUSH; o
+     * que não está garantido é chegar ao disco antes de uma queda de energia.
+     */
+    NENHUMA,
+
+    /**
+     * Cada lote é gravado e entregue ao sistema operacional. Sobrevive a uma
+     * queda do processo, mas não necessariamente a uma queda de energia.
+     */
+    FLUSH,
+
+    /**
+     * Cada lote é gravado e forçado até o disco (fsync do arquivo e da pasta,
+     * para que a renomeação também fique registrada). Sobrevive a uma queda de
+     * energia, ao custo de uma espera pelo disco por lote.
+     */
+    FSYNC
+}
@@ -0,0 +1,162 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gravação em segundo plano ("write-behind"): as alterações são feitas em
+ * memória e apenas marcadas como pendentes; uma thread própria grava, a cada
+ * intervalo, tudo o que estiver pendente.
+ * <p>
+ * Cada gravação pendente é identificada por uma chave (por exemplo, um
+ * carrinho ou o catálogo) e grava o estado <i>atual</i> daquilo que
+ * representa. Assim, muitas alterações seguidas da mesma chave viram uma
+ * única gravação no próximo lote. Marcar uma alteração custa apenas uma
+ * inclusão em um mapa concorrente, então quem altera os dados não espera
+ * pelo disco.
+ * <p>
+ * A garantia de cada lote é definida pela {@link Durabilidade}. Use
+ * {@link #flush()} para gravar imediatamente tudo o que estiver pendente (no
+ * encerramento ou em testes) e {@link #close()} para encerrar a thread.
+ */
+public class GravadorAssincrono implements AutoCloseable {
+    private final Durabilidade durabilidade;
+    // Chave -> ação que grava o estado atual daquela chave.
+    private final Map<Object, Runnable> pendentes = new ConcurrentHashMap<>();
+    // Garante um único lote por vez (da thread de gravação, de flush() ou de gravarPendente()).
+    private final ReentrantLock gravando = new ReentrantLock();
+    private final ScheduledExecutorService escritor;
+    private volatile boolean fechado;
+
+    // Métricas dos lotes (compare gravações com alterações para ver o quanto foi agrupado).
+    private static final Operacao LOTE = Metricas.operacao("gravador.lote");
+    private static final Contador GRAVACOES = Metricas.contador("gravador.gravacoes");
+
+    /**
+     * Construtor do GravadorAssincrono. A thread de gravação começa em seguida.
+     *
+     * @param intervaloMillis Intervalo entre os lotes.
+     * @param durabilidade    Garantia de cada lote.
+     */
+    public GravadorAssincrono(long intervaloMillis, Durabilidade durabilidade) {
+        this.durabilidade = durabilidade;
+        // Thread 'daemon': não impede o programa de terminar (o close() grava o que faltar).
+        this.escritor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "gravador-assincrono");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = Math.max(1, intervaloMillis);
+        escritor.scheduleWithFixedDelay(this::gravarLote, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return A garantia de cada lote (as ações de gravação a repassam para DadosLivraria).
+     */
+    public Durabilidade getDurabilidade() {
+        return durabilidade;
+    }
+
+    /**
+     * Marca uma chave como alterada. Se ela já estiver pendente, nada muda: a
+     * gravação do próximo lote já vai gravar o estado mais recente. Depois do
+     * close(), a gravação é feita na hora, na thread de quem chamou.
+     *
+     * @param chave    Identifica o que foi alterado (deve ter equals/hashCode).
+     * @param gravacao Ação que grava o estado atual da chave.
+     */
+    public void agendar(Object chave, Runnable gravacao) {
+        pendentes.putIfAbsent(chave, gravacao);
+        if (fechado) {
+            flush();
+        }
+    }
+
+    /**
+     * Grava agora a gravação pendente de uma chave, se houver, e espera um lote
+     * em andamento terminar. Depois desta chamada, o arquivo da chave tem tudo o
+     * que foi marcado antes dela (usado antes de reler um arquivo do disco).
+     *
+     * @param chave A chave usada em {@link #agendar(Object, Runnable)}.
+     */
+    public void gravarPendente(Object chave) {
+        gravando.lock();
+        try {
+            Runnable gravacao = pendentes.remove(chave);
+            if (gravacao != null) {
+                executar(gravacao);
+            }
+        } finally {
+            gravando.unlock();
+        }
+    }
+
+    /**
+     * Grava imediatamente, na thread de quem chamou, tudo o que foi marcado
+     * antes desta chamada, com a durabilidade configurada. Se um lote estiver
+     * sendo gravado por outra thread, espera ele terminar.
+     */
+    public void flush() {
+        gravarLote();
+    }
+
+    /**
+     * Encerra a thread de gravação e grava o que estiver pendente.
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        escritor.shutdown();
+        try {
+            escritor.awaitTermination(1, TimeUnit.MINUTES); // Espera o lote em andamento.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // Grava as chaves pendentes. Cada uma é retirada do mapa antes de ser gravada, então
+    // uma alteração feita durante a gravação marca a chave de novo para o próximo lote. A trava
+    // vem antes de olhar o mapa: com ele já vazio, um lote de outra thread pode estar gravando
+    // as chaves que retirou, e flush() só pode voltar depois que ele terminar.
+    private void gravarLote() {
+        gravando.lock();
+        try {
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            try {
+                for (Iterator<Runnable> it = pendentes.values().iterator(); it.hasNext();) {
+                    Runnable gravacao = it.next();
+                    it.remove();
+                    executar(gravacao);
+                }
+            } finally {
+                LOTE.registrar(inicio);
+            }
+        } finally {
+            gravando.unlock();
+        }
+    }
+
+    private void executar(Runnable gravacao) {
+        try {
+            gravacao.run();
+            GRAVACOES.adicionar(1);
+        } catch (RuntimeException e) {
+            // Um erro em uma chave não impede a gravação das outras.
+            System.err.println("Erro na gravação em segundo plano: " + e);
+            LOTE.contarFalha();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+/**
+ * Define como as alterações do catálogo de livros são gravadas em disco.
+ */
+public enum ModoPersistencia {
+    /**
+     * Cada alteração reescreve o arquivo de livros inteiro (comportamento
+     * original). Simples, mas o custo de cada gravação cresce com o catálogo.
+     */
+    REESCRITA_COMPLETA,
+
+    /**
+     * Cada alteração acrescenta uma linha ao log de alterações. O log é
+     * periodicamente compactado em um novo arquivo de livros.
+     */
+    LOG_DE_ALTERACOES
+}
@@ -0,0 +1,392 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.LinhaPedido;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registro dos pedidos concluídos: um arquivo binário, somente de acréscimo,
+ * com uma linha por livro vendido. Cada linha tem tamanho fixo, então a
+ * linha n está sempre na mesma posição do arquivo e o registro pode ser lido
+ * em partes independentes (veja {@link Leitura}), por exemplo em paralelo.
+ *
+ * Formato do arquivo:
+ * <pre>
+ * cabeçalho: identificador "LVRP" (4 bytes), versão (int)
+ * linhas:    instante da compra em milissegundos (long), código do ISBN (int),
+ *            quantidade (int), preço unitário em centavos (long) - 24 bytes
+ * </pre>
+ * Os ISBNs ficam num dicionário à parte (o mesmo nome terminado em .isbns, um
+ * ISBN por linha de texto): o código é o número da linha. O dicionário é
+ * sempre gravado antes das linhas que usam os seus códigos. Os instantes nunca
+ * diminuem de uma linha para a seguinte (um relógio que volte é ignorado), o
+ * que permite localizar um período por busca binária.
+ * <p>
+ * As linhas acrescentadas ficam num buffer até {@link #descarregar(Durabilidade)};
+ * só as linhas descarregadas aparecem nas leituras.
+ */
+public class RegistroPedidos implements AutoCloseable {
+    private static final int IDENTIFICADOR = 0x4C565250; // "LVRP" em ASCII.
+    private static final int VERSAO = 1;
+    private static final int CABECALHO = 8;
+    private static final int TAMANHO_LINHA = 24;
+    // Linhas por trecho mapeado em memória (cada trecho tem no máximo 1 GiB).
+    private static final long LINHAS_POR_TRECHO = (1L << 30) / TAMANHO_LINHA;
+
+    private final Path arquivo;
+    private final Path arquivoIsbns;
+    private final FileChannel canal;
+    private final FileChannel canalIsbns;
+    private long tamanhoIsbns; // Bytes do dicionário já gravados.
+    private final Map<String, Integer> codigos = new HashMap<>();
+    // ISBN de cada código. Cresce por cópia: as leituras já entregues continuam com o array antigo.
+    private String[] isbns = new String[1024];
+    private int quantidadeIsbns;
+    private int isbnsGravados; // Códigos já gravados no dicionário.
+    private long linhasGravadas; // Linhas no arquivo (visíveis para as leituras).
+    private long ultimoInstante;
+    private ByteBuffer pendentes = ByteBuffer.allocate(64 * 1024); // Linhas ainda não descarregadas.
+    private boolean fechado;
+
+    private static final Operacao DESCARGA = Metricas.operacao("dados.registrarPedidos");
+    private static final Contador BYTES_PEDIDOS = Metricas.contador("dados.bytesGravados.pedidos");
+
+    /**
+     * Abre o registro de pedidos, criando-o se não existir. Uma linha gravada
+     * pela metade (queda durante a gravação) é descartada.
+     *
+     * @param arquivo O arquivo do registro.
+     * @throws IOException Se o arquivo não puder ser aberto ou não for um registro de pedidos.
+     */
+    public RegistroPedidos(Path arquivo) throws IOException {
+        this.arquivo = arquivo;
+        this.arquivoIsbns = Paths.get(arquivo + ".isbns");
+        Path pasta = arquivo.toAbsolutePath().getParent();
+        if (pasta != null) {
+            Files.createDirectories(pasta);
+        }
+        this.canalIsbns = FileChannel.open(arquivoIsbns, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel linhas = null;
+        try {
+            carregarIsbns();
+            linhas = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.canal = linhas;
+            abrirLinhas();
+        } catch (IOException e) {
+            canalIsbns.close();
+            if (linhas != null) {
+                linhas.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Acrescenta as linhas de um pedido ao buffer do registro (gravadas no
+     * próximo {@link #descarregar(Durabilidade)}).
+     *
+     * @param linhas As linhas do pedido.
+     */
+    public synchronized void acrescentar(Collection<LinhaPedido> linhas) {
+        if (fechado) {
+            throw new IllegalStateException("O registro de pedidos " + arquivo + " já foi fechado.");
+        }
+        if (pendentes.remaining() < linhas.size() * TAMANHO_LINHA) {
+            ByteBuffer maior = ByteBuffer.allocate(Math.max(pendentes.capacity() * 2,
+                    pendentes.position() + linhas.size() * TAMANHO_LINHA));
+            maior.put(pendentes.flip());
+            pendentes = maior;
+        }
+        for (LinhaPedido linha : linhas) {
+            ultimoInstante = Math.max(ultimoInstante, linha.getInstanteMillis());
+            pendentes.putLong(ultimoInstante);
+            pendentes.putInt(codigo(linha.getIsbn()));
+            pendentes.putInt(linha.getQuantidade());
+            pendentes.putLong(linha.getPrecoUnitarioCentavos());
+        }
+    }
+
+    /**
+     * Grava as linhas acrescentadas desde a última descarga (primeiro os ISBNs
+     * novos do dicionário, depois as linhas), tornando-as visíveis para as leituras.
+     *
+     * @param durabilidade FSYNC para forçar o registro até o disco antes de retornar.
+     */
+    public synchronized void descarregar(Durabilidade durabilidade) {
+        if (fechado || pendentes.position() == 0) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean linhasEmGravacao = false;
+        try {
+            if (isbnsGravados < quantidadeIsbns) {
+                StringBuilder novos = new StringBuilder();
+                for (int codigo = isbnsGravados; codigo < quantidadeIsbns; codigo++) {
+                    novos.append(isbns[codigo]).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(novos.toString().getBytes(StandardCharsets.UTF_8));
+                long posicao = tamanhoIsbns; // Numa nova tentativa, regrava a partir do mesmo ponto.
+                while (bytes.hasRemaining()) {
+                    posicao += canalIsbns.write(bytes, posicao);
+                }
+                if (durabilidade == Durabilidade.FSYNC) {
+                    canalIsbns.force(false);
+                }
+                BYTES_PEDIDOS.adicionar(posicao - tamanhoIsbns);
+                tamanhoIsbns = posicao;
+                isbnsGravados = quantidadeIsbns;
+            }
+            pendentes.flip();
+            linhasEmGravacao = true;
+            long posicao = CABECALHO + linhasGravadas * TAMANHO_LINHA;
+            int bytes = pendentes.remaining();
+            while (pendentes.hasRemaining()) {
+                posicao += canal.write(pendentes, posicao);
+            }
+            if (durabilidade == Durabilidade.FSYNC) {
+                canal.force(false);
+            }
+            BYTES_PEDIDOS.adicionar(bytes);
+            linhasGravadas += bytes / TAMANHO_LINHA;
+            pendentes.clear();
+        } catch (IOException e) {
+            // As linhas continuam no buffer: a próxima descarga tenta de novo a partir do mesmo ponto.
+            if (linhasEmGravacao) {
+                pendentes.position(pendentes.limit()).limit(pendentes.capacity());
+            }
+            System.err.println("Erro ao gravar o registro de pedidos: " + e.getMessage());
+            DESCARGA.contarFalha();
+        } finally {
+            DESCARGA.registrar(inicio);
+        }
+    }
+
+    /**
+     * Abre uma leitura das linhas já descarregadas. A leitura não vê as linhas
+     * acrescentadas depois dela e pode ser usada por várias threads ao mesmo tempo.
+     *
+     * @return A leitura.
+     * @throws IOException Se o arquivo não puder ser mapeado em memória.
+     */
+    public synchronized Leitura ler() throws IOException {
+        int quantidadeTrechos = (int) ((linhasGravadas + LINHAS_POR_TRECHO - 1) / LINHAS_POR_TRECHO);
+        ByteBuffer[] trechos = new ByteBuffer[quantidadeTrechos];
+        for (int i = 0; i < quantidadeTrechos; i++) {
+            long primeira = i * LINHAS_POR_TRECHO;
+            long linhas = Math.min(LINHAS_POR_TRECHO, linhasGravadas - primeira);
+            trechos[i] = canal.map(FileChannel.MapMode.READ_ONLY, CABECALHO + primeira * TAMANHO_LINHA,
+                    linhas * TAMANHO_LINHA);
+        }
+        return new Leitura(trechos, linhasGravadas, isbns, isbnsGravados);
+    }
+
+    /**
+     * @return Quantidade de linhas gravadas (sem as que ainda estão no buffer).
+     */
+    public synchronized long getQuantidadeLinhas() {
+        return linhasGravadas;
+    }
+
+    /**
+     * Descarrega as linhas pendentes e fecha os arquivos.
+     */
+    @Override
+    public synchronized void close() {
+        if (fechado) {
+            return;
+        }
+        descarregar(Durabilidade.FLUSH);
+        fechado = true;
+        try {
+            canal.close();
+            canalIsbns.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o registro de pedidos: " + e.getMessage());
+        }
+    }
+
+    // Código do ISBN no dicionário (um novo, se o ISBN ainda não foi vendido).
+    private int codigo(String isbn) {
+        Integer codigo = codigos.get(isbn);
+        if (codigo != null) {
+            return codigo;
+        }
+        if (quantidadeIsbns == isbns.length) {
+            isbns = Arrays.copyOf(isbns, isbns.length * 2);
+        }
+        isbns[quantidadeIsbns] = isbn;
+        codigos.put(isbn, quantidadeIsbns);
+        return quantidadeIsbns++;
+    }
+
+    // Lê o dicionário de ISBNs, descartando uma última linha sem quebra (gravada pela metade).
+    private void carregarIsbns() throws IOException {
+        byte[] bytes = Files.readAllBytes(arquivoIsbns);
+        int fim = bytes.length;
+        while (fim > 0 && bytes[fim - 1] != '\n') {
+            fim--;
+        }
+        if (fim < bytes.length) {
+            canalIsbns.truncate(fim);
+        }
+        tamanhoIsbns = fim;
+        int inicioLinha = 0;
+        for (int i = 0; i < fim; i++) {
+            if (bytes[i] == '\n') {
+                codigo(new String(bytes, inicioLinha, i - inicioLinha, StandardCharsets.UTF_8));
+                inicioLinha = i + 1;
+            }
+        }
+        isbnsGravados = quantidadeIsbns;
+    }
+
+    private void abrirLinhas() throws IOException {
+        long tamanho = canal.size();
+        if (tamanho < CABECALHO) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO).putInt(IDENTIFICADOR).putInt(VERSAO).flip();
+            canal.truncate(0);
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
+            return;
+        }
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        while (cabecalho.hasRemaining() && canal.read(cabecalho, cabecalho.position()) >= 0) {
+            // Lê até completar o cabeçalho.
+        }
+        if (cabecalho.getInt(0) != IDENTIFICADOR || cabecalho.getInt(4) != VERSAO) {
+            throw new IOException(arquivo + " não é um registro de pedidos (versão " + VERSAO + ").");
+        }
+        linhasGravadas = (tamanho - CABECALHO) / TAMANHO_LINHA;
+        if (CABECALHO + linhasGravadas * TAMANHO_LINHA < tamanho) {
+            canal.truncate(CABECALHO + linhasGravadas * TAMANHO_LINHA); // Linha gravada pela metade.
+        }
+        if (linhasGravadas > 0) {
+            ByteBuffer ultima = ByteBuffer.allocate(Long.BYTES);
+            canal.read(ultima, CABECALHO + (linhasGravadas - 1) * TAMANHO_LINHA);
+            ultimoInstante = ultima.getLong(0);
+        }
+    }
+
+    /**
+     * Recebe as linhas percorridas por {@link Leitura#percorrer(long, long, Visitante)}.
+     */
+    public interface Visitante {
+        /**
+         * @param instanteMillis        Momento da compra.
+         * @param codigoIsbn            Código do ISBN (veja {@link Leitura#getIsbn(int)}).
+         * @param quantidade            Unidades vendidas.
+         * @param precoUnitarioCentavos Preço de cada unidade, em centavos.
+         */
+        void linha(long instanteMillis, int codigoIsbn, int quantidade, long precoUnitarioCentavos);
+    }
+
+    /**
+     * Leitura das linhas do registro, mapeadas em memória: percorrer uma parte
+     * do registro não copia nada para o heap. As linhas são numeradas a partir de 0.
+     */
+    public static final class Leitura {
+        private final ByteBuffer[] trechos;
+        private final long quantidade;
+        private final String[] isbns;
+        private final int quantidadeIsbns;
+
+        private Leitura(ByteBuffer[] trechos, long quantidade, String[] isbns, int quantidadeIsbns) {
+            this.trechos = trechos;
+            this.quantidade = quantidade;
+            this.isbns = isbns;
+            this.quantidadeIsbns = quantidadeIsbns;
+        }
+
+        /**
+         * @return Quantidade de linhas.
+         */
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        /**
+         * @return Quantidade de ISBNs do dicionário (os códigos vão de 0 a este valor - 1).
+         */
+        public int getQuantidadeIsbns() {
+            return quantidadeIsbns;
+        }
+
+        /**
+         * @param codigo O código de um ISBN.
+         * @return O ISBN.
+         */
+        public String getIsbn(int codigo) {
+            if (codigo < 0 || codigo >= quantidadeIsbns) {
+                throw new IndexOutOfBoundsException("Código de ISBN inexistente: " + codigo);
+            }
+            return isbns[codigo];
+        }
+
+        /**
+         * @param linha O número da linha.
+         * @return O instante da compra da linha.
+         */
+        public long getInstante(long linha) {
+            return trechos[(int) (linha / LINHAS_POR_TRECHO)].getLong((int) (linha % LINHAS_POR_TRECHO) * TAMANHO_LINHA);
+        }
+
+        /**
+         * Localiza a primeira linha de um período por busca binária (os instantes nunca diminuem).
+         *
+         * @param instanteMillis O início do período.
+         * @return A primeira linha com instante maior ou igual ao informado
+         *         ({@link #getQuantidade()} se não houver).
+         */
+        public long buscarInstante(long instanteMillis) {
+            long inicio = 0;
+            long fim = quantidade;
+            while (inicio < fim) {
+                long meio = (inicio + fim) >>> 1;
+                if (getInstante(meio) < instanteMillis) {
+                    inicio = meio + 1;
+                } else {
+                    fim = meio;
+                }
+            }
+            return inicio;
+        }
+
+        /**
+         * Passa ao visitante as linhas de um intervalo, em ordem.
+         *
+         * @param inicio    A primeira linha (inclusive).
+         * @param fim       A última linha (exclusive).
+         * @param visitante Recebe cada linha.
+         */
+        public void percorrer(long inicio, long fim, Visitante visitante) {
+            long linha = inicio;
+            while (linha < fim) {
+                // Percorre um trecho por vez, com posições relativas ao trecho.
+                ByteBuffer trecho = trechos[(int) (linha / LINHAS_POR_TRECHO)];
+                long fimTrecho = Math.min(fim, (linha / LINHAS_POR_TRECHO + 1) * LINHAS_POR_TRECHO);
+                int posicao = (int) (linha % LINHAS_POR_TRECHO) * TAMANHO_LINHA;
+                for (; linha < fimTrecho; linha++, posicao += TAMANHO_LINHA) {
+                    visitante.linha(trecho.getLong(posicao), trecho.getInt(posicao + 8), trecho.getInt(posicao + 12),
+                            trecho.getLong(posicao + 16));
+                }
+            }
+        }
+    }
+}
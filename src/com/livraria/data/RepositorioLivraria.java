@@ -0,0 +1,109 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Livro;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Onde o catálogo e os carrinhos são guardados. O GerenciadorLivros e os
+ * carrinhos só conversam com esta interface, então o formato de
+ * armazenamento pode ser trocado na inicialização (veja {@link TipoRepositorio}):
+ * <ul>
+ * <li>{@link RepositorioTexto}: os arquivos de texto de sempre (livros.txt,
+ * livros.log e os arquivos dos carrinhos).</li>
+ * <li>{@link RepositorioMapeado}: um arquivo de registros de tamanho fixo
+ * mapeado em memória, em que preço e estoque são alterados no lugar.</li>
+ * <li>{@link RepositorioMemoria}: nada vai para o disco (para testes e medições).</li>
+ * </ul>
+ * As implementações podem ser chamadas por várias threads ao mesmo tempo.
+ */
+public interface RepositorioLivraria extends AutoCloseable {
+
+    /**
+     * @return Todos os livros guardados, com o estado da última gravação.
+     */
+    List<Livro> carregarLivros();
+
+    /**
+     * Grava o catálogo inteiro, substituindo o que estava guardado.
+     *
+     * @param livros       O catálogo completo.
+     * @param durabilidade FSYNC para forçar a gravação até o disco antes de retornar.
+     */
+    void salvarLivros(Collection<Livro> livros, Durabilidade durabilidade);
+
+    /**
+     * Grava só o preço e o estoque de livros que já estão guardados (por
+     * exemplo, as baixas de estoque das compras).
+     *
+     * @param livros       Os livros, já com os novos valores.
+     * @param durabilidade FSYNC para forçar a gravação até o disco antes de retornar.
+     */
+    void registrarAtualizacoes(Collection<Livro> livros, Durabilidade durabilidade);
+
+    /**
+     * Grava só os livros alterados: o estado completo dos que foram incluídos
+     * ou alterados e a saída dos removidos.
+     *
+     * @param livrosAtuais   Livros incluídos ou alterados, já com os novos valores.
+     * @param isbnsRemovidos ISBNs de livros que saíram do catálogo.
+     * @param durabilidade   FSYNC para forçar a gravação até o disco antes de retornar.
+     */
+    void registrarAlteracoes(Collection<Livro> livrosAtuais, Collection<String> isbnsRemovidos,
+            Durabilidade durabilidade);
+
+    /**
+     * Chamado depois de muitas gravações parciais: o repositório pode
+     * reorganizar o que guardou a partir do catálogo atual (o de texto, por
+     * exemplo, troca o log por um novo livros.txt).
+     *
+     * @param livros       O catálogo completo.
+     * @param durabilidade FSYNC para forçar a gravação até o disco antes de retornar.
+     */
+    void compactarLivros(Collection<Livro> livros, Durabilidade durabilidade);
+
+    /**
+     * Carrega um carrinho.
+     *
+     * @param idSessao      A sessão dona do carrinho, ou null para o carrinho único.
+     * @param buscarPorIsbn Resolve cada ISBN gravado para o livro do catálogo
+     *                      (livros que não existem mais são ignorados).
+     * @return Os itens do carrinho (vazio se não havia carrinho gravado).
+     */
+    List<ItemCarrinho> carregarCarrinho(String idSessao, Function<String, Optional<Livro>> buscarPorIsbn);
+
+    /**
+     * Grava um carrinho, substituindo o anterior da mesma sessão.
+     *
+     * @param idSessao     A sessão dona do carrinho, ou null para o carrinho único.
+     * @param itens        Os itens do carrinho.
+     * @param durabilidade FSYNC para forçar a gravação até o disco antes de retornar.
+     */
+    void salvarCarrinho(String idSessao, List<ItemCarrinho> itens, Durabilidade durabilidade);
+
+    /**
+     * Confere se um livro pode ser guardado neste repositório, antes de ele
+     * entrar no catálogo. Os repositórios sem limites de tamanho aceitam tudo.
+     *
+     * @param livro O livro a ser incluído ou gravado.
+     * @throws IllegalArgumentException Se algum campo do livro não cabe no formato do repositório.
+     */
+    default void validar(Livro livro) {
+    }
+
+    /**
+     * @return Bytes ocupados em disco pelo catálogo (0 se nada é gravado em disco).
+     */
+    long getTamanhoEmDisco();
+
+    /**
+     * Libera os arquivos abertos. Nada do que foi gravado se perde.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,923 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Dinheiro;
+import com.livraria.model.Livro;
+import com.livraria.model.LivroImutavel;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Repositório num arquivo de registros de tamanho fixo (livros.dat) mapeado
+ * em memória. Cada livro ocupa sempre a mesma posição do arquivo, então
+ * alterar preço e estoque (o caso de cada compra) é escrever 12 bytes no
+ * lugar, sem log e sem reescrever o catálogo. Incluir um livro ocupa uma
+ * posição livre; remover só a marca como livre.
+ *
+ * Formato do arquivo:
+ * <pre>
+ * cabeçalho: identificador "LVRM" (4 bytes), versão (int), tamanho do registro (int),
+ *            quantidade de registros (int)
+ * registros: situação (byte: 0 livre, 1 ocupado), preço em centavos (long, posição 8),
+ *            estoque (int, posição 16), ISBN, título, autor e categoria
+ *            (cada um: tamanho em bytes (short) e o texto em UTF-8, num espaço fixo)
+ * </pre>
+ * Textos maiores que o seu espaço são rejeitados (veja {@link #validar(Livro)}),
+ * nunca cortados: um ISBN cortado não seria mais encontrado. A situação é
+ * sempre escrita por último, então um registro só aparece ocupado depois de
+ * completo. Os carrinhos continuam nos arquivos de texto da pasta de dados.
+ * <p>
+ * Com FLUSH (ou NENHUMA) as escritas ficam no mapeamento e o sistema
+ * operacional as leva ao disco quando quiser (sobrevivem a uma queda do
+ * processo); com FSYNC o mapeamento é forçado até o disco antes de retornar.
+ * <p>
+ * Em memória fica só o índice ISBN -&gt; registro, uma tabela hash de inteiros
+ * que confere o ISBN no próprio registro (poucos bytes por livro). Ao fechar,
+ * o índice é gravado em livros.dat.idx e, na próxima abertura, é lido de lá
+ * em vez de ser remontado percorrendo o arquivo inteiro. O livros.dat.idx é
+ * apagado assim que lido, então depois de uma queda o índice é remontado.
+ * <p>
+ * Além da carga do catálogo inteiro, o repositório lê livros um a um
+ * ({@link #ler(String)}), para o armazenamento SOB_DEMANDA do
+ * GerenciadorLivros: os livros devolvidos são visões do registro, com preço e
+ * estoque lidos e alterados (de forma atômica) direto no mapeamento.
+ * <p>
+ * Uma visão não sabe quando o seu livro é removido. Para que ela nunca passe a
+ * mostrar (e alterar) outro livro, um registro liberado só volta a ser usado
+ * depois que o arquivo é reaberto: até lá, as inclusões ocupam registros novos
+ * e o arquivo cresce com as remoções. A visão de um livro removido continua
+ * mostrando os últimos valores dele, e o que se altera nela não chega a nenhum
+ * livro do catálogo.
+ */
+public class RepositorioMapeado implements RepositorioLivraria {
+    private static final int IDENTIFICADOR = 0x4C56524D; // "LVRM" em ASCII.
+    private static final int VERSAO = 1;
+    private static final int CABECALHO = 16;
+    private static final int IDENTIFICADOR_INDICE = 0x4C565249; // "LVRI" em ASCII.
+    private static final int CABECALHO_INDICE = 32;
+    private static final int TAMANHO_REGISTRO = 512;
+    private static final int CAPACIDADE_INICIAL = 1024;
+    // O arquivo inteiro é um único mapeamento, limitado a 2 GiB.
+    private static final int CAPACIDADE_MAXIMA = (Integer.MAX_VALUE - CABECALHO) / TAMANHO_REGISTRO;
+
+    private static final byte LIVRE = 0;
+    private static final byte OCUPADO = 1;
+    // Posições dentro do registro.
+    private static final int POSICAO_PRECO = 8;
+    private static final int POSICAO_ESTOQUE = 16;
+    private static final int POSICAO_ISBN = 20;
+    private static final int ESPACO_ISBN = 32;
+    private static final int POSICAO_TITULO = POSICAO_ISBN + 2 + ESPACO_ISBN;
+    private static final int ESPACO_TITULO = 240;
+    private static final int POSICAO_AUTOR = POSICAO_TITULO + 2 + ESPACO_TITULO;
+    private static final int ESPACO_AUTOR = 120;
+    private static final int POSICAO_CATEGORIA = POSICAO_AUTOR + 2 + ESPACO_AUTOR;
+    private static final int ESPACO_CATEGORIA = 60;
+    // Valores especiais da tabela hash (os registros são guardados como registro + 1).
+    private static final int VAZIO = 0;
+    private static final int REMOVIDO = -1;
+
+    // Preço e estoque das visões, com acesso atômico no mapeamento (as posições são alinhadas).
+    private static final VarHandle PRECOS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ESTOQUES = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final Operacao CARGA = Metricas.operacao("dados.mapeado.carregarLivros");
+    private static final Operacao GRAVACAO = Metricas.operacao("dados.mapeado.gravar");
+    private static final Operacao SINCRONIZACAO = Metricas.operacao("dados.mapeado.fsync");
+
+    private final Path arquivo;
+    private final Path arquivoIndice;
+    private FileChannel canal;
+    private MappedByteBuffer mapa;
+    private int capacidade; // Registros que cabem no mapeamento atual.
+    private int[] tabela; // Índice ISBN -> registro + 1.
+    private int ocupadas; // Posições da tabela não vazias (incluindo as marcadas como removidas).
+    private int quantidade; // Registros ocupados.
+    private final ArrayDeque<Integer> livres = new ArrayDeque<>();
+    // Registros liberados desde a abertura: podem ter visões, então só entram em 'livres' na próxima.
+    private final List<Integer> liberados = new ArrayList<>();
+    private int proximoNovo; // Primeiro registro nunca usado.
+    private boolean migrar; // O arquivo acabou de ser criado: a primeira carga traz o catálogo de texto.
+
+    /**
+     * Abre o livros.dat da pasta de dados.
+     *
+     * @throws IOException Se o arquivo não puder ser aberto ou não estiver no formato esperado.
+     */
+    public RepositorioMapeado() throws IOException {
+        this(DadosLivraria.getArquivoLivrosMapeado());
+    }
+
+    /**
+     * Abre o arquivo de registros, criando-o se não existir. Um arquivo novo é
+     * preenchido, na primeira carga, com o catálogo dos arquivos de texto.
+     *
+     * @param arquivo O arquivo de registros.
+     * @throws IOException Se o arquivo não puder ser aberto ou não estiver no formato esperado.
+     */
+    public RepositorioMapeado(Path arquivo) throws IOException {
+        this.arquivo = arquivo;
+        this.arquivoIndice = Paths.get(arquivo + ".idx");
+        Path pasta = arquivo.toAbsolutePath().getParent();
+        if (pasta != null) {
+            Files.createDirectories(pasta);
+        }
+        migrar = !Files.exists(arquivo) || Files.size(arquivo) == 0;
+        if (migrar) {
+            Files.deleteIfExists(arquivoIndice);
+            criarArquivo(arquivo, CAPACIDADE_INICIAL).close();
+        }
+        abrir();
+    }
+
+    // Abre o arquivo, confere o cabeçalho e lê (ou monta) o índice dos registros ocupados.
+    private void abrir() throws IOException {
+        canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        while (cabecalho.hasRemaining() && canal.read(cabecalho, cabecalho.position()) >= 0) {
+            // Lê até completar o cabeçalho ou chegar ao fim do arquivo.
+        }
+        cabecalho.flip();
+        if (cabecalho.remaining() < CABECALHO || cabecalho.getInt() != IDENTIFICADOR) {
+            canal.close();
+            throw new IOException(arquivo + " não é um arquivo de livros em registros fixos.");
+        }
+        int versao = cabecalho.getInt();
+        int tamanhoRegistro = cabecalho.getInt();
+        if (versao != VERSAO || tamanhoRegistro != TAMANHO_REGISTRO) {
+            canal.close();
+            throw new IOException("Versão " + versao + " de " + arquivo + " não suportada.");
+        }
+        // Um arquivo truncado (queda durante o crescimento) é completado com registros livres.
+        capacidade = Math.min(Math.max(cabecalho.getInt(), CAPACIDADE_INICIAL), CAPACIDADE_MAXIMA);
+        mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, CABECALHO + (long) capacidade * TAMANHO_REGISTRO);
+        mapa.putInt(12, capacidade);
+        liberados.clear(); // As visões do arquivo anterior não valem mais (veja LivroMapeado).
+        if (!lerIndice()) {
+            montarIndice();
+        }
+    }
+
+    // Monta o índice percorrendo todos os registros (sem o livros.dat.idx).
+    private void montarIndice() {
+        livres.clear();
+        proximoNovo = 0;
+        for (int registro = 0; registro < capacidade; registro++) {
+            if (mapa.get(posicaoRegistro(registro)) == OCUPADO) {
+                proximoNovo = registro + 1;
+            }
+        }
+        tabela = new int[tamanhoDaTabela(proximoNovo)];
+        ocupadas = 0;
+        quantidade = 0;
+        for (int registro = 0; registro < proximoNovo; registro++) {
+            if (mapa.get(posicaoRegistro(registro)) != OCUPADO) {
+                livres.add(registro);
+                continue;
+            }
+            // Um ISBN repetido (não deveria acontecer) fica com o primeiro registro.
+            byte[] isbn = bytesDoIsbn(registro);
+            if (localizar(isbn) >= 0) {
+                mapa.put(posicaoRegistro(registro), LIVRE);
+                livres.add(registro);
+            } else {
+                inserirNaTabela(isbn, registro);
+            }
+        }
+    }
+
+    // Lê o índice gravado no último fechamento e apaga o arquivo. Retorna false
+    // (e o índice é remontado) se não houver índice ou ele não for deste livros.dat.
+    private boolean lerIndice() throws IOException {
+        if (!Files.exists(arquivoIndice)) {
+            return false;
+        }
+        try (FileChannel canalIndice = FileChannel.open(arquivoIndice, StandardOpenOption.READ)) {
+            long tamanho = canalIndice.size();
+            if (tamanho < CABECALHO_INDICE) {
+                return false;
+            }
+            ByteBuffer indice = canalIndice.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            int tamanhoTabela = indice.getInt(20);
+            long esperado = CABECALHO_INDICE + 4L * tamanhoTabela + 4L * indice.getInt(24);
+            if (indice.getInt(0) != IDENTIFICADOR_INDICE || indice.getInt(4) != capacidade
+                    || indice.getLong(8) != canal.size() || tamanhoTabela < 16
+                    || Integer.bitCount(tamanhoTabela) != 1 || tamanho != esperado) {
+                return false;
+            }
+            proximoNovo = indice.getInt(16);
+            int[] livresGravados = new int[indice.getInt(24)];
+            quantidade = indice.getInt(28);
+            tabela = new int[tamanhoTabela];
+            indice.position(CABECALHO_INDICE);
+            indice.asIntBuffer().get(tabela).get(livresGravados);
+            livres.clear();
+            for (int registro : livresGravados) {
+                livres.add(registro);
+            }
+            ocupadas = 0;
+            for (int valor : tabela) {
+                if (valor != VAZIO) {
+                    ocupadas++;
+                }
+            }
+        } finally {
+            // Daqui em diante o índice só existe em memória: se o processo cair, ele é remontado.
+            Files.delete(arquivoIndice);
+        }
+        return true;
+    }
+
+    // Grava o índice (no fechamento) para que a próxima abertura não percorra o arquivo. Os
+    // registros liberados nesta abertura entram como livres: na próxima, não há visões deles.
+    private void gravarIndice() throws IOException {
+        Path temporario = Paths.get(arquivoIndice + ".tmp");
+        int quantidadeLivres = livres.size() + liberados.size();
+        long tamanho = CABECALHO_INDICE + 4L * tabela.length + 4L * quantidadeLivres;
+        try (FileChannel novo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer indice = novo.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            indice.putInt(IDENTIFICADOR_INDICE).putInt(capacidade).putLong(canal.size()).putInt(proximoNovo)
+                    .putInt(tabela.length).putInt(quantidadeLivres).putInt(quantidade);
+            indice.asIntBuffer().put(tabela);
+            indice.position(CABECALHO_INDICE + 4 * tabela.length);
+            for (int registro : livres) {
+                indice.putInt(registro);
+            }
+            for (int registro : liberados) {
+                indice.putInt(registro);
+            }
+            indice.force();
+        }
+        Files.move(temporario, arquivoIndice, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized List<Livro> carregarLivros() {
+        long inicio = System.nanoTime();
+        try {
+            migrarDoTexto();
+            List<Livro> livros = new ArrayList<>(quantidade);
+            for (int registro = 0; registro < proximoNovo; registro++) {
+                int base = posicaoRegistro(registro);
+                if (mapa.get(base) == OCUPADO) {
+                    livros.add(Livro.comPrecoEmCentavos(lerTexto(registro, POSICAO_ISBN),
+                            lerTexto(registro, POSICAO_TITULO), lerTexto(registro, POSICAO_AUTOR),
+                            lerTexto(registro, POSICAO_CATEGORIA), mapa.getLong(base + POSICAO_PRECO),
+                            mapa.getInt(base + POSICAO_ESTOQUE)));
+                }
+            }
+            return livros;
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar livros de " + arquivo + ": " + e.getMessage());
+            CARGA.contarFalha();
+            return new ArrayList<>();
+        } finally {
+            CARGA.registrar(inicio);
+        }
+    }
+
+    /**
+     * Prepara o arquivo para a leitura livro a livro: se ele acabou de ser
+     * criado, traz o catálogo dos arquivos de texto, como a primeira carga faria.
+     */
+    public synchronized void prepararLeituraSobDemanda() {
+        try {
+            migrarDoTexto();
+        } catch (IOException e) {
+            System.err.println("Erro ao criar " + arquivo + " a partir do catálogo em texto: " + e.getMessage());
+            CARGA.contarFalha();
+        }
+    }
+
+    // Na primeira carga de um arquivo novo, grava nele o catálogo dos arquivos de texto.
+    private void migrarDoTexto() throws IOException {
+        if (migrar) {
+            migrar = false;
+            List<Livro> doTexto = new ArrayList<>();
+            for (Livro livro : DadosLivraria.carregarLivros()) {
+                try {
+                    validar(livro);
+                    doTexto.add(livro);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Livro ignorado na criação de " + arquivo + ". " + e.getMessage());
+                }
+            }
+            if (!doTexto.isEmpty()) {
+                System.out.println("Criando " + arquivo + " a partir do catálogo em texto ("
+                        + doTexto.size() + " livros).");
+                gravarTodos(doTexto, Durabilidade.FSYNC);
+            }
+        }
+    }
+
+    /**
+     * Lê um livro do arquivo. O livro devolvido é uma visão do registro: o
+     * título, o autor e a categoria são lidos agora; o preço e o estoque são
+     * lidos e alterados no mapeamento a cada chamada, de forma atômica, então
+     * duas visões do mesmo livro sempre concordam. Gravar uma visão (com
+     * registrarAtualizacoes ou registrarAlteracoes) não faz nada, pois os
+     * valores já estão no registro.
+     *
+     * @param isbn O ISBN procurado.
+     * @return A visão do livro, ou null se não existir.
+     */
+    public synchronized Livro ler(String isbn) {
+        int registro = localizar(isbn.getBytes(StandardCharsets.UTF_8));
+        return registro < 0 ? null : new LivroMapeado(registro);
+    }
+
+    /**
+     * Inclui um livro, se ainda não existir outro com o mesmo ISBN. Sem
+     * durabilidade: a inclusão fica no mapeamento, como com NENHUMA.
+     *
+     * @param livro O livro a ser incluído.
+     * @return true se foi incluído; false se o ISBN já existia ou não há espaço no arquivo.
+     * @throws IllegalArgumentException Se algum texto do livro não cabe no seu espaço.
+     */
+    public synchronized boolean incluir(Livro livro) {
+        validar(livro);
+        migrar = false;
+        byte[] isbn = livro.getIsbn().getBytes(StandardCharsets.UTF_8);
+        if (localizar(isbn) >= 0) {
+            return false;
+        }
+        try {
+            int registro = reservarRegistro();
+            escreverRegistro(mapa, registro, livro);
+            inserirNaTabela(isbn, registro);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Erro ao incluir o livro " + livro.getIsbn() + " em " + arquivo + ": "
+                    + e.getMessage());
+            GRAVACAO.contarFalha();
+            return false;
+        }
+    }
+
+    /**
+     * Remove um livro do arquivo. O registro fica livre para outra inclusão
+     * depois que o arquivo for reaberto (as visões dele podem continuar em uso).
+     *
+     * @param isbn O ISBN do livro a ser removido.
+     * @return Uma cópia imutável do livro removido, ou null se não existir.
+     */
+    public synchronized Livro excluir(String isbn) {
+        migrar = false;
+        byte[] bytes = isbn.getBytes(StandardCharsets.UTF_8);
+        int registro = localizar(bytes);
+        if (registro < 0) {
+            return null;
+        }
+        Livro removido = LivroImutavel.copiar(new LivroMapeado(registro));
+        liberarRegistro(bytes);
+        return removido;
+    }
+
+    /**
+     * @return Quantidade de livros no arquivo.
+     */
+    public synchronized int getQuantidadeLivros() {
+        return quantidade;
+    }
+
+    /**
+     * Visão de todos os livros do arquivo, na ordem dos registros: cada livro é
+     * lido (como em {@link #ler(String)}) só quando o iterador chega a ele, então
+     * percorrer o catálogo não o guarda em memória. Inclusões e remoções feitas
+     * durante a iteração podem ou não aparecer nela.
+     *
+     * @return A coleção somente leitura.
+     */
+    public Collection<Livro> livros() {
+        return new AbstractCollection<Livro>() {
+            @Override
+            public Iterator<Livro> iterator() {
+                return new Iterator<Livro>() {
+                    private int proximo = -1; // Próximo registro ocupado, ou -1 se ainda não procurado.
+                    private int atual = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (proximo < 0) {
+                            proximo = proximoOcupado(atual + 1);
+                        }
+                        return proximo < Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    public Livro next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        atual = proximo;
+                        proximo = -1;
+                        synchronized (RepositorioMapeado.this) {
+                            return new LivroMapeado(atual);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return getQuantidadeLivros();
+            }
+        };
+    }
+
+    // O primeiro registro ocupado a partir de 'inicio', ou Integer.MAX_VALUE se não houver.
+    private synchronized int proximoOcupado(int inicio) {
+        for (int registro = inicio; registro < proximoNovo; registro++) {
+            if (mapa.get(posicaoRegistro(registro)) == OCUPADO) {
+                return registro;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Confere se o ISBN, o título, o autor e a categoria do livro cabem nos
+     * espaços fixos do registro (medidos em bytes UTF-8).
+     *
+     * @param livro O livro a ser incluído ou gravado.
+     * @throws IllegalArgumentException Se algum dos textos não cabe no seu espaço.
+     */
+    @Override
+    public void validar(Livro livro) {
+        conferirEspaco("ISBN", livro.getIsbn(), ESPACO_ISBN, livro);
+        conferirEspaco("Título", livro.getTitulo(), ESPACO_TITULO, livro);
+        conferirEspaco("Autor", livro.getAutor(), ESPACO_AUTOR, livro);
+        conferirEspaco("Categoria", livro.getCategoria(), ESPACO_CATEGORIA, livro);
+    }
+
+    private void conferirEspaco(String campo, String texto, int espaco, Livro livro) {
+        int tamanho = texto.getBytes(StandardCharsets.UTF_8).length;
+        if (tamanho > espaco) {
+            throw new IllegalArgumentException(campo + " do livro " + livro.getIsbn() + " não cabe em " + arquivo
+                    + ": " + tamanho + " bytes, máximo " + espaco + ".");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException Se algum texto de um livro não cabe no seu espaço
+     *                                  (nada é gravado).
+     */
+    @Override
+    public synchronized void salvarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        try {
+            gravarTodos(livros, durabilidade);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar livros em " + arquivo + ": " + e.getMessage());
+            GRAVACAO.contarFalha();
+        } finally {
+            GRAVACAO.registrar(inicio);
+        }
+    }
+
+    // Grava o catálogo inteiro num arquivo novo e o troca pelo atual, para que
+    // uma falha no meio nunca deixe o catálogo pela metade.
+    private void gravarTodos(Collection<Livro> livros, Durabilidade durabilidade) throws IOException {
+        for (Livro livro : livros) {
+            validar(livro);
+        }
+        migrar = false; // O catálogo gravado substitui o de texto.
+        if (livros.size() > CAPACIDADE_MAXIMA) {
+            throw new IOException("Catálogo grande demais para " + arquivo + ".");
+        }
+        // Uma folga de 25% para inclusões antes que o arquivo precise crescer.
+        int novaCapacidade = (int) Math.min(Math.max(CAPACIDADE_INICIAL, livros.size() + livros.size() / 4L),
+                CAPACIDADE_MAXIMA);
+        Path temporario = Paths.get(arquivo + ".tmp");
+        try (FileChannel novo = criarArquivo(temporario, novaCapacidade)) {
+            MappedByteBuffer novoMapa = novo.map(FileChannel.MapMode.READ_WRITE, 0,
+                    CABECALHO + (long) novaCapacidade * TAMANHO_REGISTRO);
+            int registro = 0;
+            Set<String> gravados = new HashSet<>();
+            for (Livro livro : livros) {
+                if (gravados.add(livro.getIsbn())) {
+                    escreverRegistro(novoMapa, registro++, livro);
+                }
+            }
+            if (durabilidade == Durabilidade.FSYNC) {
+                novoMapa.force();
+            }
+        }
+        canal.close();
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        abrir();
+    }
+
+    @Override
+    public synchronized void registrarAtualizacoes(Collection<Livro> livros, Durabilidade durabilidade) {
+        long inicio = System.nanoTime();
+        try {
+            for (Livro livro : livros) {
+                if (eVisaoPropria(livro)) {
+                    continue; // Os valores já estão no registro.
+                }
+                int registro = localizar(livro.getIsbn().getBytes(StandardCharsets.UTF_8));
+                if (registro >= 0) {
+                    int base = posicaoRegistro(registro);
+                    mapa.putLong(base + POSICAO_PRECO, livro.getPrecoCentavos());
+                    mapa.putInt(base + POSICAO_ESTOQUE, livro.getEstoque());
+                }
+            }
+            forcar(durabilidade);
+        } finally {
+            GRAVACAO.registrar(inicio);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException Se algum texto de um livro não cabe no seu espaço
+     *                                  (nada é gravado).
+     */
+    @Override
+    public synchronized void registrarAlteracoes(Collection<Livro> livrosAtuais, Collection<String> isbnsRemovidos,
+            Durabilidade durabilidade) {
+        for (Livro livro : livrosAtuais) {
+            validar(livro); // Antes de alterar qualquer registro.
+        }
+        long inicio = System.nanoTime();
+        migrar = false;
+        try {
+            for (String isbn : isbnsRemovidos) {
+                liberarRegistro(isbn.getBytes(StandardCharsets.UTF_8));
+            }
+            for (Livro livro : livrosAtuais) {
+                if (eVisaoPropria(livro)) {
+                    continue;
+                }
+                byte[] isbn = livro.getIsbn().getBytes(StandardCharsets.UTF_8);
+                int registro = localizar(isbn);
+                if (registro < 0) {
+                    registro = reservarRegistro();
+                    escreverRegistro(mapa, registro, livro);
+                    inserirNaTabela(isbn, registro);
+                } else {
+                    escreverRegistro(mapa, registro, livro);
+                }
+            }
+            forcar(durabilidade);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar livros em " + arquivo + ": " + e.getMessage());
+            GRAVACAO.contarFalha();
+        } finally {
+            GRAVACAO.registrar(inicio);
+        }
+    }
+
+    @Override
+    public synchronized void compactarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        // Não há log a compactar: os registros já são o estado atual.
+        forcar(durabilidade);
+    }
+
+    @Override
+    public List<ItemCarrinho> carregarCarrinho(String idSessao, Function<String, Optional<Livro>> buscarPorIsbn) {
+        return idSessao == null ? DadosLivraria.carregarCarrinho(buscarPorIsbn)
+                : DadosLivraria.carregarCarrinho(idSessao, buscarPorIsbn);
+    }
+
+    @Override
+    public void salvarCarrinho(String idSessao, List<ItemCarrinho> itens, Durabilidade durabilidade) {
+        if (idSessao == null) {
+            DadosLivraria.salvarCarrinho(itens, durabilidade);
+        } else {
+            DadosLivraria.salvarCarrinho(idSessao, itens, durabilidade);
+        }
+    }
+
+    @Override
+    public synchronized long getTamanhoEmDisco() {
+        return CABECALHO + (long) capacidade * TAMANHO_REGISTRO;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            mapa.force();
+            gravarIndice();
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar " + arquivo + ": " + e.getMessage());
+        }
+    }
+
+    // Um registro livre desde a abertura, ou um novo no fim (dobrando o arquivo se não houver espaço).
+    private int reservarRegistro() throws IOException {
+        Integer livre = livres.poll();
+        if (livre != null) {
+            return livre;
+        }
+        if (proximoNovo == capacidade) {
+            if (capacidade == CAPACIDADE_MAXIMA) {
+                throw new IOException("Não há mais espaço em " + arquivo + ".");
+            }
+            capacidade = (int) Math.min((long) capacidade * 2, CAPACIDADE_MAXIMA);
+            // Mapear além do fim aumenta o arquivo; os registros novos vêm zerados (livres).
+            mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, CABECALHO + (long) capacidade * TAMANHO_REGISTRO);
+            mapa.putInt(12, capacidade);
+        }
+        return proximoNovo++;
+    }
+
+    // Marca como livre o registro do ISBN, se existir, e o tira do índice. O registro só é
+    // reaproveitado na próxima abertura, quando nenhuma visão dele pode existir.
+    private void liberarRegistro(byte[] isbn) {
+        int posicao = posicaoNaTabela(isbn);
+        if (posicao >= 0) {
+            int registro = tabela[posicao] - 1;
+            tabela[posicao] = REMOVIDO; // A sequência de sondagem das outras chaves continua válida.
+            quantidade--;
+            mapa.put(posicaoRegistro(registro), LIVRE);
+            liberados.add(registro);
+        }
+    }
+
+    private boolean eVisaoPropria(Livro livro) {
+        return livro instanceof LivroMapeado && ((LivroMapeado) livro).repositorio() == this;
+    }
+
+    private void forcar(Durabilidade durabilidade) {
+        if (durabilidade == Durabilidade.FSYNC) {
+            long inicio = System.nanoTime();
+            mapa.force();
+            SINCRONIZACAO.registrar(inicio);
+        }
+    }
+
+    private static FileChannel criarArquivo(Path destino, int capacidade) throws IOException {
+        FileChannel novo = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        cabecalho.putInt(IDENTIFICADOR).putInt(VERSAO).putInt(TAMANHO_REGISTRO).putInt(capacidade).flip();
+        while (cabecalho.hasRemaining()) {
+            novo.write(cabecalho, cabecalho.position());
+        }
+        return novo;
+    }
+
+    private static int posicaoRegistro(int registro) {
+        return CABECALHO + registro * TAMANHO_REGISTRO;
+    }
+
+    // Escreve o registro inteiro; a situação OCUPADO vem por último. O livro já passou por
+    // validar(), então cada texto cabe no seu espaço.
+    private void escreverRegistro(MappedByteBuffer destino, int registro, Livro livro) {
+        int base = posicaoRegistro(registro);
+        destino.putLong(base + POSICAO_PRECO, livro.getPrecoCentavos());
+        destino.putInt(base + POSICAO_ESTOQUE, livro.getEstoque());
+        escreverTexto(destino, base + POSICAO_ISBN, livro.getIsbn());
+        escreverTexto(destino, base + POSICAO_TITULO, livro.getTitulo());
+        escreverTexto(destino, base + POSICAO_AUTOR, livro.getAutor());
+        escreverTexto(destino, base + POSICAO_CATEGORIA, livro.getCategoria());
+        destino.put(base, OCUPADO);
+    }
+
+    private static void escreverTexto(MappedByteBuffer destino, int posicao, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        destino.putShort(posicao, (short) bytes.length);
+        destino.put(posicao + 2, bytes);
+    }
+
+    private String lerTexto(int registro, int posicao) {
+        int base = posicaoRegistro(registro) + posicao;
+        int tamanho = mapa.getShort(base);
+        byte[] bytes = new byte[tamanho];
+        mapa.get(base + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- Tabela hash ISBN -> registro (endereçamento aberto com sondagem linear) ---
+
+    // O registro com o ISBN, ou -1 se ele não existir.
+    private int localizar(byte[] isbn) {
+        int posicao = posicaoNaTabela(isbn);
+        return posicao < 0 ? -1 : tabela[posicao] - 1;
+    }
+
+    // Devolve a posição da tabela que aponta para o ISBN, ou -1 se ele não existir.
+    private int posicaoNaTabela(byte[] isbn) {
+        int mascara = tabela.length - 1;
+        for (int i = espalhar(isbn) & mascara;; i = (i + 1) & mascara) {
+            int valor = tabela[i];
+            if (valor == VAZIO) {
+                return -1;
+            }
+            if (valor != REMOVIDO && isbnIgual(valor - 1, isbn)) {
+                return i;
+            }
+        }
+    }
+
+    private void inserirNaTabela(byte[] isbn, int registro) {
+        int mascara = tabela.length - 1;
+        int i = espalhar(isbn) & mascara;
+        while (tabela[i] != VAZIO && tabela[i] != REMOVIDO) {
+            i = (i + 1) & mascara;
+        }
+        if (tabela[i] == VAZIO) {
+            ocupadas++;
+        }
+        tabela[i] = registro + 1;
+        quantidade++;
+        if (ocupadas * 4L > tabela.length * 3L) { // Mais de 75% ocupada: reconstrói.
+            reconstruirTabela();
+        }
+    }
+
+    // Reconstrói a tabela com o tamanho adequado, descartando as marcas de remoção.
+    private void reconstruirTabela() {
+        int[] nova = new int[tamanhoDaTabela(quantidade)];
+        int mascara = nova.length - 1;
+        for (int valor : tabela) {
+            if (valor != VAZIO && valor != REMOVIDO) {
+                int i = espalhar(bytesDoIsbn(valor - 1)) & mascara;
+                while (nova[i] != VAZIO) {
+                    i = (i + 1) & mascara;
+                }
+                nova[i] = valor;
+            }
+        }
+        tabela = nova;
+        ocupadas = quantidade;
+    }
+
+    // Potência de 2 que deixa a tabela no máximo metade cheia.
+    private static int tamanhoDaTabela(int quantidade) {
+        int tamanho = 16;
+        while (tamanho < quantidade * 2L) {
+            tamanho <<= 1;
+        }
+        return tamanho;
+    }
+
+    private boolean isbnIgual(int registro, byte[] isbn) {
+        int posicao = posicaoRegistro(registro) + POSICAO_ISBN;
+        if (mapa.getShort(posicao) != isbn.length) {
+            return false;
+        }
+        for (int i = 0; i < isbn.length; i++) {
+            if (mapa.get(posicao + 2 + i) != isbn[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] bytesDoIsbn(int registro) {
+        int posicao = posicaoRegistro(registro) + POSICAO_ISBN;
+        byte[] isbn = new byte[mapa.getShort(posicao)];
+        mapa.get(posicao + 2, isbn);
+        return isbn;
+    }
+
+    private static int espalhar(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        return h ^ (h >>> 16); // Mistura os bits altos, como o HashMap faz.
+    }
+
+    /**
+     * Visão de um registro. Guarda o mapeamento do momento em que foi criada:
+     * se o arquivo cresce, o mapeamento novo e o antigo mostram as mesmas
+     * páginas do arquivo, então a visão continua valendo. Só a regravação do
+     * catálogo inteiro (salvarLivros), que troca o arquivo, a invalida. Como um
+     * registro liberado não é reaproveitado enquanto o arquivo está aberto, a
+     * visão de um livro removido nunca passa a mostrar outro livro.
+     */
+    private final class LivroMapeado extends Livro {
+        private final MappedByteBuffer registros;
+        private final int registro;
+        private final int base;
+        private final String isbn;
+        private final String titulo;
+        private final String autor;
+        private final String categoria;
+
+        LivroMapeado(int registro) {
+            this.registros = mapa;
+            this.registro = registro;
+            this.base = posicaoRegistro(registro);
+            this.isbn = lerTexto(registro, POSICAO_ISBN);
+            this.titulo = lerTexto(registro, POSICAO_TITULO);
+            this.autor = lerTexto(registro, POSICAO_AUTOR);
+            this.categoria = lerTexto(registro, POSICAO_CATEGORIA);
+        }
+
+        @Override
+        public String getIsbn() {
+            return isbn;
+        }
+
+        @Override
+        public String getTitulo() {
+            return titulo;
+        }
+
+        @Override
+        public String getAutor() {
+            return autor;
+        }
+
+        @Override
+        public String getCategoria() {
+            return categoria;
+        }
+
+        @Override
+        public double getPreco() {
+            return Dinheiro.paraReais(getPrecoCentavos());
+        }
+
+        @Override
+        public long getPrecoCentavos() {
+            return (long) PRECOS.getVolatile(registros, base + POSICAO_PRECO);
+        }
+
+        @Override
+        public int getEstoque() {
+            return (int) ESTOQUES.getVolatile(registros, base + POSICAO_ESTOQUE);
+        }
+
+        @Override
+        public void setPreco(double preco) {
+            setPrecoCentavos(Dinheiro.paraCentavos(preco));
+        }
+
+        @Override
+        public void setPrecoCentavos(long precoCentavos) {
+            PRECOS.setVolatile(registros, base + POSICAO_PRECO, precoCentavos);
+        }
+
+        @Override
+        public void setEstoque(int estoque) {
+            ESTOQUES.setVolatile(registros, base + POSICAO_ESTOQUE, estoque);
+        }
+
+        @Override
+        public boolean retirarEstoque(int quantidade) {
+            validarQuantidade(quantidade);
+            while (true) {
+                int atual = getEstoque();
+                if (atual < quantidade) {
+                    return false;
+                }
+                if (ESTOQUES.compareAndSet(registros, base + POSICAO_ESTOQUE, atual, atual - quantidade)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void devolverEstoque(int quantidade) {
+            validarQuantidade(quantidade);
+            ESTOQUES.getAndAdd(registros, base + POSICAO_ESTOQUE, quantidade);
+        }
+
+        // Duas visões do mesmo registro representam o mesmo livro (o registro não é
+        // reaproveitado por outro livro enquanto o arquivo está aberto).
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof LivroMapeado && ((LivroMapeado) outro).registro == registro
+                    && ((LivroMapeado) outro).repositorio() == RepositorioMapeado.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return registro;
+        }
+
+        private RepositorioMapeado repositorio() {
+            return RepositorioMapeado.this;
+        }
+    }
+}
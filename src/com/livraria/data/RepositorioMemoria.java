@@ -0,0 +1,121 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Livro;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Repositório só em memória: nada é lido nem gravado em disco, e tudo se
+ * perde quando o programa termina. Serve para testes e para medir o resto da
+ * aplicação sem o custo dos arquivos. Guarda cópias dos livros (o catálogo em
+ * memória continua sendo alterado depois de cada gravação).
+ */
+public class RepositorioMemoria implements RepositorioLivraria {
+    private final Map<String, Livro> livros = new LinkedHashMap<>(); // Protegido pelo próprio repositório.
+    // Carrinhos por sessão ("" para o carrinho único): quantidade por ISBN.
+    private final Map<String, Map<String, Integer>> carrinhos = new ConcurrentHashMap<>();
+
+    /**
+     * Cria um repositório vazio.
+     */
+    public RepositorioMemoria() {
+    }
+
+    /**
+     * Cria um repositório com um catálogo inicial.
+     *
+     * @param iniciais Os livros do catálogo inicial.
+     */
+    public RepositorioMemoria(Collection<Livro> iniciais) {
+        for (Livro livro : iniciais) {
+            livros.putIfAbsent(livro.getIsbn(), copiar(livro));
+        }
+    }
+
+    @Override
+    public synchronized List<Livro> carregarLivros() {
+        List<Livro> copias = new ArrayList<>(livros.size());
+        for (Livro livro : livros.values()) {
+            copias.add(copiar(livro));
+        }
+        return copias;
+    }
+
+    @Override
+    public synchronized void salvarLivros(Collection<Livro> todos, Durabilidade durabilidade) {
+        livros.clear();
+        for (Livro livro : todos) {
+            livros.put(livro.getIsbn(), copiar(livro));
+        }
+    }
+
+    @Override
+    public synchronized void registrarAtualizacoes(Collection<Livro> alterados, Durabilidade durabilidade) {
+        for (Livro livro : alterados) {
+            Livro guardado = livros.get(livro.getIsbn());
+            if (guardado != null) {
+                guardado.setPrecoCentavos(livro.getPrecoCentavos());
+                guardado.setEstoque(livro.getEstoque());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void registrarAlteracoes(Collection<Livro> livrosAtuais, Collection<String> isbnsRemovidos,
+            Durabilidade durabilidade) {
+        for (Livro livro : livrosAtuais) {
+            livros.put(livro.getIsbn(), copiar(livro));
+        }
+        for (String isbn : isbnsRemovidos) {
+            livros.remove(isbn);
+        }
+    }
+
+    @Override
+    public void compactarLivros(Collection<Livro> todos, Durabilidade durabilidade) {
+        // Nada a reorganizar: o mapa já é o estado atual.
+    }
+
+    @Override
+    public List<ItemCarrinho> carregarCarrinho(String idSessao, Function<String, Optional<Livro>> buscarPorIsbn) {
+        List<ItemCarrinho> itens = new ArrayList<>();
+        Map<String, Integer> guardado = carrinhos.get(idSessao == null ? "" : idSessao);
+        if (guardado != null) {
+            guardado.forEach((isbn, quantidade) -> buscarPorIsbn.apply(isbn)
+                    .ifPresent(livro -> itens.add(new ItemCarrinho(livro, quantidade))));
+        }
+        return itens;
+    }
+
+    @Override
+    public void salvarCarrinho(String idSessao, List<ItemCarrinho> itens, Durabilidade durabilidade) {
+        String chave = idSessao == null ? "" : idSessao;
+        if (itens.isEmpty()) {
+            carrinhos.remove(chave);
+            return;
+        }
+        Map<String, Integer> copia = new LinkedHashMap<>();
+        for (ItemCarrinho item : itens) {
+            copia.merge(item.getLivro().getIsbn(), item.getQuantidade(), Integer::sum);
+        }
+        carrinhos.put(chave, copia);
+    }
+
+    @Override
+    public long getTamanhoEmDisco() {
+        return 0;
+    }
+
+    private static Livro copiar(Livro livro) {
+        return Livro.comPrecoEmCentavos(livro.getIsbn(), livro.getTitulo(), livro.getAutor(), livro.getCategoria(),
+                livro.getPrecoCentavos(), livro.getEstoque());
+    }
+}
@@ -0,0 +1,66 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Livro;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Repositório nos arquivos de texto da pasta de dados, o formato original da
+ * livraria: o catálogo em livros.txt (com o snapshot livros.bin), as gravações
+ * parciais no log livros.log e cada carrinho no seu arquivo. Os arquivos
+ * continuam legíveis e editáveis à mão (e o MonitorCatalogo recarrega o
+ * livros.txt alterado por outro programa). Todo o trabalho é feito por
+ * {@link DadosLivraria}.
+ */
+public class RepositorioTexto implements RepositorioLivraria {
+
+    @Override
+    public List<Livro> carregarLivros() {
+        return DadosLivraria.carregarLivros();
+    }
+
+    @Override
+    public void salvarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        DadosLivraria.salvarLivros(livros, durabilidade);
+    }
+
+    @Override
+    public void registrarAtualizacoes(Collection<Livro> livros, Durabilidade durabilidade) {
+        DadosLivraria.registrarAtualizacoes(livros, durabilidade);
+    }
+
+    @Override
+    public void registrarAlteracoes(Collection<Livro> livrosAtuais, Collection<String> isbnsRemovidos,
+            Durabilidade durabilidade) {
+        DadosLivraria.registrarAlteracoes(livrosAtuais, isbnsRemovidos, durabilidade);
+    }
+
+    @Override
+    public void compactarLivros(Collection<Livro> livros, Durabilidade durabilidade) {
+        DadosLivraria.compactarLivros(livros, durabilidade);
+    }
+
+    @Override
+    public List<ItemCarrinho> carregarCarrinho(String idSessao, Function<String, Optional<Livro>> buscarPorIsbn) {
+        return idSessao == null ? DadosLivraria.carregarCarrinho(buscarPorIsbn)
+                : DadosLivraria.carregarCarrinho(idSessao, buscarPorIsbn);
+    }
+
+    @Override
+    public void salvarCarrinho(String idSessao, List<ItemCarrinho> itens, Durabilidade durabilidade) {
+        if (idSessao == null) {
+            DadosLivraria.salvarCarrinho(itens, durabilidade);
+        } else {
+            DadosLivraria.salvarCarrinho(idSessao, itens, durabilidade);
+        }
+    }
+
+    @Override
+    public long getTamanhoEmDisco() {
+        return DadosLivraria.getTamanhoArquivosLivros();
+    }
+}
@@ -0,0 +1,218 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.Livro;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32; // Soma de verificação para detectar arquivos corrompidos.
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot binário do catálogo, para uma inicialização quase instantânea.
+ * Ao contrário do arquivo de texto, não há conversão de números nem busca por
+ * separadores: cada campo é lido diretamente do buffer.
+ *
+ * Formato do arquivo:
+ * <pre>
+ * cabeçalho: identificador "LVRB" (4 bytes), versão (int),
+ *            tamanho e data de modificação do livros.txt de origem (long, long),
+ *            quantidade de livros (int)
+ * registros: ISBN, título, autor e categoria (tamanho em bytes + UTF-8),
+ *            preço em centavos (long) e estoque (int)
+ * final:     CRC32 de todos os bytes anteriores (int)
+ * </pre>
+ * O tamanho e a data do livros.txt guardados no cabeçalho permitem saber se o
+ * snapshot ainda corresponde ao arquivo de texto.
+ */
+public class SnapshotBinario {
+    private static final int IDENTIFICADOR = 0x4C565242; // "LVRB" em ASCII.
+    private static final int VERSAO = 1;
+
+    /**
+     * Grava o snapshot binário de um catálogo. O arquivo é escrito em um
+     * temporário e renomeado, então um snapshot pela metade nunca é lido.
+     *
+     * @param livros  Os livros do catálogo.
+     * @param destino O arquivo binário a ser gravado.
+     * @param origem  O livros.txt que o snapshot representa (pode não existir).
+     * @throws IOException Se a gravação falhar.
+     */
+    public static void gravar(Collection<Livro> livros, Path destino, Path origem) throws IOException {
+        long tamanhoOrigem = 0;
+        long modificacaoOrigem = 0;
+        if (Files.exists(origem)) {
+            tamanhoOrigem = Files.size(origem);
+            modificacaoOrigem = Files.getLastModifiedTime(origem).toMillis();
+        }
+        Path temporario = Paths.get(destino + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream arquivo = Files.newOutputStream(temporario);
+                CheckedOutputStream verificado = new CheckedOutputStream(new BufferedOutputStream(arquivo, 1 << 16), crc);
+                DataOutputStream saida = new DataOutputStream(verificado)) {
+            saida.writeInt(IDENTIFICADOR);
+            saida.writeInt(VERSAO);
+            saida.writeLong(tamanhoOrigem);
+            saida.writeLong(modificacaoOrigem);
+            saida.writeInt(livros.size());
+            for (Livro livro : livros) {
+                escreverTexto(saida, livro.getIsbn());
+                escreverTexto(saida, livro.getTitulo());
+                escreverTexto(saida, livro.getAutor());
+                escreverTexto(saida, livro.getCategoria());
+                saida.writeLong(livro.getPrecoCentavos()); // Preço em centavos (ponto fixo).
+                saida.writeInt(livro.getEstoque());
+            }
+            saida.flush();
+            // O CRC cobre tudo o que foi escrito até aqui; ele mesmo fica fora da soma.
+            int valorCrc = (int) crc.getValue();
+            saida.writeInt(valorCrc);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o snapshot binário, desde que ele ainda corresponda ao livros.txt.
+     *
+     * @param arquivo O snapshot binário.
+     * @param origem  O livros.txt de referência.
+     * @return Os livros do snapshot, ou null se o snapshot não existir, estiver
+     *         desatualizado (o livros.txt mudou depois dele) ou corrompido.
+     */
+    public static List<Livro> carregarSeAtual(Path arquivo, Path origem) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+            if (buffer.remaining() < 32 || buffer.getInt() != IDENTIFICADOR || buffer.getInt() != VERSAO) {
+                return null;
+            }
+            long tamanhoOrigem = buffer.getLong();
+            long modificacaoOrigem = buffer.getLong();
+            if (Files.exists(origem) && (Files.size(origem) != tamanhoOrigem
+                    || Files.getLastModifiedTime(origem).toMillis() != modificacaoOrigem)) {
+                return null; // O livros.txt foi alterado depois do snapshot.
+            }
+            int fimDados = buffer.limit() - 4;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(fimDados));
+            if ((int) crc.getValue() != buffer.getInt(fimDados)) {
+                System.err.println("Snapshot binário " + arquivo + " corrompido; usando o arquivo de texto.");
+                return null;
+            }
+            return lerRegistros(buffer.limit(fimDados));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println("Erro ao ler o snapshot binário: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Converte um arquivo de livros em texto para o formato binário.
+     *
+     * @param texto   O livros.txt de origem.
+     * @param binario O snapshot binário a ser criado.
+     * @throws IOException Se a leitura ou a gravação falhar.
+     */
+    public static void converterTextoParaBinario(Path texto, Path binario) throws IOException {
+        CarregadorLivros.ResultadoCarga resultado = CarregadorLivros.carregar(texto);
+        resultado.getErros().forEach(erro -> System.err.println("Linha inválida ignorada. " + erro));
+        gravar(resultado.getLivros(), binario, texto);
+    }
+
+    /**
+     * Converte um snapshot binário de volta para o formato de texto. Em seguida o
+     * snapshot é regravado para corresponder ao novo arquivo de texto.
+     *
+     * @param binario O snapshot binário de origem.
+     * @param texto   O livros.txt a ser criado.
+     * @throws IOException Se a leitura ou a gravação falhar.
+     */
+    public static void converterBinarioParaTexto(Path binario, Path texto) throws IOException {
+        // Passa um caminho que não existe como origem para ignorar a verificação de data.
+        List<Livro> livros = carregarSeAtual(binario, Paths.get(binario + ".sem-origem"));
+        if (livros == null) {
+            throw new IOException("Snapshot binário inválido: " + binario);
+        }
+        DadosLivraria.gravarArquivoLivros(texto, livros);
+        gravar(livros, binario, texto);
+    }
+
+    /**
+     * Conversor de linha de comando.
+     * Uso: {@code java -cp bin com.livraria.data.SnapshotBinario paraBinario|paraTexto <livros.txt> <livros.bin>}
+     *
+     * @param args Direção da conversão, arquivo de texto e arquivo binário.
+     * @throws IOException Se a conversão falhar.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Uso: SnapshotBinario paraBinario|paraTexto <livros.txt> <livros.bin>");
+            return;
+        }
+        Path texto = Paths.get(args[1]);
+        Path binario = Paths.get(args[2]);
+        if (args[0].equals("paraBinario")) {
+            converterTextoParaBinario(texto, binario);
+        } else if (args[0].equals("paraTexto")) {
+            converterBinarioParaTexto(binario, texto);
+        } else {
+            System.out.println("Direção desconhecida: " + args[0]);
+            return;
+        }
+        System.out.println("Conversão concluída.");
+    }
+
+    private static List<Livro> lerRegistros(ByteBuffer buffer) {
+        int quantidade = buffer.getInt();
+        List<Livro> livros = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            String isbn = lerTexto(buffer);
+            String titulo = lerTexto(buffer);
+            String autor = lerTexto(buffer);
+            String categoria = lerTexto(buffer);
+            long centavos = buffer.getLong();
+            int estoque = buffer.getInt();
+            livros.add(Livro.comPrecoEmCentavos(isbn, titulo, autor, categoria, centavos, estoque));
+        }
+        return livros;
+    }
+
+    // Texto com tamanho variável: o número de bytes é gravado antes, em 7 bits por byte.
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        int tamanho = bytes.length;
+        while (tamanho >= 0x80) {
+            saida.writeByte((tamanho & 0x7F) | 0x80);
+            tamanho >>>= 7;
+        }
+        saida.writeByte(tamanho);
+        saida.write(bytes);
+    }
+
+    private static String lerTexto(ByteBuffer buffer) {
+        int tamanho = 0;
+        int deslocamento = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            tamanho |= (b & 0x7F) << deslocamento;
+            deslocamento += 7;
+        } while ((b & 0x80) != 0);
+        String texto = new String(buffer.array(), buffer.position(), tamanho, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + tamanho);
+        return texto;
+    }
+}
@@ -0,0 +1,45 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import java.io.IOException;
+
+/**
+ * Define onde o catálogo e os carrinhos são guardados (veja
+ * {@link RepositorioLivraria}). Escolhido na inicialização com
+ * -Dlivraria.repositorio=TEXTO|MAPEADO|MEMORIA.
+ */
+public enum TipoRepositorio {
+    /**
+     * Os arquivos de texto da pasta de dados (padrão): livros.txt, o log
+     * livros.log e os arquivos dos carrinhos. Legíveis e editáveis à mão.
+     */
+    TEXTO,
+
+    /**
+     * Registros de tamanho fixo em livros.dat, mapeado em memória: preço e
+     * estoque são alterados no lugar. Criado a partir do catálogo em texto na
+     * primeira vez.
+     */
+    MAPEADO,
+
+    /**
+     * Nada é gravado em disco; o catálogo começa vazio e se perde ao terminar.
+     */
+    MEMORIA;
+
+    /**
+     * Cria um repositório deste tipo sobre a pasta de dados.
+     *
+     * @return O novo repositório.
+     * @throws IOException Se os arquivos do repositório não puderem ser abertos.
+     */
+    public RepositorioLivraria criar() throws IOException {
+        switch (this) {
+            case MAPEADO:
+                return new RepositorioMapeado();
+            case MEMORIA:
+                return new RepositorioMemoria();
+            default:
+                return new RepositorioTexto();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.livraria.http; // Pacote da interface HTTP da livraria.
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escritor de JSON em fluxo: cada valor vai direto para o Writer da resposta,
+ * sem montar uma árvore de objetos nem a resposta inteira em memória.
+ * <p>
+ * Controla sozinho as vírgulas entre valores. A pilha de objetos e listas
+ * abertos é guardada nos bits de um long (um bit por nível, até 64 níveis),
+ * então escrever não cria objetos além das próprias Strings.
+ */
+class EscritorJson {
+    private static final char[] HEXA = "0123456789abcdef".toCharArray();
+
+    private final Writer saida;
+    private long temValor; // Bit n = 1: o nível n já tem pelo menos um valor (precisa de vírgula).
+    private int nivel;
+    private boolean depoisDoNome; // Acabou de escrever "nome": o próximo valor não leva vírgula.
+
+    EscritorJson(Writer saida) {
+        this.saida = saida;
+    }
+
+    EscritorJson abrirObjeto() throws IOException {
+        antesDoValor();
+        saida.write('{');
+        abrirNivel();
+        return this;
+    }
+
+    EscritorJson fecharObjeto() throws IOException {
+        nivel--;
+        saida.write('}');
+        return this;
+    }
+
+    EscritorJson abrirLista() throws IOException {
+        antesDoValor();
+        saida.write('[');
+        abrirNivel();
+        return this;
+    }
+
+    EscritorJson fecharLista() throws IOException {
+        nivel--;
+        saida.write(']');
+        return this;
+    }
+
+    /**
+     * Escreve o nome de um campo; deve ser seguido de um valor.
+     */
+    EscritorJson nome(String nome) throws IOException {
+        antesDoValor();
+        escreverTexto(nome);
+        saida.write(':');
+        depoisDoNome = true;
+        return this;
+    }
+
+    EscritorJson valor(String texto) throws IOException {
+        antesDoValor();
+        if (texto == null) {
+            saida.write("null");
+        } else {
+            escreverTexto(texto);
+        }
+        return this;
+    }
+
+    EscritorJson valor(long numero) throws IOException {
+        antesDoValor();
+        saida.write(Long.toString(numero));
+        return this;
+    }
+
+    EscritorJson valor(boolean verdadeiro) throws IOException {
+        antesDoValor();
+        saida.write(verdadeiro ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Escreve um valor em centavos como número decimal com duas casas (ex:
+     * 4550 vira 45.50), sem passar por double.
+     */
+    EscritorJson valorMonetario(long centavos) throws IOException {
+        antesDoValor();
+        if (centavos < 0) {
+            saida.write('-');
+            centavos = -centavos;
+        }
+        saida.write(Long.toString(centavos / 100));
+        saida.write('.');
+        long resto = centavos % 100;
+        saida.write((char) ('0' + resto / 10));
+        saida.write((char) ('0' + resto % 10));
+        return this;
+    }
+
+    private void abrirNivel() {
+        if (nivel == 64) {
+            throw new IllegalStateException("JSON com mais de 64 níveis");
+        }
+        temValor &= ~(1L << nivel); // O novo nível ainda não tem valores.
+        nivel++;
+    }
+
+    // Escreve a vírgula, se for preciso, e marca o nível atual como não vazio.
+    private void antesDoValor() throws IOException {
+        if (depoisDoNome) {
+            depoisDoNome = false;
+            return;
+        }
+        if (nivel == 0) {
+            return;
+        }
+        long bit = 1L << (nivel - 1);
+        if ((temValor & bit) != 0) {
+            saida.write(',');
+        }
+        temValor |= bit;
+    }
+
+    // Escreve o texto entre aspas, escapando aspas, barras e caracteres de controle.
+    private void escreverTexto(String texto) throws IOException {
+        saida.write('"');
+        int inicio = 0; // Início do trecho que ainda não foi escrito.
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            saida.write(texto, inicio, i - inicio);
+            inicio = i + 1;
+            switch (c) {
+                case '"':
+                    saida.write("\\\"");
+                    break;
+                case '\\':
+                    saida.write("\\\\");
+                    break;
+                case '\n':
+                    saida.write("\\n");
+                    break;
+                case '\r':
+                    saida.write("\\r");
+                    break;
+                case '\t':
+                    saida.write("\\t");
+                    break;
+                default:
+                    saida.write("\\u00");
+                    saida.write(HEXA[c >> 4]);
+                    saida.write(HEXA[c & 0xF]);
+            }
+        }
+        saida.write(texto, inicio, texto.length() - inicio);
+        saida.write('"');
+    }
+}
@@ -0,0 +1,746 @@
+package com.livraria.http; // Pacote da interface HTTP da livraria.
+
+import com.livraria.data.DadosLivraria;
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioLivraria;
+import com.livraria.data.RepositorioTexto;
+import com.livraria.data.TipoRepositorio;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.Livro;
+import com.livraria.service.AnaliseVendas;
+import com.livraria.service.ArmazenamentoCatalogo;
+import com.livraria.service.CarrinhoDeCompras;
+import com.livraria.service.ConsultaCatalogo;
+import com.livraria.service.GerenciadorCarrinhos;
+import com.livraria.service.GerenciadorLivros;
+import com.livraria.service.IndiceTextual;
+import com.livraria.service.JanelaVendas;
+import com.livraria.service.MonitorCatalogo;
+import com.livraria.service.MotorCompras;
+import com.livraria.service.PaginaLivros;
+import com.livraria.service.ReservasEstoque;
+import com.livraria.service.Sugestao;
+import com.livraria.service.TotalVendas;
+import com.sun.net.httpserver.HttpExchange; // Servidor HTTP embutido no JDK.
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interface HTTP/JSON do catálogo e dos carrinhos, usando o servidor HTTP
+ * embutido no JDK (com.sun.net.httpserver).
+ * <p>
+ * Rotas:
+ * <ul>
+ * <li>GET /livros/{isbn} - um livro.</li>
+ * <li>GET /livros?q=termos | ?titulo=termo [&amp;limite=n] - busca no catálogo.</li>
+ * <li>GET /livros?categoria=c &amp; autor=a &amp; precoMin=x &amp; precoMax=y &amp; ordem=preco|preco_desc|titulo
+ * [&amp;cursor=...] [&amp;limite=n] (todos opcionais, ao menos um presente) - navegação paginada; a
+ * resposta traz "proximoCursor" para a página seguinte.</li>
+ * <li>GET /categorias - quantidade de livros de cada categoria.</li>
+ * <li>GET /sugestoes?q=texto [&amp;limite=n] - autocompletar de títulos e autores (até 10).</li>
+ * <li>GET /carrinhos/{sessao} - o carrinho da sessão.</li>
+ * <li>POST /carrinhos/{sessao}/itens (isbn, quantidade) - adiciona um item.</li>
+ * <li>PUT /carrinhos/{sessao}/itens/{isbn} (quantidade) - altera a quantidade.</li>
+ * <li>DELETE /carrinhos/{sessao}/itens/{isbn} - remove o item.</li>
+ * <li>POST /carrinhos/{sessao}/finalizar - finaliza a compra.</li>
+ * <li>GET /vendas/mais-vendidos [?limite=n] - livros mais vendidos.</li>
+ * <li>GET /vendas/receita?por=categoria|autor - receita por categoria ou por autor.</li>
+ * <li>GET /vendas/periodo [?minutos=n] - vendas de cada um dos últimos minutos (padrão: 60).</li>
+ * <li>GET /vendas/periodo?de=t1 &amp; ate=t2 &amp; intervalo=ms - vendas de cada intervalo do período.</li>
+ * </ul>
+ * Os parâmetros podem vir na URL ou no corpo (application/x-www-form-urlencoded).
+ * As respostas de erro têm a forma {"erro": "..."}: 400 para parâmetros
+ * inválidos, 404 para livro ou item inexistente, 405 para método não aceito e
+ * 409 para falta de estoque ou compra que não pôde ser finalizada.
+ * Nas rotas de /vendas, de e ate (instantes em milissegundos desde 1970,
+ * início inclusive e fim exclusive) restringem a consulta a um período, que é
+ * calculado a partir do registro de pedidos; sem eles, a resposta vem dos
+ * contadores mantidos a cada compra.
+ * <p>
+ * O servidor aceita as conexões com NIO (um único seletor), então conexões
+ * ociosas não ocupam threads. Cada requisição roda em uma thread virtual
+ * quando a JVM oferece (Java 21 ou mais recente); nas versões anteriores, em
+ * um pool de threads comuns com tamanho definido por
+ * -Dlivraria.http.threads (padrão: 200).
+ */
+public class ServidorHttp implements AutoCloseable {
+    private static final int FILA_DE_CONEXOES = 4096; // Conexões aguardando aceite (backlog do socket).
+    private static final int LIMITE_PADRAO = 100; // Livros por resposta de busca.
+    private static final int LIMITE_MAXIMO = 1000;
+    private static final int TAMANHO_MAXIMO_CORPO = 64 * 1024; // Corpo aceito nas requisições (bytes).
+    // Parâmetros que fazem GET /livros navegar (paginado) em vez de buscar.
+    private static final String[] PARAMETROS_NAVEGACAO = {"categoria", "autor", "precoMin", "precoMax", "ordem", "cursor"};
+
+    // Tempo de cada requisição, por rota (também disponível via JMX).
+    private static final Operacao HTTP_LIVROS = Metricas.operacao("http.livros");
+    private static final Operacao HTTP_CARRINHOS = Metricas.operacao("http.carrinhos");
+    private static final Operacao HTTP_VENDAS = Metricas.operacao("http.vendas");
+
+    private final GerenciadorLivros gerenciadorLivros;
+    private final GerenciadorCarrinhos gerenciadorCarrinhos;
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+
+    // Erro que vira uma resposta com o status indicado.
+    private static class ErroHttp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ErroHttp(int status, String mensagem) {
+            super(mensagem, null, false, false); // Sem pilha: é um resultado esperado, não um defeito.
+            this.status = status;
+        }
+    }
+
+    // Escreve o corpo JSON de uma resposta.
+    private interface Corpo {
+        void escrever(EscritorJson json) throws IOException;
+    }
+
+    /**
+     * Cria o servidor (ainda parado).
+     *
+     * @param gerenciadorLivros    O catálogo.
+     * @param gerenciadorCarrinhos Os carrinhos das sessões.
+     * @param porta                A porta TCP (0 escolhe uma porta livre).
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public ServidorHttp(GerenciadorLivros gerenciadorLivros, GerenciadorCarrinhos gerenciadorCarrinhos, int porta)
+            throws IOException {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.gerenciadorCarrinhos = gerenciadorCarrinhos;
+        this.servidor = HttpServer.create(new InetSocketAddress(porta), FILA_DE_CONEXOES);
+        this.executor = criarExecutor();
+        servidor.setExecutor(executor);
+        servidor.createContext("/livros", troca -> atender(troca, HTTP_LIVROS, this::tratarLivros));
+        servidor.createContext("/categorias", troca -> atender(troca, HTTP_LIVROS, this::tratarCategorias));
+        servidor.createContext("/sugestoes", troca -> atender(troca, HTTP_LIVROS, this::tratarSugestoes));
+        servidor.createContext("/carrinhos", troca -> atender(troca, HTTP_CARRINHOS, this::tratarCarrinhos));
+        servidor.createContext("/vendas", troca -> atender(troca, HTTP_VENDAS, this::tratarVendas));
+    }
+
+    /**
+     * Começa a aceitar requisições.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * @return A porta em que o servidor está escutando.
+     */
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Para de aceitar conexões, espera até 1 segundo pelas requisições em
+     * andamento e encerra as threads.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        executor.shutdown();
+    }
+
+    // Uma thread virtual por requisição, se a JVM tiver (Java 21+); senão, um pool limitado.
+    private static ExecutorService criarExecutor() {
+        try {
+            // Por reflexão, para o código continuar compilando com Java 17.
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("livraria.http.threads", 200);
+            AtomicInteger numero = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), tarefa -> {
+                        Thread thread = new Thread(tarefa, "http-" + numero.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true); // Sem tráfego, as threads são liberadas.
+            return pool;
+        }
+    }
+
+    // --- Atendimento comum a todas as rotas ---
+
+    private interface Rota {
+        void tratar(HttpExchange troca, String[] partes) throws IOException;
+    }
+
+    private void atender(HttpExchange troca, Operacao operacao, Rota rota) {
+        long inicio = System.nanoTime();
+        try {
+            try {
+                rota.tratar(troca, partesDoCaminho(troca));
+            } catch (ErroHttp e) {
+                operacao.contarFalha();
+                responderErro(troca, e.status, e.getMessage());
+            } catch (IllegalArgumentException e) { // Inclui NumberFormatException.
+                operacao.contarFalha();
+                responderErro(troca, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                operacao.contarFalha();
+                System.err.println("Erro ao atender " + troca.getRequestMethod() + " " + troca.getRequestURI()
+                        + ": " + e);
+                responderErro(troca, 500, "Erro interno.");
+            }
+        } catch (IOException e) {
+            // O cliente desconectou no meio da resposta: não há a quem avisar.
+            operacao.contarFalha();
+        } finally {
+            troca.close();
+            operacao.registrar(inicio);
+        }
+    }
+
+    // Divide o caminho em partes já decodificadas: "/carrinhos/a/itens" -> [carrinhos, a, itens].
+    private static String[] partesDoCaminho(HttpExchange troca) {
+        String caminho = troca.getRequestURI().getRawPath();
+        String[] partes = caminho.replaceAll("^/+|/+$", "").split("/+");
+        for (int i = 0; i < partes.length; i++) {
+            partes[i] = decodificar(partes[i]);
+        }
+        return partes;
+    }
+
+    private static void responder(HttpExchange troca, int status, Corpo corpo) throws IOException {
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, 0); // Tamanho 0: corpo enviado em partes (chunked).
+        try (Writer saida = new BufferedWriter(
+                new OutputStreamWriter(troca.getResponseBody(), StandardCharsets.UTF_8), 4096)) {
+            corpo.escrever(new EscritorJson(saida));
+        }
+    }
+
+    private static void responderErro(HttpExchange troca, int status, String mensagem) throws IOException {
+        if (status == 405) {
+            troca.getResponseHeaders().set("Allow", "GET, POST, PUT, DELETE");
+        }
+        responder(troca, status, json -> json.abrirObjeto().nome("erro").valor(mensagem).fecharObjeto());
+    }
+
+    private static ErroHttp metodoNaoAceito(HttpExchange troca) {
+        return new ErroHttp(405, "Método " + troca.getRequestMethod() + " não aceito em " + troca.getRequestURI().getPath());
+    }
+
+    // --- Catálogo ---
+
+    private void tratarLivros(HttpExchange troca, String[] partes) throws IOException {
+        if (!"GET".equals(troca.getRequestMethod())) {
+            throw metodoNaoAceito(troca);
+        }
+        if (partes.length == 2) { // /livros/{isbn}
+            Optional<Livro> livro = gerenciadorLivros.buscarLivroPorIsbn(partes[1]);
+            if (!livro.isPresent()) {
+                throw new ErroHttp(404, "Livro com ISBN " + partes[1] + " não encontrado.");
+            }
+            responder(troca, 200, json -> escreverLivro(json, livro.get()));
+            return;
+        }
+        if (partes.length != 1) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        Map<String, String> parametros = lerParametros(troca);
+        int limite = lerInteiro(parametros, "limite", LIMITE_PADRAO);
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("'limite' deve estar entre 1 e " + LIMITE_MAXIMO + ".");
+        }
+        if (pedeNavegacao(parametros)) {
+            navegar(troca, parametros, limite);
+            return;
+        }
+        Collection<Livro> encontrados;
+        if (parametros.containsKey("q")) {
+            encontrados = gerenciadorLivros.buscarLivros(parametros.get("q"));
+        } else if (parametros.containsKey("titulo")) {
+            encontrados = gerenciadorLivros.buscarLivrosPorTitulo(parametros.get("titulo"));
+        } else {
+            encontrados = gerenciadorLivros.getTodosLivros();
+        }
+        responder(troca, 200, json -> {
+            json.abrirObjeto().nome("total").valor(encontrados.size()).nome("livros").abrirLista();
+            int escritos = 0;
+            for (Livro livro : encontrados) {
+                if (escritos++ == limite) {
+                    break;
+                }
+                escreverLivro(json, livro);
+            }
+            json.fecharLista().fecharObjeto();
+        });
+    }
+
+    private static boolean pedeNavegacao(Map<String, String> parametros) {
+        for (String nome : PARAMETROS_NAVEGACAO) {
+            if (parametros.containsKey(nome)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void navegar(HttpExchange troca, Map<String, String> parametros, int limite) throws IOException {
+        ConsultaCatalogo consulta = ConsultaCatalogo.todos()
+                .naCategoria(parametros.get("categoria"))
+                .doAutor(parametros.get("autor"))
+                .comPrecoEntre(lerDecimal(parametros, "precoMin", 0), lerDecimal(parametros, "precoMax", Double.MAX_VALUE))
+                .ordenadaPor(lerOrdenacao(parametros.get("ordem")))
+                .aPartirDe(parametros.get("cursor"))
+                .comLimite(limite);
+        PaginaLivros pagina = gerenciadorLivros.navegar(consulta);
+        responder(troca, 200, json -> {
+            json.abrirObjeto().nome("livros").abrirLista();
+            for (Livro livro : pagina.getLivros()) {
+                escreverLivro(json, livro);
+            }
+            json.fecharLista().nome("proximoCursor").valor(pagina.getProximoCursor()).fecharObjeto();
+        });
+    }
+
+    private static ConsultaCatalogo.Ordenacao lerOrdenacao(String valor) {
+        if (valor == null || "titulo".equals(valor)) {
+            return ConsultaCatalogo.Ordenacao.TITULO;
+        } else if ("preco".equals(valor)) {
+            return ConsultaCatalogo.Ordenacao.PRECO;
+        } else if ("preco_desc".equals(valor)) {
+            return ConsultaCatalogo.Ordenacao.PRECO_DECRESCENTE;
+        }
+        throw new IllegalArgumentException("'ordem' deve ser preco, preco_desc ou titulo: " + valor);
+    }
+
+    private void tratarCategorias(HttpExchange troca, String[] partes) throws IOException {
+        if (!"GET".equals(troca.getRequestMethod())) {
+            throw metodoNaoAceito(troca);
+        }
+        if (partes.length != 1) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        Map<String, Integer> contagem = gerenciadorLivros.contarPorCategoria();
+        responder(troca, 200, json -> {
+            json.abrirObjeto();
+            for (Map.Entry<String, Integer> categoria : contagem.entrySet()) {
+                json.nome(categoria.getKey()).valor(categoria.getValue());
+            }
+            json.fecharObjeto();
+        });
+    }
+
+    private void tratarSugestoes(HttpExchange troca, String[] partes) throws IOException {
+        if (!"GET".equals(troca.getRequestMethod())) {
+            throw metodoNaoAceito(troca);
+        }
+        if (partes.length != 1) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        Map<String, String> parametros = lerParametros(troca);
+        String prefixo = parametros.get("q");
+        if (prefixo == null) {
+            throw new IllegalArgumentException("Parâmetro obrigatório ausente: q");
+        }
+        List<Sugestao> sugestoes = gerenciadorLivros.sugerir(prefixo, lerInteiro(parametros, "limite", 10));
+        responder(troca, 200, json -> {
+            json.abrirObjeto().nome("sugestoes").abrirLista();
+            for (Sugestao sugestao : sugestoes) {
+                json.abrirObjeto()
+                        .nome("texto").valor(sugestao.getTexto())
+                        .nome("tipo").valor(sugestao.getCampo() == IndiceTextual.Campo.TITULO ? "titulo" : "autor")
+                        .nome("livros").valor(sugestao.getLivros())
+                        .nome("emEstoque").valor(sugestao.getLivrosEmEstoque() > 0)
+                        .fecharObjeto();
+            }
+            json.fecharLista().fecharObjeto();
+        });
+    }
+
+    private static void escreverLivro(EscritorJson json, Livro livro) throws IOException {
+        json.abrirObjeto()
+                .nome("isbn").valor(livro.getIsbn())
+                .nome("titulo").valor(livro.getTitulo())
+                .nome("autor").valor(livro.getAutor())
+                .nome("categoria").valor(livro.getCategoria())
+                .nome("preco").valorMonetario(livro.getPrecoCentavos())
+                .nome("estoque").valor(livro.getEstoque())
+                .fecharObjeto();
+    }
+
+    // --- Vendas ---
+
+    private void tratarVendas(HttpExchange troca, String[] partes) throws IOException {
+        if (!"GET".equals(troca.getRequestMethod())) {
+            throw metodoNaoAceito(troca);
+        }
+        if (partes.length != 2) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        AnaliseVendas analise = gerenciadorLivros.getAnaliseVendas();
+        if (analise == null) {
+            throw new ErroHttp(404, "O registro de vendas não está ativado.");
+        }
+        Map<String, String> parametros = lerParametros(troca);
+        boolean periodo = parametros.containsKey("de") || parametros.containsKey("ate");
+        long de = lerLongo(parametros, "de", 0);
+        long ate = lerLongo(parametros, "ate", Long.MAX_VALUE);
+        List<TotalVendas> totais;
+        String chave; // Nome do campo com a chave de cada total na resposta.
+        if ("mais-vendidos".equals(partes[1])) {
+            chave = "isbn";
+            int limite = lerInteiro(parametros, "limite", 10);
+            if (limite < 1 || limite > LIMITE_MAXIMO) {
+                throw new IllegalArgumentException("'limite' deve estar entre 1 e " + LIMITE_MAXIMO + ".");
+            }
+            totais = periodo ? analise.maisVendidos(limite, de, ate) : analise.maisVendidos(limite);
+        } else if ("receita".equals(partes[1])) {
+            String por = parametros.getOrDefault("por", "categoria");
+            chave = por;
+            if ("categoria".equals(por)) {
+                totais = periodo ? analise.receitaPorCategoria(de, ate) : analise.receitaPorCategoria();
+            } else if ("autor".equals(por)) {
+                totais = periodo ? analise.receitaPorAutor(de, ate) : analise.receitaPorAutor();
+            } else {
+                throw new IllegalArgumentException("'por' deve ser categoria ou autor: " + por);
+            }
+        } else if ("periodo".equals(partes[1])) {
+            List<JanelaVendas> janelas;
+            if (periodo) {
+                if (ate == Long.MAX_VALUE) {
+                    ate = System.currentTimeMillis() + 1;
+                }
+                janelas = analise.vendasPorPeriodo(de, ate, lerLongo(parametros, "intervalo", TimeUnit.HOURS.toMillis(1)));
+            } else {
+                janelas = analise.vendasPorMinuto(lerInteiro(parametros, "minutos", 60));
+            }
+            responder(troca, 200, json -> {
+                json.abrirObjeto().nome("periodos").abrirLista();
+                for (JanelaVendas janela : janelas) {
+                    json.abrirObjeto()
+                            .nome("de").valor(janela.getInicioMillis())
+                            .nome("ate").valor(janela.getFimMillis())
+                            .nome("unidades").valor(janela.getUnidades())
+                            .nome("receita").valorMonetario(janela.getReceitaCentavos())
+                            .fecharObjeto();
+                }
+                json.fecharLista().fecharObjeto();
+            });
+            return;
+        } else {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        responder(troca, 200, json -> {
+            json.abrirObjeto().nome("vendas").abrirLista();
+            for (TotalVendas total : totais) {
+                json.abrirObjeto()
+                        .nome(chave).valor(total.getChave())
+                        .nome("unidades").valor(total.getUnidades())
+                        .nome("receita").valorMonetario(total.getReceitaCentavos())
+                        .fecharObjeto();
+            }
+            json.fecharLista().fecharObjeto();
+        });
+    }
+
+    // --- Carrinhos ---
+
+    private void tratarCarrinhos(HttpExchange troca, String[] partes) throws IOException {
+        String metodo = troca.getRequestMethod();
+        if (partes.length < 2 || partes.length > 4) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        String sessao = partes[1];
+        if (partes.length == 2) { // /carrinhos/{sessao}
+            if (!"GET".equals(metodo)) {
+                throw metodoNaoAceito(troca);
+            }
+            responderCarrinho(troca, 200, sessao, gerenciadorCarrinhos.obterCarrinho(sessao));
+            return;
+        }
+        if (partes.length == 3 && "finalizar".equals(partes[2])) { // /carrinhos/{sessao}/finalizar
+            if (!"POST".equals(metodo)) {
+                throw metodoNaoAceito(troca);
+            }
+            finalizar(troca, sessao);
+            return;
+        }
+        if (!"itens".equals(partes[2])) {
+            throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+        }
+        if (partes.length == 3) { // /carrinhos/{sessao}/itens
+            if (!"POST".equals(metodo)) {
+                throw metodoNaoAceito(troca);
+            }
+            Map<String, String> parametros = lerParametros(troca);
+            String isbn = parametros.get("isbn");
+            if (isbn == null || isbn.isEmpty()) {
+                throw new IllegalArgumentException("Parâmetro 'isbn' obrigatório.");
+            }
+            adicionarItem(troca, sessao, isbn, lerInteiro(parametros, "quantidade", 1));
+            return;
+        }
+        String isbn = partes[3]; // /carrinhos/{sessao}/itens/{isbn}
+        if ("PUT".equals(metodo)) {
+            Map<String, String> parametros = lerParametros(troca);
+            if (!parametros.containsKey("quantidade")) {
+                throw new IllegalArgumentException("Parâmetro 'quantidade' obrigatório.");
+            }
+            atualizarItem(troca, sessao, isbn, lerInteiro(parametros, "quantidade", 0));
+        } else if ("DELETE".equals(metodo)) {
+            CarrinhoDeCompras carrinho = gerenciadorCarrinhos.obterCarrinho(sessao);
+            if (!carrinho.removerItem(isbn)) {
+                throw new ErroHttp(404, "Item com ISBN " + isbn + " não encontrado no carrinho.");
+            }
+            responderCarrinho(troca, 200, sessao, carrinho);
+        } else {
+            throw metodoNaoAceito(troca);
+        }
+    }
+
+    private void adicionarItem(HttpExchange troca, String sessao, String isbn, int quantidade) throws IOException {
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("'quantidade' deve ser maior que zero.");
+        }
+        CarrinhoDeCompras carrinho = gerenciadorCarrinhos.obterCarrinho(sessao);
+        if (!carrinho.adicionarItem(isbn, quantidade)) {
+            if (!gerenciadorLivros.buscarLivroPorIsbn(isbn).isPresent()) {
+                throw new ErroHttp(404, "Livro com ISBN " + isbn + " não encontrado.");
+            }
+            throw new ErroHttp(409, "Estoque insuficiente para o livro " + isbn + ".");
+        }
+        responderCarrinho(troca, 201, sessao, carrinho);
+    }
+
+    private void atualizarItem(HttpExchange troca, String sessao, String isbn, int quantidade) throws IOException {
+        CarrinhoDeCompras carrinho = gerenciadorCarrinhos.obterCarrinho(sessao);
+        if (!carrinho.atualizarQuantidadeItem(isbn, quantidade)) {
+            if (!carrinho.contemItem(isbn)) {
+                throw new ErroHttp(404, "Item com ISBN " + isbn + " não encontrado no carrinho.");
+            }
+            throw new ErroHttp(409, "Estoque insuficiente para o livro " + isbn + ".");
+        }
+        responderCarrinho(troca, 200, sessao, carrinho);
+    }
+
+    private void finalizar(HttpExchange troca, String sessao) throws IOException {
+        CarrinhoDeCompras carrinho = gerenciadorCarrinhos.obterCarrinho(sessao);
+        // Guarda os itens antes: se a compra der certo, o carrinho é esvaziado.
+        List<ItemCarrinho> itens = carrinho.copiarItens();
+        if (itens.isEmpty()) {
+            throw new ErroHttp(409, "Não há itens para finalizar a compra.");
+        }
+        if (!carrinho.finalizarCompra()) {
+            throw new ErroHttp(409, "Estoque insuficiente para algum item; o carrinho foi mantido.");
+        }
+        // Um carrinho alterado entre a cópia e a compra só muda a lista exibida, não a compra feita.
+        responder(troca, 200, json -> {
+            json.abrirObjeto().nome("sessao").valor(sessao).nome("finalizada").valor(true);
+            escreverItens(json, itens);
+            json.fecharObjeto();
+        });
+    }
+
+    private static void responderCarrinho(HttpExchange troca, int status, String sessao, CarrinhoDeCompras carrinho)
+            throws IOException {
+        List<ItemCarrinho> itens = carrinho.copiarItens(); // Itens e total do mesmo instante.
+        responder(troca, status, json -> {
+            json.abrirObjeto().nome("sessao").valor(sessao);
+            escreverItens(json, itens);
+            json.fecharObjeto();
+        });
+    }
+
+    // Escreve os campos "itens" e "total" do objeto aberto.
+    private static void escreverItens(EscritorJson json, List<ItemCarrinho> itens) throws IOException {
+        long totalCentavos = 0;
+        json.nome("itens").abrirLista();
+        for (ItemCarrinho item : itens) {
+            Livro livro = item.getLivro();
+            json.abrirObjeto()
+                    .nome("isbn").valor(livro.getIsbn())
+                    .nome("titulo").valor(livro.getTitulo())
+                    .nome("quantidade").valor(item.getQuantidade())
+                    .nome("precoUnitario").valorMonetario(item.getPrecoUnitarioCentavos())
+                    .nome("subtotal").valorMonetario(item.getSubtotalCentavos())
+                    .fecharObjeto();
+            totalCentavos += item.getSubtotalCentavos();
+        }
+        json.fecharLista().nome("total").valorMonetario(totalCentavos);
+    }
+
+    // --- Parâmetros ---
+
+    // Parâmetros da URL e, em POST e PUT, do corpo no formato de formulário.
+    private static Map<String, String> lerParametros(HttpExchange troca) throws IOException {
+        Map<String, String> parametros = new HashMap<>();
+        interpretarFormulario(troca.getRequestURI().getRawQuery(), parametros);
+        String metodo = troca.getRequestMethod();
+        if ("POST".equals(metodo) || "PUT".equals(metodo)) {
+            try (InputStream entrada = troca.getRequestBody()) {
+                byte[] corpo = entrada.readNBytes(TAMANHO_MAXIMO_CORPO + 1);
+                if (corpo.length > TAMANHO_MAXIMO_CORPO) {
+                    throw new ErroHttp(413, "Corpo da requisição maior que " + TAMANHO_MAXIMO_CORPO + " bytes.");
+                }
+                interpretarFormulario(new String(corpo, StandardCharsets.UTF_8), parametros);
+            }
+        }
+        return parametros;
+    }
+
+    // Lê "a=1&b=2" (o primeiro valor de cada nome prevalece, então a URL vence o corpo).
+    private static void interpretarFormulario(String texto, Map<String, String> parametros) {
+        if (texto == null || texto.isEmpty()) {
+            return;
+        }
+        for (String par : texto.split("&")) {
+            if (par.isEmpty()) {
+                continue;
+            }
+            int igual = par.indexOf('=');
+            String nome = decodificar(igual < 0 ? par : par.substring(0, igual));
+            String valor = igual < 0 ? "" : decodificar(par.substring(igual + 1));
+            parametros.putIfAbsent(nome, valor.trim());
+        }
+    }
+
+    private static String decodificar(String texto) {
+        return URLDecoder.decode(texto, StandardCharsets.UTF_8); // Lança IllegalArgumentException se malformado.
+    }
+
+    private static double lerDecimal(Map<String, String> parametros, String nome, double padrao) {
+        String valor = parametros.get(nome);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + nome + "' deve ser um número: " + valor);
+        }
+    }
+
+    private static long lerLongo(Map<String, String> parametros, String nome, long padrao) {
+        String valor = parametros.get(nome);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + nome + "' deve ser um número inteiro: " + valor);
+        }
+    }
+
+    private static int lerInteiro(Map<String, String> parametros, String nome, int padrao) {
+        String valor = parametros.get(nome);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + nome + "' deve ser um número inteiro: " + valor);
+        }
+    }
+
+    /**
+     * Inicia o servidor sobre os dados da pasta padrão (veja DadosLivraria),
+     * guardados no repositório -Dlivraria.repositorio (TEXTO, MAPEADO ou MEMORIA;
+     * padrão: TEXTO; veja TipoRepositorio) e mantidos em memória conforme
+     * -Dlivraria.armazenamento (padrão: MAPA; com MAPEADO, SOB_DEMANDA lê cada
+     * livro do arquivo só quando é usado; veja ArmazenamentoCatalogo). As alterações
+     * são gravadas em segundo plano (veja GravadorAssincrono), a cada
+     * -Dlivraria.gravacao.intervalo milissegundos (padrão: 100) e com a
+     * durabilidade -Dlivraria.gravacao.durabilidade (NENHUMA, FLUSH ou FSYNC;
+     * padrão: FLUSH). O que estiver pendente é gravado no encerramento. Com
+     * -Dlivraria.recarga=true, alterações feitas no livros.txt por outros
+     * programas são aplicadas ao catálogo (veja MonitorCatalogo; só com o
+     * repositório TEXTO, o único em que o livros.txt é o catálogo). Com
+     * -Dlivraria.compras.fila=n (n &gt; 0), as compras passam por um MotorCompras
+     * com fila de n pedidos.
+     *
+     * @param args Opcional: a porta (padrão: 8080).
+     * @throws IOException Se a porta não puder ser aberta ou a pasta de dados observada.
+     */
+    public static void main(String[] args) throws IOException {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        GravadorAssincrono gravador = new GravadorAssincrono(Long.getLong("livraria.gravacao.intervalo", 100),
+                Durabilidade.valueOf(System.getProperty("livraria.gravacao.durabilidade", "FLUSH")));
+        RepositorioLivraria repositorio = TipoRepositorio.valueOf(
+                System.getProperty("livraria.repositorio", "TEXTO")).criar();
+        // Log de alterações: cada lote grava um registro por livro alterado, não o catálogo inteiro.
+        GerenciadorLivros gerenciadorLivros = new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES,
+                ArmazenamentoCatalogo.valueOf(System.getProperty("livraria.armazenamento", "MAPA")), gravador,
+                repositorio);
+        // As mensagens de console de cada operação disputariam a trava do System.out entre as requisições.
+        gerenciadorLivros.usarMensagens(false);
+        // Com -Dlivraria.compras.fila=n, as baixas de estoque passam por um único escritor.
+        int filaCompras = Integer.getInteger("livraria.compras.fila", 0);
+        MotorCompras motor = filaCompras > 0 ? new MotorCompras(gerenciadorLivros, filaCompras) : null;
+        gerenciadorLivros.usarMotorCompras(motor);
+        // Itens no carrinho reservam o estoque por -Dlivraria.reservas.minutos (0 desativa).
+        long minutosReserva = Long.getLong("livraria.reservas.minutos", 15);
+        ReservasEstoque reservas = minutosReserva > 0
+                ? new ReservasEstoque(gerenciadorLivros, TimeUnit.MINUTES.toMillis(minutosReserva))
+                : null;
+        gerenciadorLivros.usarReservas(reservas);
+        // Cada compra concluída vai para o registro de pedidos (data/pedidos.bin), base das rotas de /vendas.
+        AnaliseVendas analiseVendas = new AnaliseVendas(gerenciadorLivros, DadosLivraria.abrirRegistroPedidos());
+        gerenciadorLivros.usarAnaliseVendas(analiseVendas);
+        GerenciadorCarrinhos gerenciadorCarrinhos = new GerenciadorCarrinhos(gerenciadorLivros,
+                TimeUnit.MINUTES.toMillis(30));
+        ServidorHttp servidor = new ServidorHttp(gerenciadorLivros, gerenciadorCarrinhos, porta);
+        // Com -Dlivraria.recarga=true, alterações externas no livros.txt são aplicadas sem reiniciar.
+        // Nos outros repositórios o livros.txt não é o catálogo, e a recarga o faria voltar atrás.
+        boolean recarga = Boolean.getBoolean("livraria.recarga");
+        if (recarga && !(repositorio instanceof RepositorioTexto)) {
+            System.err.println("Recarga automática desativada: exige -Dlivraria.repositorio=TEXTO.");
+            recarga = false;
+        }
+        MonitorCatalogo monitor = recarga
+                ? new MonitorCatalogo(gerenciadorLivros, Long.getLong("livraria.recarga.espera", 500))
+                : null;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (monitor != null) {
+                monitor.close();
+            }
+            servidor.close();
+            gerenciadorCarrinhos.close();
+            if (motor != null) {
+                gerenciadorLivros.usarMotorCompras(null);
+                motor.close(); // Aplica os pedidos que ainda estão na fila.
+            }
+            if (reservas != null) {
+                gerenciadorLivros.usarReservas(null);
+                reservas.close(); // As reservas em aberto continuam gravadas para a próxima inicialização.
+            }
+            gerenciadorLivros.usarAnaliseVendas(null);
+            analiseVendas.close();
+            gravador.close(); // Grava o que ainda estiver pendente.
+            repositorio.close();
+        }, "encerramento-http"));
+        servidor.iniciar();
+        System.out.println("Servidor HTTP da livraria na porta " + servidor.getPorta() + ".");
+    }
+}
@@ -0,0 +1,38 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+import java.util.concurrent.atomic.LongAdder; // Soma com pouca disputa entre threads.
+
+/**
+ * Contador monotônico (ex: bytes gravados). Obtido com
+ * {@link Metricas#contador(String)}; incrementar não cria objetos.
+ */
+public class Contador implements ContadorMBean {
+    private final String nome;
+    private final LongAdder valor = new LongAdder();
+
+    Contador(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * @param quantidade O valor a ser somado.
+     */
+    public void adicionar(long quantidade) {
+        valor.add(quantidade);
+    }
+
+    @Override
+    public String getNome() {
+        return nome;
+    }
+
+    @Override
+    public long getValor() {
+        return valor.sum();
+    }
+
+    @Override
+    public void zerar() {
+        valor.reset();
+    }
+}
@@ -0,0 +1,12 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+/**
+ * Interface JMX de um {@link Contador}.
+ */
+public interface ContadorMBean {
+    String getNome();
+
+    long getValor();
+
+    void zerar();
+}
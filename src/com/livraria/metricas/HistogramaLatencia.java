@@ -0,0 +1,125 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências no estilo HDR (faixas log-lineares), em nanossegundos.
+ * Cada potência de 2 é dividida em 64 faixas iguais, então o valor informado
+ * para um percentil tem erro relativo de no máximo ~1,6%, de 1 ns até ~68 s
+ * (valores maiores são contados na última faixa).
+ * <p>
+ * O registro é feito com contadores atômicos em um array alocado uma única
+ * vez: não cria objetos e não usa travas, então pode ser chamado de várias
+ * threads no caminho crítico.
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUBFAIXA = 7; // 2^7 valores exatos antes da primeira potência.
+    private static final int METADE_SUBFAIXA = 1 << (BITS_SUBFAIXA - 1); // 64 faixas por potência de 2.
+    private static final long VALOR_MAXIMO = (1L << 36) - 1; // ~68,7 segundos em nanossegundos.
+    private static final int FAIXAS = indice(VALOR_MAXIMO) + 1;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra uma medição.
+     *
+     * @param nanos A duração medida, em nanossegundos.
+     */
+    public void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // System.nanoTime é monotônico, mas por garantia.
+        }
+        contagens.incrementAndGet(indice(Math.min(nanos, VALOR_MAXIMO)));
+        quantidade.increment();
+        soma.add(nanos);
+        long atual = maximo.get();
+        while (nanos > atual && !maximo.compareAndSet(atual, nanos)) {
+            atual = maximo.get();
+        }
+    }
+
+    /**
+     * @return Quantidade de medições registradas.
+     */
+    public long getQuantidade() {
+        return quantidade.sum();
+    }
+
+    /**
+     * @return Média das medições, em nanossegundos (0 se não houver nenhuma).
+     */
+    public double getMedia() {
+        long n = quantidade.sum();
+        return n == 0 ? 0 : (double) soma.sum() / n;
+    }
+
+    /**
+     * @return Maior medição registrada, em nanossegundos.
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Calcula um percentil a partir das faixas.
+     *
+     * @param percentil O percentil desejado, de 0 a 100 (ex: 99.9).
+     * @return O maior valor da faixa que contém o percentil, em nanossegundos.
+     */
+    public long percentil(double percentil) {
+        long total = 0;
+        long[] copia = new long[FAIXAS]; // Cópia para que o total e a busca usem os mesmos valores.
+        for (int i = 0; i < FAIXAS; i++) {
+            copia[i] = contagens.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(total * Math.min(percentil, 100) / 100));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /**
+     * Zera o histograma. Medições feitas durante a chamada podem ser perdidas.
+     */
+    public void zerar() {
+        for (int i = 0; i < FAIXAS; i++) {
+            contagens.set(i, 0);
+        }
+        quantidade.reset();
+        soma.reset();
+        maximo.set(0);
+    }
+
+    // Valores até 127 têm faixa própria; acima disso, 64 faixas por potência de 2.
+    private static int indice(long valor) {
+        if (valor < (1 << BITS_SUBFAIXA)) {
+            return (int) valor;
+        }
+        int deslocamento = 63 - Long.numberOfLeadingZeros(valor) - (BITS_SUBFAIXA - 1);
+        return deslocamento * METADE_SUBFAIXA + (int) (valor >>> deslocamento);
+    }
+
+    // Maior valor que cai na faixa de índice 'indice'.
+    private static long limiteSuperior(int indice) {
+        if (indice < (1 << BITS_SUBFAIXA)) {
+            return indice;
+        }
+        int deslocamento = indice / METADE_SUBFAIXA - 1;
+        long mantissa = indice % METADE_SUBFAIXA + METADE_SUBFAIXA;
+        return ((mantissa + 1) << deslocamento) - 1;
+    }
+}
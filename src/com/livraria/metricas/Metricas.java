@@ -0,0 +1,112 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap; // Mapa ordenado: o relatório sai em ordem alfabética.
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro central das métricas da aplicação.
+ * Cada classe obtém as suas operações e contadores uma única vez (em constantes
+ * estáticas) e registra as medições sem criar objetos. Todas as métricas são
+ * publicadas como MBeans JMX no domínio "com.livraria" e podem ser lidas em
+ * texto com {@link #relatorio()}.
+ */
+public final class Metricas implements MetricasMBean {
+    private static final String DOMINIO = "com.livraria";
+    private static final Map<String, Operacao> OPERACOES = new ConcurrentSkipListMap<>();
+    private static final Map<String, Contador> CONTADORES = new ConcurrentSkipListMap<>();
+
+    static {
+        registrarMBean(new Metricas(), DOMINIO + ":type=Metricas");
+    }
+
+    private Metricas() {
+        // Instância usada apenas como MBean do relatório.
+    }
+
+    /**
+     * Devolve a operação com o nome informado, criando-a (e o seu MBean) na
+     * primeira chamada.
+     *
+     * @param nome O nome da operação (ex: "catalogo.buscarPorIsbn").
+     * @return A operação.
+     */
+    public static Operacao operacao(String nome) {
+        return OPERACOES.computeIfAbsent(nome, n -> {
+            Operacao operacao = new Operacao(n);
+            registrarMBean(operacao, DOMINIO + ":type=Operacao,name=" + n);
+            return operacao;
+        });
+    }
+
+    /**
+     * Devolve o contador com o nome informado, criando-o (e o seu MBean) na
+     * primeira chamada.
+     *
+     * @param nome O nome do contador (ex: "dados.bytesGravados.livros").
+     * @return O contador.
+     */
+    public static Contador contador(String nome) {
+        return CONTADORES.computeIfAbsent(nome, n -> {
+            Contador contador = new Contador(n);
+            registrarMBean(contador, DOMINIO + ":type=Contador,name=" + n);
+            return contador;
+        });
+    }
+
+    /**
+     * Monta um relatório em texto com todas as operações (tempos em
+     * microssegundos) e contadores.
+     *
+     * @return O relatório.
+     */
+    public static String relatorio() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-32s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "Operação", "qtd", "falhas", "média(us)", "p50", "p90", "p99", "p99.9", "máx"));
+        for (Operacao op : OPERACOES.values()) {
+            sb.append(String.format(Locale.ROOT, "%-32s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    op.getNome(), op.getQuantidade(), op.getFalhas(), op.getMediaMicros(), op.getP50Micros(),
+                    op.getP90Micros(), op.getP99Micros(), op.getP999Micros(), op.getMaximoMicros()));
+        }
+        for (Contador contador : CONTADORES.values()) {
+            sb.append(String.format(Locale.ROOT, "%-32s %10d%n", contador.getNome(), contador.getValor()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Zera todas as operações e contadores.
+     */
+    public static void zerarTudo() {
+        OPERACOES.values().forEach(Operacao::zerar);
+        CONTADORES.values().forEach(Contador::zerar);
+    }
+
+    @Override
+    public String getRelatorio() {
+        return relatorio();
+    }
+
+    @Override
+    public void zerar() {
+        zerarTudo();
+    }
+
+    // Uma falha no JMX não deve impedir a aplicação de funcionar: apenas avisa.
+    private static void registrarMBean(Object mbean, String nome) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(nome);
+            if (!servidor.isRegistered(objectName)) {
+                servidor.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.err.println("Não foi possível registrar a métrica " + nome + " no JMX: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+/**
+ * Interface JMX com o relatório completo de {@link Metricas}.
+ */
+public interface MetricasMBean {
+    String getRelatorio();
+
+    void zerar();
+}
@@ -0,0 +1,102 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de uma operação: quantidade de execuções, falhas e histograma de
+ * latência. Obtida uma vez com {@link Metricas#operacao(String)} e guardada em
+ * uma constante; cada medição segue o padrão:
+ * <pre>
+ * long inicio = System.nanoTime();
+ * try {
+ *     ... // a operação
+ * } finally {
+ *     OPERACAO.registrar(inicio);
+ * }
+ * </pre>
+ * O registro não cria objetos nem usa travas.
+ */
+public class Operacao implements OperacaoMBean {
+    private final String nome;
+    private final HistogramaLatencia histograma = new HistogramaLatencia();
+    private final LongAdder falhas = new LongAdder();
+
+    Operacao(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Registra uma execução iniciada em 'inicioNanos'.
+     *
+     * @param inicioNanos O valor de System.nanoTime() no início da operação.
+     */
+    public void registrar(long inicioNanos) {
+        histograma.registrar(System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Conta uma execução que não teve sucesso (ex: compra recusada). A latência
+     * continua sendo registrada por {@link #registrar(long)}.
+     */
+    public void contarFalha() {
+        falhas.increment();
+    }
+
+    /**
+     * @return O histograma de latência da operação.
+     */
+    public HistogramaLatencia getHistograma() {
+        return histograma;
+    }
+
+    @Override
+    public String getNome() {
+        return nome;
+    }
+
+    @Override
+    public long getQuantidade() {
+        return histograma.getQuantidade();
+    }
+
+    @Override
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    @Override
+    public double getMediaMicros() {
+        return histograma.getMedia() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histograma.percentil(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return histograma.percentil(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histograma.percentil(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return histograma.percentil(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaximoMicros() {
+        return histograma.getMaximo() / 1000.0;
+    }
+
+    @Override
+    public void zerar() {
+        histograma.zerar();
+        falhas.reset();
+    }
+}
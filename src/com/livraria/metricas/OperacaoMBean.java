@@ -0,0 +1,27 @@
+package com.livraria.metricas; // Pacote para medições de desempenho da aplicação.
+
+/**
+ * Interface JMX de uma {@link Operacao} (visível, por exemplo, no JConsole em
+ * com.livraria / Operacao). Os tempos são informados em microssegundos.
+ */
+public interface OperacaoMBean {
+    String getNome();
+
+    long getQuantidade();
+
+    long getFalhas();
+
+    double getMediaMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaximoMicros();
+
+    void zerar();
+}
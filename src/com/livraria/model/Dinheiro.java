@@ -0,0 +1,78 @@
+package com.livraria.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Funções auxiliares para valores em dinheiro.
+ * Os valores são guardados como números inteiros de centavos (long), o que
+ * torna somas e multiplicações exatas: 0.10 + 0.20 em double não dá 0.30,
+ * mas 10 + 20 centavos dá exatamente 30.
+ */
+public final class Dinheiro {
+
+    private Dinheiro() {
+        // Classe utilitária: não deve ser instanciada.
+    }
+
+    /**
+     * Converte um valor em reais (double) para centavos, arredondando para o
+     * centavo mais próximo.
+     *
+     * @param reais O valor em reais.
+     * @return O valor em centavos.
+     */
+    public static long paraCentavos(double reais) {
+        return Math.round(reais * 100);
+    }
+
+    /**
+     * Converte centavos para reais (double), apenas para exibição ou para
+     * manter a compatibilidade com métodos antigos.
+     *
+     * @param centavos O valor em centavos.
+     * @return O valor em reais.
+     */
+    public static double paraReais(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Formata um valor em centavos como decimal com duas casas e ponto (ex:
+     * 4500 -> "45.00"). É o formato usado nos arquivos de dados.
+     *
+     * @param centavos O valor em centavos.
+     * @return O texto formatado.
+     */
+    public static String formatarDecimal(long centavos) {
+        long absoluto = Math.abs(centavos);
+        long fracao = absoluto % 100;
+        return (centavos < 0 ? "-" : "") + (absoluto / 100) + (fracao < 10 ? ".0" : ".") + fracao;
+    }
+
+    /**
+     * Formata um valor em centavos para exibição (duas casas decimais).
+     *
+     * @param centavos O valor em centavos.
+     * @return O texto formatado, como String.format("%.2f") faria.
+     */
+    public static String formatar(long centavos) {
+        return String.format("%.2f", paraReais(centavos));
+    }
+
+    /**
+     * Interpreta um texto decimal (ex: "45", "45.5", "45.00") como centavos, sem
+     * passar por double. Valores com mais de duas casas são arredondados.
+     *
+     * @param texto O valor em reais, com ponto como separador decimal.
+     * @return O valor em centavos.
+     * @throws NumberFormatException Se o texto não for um número válido.
+     */
+    public static long interpretar(String texto) {
+        try {
+            return new BigDecimal(texto.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Valor fora do limite: " + texto);
+        }
+    }
+}
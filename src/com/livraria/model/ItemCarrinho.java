@@ -9,6 +9,9 @@ public class ItemCarrinho {
     private Livro livro; // O objeto Livro que está no carrinho. Representa uma associação entre
                          // ItemCarrinho e Livro.
     private int quantidade; // A quantidade desse livro no carrinho.
+    // Preço unitário em centavos usado pelo carrinho. Acompanha o preço do livro:
+    // quando o catálogo muda o preço, o carrinho atualiza este valor e o seu total.
+    private long precoUnitarioCentavos;
 
     /**
      * Construtor para criar um ItemCarrinho.
@@ -19,6 +22,7 @@ public class ItemCarrinho {
     public ItemCarrinho(Livro livro, int quantidade) {
         this.livro = livro;
         this.quantidade = quantidade;
+        this.precoUnitarioCentavos = livro.getPrecoCentavos();
     }
 
     // Getters para acessar o livro e a quantidade.
@@ -30,18 +34,36 @@ public class ItemCarrinho {
         return quantidade;
     }
 
+    public long getPrecoUnitarioCentavos() {
+        return precoUnitarioCentavos;
+    }
+
     // Setter para modificar a quantidade do item no carrinho.
     public void setQuantidade(int quantidade) {
         this.quantidade = quantidade;
     }
 
+    // Setter usado pelo carrinho quando o preço do livro muda no catálogo.
+    public void setPrecoUnitarioCentavos(long precoUnitarioCentavos) {
+        this.precoUnitarioCentavos = precoUnitarioCentavos;
+    }
+
     /**
      * Calcula o subtotal para este item no carrinho (preço do livro * quantidade).
      * 
      * @return O valor subtotal do item.
      */
     public double getSubtotal() {
-        return livro.getPreco() * quantidade;
+        return Dinheiro.paraReais(getSubtotalCentavos());
+    }
+
+    /**
+     * Calcula o subtotal em centavos (conta exata, sem double).
+     * 
+     * @return O valor subtotal do item, em centavos.
+     */
+    public long getSubtotalCentavos() {
+        return precoUnitarioCentavos * quantidade;
     }
 
     /**
@@ -51,6 +73,6 @@ public class ItemCarrinho {
      */
     @Override
     public String toString() {
-        return quantidade + "x " + livro.getTitulo() + " (R$" + String.format("%.2f", getSubtotal()) + ")";
+        return quantidade + "x " + livro.getTitulo() + " (R$" + Dinheiro.formatar(getSubtotalCentavos()) + ")";
     }
 }
\ No newline at end of file
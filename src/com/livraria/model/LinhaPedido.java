@@ -0,0 +1,51 @@
+package com.livraria.model;
+
+/**
+ * Representa uma linha de um pedido concluído: um livro vendido, na quantidade
+ * e pelo preço da compra. É o que o registro de pedidos grava para cada item
+ * de um carrinho finalizado.
+ */
+public class LinhaPedido {
+    private final String isbn;
+    private final int quantidade;
+    private final long precoUnitarioCentavos; // Preço cobrado, em centavos (ponto fixo).
+    private final long instanteMillis; // Momento da compra (System.currentTimeMillis).
+
+    /**
+     * Construtor da LinhaPedido.
+     *
+     * @param isbn                  O ISBN do livro vendido.
+     * @param quantidade            Unidades vendidas.
+     * @param precoUnitarioCentavos Preço de cada unidade, em centavos.
+     * @param instanteMillis        Momento da compra.
+     */
+    public LinhaPedido(String isbn, int quantidade, long precoUnitarioCentavos, long instanteMillis) {
+        this.isbn = isbn;
+        this.quantidade = quantidade;
+        this.precoUnitarioCentavos = precoUnitarioCentavos;
+        this.instanteMillis = instanteMillis;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public long getPrecoUnitarioCentavos() {
+        return precoUnitarioCentavos;
+    }
+
+    public long getInstanteMillis() {
+        return instanteMillis;
+    }
+
+    /**
+     * @return O valor da linha (quantidade x preço unitário), em centavos.
+     */
+    public long getSubtotalCentavos() {
+        return precoUnitarioCentavos * quantidade;
+    }
+}
@@ -2,6 +2,8 @@
 // Pacotes ajudam a organizar classes e evitar conflitos de nomes. 
 package com.livraria.model;
 
+import java.util.concurrent.atomic.AtomicInteger; // Contador que pode ser alterado com segurança por várias threads.
+
 /**
  * Representa um livro no sistema da livraria.
  * Esta é uma classe 'Model' (Modelo) no padrão MVC, ou seja, ela encapsula os
@@ -14,8 +16,12 @@ public class Livro {
     private String titulo;
     private String autor;
     private String categoria;
-    private double preco;
-    private int estoque; // Quantidade de livros disponível em estoque
+    // Preço em centavos (inteiro), para que as contas com dinheiro sejam exatas.
+    // É 'volatile' para que uma alteração de preço seja vista por todas as threads.
+    private volatile long precoCentavos;
+    // Quantidade de livros disponível em estoque. É atômica para que compras
+    // simultâneas nunca vendam mais do que existe nem percam atualizações.
+    private final AtomicInteger estoque;
 
     /**
      * Construtor da classe Livro.
@@ -34,8 +40,36 @@ public class Livro {
         this.titulo = titulo;
         this.autor = autor;
         this.categoria = categoria;
-        this.preco = preco;
-        this.estoque = estoque;
+        this.precoCentavos = Dinheiro.paraCentavos(preco);
+        this.estoque = new AtomicInteger(estoque);
+    }
+
+    /**
+     * Construtor para subclasses que guardam os dados em outro lugar (por exemplo,
+     * uma visão sobre um armazenamento em colunas). Essas subclasses devem
+     * sobrescrever todos os getters e setters, além das operações de estoque.
+     */
+    protected Livro() {
+        this.estoque = null;
+    }
+
+    /**
+     * Cria um Livro com o preço já em centavos, sem passar por double (usado na
+     * leitura dos arquivos de dados).
+     * 
+     * @param isbn          O ISBN do livro.
+     * @param titulo        O título do livro.
+     * @param autor         O autor do livro.
+     * @param categoria     A categoria ou gênero do livro.
+     * @param precoCentavos O preço de venda do livro, em centavos.
+     * @param estoque       A quantidade disponível em estoque.
+     * @return O novo Livro.
+     */
+    public static Livro comPrecoEmCentavos(String isbn, String titulo, String autor, String categoria,
+            long precoCentavos, int estoque) {
+        Livro livro = new Livro(isbn, titulo, autor, categoria, 0, estoque);
+        livro.precoCentavos = precoCentavos;
+        return livro;
     }
 
     // Métodos 'Getters' (Acessores): Permitem ler os valores dos atributos
@@ -56,23 +90,84 @@ public class Livro {
         return categoria;
     }
 
+    /**
+     * @return O preço em reais. Para contas, prefira {@link #getPrecoCentavos()}.
+     */
     public double getPreco() {
-        return preco;
+        return Dinheiro.paraReais(precoCentavos);
+    }
+
+    public long getPrecoCentavos() {
+        return precoCentavos;
     }
 
     public int getEstoque() {
-        return estoque;
+        return estoque.get();
     }
 
     // Métodos 'Setters' (Modificadores): Permitem alterar os valores de alguns
     // atributos.
     // Nem todos os atributos precisam de setters, dependendo das regras de negócio.
     public void setPreco(double preco) {
-        this.preco = preco;
+        this.precoCentavos = Dinheiro.paraCentavos(preco);
+    }
+
+    public void setPrecoCentavos(long precoCentavos) {
+        this.precoCentavos = precoCentavos;
     }
 
     public void setEstoque(int estoque) {
-        this.estoque = estoque;
+        this.estoque.set(estoque);
+    }
+
+    /**
+     * Retira uma quantidade do estoque de forma atômica, somente se houver
+     * estoque suficiente. A verificação e a retirada acontecem juntas (sem
+     * bloqueio, com compareAndSet), então duas compras simultâneas nunca
+     * conseguem vender o mesmo exemplar.
+     * 
+     * @param quantidade A quantidade a ser retirada (maior que zero).
+     * @return true se a quantidade foi retirada; false se o estoque não bastava.
+     * @throws IllegalArgumentException se a quantidade não for maior que zero.
+     */
+    public boolean retirarEstoque(int quantidade) {
+        validarQuantidade(quantidade);
+        while (true) {
+            int atual = estoque.get();
+            if (atual < quantidade) {
+                return false;
+            }
+            if (estoque.compareAndSet(atual, atual - quantidade)) {
+                return true;
+            }
+            // Outra thread alterou o estoque entre a leitura e a troca; tenta de novo.
+        }
+    }
+
+    /**
+     * Devolve ao estoque uma quantidade retirada anteriormente (por exemplo, ao
+     * desfazer uma compra que não pôde ser concluída por inteiro).
+     * 
+     * @param quantidade A quantidade a ser devolvida (maior que zero).
+     * @throws IllegalArgumentException se a quantidade não for maior que zero.
+     */
+    public void devolverEstoque(int quantidade) {
+        validarQuantidade(quantidade);
+        estoque.addAndGet(quantidade);
+    }
+
+    /**
+     * Rejeita quantidades que não sejam maiores que zero: retirar -5 unidades
+     * acrescentaria 5 ao estoque. Usado também pelas subclasses que guardam o
+     * estoque fora do objeto.
+     *
+     * @param quantidade A quantidade a ser retirada ou devolvida.
+     * @throws IllegalArgumentException se a quantidade não for maior que zero.
+     */
+    protected static void validarQuantidade(int quantidade) {
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("A quantidade deve ser maior que zero: " + quantidade);
+        }
     }
 
     /**
@@ -85,9 +180,10 @@ public class Livro {
     @Override // Anotação que indica que este método está sobrescrevendo um método da
               // superclasse (Object).
     public String toString() {
-        return "ISBN: " + isbn + ", Título: " + titulo + ", Autor: " + autor +
-                ", Categoria: " + categoria + ", Preço: R$" + String.format("%.2f", preco) + // Formata o preço com 2
-                                                                                             // casas decimais.
-                ", Estoque: " + estoque;
+        // Usa os getters para funcionar também nas subclasses.
+        return "ISBN: " + getIsbn() + ", Título: " + getTitulo() + ", Autor: " + getAutor() +
+                ", Categoria: " + getCategoria() + ", Preço: R$" + Dinheiro.formatar(getPrecoCentavos()) + // Formata o preço com 2
+                                                                                                       // casas decimais.
+                ", Estoque: " + getEstoque();
     }
 }
\ No newline at end of file
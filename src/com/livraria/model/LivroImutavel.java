@@ -0,0 +1,109 @@
+package com.livraria.model; // Pacote das classes de modelo.
+
+/**
+ * Cópia de um livro em um instante, que não pode ser alterada. É o que as
+ * consultas do catálogo devolvem: pode ser lida por qualquer thread, sem
+ * trava, e nunca muda enquanto estiver sendo lida. Os setters e as operações
+ * de estoque lançam UnsupportedOperationException; as alterações são feitas
+ * pelo GerenciadorLivros.
+ */
+public class LivroImutavel extends Livro {
+    private final String isbn;
+    private final String titulo;
+    private final String autor;
+    private final String categoria;
+    private final long precoCentavos;
+    private final int estoque;
+
+    /**
+     * @param isbn          O ISBN do livro.
+     * @param titulo        O título do livro.
+     * @param autor         O autor do livro.
+     * @param categoria     A categoria ou gênero do livro.
+     * @param precoCentavos O preço de venda, em centavos.
+     * @param estoque       A quantidade em estoque.
+     */
+    public LivroImutavel(String isbn, String titulo, String autor, String categoria, long precoCentavos,
+            int estoque) {
+        this.isbn = isbn;
+        this.titulo = titulo;
+        this.autor = autor;
+        this.categoria = categoria;
+        this.precoCentavos = precoCentavos;
+        this.estoque = estoque;
+    }
+
+    /**
+     * Copia os valores atuais de um livro.
+     *
+     * @param livro O livro a ser copiado.
+     * @return A cópia (o próprio livro, se ele já for imutável).
+     */
+    public static LivroImutavel copiar(Livro livro) {
+        if (livro instanceof LivroImutavel) {
+            return (LivroImutavel) livro;
+        }
+        return new LivroImutavel(livro.getIsbn(), livro.getTitulo(), livro.getAutor(), livro.getCategoria(),
+                livro.getPrecoCentavos(), livro.getEstoque());
+    }
+
+    @Override
+    public String getIsbn() {
+        return isbn;
+    }
+
+    @Override
+    public String getTitulo() {
+        return titulo;
+    }
+
+    @Override
+    public String getAutor() {
+        return autor;
+    }
+
+    @Override
+    public String getCategoria() {
+        return categoria;
+    }
+
+    @Override
+    public double getPreco() {
+        return Dinheiro.paraReais(precoCentavos);
+    }
+
+    @Override
+    public long getPrecoCentavos() {
+        return precoCentavos;
+    }
+
+    @Override
+    public int getEstoque() {
+        return estoque;
+    }
+
+    @Override
+    public void setPreco(double preco) {
+        throw new UnsupportedOperationException("Livro imutável: altere pelo GerenciadorLivros.");
+    }
+
+    @Override
+    public void setPrecoCentavos(long precoCentavos) {
+        throw new UnsupportedOperationException("Livro imutável: altere pelo GerenciadorLivros.");
+    }
+
+    @Override
+    public void setEstoque(int estoque) {
+        throw new UnsupportedOperationException("Livro imutável: altere pelo GerenciadorLivros.");
+    }
+
+    @Override
+    public boolean retirarEstoque(int quantidade) {
+        throw new UnsupportedOperationException("Livro imutável: use GerenciadorLivros.baixarEstoque.");
+    }
+
+    @Override
+    public void devolverEstoque(int quantidade) {
+        throw new UnsupportedOperationException("Livro imutável: altere pelo GerenciadorLivros.");
+    }
+}
@@ -0,0 +1,45 @@
+package com.livraria.model;
+
+/**
+ * Representa uma reserva de estoque feita por um carrinho: unidades de um
+ * livro retiradas do estoque disponível até a compra ou até o prazo vencer.
+ * É a forma gravada em disco (veja DadosLivraria); uma quantidade zero indica
+ * que a reserva deixou de existir.
+ */
+public class Reserva {
+    private final String idSessao; // "" para o carrinho único.
+    private final String isbn;
+    private final int quantidade;
+    private final long expiraEmMillis; // Instante (System.currentTimeMillis) em que a reserva vence.
+
+    /**
+     * Construtor da Reserva.
+     *
+     * @param idSessao       A sessão dona do carrinho ("" para o carrinho único).
+     * @param isbn           O ISBN do livro reservado.
+     * @param quantidade     Unidades reservadas (0: reserva encerrada).
+     * @param expiraEmMillis Instante em que a reserva vence.
+     */
+    public Reserva(String idSessao, String isbn, int quantidade, long expiraEmMillis) {
+        this.idSessao = idSessao;
+        this.isbn = isbn;
+        this.quantidade = quantidade;
+        this.expiraEmMillis = expiraEmMillis;
+    }
+
+    public String getIdSessao() {
+        return idSessao;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public long getExpiraEmMillis() {
+        return expiraEmMillis;
+    }
+}
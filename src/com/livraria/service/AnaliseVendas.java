@@ -0,0 +1,447 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.data.RegistroPedidos;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.ItemCarrinho;
+import com.livraria.model.LinhaPedido;
+import com.livraria.model.Livro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro e análise das vendas. Cada compra concluída grava as suas linhas
+ * (ISBN, quantidade, preço unitário e instante) no {@link RegistroPedidos}.
+ * <p>
+ * Há dois tipos de consulta:
+ * <ul>
+ * <li>As consultas sem período (mais vendidos, receita por categoria ou por
+ * autor, vendas dos últimos minutos) leem contadores mantidos a cada compra,
+ * sem percorrer o registro: servem para painéis atualizados a todo momento.</li>
+ * <li>As consultas com período percorrem só as linhas do período (localizadas
+ * por busca binária) em paralelo, no ForkJoinPool comum: cada tarefa soma a sua
+ * parte do registro, mapeado em memória, em arrays indexados pelo código do
+ * ISBN (ou pelo intervalo de tempo), e as somas são juntadas no final.</li>
+ * </ul>
+ * A categoria e o autor das consultas com período vêm do catálogo atual (o
+ * registro guarda só o ISBN); livros que saíram do catálogo são agrupados em
+ * {@link #FORA_DO_CATALOGO}. Para que as compras dos carrinhos sejam
+ * registradas, passe a análise a {@link GerenciadorLivros#usarAnaliseVendas(AnaliseVendas)}.
+ */
+public class AnaliseVendas implements AutoCloseable {
+    /**
+     * Categoria e autor dos livros vendidos que não estão mais no catálogo.
+     */
+    public static final String FORA_DO_CATALOGO = "(fora do catálogo)";
+
+    private static final int MINUTOS_RECENTES = 24 * 60; // Alcance de vendasPorMinuto.
+    private static final long MINUTO = TimeUnit.MINUTES.toMillis(1);
+    private static final int JANELAS_MAXIMAS = 100_000; // Por consulta de vendasPorPeriodo.
+    private static final long LINHAS_MINIMAS_POR_TAREFA = 1 << 16;
+
+    // Totais acumulados de uma chave (ISBN, categoria ou autor).
+    private static final class Acumulado {
+        final LongAdder unidades = new LongAdder();
+        final LongAdder receita = new LongAdder();
+
+        void somar(long quantidade, long receitaCentavos) {
+            unidades.add(quantidade);
+            receita.add(receitaCentavos);
+        }
+
+        TotalVendas total(String chave) {
+            return new TotalVendas(chave, unidades.sum(), receita.sum());
+        }
+    }
+
+    private final GerenciadorLivros gerenciadorLivros;
+    private final RegistroPedidos registro;
+    private final Object chaveGravacao = new Object();
+    // Contadores mantidos a cada compra (desde o início do registro).
+    private final Map<String, Acumulado> porIsbn = new ConcurrentHashMap<>();
+    private final Map<String, Acumulado> porCategoria = new ConcurrentHashMap<>();
+    private final Map<String, Acumulado> porAutor = new ConcurrentHashMap<>();
+    // Vendas de cada minuto das últimas 24 horas, num anel indexado pelo minuto (protegido por ele mesmo).
+    private final long[] minutoDoCompartimento = new long[MINUTOS_RECENTES];
+    private final long[] unidadesPorMinuto = new long[MINUTOS_RECENTES];
+    private final long[] receitaPorMinuto = new long[MINUTOS_RECENTES];
+
+    // Tempo para registrar uma compra e das consultas que percorrem o registro.
+    private static final Operacao REGISTRO = Metricas.operacao("vendas.registrar");
+    private static final Operacao CONSULTA_PERIODO = Metricas.operacao("vendas.consultarPeriodo");
+
+    /**
+     * Construtor da AnaliseVendas. Os contadores são iniciados com uma
+     * passagem paralela por todo o registro.
+     *
+     * @param gerenciadorLivros O catálogo (para a categoria e o autor de cada livro).
+     * @param registro          O registro de pedidos, que passa a ser fechado por esta análise.
+     */
+    public AnaliseVendas(GerenciadorLivros gerenciadorLivros, RegistroPedidos registro) {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.registro = registro;
+        RegistroPedidos.Leitura leitura = ler();
+        long[][] somas = agregar(leitura, 0, leitura.getQuantidade(), 0, 0, leitura.getQuantidadeIsbns());
+        for (int codigo = 0; codigo < somas[0].length; codigo++) {
+            if (somas[0][codigo] > 0) {
+                String isbn = leitura.getIsbn(codigo);
+                Optional<Livro> livro = gerenciadorLivros.buscarLivroPorIsbn(isbn);
+                somar(isbn, livro.map(Livro::getCategoria).orElse(FORA_DO_CATALOGO),
+                        livro.map(Livro::getAutor).orElse(FORA_DO_CATALOGO), somas[0][codigo], somas[1][codigo]);
+            }
+        }
+        long agora = System.currentTimeMillis();
+        long inicio = (agora / MINUTO - MINUTOS_RECENTES + 1) * MINUTO;
+        for (JanelaVendas janela : vendasPorPeriodo(leitura, inicio, agora + 1, MINUTO)) {
+            somarMinuto(janela.getInicioMillis(), janela.getUnidades(), janela.getReceitaCentavos());
+        }
+    }
+
+    /**
+     * Registra uma compra concluída: grava as linhas no registro de pedidos
+     * (no próximo lote do gravador em segundo plano, se houver) e atualiza os contadores.
+     *
+     * @param itens Os itens comprados, com o preço cobrado.
+     */
+    public void registrar(List<ItemCarrinho> itens) {
+        long inicio = System.nanoTime();
+        try {
+            long agora = System.currentTimeMillis();
+            List<LinhaPedido> linhas = new ArrayList<>(itens.size());
+            for (ItemCarrinho item : itens) {
+                linhas.add(new LinhaPedido(item.getLivro().getIsbn(), item.getQuantidade(),
+                        item.getPrecoUnitarioCentavos(), agora));
+            }
+            registro.acrescentar(linhas);
+            GravadorAssincrono gravador = gerenciadorLivros.getGravador();
+            if (gravador != null) {
+                gravador.agendar(chaveGravacao, () -> registro.descarregar(gravador.getDurabilidade()));
+            } else {
+                registro.descarregar(Durabilidade.FLUSH);
+            }
+            long unidades = 0;
+            long receita = 0;
+            for (ItemCarrinho item : itens) {
+                Livro livro = item.getLivro();
+                somar(livro.getIsbn(), livro.getCategoria(), livro.getAutor(), item.getQuantidade(),
+                        item.getSubtotalCentavos());
+                unidades += item.getQuantidade();
+                receita += item.getSubtotalCentavos();
+            }
+            somarMinuto(agora, unidades, receita);
+        } finally {
+            REGISTRO.registrar(inicio);
+        }
+    }
+
+    // --- Contadores (sem percorrer o registro) ---
+
+    /**
+     * @param quantidade Quantos livros devolver.
+     * @return Os livros mais vendidos desde o início do registro (por unidades), com o ISBN como chave.
+     */
+    public List<TotalVendas> maisVendidos(int quantidade) {
+        // Só os 'quantidade' maiores ficam na fila (o menor deles na cabeça).
+        PriorityQueue<TotalVendas> melhores = new PriorityQueue<>(POR_UNIDADES);
+        for (Map.Entry<String, Acumulado> livro : porIsbn.entrySet()) {
+            melhores.add(livro.getValue().total(livro.getKey()));
+            if (melhores.size() > quantidade) {
+                melhores.poll();
+            }
+        }
+        List<TotalVendas> resultado = new ArrayList<>(melhores);
+        resultado.sort(POR_UNIDADES.reversed());
+        return resultado;
+    }
+
+    /**
+     * @return Receita de cada categoria desde o início do registro, da maior para a menor.
+     */
+    public List<TotalVendas> receitaPorCategoria() {
+        return ordenarPorReceita(porCategoria);
+    }
+
+    /**
+     * @return Receita de cada autor desde o início do registro, da maior para a menor.
+     */
+    public List<TotalVendas> receitaPorAutor() {
+        return ordenarPorReceita(porAutor);
+    }
+
+    /**
+     * @param minutos Quantos minutos, contando o atual (no máximo 1440).
+     * @return As vendas de cada um dos últimos minutos, do mais antigo ao atual.
+     */
+    public List<JanelaVendas> vendasPorMinuto(int minutos) {
+        if (minutos < 1 || minutos > MINUTOS_RECENTES) {
+            throw new IllegalArgumentException("'minutos' deve estar entre 1 e " + MINUTOS_RECENTES + ".");
+        }
+        long atual = System.currentTimeMillis() / MINUTO;
+        List<JanelaVendas> janelas = new ArrayList<>(minutos);
+        synchronized (minutoDoCompartimento) {
+            for (long minuto = atual - minutos + 1; minuto <= atual; minuto++) {
+                int i = (int) (minuto % MINUTOS_RECENTES);
+                boolean preenchido = minutoDoCompartimento[i] == minuto;
+                janelas.add(new JanelaVendas(minuto * MINUTO, (minuto + 1) * MINUTO,
+                        preenchido ? unidadesPorMinuto[i] : 0, preenchido ? receitaPorMinuto[i] : 0));
+            }
+        }
+        return janelas;
+    }
+
+    // --- Consultas por período (percorrem o registro em paralelo) ---
+
+    /**
+     * @param quantidade Quantos livros devolver.
+     * @param deMillis   Início do período (inclusive), em milissegundos desde 1970.
+     * @param ateMillis  Fim do período (exclusive).
+     * @return Os livros mais vendidos no período (por unidades), com o ISBN como chave.
+     */
+    public List<TotalVendas> maisVendidos(int quantidade, long deMillis, long ateMillis) {
+        long inicio = System.nanoTime();
+        try {
+            RegistroPedidos.Leitura leitura = ler();
+            long[][] somas = agregarPorIsbn(leitura, deMillis, ateMillis);
+            PriorityQueue<TotalVendas> melhores = new PriorityQueue<>(POR_UNIDADES);
+            for (int codigo = 0; codigo < somas[0].length; codigo++) {
+                if (somas[0][codigo] > 0) {
+                    melhores.add(new TotalVendas(leitura.getIsbn(codigo), somas[0][codigo], somas[1][codigo]));
+                    if (melhores.size() > quantidade) {
+                        melhores.poll();
+                    }
+                }
+            }
+            List<TotalVendas> resultado = new ArrayList<>(melhores);
+            resultado.sort(POR_UNIDADES.reversed());
+            return resultado;
+        } finally {
+            CONSULTA_PERIODO.registrar(inicio);
+        }
+    }
+
+    /**
+     * @param deMillis  Início do período (inclusive), em milissegundos desde 1970.
+     * @param ateMillis Fim do período (exclusive).
+     * @return Receita de cada categoria no período, da maior para a menor.
+     */
+    public List<TotalVendas> receitaPorCategoria(long deMillis, long ateMillis) {
+        return receitaPorPeriodo(deMillis, ateMillis, true);
+    }
+
+    /**
+     * @param deMillis  Início do período (inclusive), em milissegundos desde 1970.
+     * @param ateMillis Fim do período (exclusive).
+     * @return Receita de cada autor no período, da maior para a menor.
+     */
+    public List<TotalVendas> receitaPorAutor(long deMillis, long ateMillis) {
+        return receitaPorPeriodo(deMillis, ateMillis, false);
+    }
+
+    /**
+     * Divide um período em intervalos de mesma duração e soma as vendas de cada um.
+     *
+     * @param deMillis       Início do período (inclusive), em milissegundos desde 1970.
+     * @param ateMillis      Fim do período (exclusive).
+     * @param intervaloMillis Duração de cada intervalo (o último pode terminar depois do período).
+     * @return As vendas de cada intervalo, em ordem.
+     */
+    public List<JanelaVendas> vendasPorPeriodo(long deMillis, long ateMillis, long intervaloMillis) {
+        long inicio = System.nanoTime();
+        try {
+            return vendasPorPeriodo(ler(), deMillis, ateMillis, intervaloMillis);
+        } finally {
+            CONSULTA_PERIODO.registrar(inicio);
+        }
+    }
+
+    /**
+     * Grava as vendas pendentes e fecha o registro de pedidos.
+     */
+    @Override
+    public void close() {
+        registro.close();
+    }
+
+    private List<JanelaVendas> vendasPorPeriodo(RegistroPedidos.Leitura leitura, long deMillis, long ateMillis,
+            long intervaloMillis) {
+        if (intervaloMillis <= 0 || ateMillis <= deMillis) {
+            throw new IllegalArgumentException("O período e o intervalo devem ser positivos.");
+        }
+        long quantidade = (ateMillis - deMillis + intervaloMillis - 1) / intervaloMillis;
+        if (quantidade > JANELAS_MAXIMAS) {
+            throw new IllegalArgumentException("O período tem mais de " + JANELAS_MAXIMAS + " intervalos.");
+        }
+        long[][] somas = agregar(leitura, leitura.buscarInstante(deMillis), leitura.buscarInstante(ateMillis),
+                deMillis, intervaloMillis, (int) quantidade);
+        List<JanelaVendas> janelas = new ArrayList<>((int) quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            long inicioJanela = deMillis + i * intervaloMillis;
+            janelas.add(new JanelaVendas(inicioJanela, inicioJanela + intervaloMillis, somas[0][i], somas[1][i]));
+        }
+        return janelas;
+    }
+
+    private List<TotalVendas> receitaPorPeriodo(long deMillis, long ateMillis, boolean porCategoria) {
+        long inicio = System.nanoTime();
+        try {
+            RegistroPedidos.Leitura leitura = ler();
+            long[][] somas = agregarPorIsbn(leitura, deMillis, ateMillis);
+            // Só os livros vendidos no período são procurados no catálogo.
+            Map<String, long[]> porGrupo = new HashMap<>();
+            for (int codigo = 0; codigo < somas[0].length; codigo++) {
+                if (somas[0][codigo] > 0) {
+                    Optional<Livro> livro = gerenciadorLivros.buscarLivroPorIsbn(leitura.getIsbn(codigo));
+                    String grupo = livro.map(porCategoria ? Livro::getCategoria : Livro::getAutor)
+                            .orElse(FORA_DO_CATALOGO);
+                    long[] total = porGrupo.computeIfAbsent(grupo, chave -> new long[2]);
+                    total[0] += somas[0][codigo];
+                    total[1] += somas[1][codigo];
+                }
+            }
+            List<TotalVendas> resultado = new ArrayList<>(porGrupo.size());
+            porGrupo.forEach((grupo, total) -> resultado.add(new TotalVendas(grupo, total[0], total[1])));
+            resultado.sort(POR_RECEITA);
+            return resultado;
+        } finally {
+            CONSULTA_PERIODO.registrar(inicio);
+        }
+    }
+
+    private static long[][] agregarPorIsbn(RegistroPedidos.Leitura leitura, long deMillis, long ateMillis) {
+        return agregar(leitura, leitura.buscarInstante(deMillis), leitura.buscarInstante(ateMillis), 0, 0,
+                leitura.getQuantidadeIsbns());
+    }
+
+    // Soma as linhas [inicio, fim) do registro em paralelo: por código de ISBN (intervaloMillis 0)
+    // ou por intervalo de tempo a partir de origemMillis. Devolve {unidades[], receita[]}.
+    private static long[][] agregar(RegistroPedidos.Leitura leitura, long inicio, long fim, long origemMillis,
+            long intervaloMillis, int posicoes) {
+        // Algumas tarefas por thread equilibram a carga sem multiplicar os arrays de soma.
+        long porTarefa = Math.max(LINHAS_MINIMAS_POR_TAREFA,
+                (fim - inicio) / (4L * ForkJoinPool.getCommonPoolParallelism()) + 1);
+        return ForkJoinPool.commonPool().invoke(
+                new Agregacao(leitura, inicio, fim, porTarefa, origemMillis, intervaloMillis, posicoes));
+    }
+
+    // Tarefa de soma de um trecho do registro: divide-se ao meio até o trecho ser pequeno.
+    private static final class Agregacao extends RecursiveTask<long[][]> {
+        private static final long serialVersionUID = 1L;
+
+        private final RegistroPedidos.Leitura leitura;
+        private final long inicio;
+        private final long fim;
+        private final long porTarefa;
+        private final long origemMillis;
+        private final long intervaloMillis;
+        private final int posicoes;
+
+        Agregacao(RegistroPedidos.Leitura leitura, long inicio, long fim, long porTarefa, long origemMillis,
+                long intervaloMillis, int posicoes) {
+            this.leitura = leitura;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.porTarefa = porTarefa;
+            this.origemMillis = origemMillis;
+            this.intervaloMillis = intervaloMillis;
+            this.posicoes = posicoes;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (fim - inicio <= porTarefa) {
+                return somar();
+            }
+            long meio = (inicio + fim) >>> 1;
+            Agregacao esquerda = new Agregacao(leitura, inicio, meio, porTarefa, origemMillis, intervaloMillis, posicoes);
+            esquerda.fork();
+            long[][] somas = new Agregacao(leitura, meio, fim, porTarefa, origemMillis, intervaloMillis, posicoes)
+                    .compute();
+            long[][] outras = esquerda.join();
+            for (int i = 0; i < posicoes; i++) {
+                somas[0][i] += outras[0][i];
+                somas[1][i] += outras[1][i];
+            }
+            return somas;
+        }
+
+        private long[][] somar() {
+            long[] unidades = new long[posicoes];
+            long[] receita = new long[posicoes];
+            if (intervaloMillis == 0) {
+                leitura.percorrer(inicio, fim, (instante, codigo, quantidade, preco) -> {
+                    if (codigo < posicoes) { // Um código fora do dicionário vem de uma gravação interrompida.
+                        unidades[codigo] += quantidade;
+                        receita[codigo] += preco * quantidade;
+                    }
+                });
+            } else {
+                leitura.percorrer(inicio, fim, (instante, codigo, quantidade, preco) -> {
+                    int janela = (int) ((instante - origemMillis) / intervaloMillis);
+                    unidades[janela] += quantidade;
+                    receita[janela] += preco * quantidade;
+                });
+            }
+            return new long[][] {unidades, receita};
+        }
+    }
+
+    // Ordem crescente de unidades (empate: receita), usada para os mais vendidos.
+    private static final Comparator<TotalVendas> POR_UNIDADES = Comparator.comparingLong(TotalVendas::getUnidades)
+            .thenComparingLong(TotalVendas::getReceitaCentavos);
+    // Ordem decrescente de receita.
+    private static final Comparator<TotalVendas> POR_RECEITA = Comparator
+            .comparingLong(TotalVendas::getReceitaCentavos).reversed();
+
+    private static List<TotalVendas> ordenarPorReceita(Map<String, Acumulado> acumulados) {
+        List<TotalVendas> resultado = new ArrayList<>(acumulados.size());
+        acumulados.forEach((chave, acumulado) -> resultado.add(acumulado.total(chave)));
+        resultado.sort(POR_RECEITA);
+        return resultado;
+    }
+
+    private void somar(String isbn, String categoria, String autor, long unidades, long receitaCentavos) {
+        porIsbn.computeIfAbsent(isbn, chave -> new Acumulado()).somar(unidades, receitaCentavos);
+        porCategoria.computeIfAbsent(categoria, chave -> new Acumulado()).somar(unidades, receitaCentavos);
+        porAutor.computeIfAbsent(autor, chave -> new Acumulado()).somar(unidades, receitaCentavos);
+    }
+
+    private void somarMinuto(long instanteMillis, long unidades, long receitaCentavos) {
+        long minuto = instanteMillis / MINUTO;
+        int i = (int) (minuto % MINUTOS_RECENTES);
+        synchronized (minutoDoCompartimento) {
+            if (minutoDoCompartimento[i] != minuto) {
+                if (minutoDoCompartimento[i] > minuto) {
+                    return; // Mais antigo que o anel (o compartimento já é de um minuto mais novo).
+                }
+                minutoDoCompartimento[i] = minuto; // O compartimento era de 24 horas atrás: recomeça.
+                unidadesPorMinuto[i] = 0;
+                receitaPorMinuto[i] = 0;
+            }
+            unidadesPorMinuto[i] += unidades;
+            receitaPorMinuto[i] += receitaCentavos;
+        }
+    }
+
+    private RegistroPedidos.Leitura ler() {
+        try {
+            return registro.ler();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler o registro de pedidos", e);
+        }
+    }
+}
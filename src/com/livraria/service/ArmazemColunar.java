@@ -0,0 +1,504 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Dinheiro;
+import com.livraria.model.Livro;
+import com.livraria.model.LivroImutavel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle; // Acesso volátil e compareAndSet em posições de arrays.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Armazenamento do catálogo em colunas ("struct of arrays"), para catálogos com
+ * milhões de livros.
+ * <p>
+ * Em vez de um objeto Livro com quatro Strings por livro, cada livro é uma
+ * linha: preço e estoque ficam em arrays de tipos primitivos, autor e categoria
+ * viram códigos de um dicionário (cada nome é guardado uma única vez) e o ISBN
+ * e o título são gravados em UTF-8 em blocos de bytes compartilhados, dentro ou
+ * fora do heap. A busca por ISBN usa uma tabela hash de endereçamento aberto
+ * que guarda apenas números de linha.
+ * <p>
+ * Os arrays são divididos em páginas de tamanho fixo que nunca mudam de lugar,
+ * então uma alteração de preço ou estoque feita por uma visão nunca se perde
+ * quando o catálogo cresce. Os objetos Livro devolvidos são visões leves de uma
+ * linha, criadas a cada consulta. Linhas removidas não são reaproveitadas.
+ */
+class ArmazemColunar implements ArmazemLivros {
+    private static final int BITS_PAGINA = 14;
+    private static final int LINHAS_POR_PAGINA = 1 << BITS_PAGINA; // 16.384 linhas por página.
+    private static final int TAMANHO_BLOCO = 1 << 20; // Blocos de texto de 1 MB.
+    // Valores especiais da tabela hash (as linhas são guardadas como linha + 1).
+    private static final int VAZIO = 0;
+    private static final int REMOVIDO = -1;
+
+    private static final VarHandle PRECOS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ESTOQUES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Uma página de colunas.
+    private static final class Pagina {
+        final long[] precoCentavos = new long[LINHAS_POR_PAGINA];
+        final int[] estoque = new int[LINHAS_POR_PAGINA];
+        final int[] autor = new int[LINHAS_POR_PAGINA]; // Código no dicionário de autores.
+        final int[] categoria = new int[LINHAS_POR_PAGINA]; // Código no dicionário de categorias.
+        // Posição do ISBN e do título nos blocos de texto: (bloco << 32) | posição.
+        final long[] endereco = new long[LINHAS_POR_PAGINA];
+    }
+
+    private final boolean foraDoHeap;
+    // 'volatile': as visões leem sem trava; um array novo é publicado quando o catálogo cresce.
+    private volatile Pagina[] paginas = new Pagina[0];
+    private volatile ByteBuffer[] blocos = new ByteBuffer[0];
+    private int posicaoLivre; // Primeiro byte livre do último bloco.
+    private int linhas; // Linhas já usadas, incluindo as removidas.
+    private int quantidade; // Livros presentes.
+    private final BitSet removidas = new BitSet();
+    private final Dicionario autores = new Dicionario();
+    private final Dicionario categorias = new Dicionario();
+    private int[] tabela; // Índice ISBN -> linha + 1.
+    private int ocupadas; // Posições da tabela não vazias (incluindo as marcadas como removidas).
+
+    /**
+     * @param foraDoHeap        Se true, os blocos de texto são ByteBuffers diretos.
+     * @param capacidadeInicial Quantidade de livros esperada.
+     */
+    ArmazemColunar(boolean foraDoHeap, int capacidadeInicial) {
+        this.foraDoHeap = foraDoHeap;
+        this.tabela = new int[tamanhoDaTabela(capacidadeInicial)];
+    }
+
+    @Override
+    public Livro buscar(String isbn) {
+        int posicao = posicaoNaTabela(isbn.getBytes(StandardCharsets.UTF_8));
+        return posicao < 0 ? null : new LivroColunar(tabela[posicao] - 1);
+    }
+
+    @Override
+    public boolean adicionar(Livro livro) {
+        byte[] isbn = livro.getIsbn().getBytes(StandardCharsets.UTF_8);
+        if (posicaoNaTabela(isbn) >= 0) {
+            return false;
+        }
+        int linha = linhas;
+        if ((linha >>> BITS_PAGINA) == paginas.length) {
+            Pagina[] novas = Arrays.copyOf(paginas, paginas.length + 1);
+            novas[paginas.length] = new Pagina();
+            paginas = novas;
+        }
+        Pagina pagina = paginas[linha >>> BITS_PAGINA];
+        int i = linha & (LINHAS_POR_PAGINA - 1);
+        pagina.precoCentavos[i] = livro.getPrecoCentavos();
+        pagina.estoque[i] = livro.getEstoque();
+        pagina.autor[i] = autores.codigo(livro.getAutor());
+        pagina.categoria[i] = categorias.codigo(livro.getCategoria());
+        pagina.endereco[i] = gravarTextos(isbn, livro.getTitulo().getBytes(StandardCharsets.UTF_8));
+        linhas++;
+        quantidade++;
+        inserirNaTabela(isbn, linha);
+        return true;
+    }
+
+    @Override
+    public Livro remover(String isbn) {
+        int posicao = posicaoNaTabela(isbn.getBytes(StandardCharsets.UTF_8));
+        if (posicao < 0) {
+            return null;
+        }
+        int linha = tabela[posicao] - 1;
+        tabela[posicao] = REMOVIDO; // A sequência de sondagem das outras chaves continua válida.
+        removidas.set(linha);
+        quantidade--;
+        return new LivroColunar(linha); // Os dados da linha continuam legíveis.
+    }
+
+    @Override
+    public int tamanho() {
+        return quantidade;
+    }
+
+    @Override
+    public Collection<Livro> todos() {
+        return new AbstractCollection<Livro>() {
+            @Override
+            public Iterator<Livro> iterator() {
+                return new Iterator<Livro>() {
+                    private int proxima = removidas.nextClearBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return proxima < linhas;
+                    }
+
+                    @Override
+                    public Livro next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Livro livro = new LivroColunar(proxima);
+                        proxima = removidas.nextClearBit(proxima + 1);
+                        return livro;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return quantidade;
+            }
+        };
+    }
+
+    @Override
+    public Livro congelar(Livro livro) {
+        if (livro instanceof LivroColunar) {
+            LivroColunar visao = (LivroColunar) livro;
+            return new LivroColunarImutavel(visao.linha, visao.getIsbn(), visao.getPrecoCentavos(), visao.getEstoque());
+        }
+        return LivroImutavel.copiar(livro);
+    }
+
+    // --- Blocos de texto ---
+
+    // Grava "tamanho do ISBN, ISBN, tamanho do título, título" e devolve o endereço.
+    private long gravarTextos(byte[] isbn, byte[] titulo) {
+        int necessario = tamanhoVarint(isbn.length) + isbn.length + tamanhoVarint(titulo.length) + titulo.length;
+        ByteBuffer[] atuais = blocos;
+        if (atuais.length == 0 || atuais[atuais.length - 1].capacity() - posicaoLivre < necessario) {
+            int capacidade = Math.max(TAMANHO_BLOCO, necessario); // Um registro nunca é dividido entre blocos.
+            ByteBuffer novo = foraDoHeap ? ByteBuffer.allocateDirect(capacidade) : ByteBuffer.allocate(capacidade);
+            atuais = Arrays.copyOf(atuais, atuais.length + 1);
+            atuais[atuais.length - 1] = novo;
+            blocos = atuais;
+            posicaoLivre = 0;
+        }
+        int bloco = atuais.length - 1;
+        ByteBuffer destino = atuais[bloco];
+        int inicio = posicaoLivre;
+        int posicao = escreverVarint(destino, inicio, isbn.length);
+        destino.put(posicao, isbn);
+        posicao = escreverVarint(destino, posicao + isbn.length, titulo.length);
+        destino.put(posicao, titulo);
+        posicaoLivre = posicao + titulo.length;
+        return ((long) bloco << 32) | inicio;
+    }
+
+    private long endereco(int linha) {
+        return paginas[linha >>> BITS_PAGINA].endereco[linha & (LINHAS_POR_PAGINA - 1)];
+    }
+
+    private String lerIsbn(int linha) {
+        long endereco = endereco(linha);
+        ByteBuffer bloco = blocos[(int) (endereco >>> 32)];
+        int posicao = (int) endereco;
+        int tamanho = lerVarint(bloco, posicao);
+        return lerTexto(bloco, posicao + tamanhoVarint(tamanho), tamanho);
+    }
+
+    private String lerTitulo(int linha) {
+        long endereco = endereco(linha);
+        ByteBuffer bloco = blocos[(int) (endereco >>> 32)];
+        int posicao = (int) endereco;
+        int tamanhoIsbn = lerVarint(bloco, posicao);
+        posicao += tamanhoVarint(tamanhoIsbn) + tamanhoIsbn;
+        int tamanho = lerVarint(bloco, posicao);
+        return lerTexto(bloco, posicao + tamanhoVarint(tamanho), tamanho);
+    }
+
+    private static String lerTexto(ByteBuffer bloco, int posicao, int tamanho) {
+        if (bloco.hasArray()) {
+            return new String(bloco.array(), bloco.arrayOffset() + posicao, tamanho, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[tamanho];
+        bloco.get(posicao, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Tamanhos com 7 bits por byte, como no SnapshotBinario.
+    private static int escreverVarint(ByteBuffer destino, int posicao, int valor) {
+        while (valor >= 0x80) {
+            destino.put(posicao++, (byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        destino.put(posicao++, (byte) valor);
+        return posicao;
+    }
+
+    private static int lerVarint(ByteBuffer origem, int posicao) {
+        int valor = 0;
+        int deslocamento = 0;
+        byte b;
+        do {
+            b = origem.get(posicao++);
+            valor |= (b & 0x7F) << deslocamento;
+            deslocamento += 7;
+        } while ((b & 0x80) != 0);
+        return valor;
+    }
+
+    private static int tamanhoVarint(int valor) {
+        int bytes = 1;
+        while (valor >= 0x80) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    // --- Tabela hash ISBN -> linha (endereçamento aberto com sondagem linear) ---
+
+    // Devolve a posição da tabela que aponta para o ISBN, ou -1 se ele não existir.
+    private int posicaoNaTabela(byte[] isbn) {
+        int mascara = tabela.length - 1;
+        for (int i = espalhar(isbn) & mascara;; i = (i + 1) & mascara) {
+            int valor = tabela[i];
+            if (valor == VAZIO) {
+                return -1;
+            }
+            if (valor != REMOVIDO && isbnIgual(valor - 1, isbn)) {
+                return i;
+            }
+        }
+    }
+
+    private void inserirNaTabela(byte[] isbn, int linha) {
+        int mascara = tabela.length - 1;
+        int i = espalhar(isbn) & mascara;
+        while (tabela[i] != VAZIO && tabela[i] != REMOVIDO) {
+            i = (i + 1) & mascara;
+        }
+        if (tabela[i] == VAZIO) {
+            ocupadas++;
+        }
+        tabela[i] = linha + 1;
+        if (ocupadas * 4L > tabela.length * 3L) { // Mais de 75% ocupada: reconstrói.
+            reconstruirTabela();
+        }
+    }
+
+    // Reconstrói a tabela com o tamanho adequado, descartando as marcas de remoção.
+    private void reconstruirTabela() {
+        int[] nova = new int[tamanhoDaTabela(quantidade)];
+        int mascara = nova.length - 1;
+        for (int valor : tabela) {
+            if (valor != VAZIO && valor != REMOVIDO) {
+                int i = espalhar(bytesDoIsbn(valor - 1)) & mascara;
+                while (nova[i] != VAZIO) {
+                    i = (i + 1) & mascara;
+                }
+                nova[i] = valor;
+            }
+        }
+        tabela = nova;
+        ocupadas = quantidade;
+    }
+
+    // Potência de 2 que deixa a tabela no máximo metade cheia.
+    private static int tamanhoDaTabela(int quantidade) {
+        int tamanho = 16;
+        while (tamanho < quantidade * 2L) {
+            tamanho <<= 1;
+        }
+        return tamanho;
+    }
+
+    private boolean isbnIgual(int linha, byte[] isbn) {
+        long endereco = endereco(linha);
+        ByteBuffer bloco = blocos[(int) (endereco >>> 32)];
+        int posicao = (int) endereco;
+        int tamanho = lerVarint(bloco, posicao);
+        if (tamanho != isbn.length) {
+            return false;
+        }
+        posicao += tamanhoVarint(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            if (bloco.get(posicao + i) != isbn[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] bytesDoIsbn(int linha) {
+        long endereco = endereco(linha);
+        ByteBuffer bloco = blocos[(int) (endereco >>> 32)];
+        int posicao = (int) endereco;
+        byte[] isbn = new byte[lerVarint(bloco, posicao)];
+        bloco.get(posicao + tamanhoVarint(isbn.length), isbn);
+        return isbn;
+    }
+
+    private static int espalhar(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        return h ^ (h >>> 16); // Mistura os bits altos, como o HashMap faz.
+    }
+
+    // --- Dicionário de textos repetidos (autores e categorias) ---
+
+    // Cada texto distinto recebe um código; as linhas guardam só o código.
+    private static final class Dicionario {
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private volatile String[] textos = new String[16];
+
+        int codigo(String texto) {
+            Integer codigo = codigos.get(texto);
+            if (codigo == null) {
+                codigo = codigos.size();
+                String[] atuais = textos;
+                if (codigo == atuais.length) {
+                    atuais = Arrays.copyOf(atuais, atuais.length * 2);
+                }
+                atuais[codigo] = texto;
+                textos = atuais; // Publica o array (e o novo texto) para as visões.
+                codigos.put(texto, codigo);
+            }
+            return codigo;
+        }
+
+        String texto(int codigo) {
+            return textos[codigo];
+        }
+    }
+
+    // --- Visão de uma linha como Livro ---
+
+    /**
+     * Livro cujos dados ficam nas colunas do armazém. Preço e estoque são lidos
+     * e alterados diretamente nas colunas, com a mesma garantia de atomicidade
+     * do Livro comum.
+     */
+    private final class LivroColunar extends Livro {
+        private final Pagina pagina;
+        private final int indice; // Posição dentro da página.
+        private final int linha;
+
+        LivroColunar(int linha) {
+            this.linha = linha;
+            this.pagina = paginas[linha >>> BITS_PAGINA];
+            this.indice = linha & (LINHAS_POR_PAGINA - 1);
+        }
+
+        @Override
+        public String getIsbn() {
+            return lerIsbn(linha);
+        }
+
+        @Override
+        public String getTitulo() {
+            return lerTitulo(linha);
+        }
+
+        @Override
+        public String getAutor() {
+            return autores.texto(pagina.autor[indice]);
+        }
+
+        @Override
+        public String getCategoria() {
+            return categorias.texto(pagina.categoria[indice]);
+        }
+
+        @Override
+        public double getPreco() {
+            return Dinheiro.paraReais(getPrecoCentavos());
+        }
+
+        @Override
+        public long getPrecoCentavos() {
+            return (long) PRECOS.getVolatile(pagina.precoCentavos, indice);
+        }
+
+        @Override
+        public int getEstoque() {
+            return (int) ESTOQUES.getVolatile(pagina.estoque, indice);
+        }
+
+        @Override
+        public void setPreco(double preco) {
+            setPrecoCentavos(Dinheiro.paraCentavos(preco));
+        }
+
+        @Override
+        public void setPrecoCentavos(long precoCentavos) {
+            PRECOS.setVolatile(pagina.precoCentavos, indice, precoCentavos);
+        }
+
+        @Override
+        public void setEstoque(int estoque) {
+            ESTOQUES.setVolatile(pagina.estoque, indice, estoque);
+        }
+
+        @Override
+        public boolean retirarEstoque(int quantidade) {
+            validarQuantidade(quantidade);
+            while (true) {
+                int atual = getEstoque();
+                if (atual < quantidade) {
+                    return false;
+                }
+                if (ESTOQUES.compareAndSet(pagina.estoque, indice, atual, atual - quantidade)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void devolverEstoque(int quantidade) {
+            validarQuantidade(quantidade);
+            ESTOQUES.getAndAdd(pagina.estoque, indice, quantidade);
+        }
+
+        // Duas visões da mesma linha representam o mesmo livro.
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof LivroColunar && ((LivroColunar) outro).linha == linha
+                    && ((LivroColunar) outro).armazem() == ArmazemColunar.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return linha;
+        }
+
+        private ArmazemColunar armazem() {
+            return ArmazemColunar.this;
+        }
+    }
+
+    /**
+     * Cópia imutável de uma linha: preço e estoque são copiados; o título, o autor
+     * e a categoria, que nunca mudam em uma linha (nem depois de removida),
+     * continuam sendo lidos das colunas, então a cópia ocupa poucos bytes.
+     */
+    private final class LivroColunarImutavel extends LivroImutavel {
+        private final int linha;
+
+        LivroColunarImutavel(int linha, String isbn, long precoCentavos, int estoque) {
+            super(isbn, null, null, null, precoCentavos, estoque);
+            this.linha = linha;
+        }
+
+        @Override
+        public String getTitulo() {
+            return lerTitulo(linha);
+        }
+
+        @Override
+        public String getAutor() {
+            return autores.texto(paginas[linha >>> BITS_PAGINA].autor[linha & (LINHAS_POR_PAGINA - 1)]);
+        }
+
+        @Override
+        public String getCategoria() {
+            return categorias.texto(paginas[linha >>> BITS_PAGINA].categoria[linha & (LINHAS_POR_PAGINA - 1)]);
+        }
+    }
+}
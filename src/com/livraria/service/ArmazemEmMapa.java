@@ -0,0 +1,55 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+import com.livraria.model.LivroImutavel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap; // Mapa que preserva a ordem de inserção das chaves.
+import java.util.Map;
+
+/**
+ * Armazenamento padrão: um objeto Livro por livro, em um mapa ISBN -> Livro.
+ * O LinkedHashMap oferece busca, inserção e remoção em O(1) e mantém a
+ * iteração na ordem de inserção (a mesma ordem do arquivo).
+ */
+class ArmazemEmMapa implements ArmazemLivros {
+    private final Map<String, Livro> livros;
+
+    /**
+     * @param capacidadeInicial Quantidade de livros esperada.
+     */
+    ArmazemEmMapa(int capacidadeInicial) {
+        this.livros = new LinkedHashMap<>(Math.max(16, (int) (capacidadeInicial / 0.75f) + 1));
+    }
+
+    @Override
+    public Livro buscar(String isbn) {
+        return livros.get(isbn);
+    }
+
+    @Override
+    public boolean adicionar(Livro livro) {
+        return livros.putIfAbsent(livro.getIsbn(), livro) == null;
+    }
+
+    @Override
+    public Livro remover(String isbn) {
+        return livros.remove(isbn);
+    }
+
+    @Override
+    public int tamanho() {
+        return livros.size();
+    }
+
+    @Override
+    public Collection<Livro> todos() {
+        return Collections.unmodifiableCollection(livros.values());
+    }
+
+    @Override
+    public Livro congelar(Livro livro) {
+        return LivroImutavel.copiar(livro); // Os textos são compartilhados com o livro original.
+    }
+}
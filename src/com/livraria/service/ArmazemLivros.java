@@ -0,0 +1,55 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.util.Collection;
+
+/**
+ * Armazenamento em memória do catálogo usado pelo GerenciadorLivros.
+ * As implementações não são sincronizadas: o GerenciadorLivros protege as
+ * alterações de estrutura (inclusão e remoção) com a sua trava de escrita. As
+ * alterações de preço e estoque feitas pelos objetos Livro devolvidos devem ser
+ * seguras entre threads.
+ */
+interface ArmazemLivros {
+
+    /**
+     * @param isbn O ISBN procurado.
+     * @return O livro com esse ISBN, ou null se não existir.
+     */
+    Livro buscar(String isbn);
+
+    /**
+     * Inclui um livro, se ainda não existir outro com o mesmo ISBN. O armazém
+     * pode guardar uma cópia dos dados em vez do próprio objeto.
+     *
+     * @param livro O livro a ser incluído.
+     * @return true se foi incluído; false se o ISBN já existia.
+     */
+    boolean adicionar(Livro livro);
+
+    /**
+     * @param isbn O ISBN do livro a ser removido.
+     * @return O livro removido (ainda legível), ou null se não existir.
+     */
+    Livro remover(String isbn);
+
+    /**
+     * @return Quantidade de livros no armazém.
+     */
+    int tamanho();
+
+    /**
+     * @return Visão somente leitura de todos os livros, na ordem de inclusão.
+     */
+    Collection<Livro> todos();
+
+    /**
+     * Cria uma cópia imutável dos valores atuais de um livro deste armazém, para
+     * as fotografias do catálogo (veja SnapshotCatalogo).
+     *
+     * @param livro Um livro devolvido por este armazém.
+     * @return A cópia, que nunca muda.
+     */
+    Livro congelar(Livro livro);
+}
@@ -0,0 +1,73 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.RepositorioMapeado;
+import com.livraria.model.Livro;
+import com.livraria.model.LivroImutavel;
+
+import java.util.Collection;
+
+/**
+ * Armazenamento que não carrega o catálogo: os livros ficam no arquivo de
+ * registros do RepositorioMapeado (livros.dat), e em memória há só o índice
+ * ISBN -&gt; registro do repositório e um cache limitado dos livros já lidos
+ * (CacheLivros). Um livro é lido do arquivo na primeira consulta e, enquanto
+ * for usado, continua no cache; os pouco usados são descartados.
+ * <p>
+ * Os livros devolvidos são visões do registro (preço e estoque ficam no
+ * arquivo mapeado), então descartar um livro do cache nunca perde uma baixa
+ * de estoque: a próxima leitura vê o valor atual. Inclusões e remoções vão
+ * direto para o arquivo. A iteração de {@link #todos()} segue a ordem dos
+ * registros e não passa pelo cache.
+ */
+class ArmazemSobDemanda implements ArmazemLivros {
+    private final RepositorioMapeado arquivo;
+    private final CacheLivros cache;
+
+    /**
+     * @param arquivo         O repositório de onde os livros são lidos.
+     * @param capacidadeCache Quantidade máxima de livros guardados no cache.
+     */
+    ArmazemSobDemanda(RepositorioMapeado arquivo, int capacidadeCache) {
+        this.arquivo = arquivo;
+        this.cache = new CacheLivros(capacidadeCache);
+        arquivo.prepararLeituraSobDemanda();
+    }
+
+    @Override
+    public Livro buscar(String isbn) {
+        Livro livro = cache.buscar(isbn);
+        if (livro == null) {
+            livro = arquivo.ler(isbn);
+            if (livro != null) {
+                livro = cache.guardar(livro);
+            }
+        }
+        return livro;
+    }
+
+    @Override
+    public boolean adicionar(Livro livro) {
+        return arquivo.incluir(livro);
+    }
+
+    @Override
+    public Livro remover(String isbn) {
+        cache.remover(isbn);
+        return arquivo.excluir(isbn);
+    }
+
+    @Override
+    public int tamanho() {
+        return arquivo.getQuantidadeLivros();
+    }
+
+    @Override
+    public Collection<Livro> todos() {
+        return arquivo.livros();
+    }
+
+    @Override
+    public Livro congelar(Livro livro) {
+        return LivroImutavel.copiar(livro);
+    }
+}
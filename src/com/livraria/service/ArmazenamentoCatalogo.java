@@ -0,0 +1,35 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+/**
+ * Define como o GerenciadorLivros guarda o catálogo em memória.
+ */
+public enum ArmazenamentoCatalogo {
+    /**
+     * Um objeto Livro por livro, em um mapa por ISBN (padrão). Simples e rápido
+     * para catálogos pequenos e médios.
+     */
+    MAPA,
+    /**
+     * Colunas de tipos primitivos para preço e estoque, dicionários para autor
+     * e categoria e os textos (ISBN e título) compactados em blocos de bytes.
+     * Ocupa várias vezes menos memória em catálogos com milhões de livros; os
+     * objetos Livro são visões criadas a cada consulta.
+     */
+    COLUNAR,
+    /**
+     * Como COLUNAR, mas os blocos de texto ficam fora do heap (ByteBuffer
+     * direto), o que também os tira do trabalho do coletor de lixo.
+     */
+    COLUNAR_FORA_DO_HEAP,
+    /**
+     * Nada é carregado na inicialização: os livros são lidos do livros.dat do
+     * repositório MAPEADO quando consultados pela primeira vez e guardados em um
+     * cache limitado (-Dlivraria.cache.livros, padrão 10.000 livros). O tempo de
+     * inicialização e a memória dependem dos livros em uso, não do catálogo.
+     * Busca, navegação, sugestões e a listagem completa não têm índices em
+     * memória: percorrem o arquivo a cada chamada (a navegação guarda só os
+     * livros da página), então custam uma leitura do catálogo inteiro e as
+     * sugestões não consideram as vendas. Exige o modo LOG_DE_ALTERACOES.
+     */
+    SOB_DEMANDA
+}
@@ -0,0 +1,113 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.model.Livro;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de tamanho limitado dos livros já lidos do arquivo, usado pelo
+ * armazenamento SOB_DEMANDA. Quando está cheio, descarta o livro usado há mais
+ * tempo (LRU). É dividido em segmentos, cada um com a sua trava, para que
+ * consultas simultâneas de livros diferentes quase nunca esperem umas pelas
+ * outras. Os acertos, as faltas e os descartes são contados nas métricas
+ * "catalogo.cache.*".
+ */
+class CacheLivros {
+    private static final int SEGMENTOS = 16; // Potência de 2.
+
+    private static final Contador ACERTOS = Metricas.contador("catalogo.cache.acertos");
+    private static final Contador FALTAS = Metricas.contador("catalogo.cache.faltas");
+    private static final Contador DESCARTES = Metricas.contador("catalogo.cache.descartes");
+
+    // Um segmento: LinkedHashMap na ordem de acesso, que descarta o mais antigo ao passar do limite.
+    private static final class Segmento extends LinkedHashMap<String, Livro> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacidade;
+
+        Segmento(int capacidade) {
+            super(16, 0.75f, true);
+            this.capacidade = capacidade;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Livro> maisAntigo) {
+            if (size() > capacidade) {
+                DESCARTES.adicionar(1);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+
+    /**
+     * @param capacidade Quantidade máxima de livros guardados (no mínimo um por segmento).
+     */
+    CacheLivros(int capacidade) {
+        int porSegmento = Math.max(1, (capacidade + SEGMENTOS - 1) / SEGMENTOS);
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+    }
+
+    /**
+     * @param isbn O ISBN procurado.
+     * @return O livro guardado, ou null (uma falta) se ele não está no cache.
+     */
+    Livro buscar(String isbn) {
+        Segmento segmento = segmento(isbn);
+        Livro livro;
+        synchronized (segmento) {
+            livro = segmento.get(isbn);
+        }
+        (livro != null ? ACERTOS : FALTAS).adicionar(1);
+        return livro;
+    }
+
+    /**
+     * Guarda um livro, se nenhuma outra thread guardou o mesmo ISBN antes.
+     *
+     * @param livro O livro lido do arquivo.
+     * @return O livro que ficou no cache (o já guardado, se havia um).
+     */
+    Livro guardar(Livro livro) {
+        Segmento segmento = segmento(livro.getIsbn());
+        synchronized (segmento) {
+            Livro existente = segmento.putIfAbsent(livro.getIsbn(), livro);
+            return existente != null ? existente : livro;
+        }
+    }
+
+    /**
+     * @param isbn O ISBN do livro que não deve mais ser devolvido pelo cache.
+     */
+    void remover(String isbn) {
+        Segmento segmento = segmento(isbn);
+        synchronized (segmento) {
+            segmento.remove(isbn);
+        }
+    }
+
+    /**
+     * @return Quantidade de livros guardados agora.
+     */
+    int tamanho() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                total += segmento.size();
+            }
+        }
+        return total;
+    }
+
+    private Segmento segmento(String isbn) {
+        int h = isbn.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (SEGMENTOS - 1)];
+    }
+}
@@ -1,21 +1,40 @@
 package com.livraria.service; // Pacote para classes de serviço (lógica de negócio). 
 
-import com.livraria.data.DadosLivraria; // Importa a classe de acesso a dados. 
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.Dinheiro;
 import com.livraria.model.Livro; // Importa a classe de modelo Livro. 
 import com.livraria.model.ItemCarrinho; // Importa a classe de modelo ItemCarrinho. 
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional; // Para lidar com a possibilidade de um item ou livro não ser encontrado. 
 
 /**
  * Classe responsável por gerenciar as operações do carrinho de compras.
  * Esta também é uma classe 'Controller', manipulando os itens do carrinho
- * e interagindo com o GerenciadorLivros e DadosLivraria.
+ * e interagindo com o GerenciadorLivros e o repositório de dados (RepositorioLivraria).
+ * Os métodos são sincronizados, pois o mesmo carrinho (mesma sessão) pode
+ * receber pedidos simultâneos.
  */
 public class CarrinhoDeCompras {
     private List<ItemCarrinho> itens; // Lista de itens atualmente no carrinho.
     private GerenciadorLivros gerenciadorLivros; // Dependência: precisa acessar os livros para adicionar ao carrinho.
+    // Sessão (cliente) dona do carrinho; null para o carrinho único em data/carrinho_atual.txt.
+    private final String idSessao;
+    // Total do carrinho em centavos, mantido a cada alteração (não é recalculado item a item).
+    private long totalCentavos;
+
+    // Métricas das operações do carrinho (veja com.livraria.metricas.Metricas).
+    private static final Operacao ADICAO_ITEM = Metricas.operacao("carrinho.adicionarItem");
+    private static final Operacao REMOCAO_ITEM = Metricas.operacao("carrinho.removerItem");
+    private static final Operacao ATUALIZACAO_ITEM = Metricas.operacao("carrinho.atualizarQuantidade");
+    private static final Operacao FINALIZACAO = Metricas.operacao("carrinho.finalizarCompra");
 
     /**
      * Construtor do CarrinhoDeCompras.
@@ -25,9 +44,43 @@ public class CarrinhoDeCompras {
      */
     public CarrinhoDeCompras(GerenciadorLivros gerenciadorLivros) {
         this.gerenciadorLivros = gerenciadorLivros;
-        // Carrega o carrinho existente do arquivo ao inicializar, usando a lista de
-        // todos os livros.
-        this.itens = DadosLivraria.carregarCarrinho(gerenciadorLivros.getTodosLivros());
+        this.idSessao = null;
+        // Carrega o carrinho existente do arquivo ao inicializar, resolvendo cada ISBN
+        // pelo índice do catálogo.
+        this.itens = gerenciadorLivros.getRepositorio().carregarCarrinho(null, gerenciadorLivros::buscarLivroPorIsbn);
+        registrarItensCarregados();
+    }
+
+    /**
+     * Construtor do carrinho de uma sessão (cliente) específica. O carrinho é
+     * carregado do arquivo próprio da sessão e salvo somente nele.
+     * 
+     * @param gerenciadorLivros Uma instância de GerenciadorLivros para buscar
+     *                          informações de livros.
+     * @param idSessao          O identificador da sessão dona do carrinho.
+     */
+    public CarrinhoDeCompras(GerenciadorLivros gerenciadorLivros, String idSessao) {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.idSessao = idSessao;
+        this.itens = gerenciadorLivros.getRepositorio().carregarCarrinho(idSessao,
+                gerenciadorLivros::buscarLivroPorIsbn);
+        registrarItensCarregados();
+    }
+
+    // Calcula o total inicial e avisa o catálogo de quais livros este carrinho contém,
+    // para ser avisado se o preço de algum deles mudar.
+    private void registrarItensCarregados() {
+        for (ItemCarrinho item : itens) {
+            totalCentavos += item.getSubtotalCentavos();
+            gerenciadorLivros.vincularCarrinho(item.getLivro().getIsbn(), this);
+        }
+    }
+
+    /**
+     * @return O identificador da sessão dona do carrinho, ou null para o carrinho único.
+     */
+    public String getIdSessao() {
+        return idSessao;
     }
 
     /**
@@ -39,39 +92,90 @@ public class CarrinhoDeCompras {
         return itens;
     }
 
+    /**
+     * Retorna uma cópia dos itens, tirada de uma só vez: pode ser lida (por
+     * exemplo, para responder a uma requisição) enquanto o carrinho continua
+     * sendo alterado por outras threads.
+     * 
+     * @return Uma nova lista com cópias dos itens.
+     */
+    public synchronized List<ItemCarrinho> copiarItens() {
+        List<ItemCarrinho> copia = new ArrayList<>(itens.size());
+        for (ItemCarrinho item : itens) {
+            ItemCarrinho novo = new ItemCarrinho(item.getLivro(), item.getQuantidade());
+            novo.setPrecoUnitarioCentavos(item.getPrecoUnitarioCentavos());
+            copia.add(novo);
+        }
+        return copia;
+    }
+
+    /**
+     * @param isbn O ISBN procurado.
+     * @return true se o livro está no carrinho.
+     */
+    public synchronized boolean contemItem(String isbn) {
+        for (ItemCarrinho item : itens) {
+            if (item.getLivro().getIsbn().equals(isbn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Adiciona um item ao carrinho de compras.
      * 
      * @param isbn       O ISBN do livro a ser adicionado.
-     * @param quantidade A quantidade a ser adicionada.
-     */
-    public void adicionarItem(String isbn, int quantidade) {
-        // Tenta encontrar o livro pelo ISBN usando o GerenciadorLivros.
-        Optional<Livro> livroOpt = gerenciadorLivros.buscarLivroPorIsbn(isbn);
-        if (livroOpt.isPresent()) { // Se o livro existe...
-            Livro livro = livroOpt.get();
-            // Verifica se há estoque suficiente antes de adicionar.
-            if (livro.getEstoque() >= quantidade) {
+     * @param quantidade A quantidade a ser adicionada (maior que zero).
+     * @return true se o item foi adicionado; false se o livro não existe ou não
+     *         tem estoque suficiente.
+     * @throws IllegalArgumentException Se a quantidade não for maior que zero.
+     */
+    public synchronized boolean adicionarItem(String isbn, int quantidade) {
+        if (quantidade <= 0) {
+            ADICAO_ITEM.contarFalha();
+            throw new IllegalArgumentException("A quantidade deve ser maior que zero: " + quantidade);
+        }
+        long inicio = System.nanoTime();
+        try {
+            // Tenta encontrar o livro pelo ISBN usando o GerenciadorLivros.
+            Optional<Livro> livroOpt = gerenciadorLivros.buscarLivroPorIsbn(isbn);
+            if (livroOpt.isPresent()) { // Se o livro existe...
+                Livro livro = livroOpt.get();
                 // Tenta encontrar o item no carrinho (se já existe um item para este livro).
                 Optional<ItemCarrinho> itemExistente = itens.stream()
                         .filter(item -> item.getLivro().getIsbn().equals(isbn))
                         .findFirst();
-
-                if (itemExistente.isPresent()) {
-                    // Se o item já existe, apenas atualiza a quantidade.
-                    itemExistente.get().setQuantidade(itemExistente.get().getQuantidade() + quantidade);
+                int quantidadeTotal = quantidade + itemExistente.map(ItemCarrinho::getQuantidade).orElse(0);
+                // Verifica se há estoque suficiente antes de adicionar (com reservas, já reserva).
+                if (reservar(livro, quantidadeTotal, quantidade)) {
+                    if (itemExistente.isPresent()) {
+                        // Se o item já existe, apenas atualiza a quantidade.
+                        ItemCarrinho item = itemExistente.get();
+                        item.setQuantidade(item.getQuantidade() + quantidade);
+                        totalCentavos += item.getPrecoUnitarioCentavos() * quantidade;
+                    } else {
+                        // Se não existe, adiciona um novo ItemCarrinho.
+                        ItemCarrinho item = new ItemCarrinho(livro, quantidade);
+                        itens.add(item);
+                        totalCentavos += item.getSubtotalCentavos();
+                        gerenciadorLivros.vincularCarrinho(isbn, this);
+                    }
+                    gerenciadorLivros.avisar(quantidade + "x " + livro.getTitulo() + " adicionado ao carrinho.");
+                    salvar(); // Salva o estado atual do carrinho.
+                    return true;
                 } else {
-                    // Se não existe, adiciona um novo ItemCarrinho.
-                    itens.add(new ItemCarrinho(livro, quantidade));
+                    gerenciadorLivros.avisar(
+                            "Estoque insuficiente para " + livro.getTitulo() + ". Disponível: " + livro.getEstoque());
+                    ADICAO_ITEM.contarFalha();
                 }
-                System.out.println(quantidade + "x " + livro.getTitulo() + " adicionado ao carrinho.");
-                DadosLivraria.salvarCarrinho(itens); // Salva o estado atual do carrinho.
             } else {
-                System.out.println(
-                        "Estoque insuficiente para " + livro.getTitulo() + ". Disponível: " + livro.getEstoque());
+                gerenciadorLivros.avisar("Livro com ISBN " + isbn + " não encontrado.");
+                ADICAO_ITEM.contarFalha();
             }
-        } else {
-            System.out.println("Livro com ISBN " + isbn + " não encontrado.");
+            return false;
+        } finally {
+            ADICAO_ITEM.registrar(inicio);
         }
     }
 
@@ -79,16 +183,37 @@ public class CarrinhoDeCompras {
      * Remove um item do carrinho de compras.
      * 
      * @param isbn O ISBN do livro cujo item deve ser removido.
+     * @return true se o item estava no carrinho e foi removido.
      */
-    public void removerItem(String isbn) {
-        // removeIf: remove o item se o ISBN do livro dentro dele for igual ao ISBN
-        // fornecido.
-        boolean removido = itens.removeIf(item -> item.getLivro().getIsbn().equals(isbn));
-        if (removido) {
-            System.out.println("Item com ISBN " + isbn + " removido do carrinho.");
-            DadosLivraria.salvarCarrinho(itens); // Salva o estado atualizado do carrinho.
-        } else {
-            System.out.println("Item com ISBN " + isbn + " não encontrado no carrinho.");
+    public synchronized boolean removerItem(String isbn) {
+        long inicio = System.nanoTime();
+        try {
+            // Procura o item pelo ISBN para descontar o seu subtotal do total.
+            ItemCarrinho removidoItem = null;
+            for (Iterator<ItemCarrinho> it = itens.iterator(); it.hasNext();) {
+                ItemCarrinho item = it.next();
+                if (item.getLivro().getIsbn().equals(isbn)) {
+                    it.remove();
+                    removidoItem = item;
+                    break;
+                }
+            }
+            boolean removido = removidoItem != null;
+            if (removido) {
+                ReservasEstoque reservas = gerenciadorLivros.getReservas();
+                if (reservas != null) {
+                    reservas.ajustar(sessaoReservas(), isbn, 0); // Devolve as unidades ao estoque.
+                }
+                totalCentavos -= removidoItem.getSubtotalCentavos();
+                gerenciadorLivros.desvincularCarrinho(isbn, this);
+                gerenciadorLivros.avisar("Item com ISBN " + isbn + " removido do carrinho.");
+                salvar(); // Salva o estado atualizado do carrinho.
+            } else {
+                gerenciadorLivros.avisar("Item com ISBN " + isbn + " não encontrado no carrinho.");
+            }
+            return removido;
+        } finally {
+            REMOCAO_ITEM.registrar(inicio);
         }
     }
 
@@ -98,81 +223,235 @@ public class CarrinhoDeCompras {
      * 
      * @param isbn           O ISBN do livro cujo item terá a quantidade atualizada.
      * @param novaQuantidade A nova quantidade desejada para o item.
+     * @return true se o carrinho foi alterado; false se o item não está no
+     *         carrinho ou não há estoque suficiente.
      */
-    public void atualizarQuantidadeItem(String isbn, int novaQuantidade) {
-        if (novaQuantidade <= 0) { // Se a quantidade for <= 0, remove o item.
-            removerItem(isbn);
-            return; // Sai do método.
-        }
+    public synchronized boolean atualizarQuantidadeItem(String isbn, int novaQuantidade) {
+        long inicio = System.nanoTime();
+        try {
+            if (novaQuantidade <= 0) { // Se a quantidade for <= 0, remove o item.
+                return removerItem(isbn); // Sai do método.
+            }
 
-        // Tenta encontrar o item no carrinho.
-        Optional<ItemCarrinho> itemOpt = itens.stream()
-                .filter(item -> item.getLivro().getIsbn().equals(isbn))
-                .findFirst();
-
-        if (itemOpt.isPresent()) { // Se o item foi encontrado...
-            ItemCarrinho item = itemOpt.get();
-            // Verifica se há estoque suficiente para a nova quantidade.
-            if (item.getLivro().getEstoque() >= novaQuantidade) {
-                item.setQuantidade(novaQuantidade); // Atualiza a quantidade.
-                System.out
-                        .println("Quantidade de " + item.getLivro().getTitulo() + " atualizada para " + novaQuantidade);
-                DadosLivraria.salvarCarrinho(itens); // Salva o carrinho atualizado.
+            // Tenta encontrar o item no carrinho.
+            Optional<ItemCarrinho> itemOpt = itens.stream()
+                    .filter(item -> item.getLivro().getIsbn().equals(isbn))
+                    .findFirst();
+
+            if (itemOpt.isPresent()) { // Se o item foi encontrado...
+                ItemCarrinho item = itemOpt.get();
+                // O livro do item é uma cópia de quando foi adicionado: o estoque é lido de novo.
+                Optional<Livro> livroOpt = gerenciadorLivros.buscarLivroPorIsbn(isbn);
+                if (livroOpt.isEmpty()) {
+                    gerenciadorLivros.avisar("Livro com ISBN " + isbn + " não encontrado.");
+                    return false;
+                }
+                Livro livro = livroOpt.get();
+                // Verifica se há estoque suficiente para a nova quantidade (com reservas, já reserva).
+                if (reservar(livro, novaQuantidade, novaQuantidade)) {
+                    totalCentavos += item.getPrecoUnitarioCentavos() * (novaQuantidade - item.getQuantidade());
+                    item.setQuantidade(novaQuantidade); // Atualiza a quantidade.
+                    gerenciadorLivros.avisar(
+                            "Quantidade de " + item.getLivro().getTitulo() + " atualizada para " + novaQuantidade);
+                    salvar(); // Salva o carrinho atualizado.
+                    return true;
+                } else {
+                    gerenciadorLivros.avisar(
+                            "Estoque insuficiente para " + livro.getTitulo() + ". Disponível: " + livro.getEstoque());
+                }
             } else {
-                System.out.println("Estoque insuficiente para " + item.getLivro().getTitulo() + ". Disponível: " +
-                        item.getLivro().getEstoque());
+                gerenciadorLivros.avisar("Item com ISBN " + isbn + " não encontrado no carrinho.");
             }
-        } else {
-            System.out.println("Item com ISBN " + isbn + " não encontrado no carrinho.");
+            return false;
+        } finally {
+            ATUALIZACAO_ITEM.registrar(inicio);
         }
     }
 
     /**
-     * Calcula o valor total de todos os itens no carrinho.
+     * Retorna o valor total de todos os itens no carrinho.
+     * O total é mantido a cada alteração, então a consulta é imediata.
      * 
      * @return O valor total.
      */
-    public double calcularTotal() {
-        // Usa Stream API para somar o subtotal de cada item no carrinho.
-        return itens.stream().mapToDouble(ItemCarrinho::getSubtotal).sum();
+    public synchronized double calcularTotal() {
+        return Dinheiro.paraReais(totalCentavos);
+    }
+
+    /**
+     * @return O valor total do carrinho, em centavos.
+     */
+    public synchronized long getTotalCentavos() {
+        return totalCentavos;
+    }
+
+    /**
+     * Chamado pelo GerenciadorLivros quando o preço de um livro deste carrinho
+     * muda: ajusta o preço do item e o total, sem percorrer os outros itens.
+     * O preço é relido do catálogo dentro da trava do carrinho, então avisos de
+     * alterações seguidas que cheguem fora de ordem terminam sempre com o preço
+     * mais recente.
+     * 
+     * @param isbn O ISBN do livro cujo preço mudou.
+     */
+    synchronized void reprecificar(String isbn) {
+        Optional<Livro> livro = gerenciadorLivros.buscarLivroPorIsbn(isbn);
+        if (livro.isEmpty()) {
+            return; // Saiu do catálogo: o item fica com o último preço conhecido.
+        }
+        long novoPrecoCentavos = livro.get().getPrecoCentavos();
+        for (ItemCarrinho item : itens) {
+            if (item.getLivro().getIsbn().equals(isbn)) {
+                totalCentavos += (novoPrecoCentavos - item.getPrecoUnitarioCentavos()) * item.getQuantidade();
+                item.setPrecoUnitarioCentavos(novoPrecoCentavos);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Desfaz o vínculo do carrinho com o catálogo (usado quando o carrinho sai da
+     * memória). O conteúdo salvo em arquivo não é alterado.
+     */
+    public synchronized void liberar() {
+        for (ItemCarrinho item : itens) {
+            gerenciadorLivros.desvincularCarrinho(item.getLivro().getIsbn(), this);
+        }
     }
 
     /**
      * Exibe o conteúdo atual do carrinho no console.
      * Esta simula a 'View' (Visão) em um sistema MVC, mostrando dados ao usuário.
      */
-    public void exibirCarrinho() {
+    public synchronized void exibirCarrinho() {
         if (itens.isEmpty()) {
             System.out.println("Seu carrinho está vazio.");
             return;
         }
         System.out.println("\n--- Seu Carrinho ---");
         itens.forEach(System.out::println); // Itera e imprime cada item (usando o toString() de ItemCarrinho).
-        System.out.println("Total do Carrinho: R$" + String.format("%.2f", calcularTotal()));
+        System.out.println("Total do Carrinho: R$" + Dinheiro.formatar(totalCentavos));
         System.out.println("--------------------");
     }
 
     /**
      * Simula o processo de finalização da compra.
      * Isso inclui a atualização do estoque dos livros no catálogo e o esvaziamento
-     * do carrinho.
+     * do carrinho. As baixas de estoque de todos os itens são aplicadas e gravadas
+     * em um único passo, no esquema tudo ou nada: se algum livro não tiver mais
+     * estoque suficiente, nenhuma baixa é feita e o carrinho é mantido.
+     * 
+     * @return true se a compra foi concluída; false se o carrinho está vazio ou
+     *         algum livro não tem mais estoque suficiente.
      */
-    public void finalizarCompra() {
-        if (itens.isEmpty()) {
-            System.out.println("Não há itens para finalizar a compra.");
-            return;
+    public synchronized boolean finalizarCompra() {
+        long inicio = System.nanoTime();
+        try {
+            if (itens.isEmpty()) {
+                gerenciadorLivros.avisar("Não há itens para finalizar a compra.");
+                return false;
+            }
+
+            gerenciadorLivros.avisar("\nFinalizando compra...");
+            // Reúne a quantidade de cada item do carrinho para uma única baixa de estoque.
+            Map<String, Integer> baixas = new LinkedHashMap<>();
+            for (ItemCarrinho item : itens) {
+                baixas.merge(item.getLivro().getIsbn(), item.getQuantidade(), Integer::sum);
+            }
+            // Com reservas, as unidades reservadas já saíram do estoque: só a parte sem reserva
+            // (por exemplo, de uma reserva que venceu) precisa de baixa.
+            ReservasEstoque reservas = gerenciadorLivros.getReservas();
+            Map<String, Integer> reservadas = reservas != null ? reservas.tomar(sessaoReservas()) : Map.of();
+            Map<String, Integer> faltas = new LinkedHashMap<>();
+            Map<String, Integer> vendidas = new LinkedHashMap<>(); // Unidades reservadas que a compra leva.
+            Map<String, Integer> sobras = new LinkedHashMap<>(reservadas); // Reservado além do carrinho.
+            for (Map.Entry<String, Integer> baixa : baixas.entrySet()) {
+                int reservada = sobras.getOrDefault(baixa.getKey(), 0);
+                int usada = Math.min(reservada, baixa.getValue());
+                if (baixa.getValue() > usada) {
+                    faltas.put(baixa.getKey(), baixa.getValue() - usada);
+                }
+                if (usada > 0) {
+                    vendidas.put(baixa.getKey(), usada);
+                }
+                if (reservada > usada) {
+                    sobras.put(baixa.getKey(), reservada - usada);
+                } else {
+                    sobras.remove(baixa.getKey());
+                }
+            }
+            if (!faltas.isEmpty() && !gerenciadorLivros.baixarEstoque(faltas)) {
+                if (reservas != null) {
+                    reservas.restaurar(sessaoReservas(), reservadas);
+                }
+                gerenciadorLivros.avisar("Não foi possível finalizar a compra. Seu carrinho foi mantido.");
+                FINALIZACAO.contarFalha();
+                return false;
+            }
+            if (!vendidas.isEmpty()) {
+                gerenciadorLivros.registrarVendasReservadas(vendidas);
+            }
+            gerenciadorLivros.devolverReservas(sobras);
+            AnaliseVendas analiseVendas = gerenciadorLivros.getAnaliseVendas();
+            if (analiseVendas != null) {
+                analiseVendas.registrar(itens); // Grava o pedido no registro de vendas.
+            }
+            liberar();
+            itens.clear(); // Limpa a lista de itens no carrinho após a compra.
+            totalCentavos = 0;
+            salvar(); // Salva o carrinho vazio no arquivo.
+            gerenciadorLivros.avisar("Compra finalizada com sucesso! Seu carrinho foi esvaziado.");
+            return true;
+        } finally {
+            FINALIZACAO.registrar(inicio);
         }
+    }
 
-        System.out.println("\nFinalizando compra...");
-        // Para cada item no carrinho, atualiza o estoque do livro correspondente.
-        for (ItemCarrinho item : itens) {
-            Livro livro = item.getLivro();
-            // Chama o método do GerenciadorLivros para decrementar o estoque.
-            gerenciadorLivros.atualizarLivro(livro.getIsbn(), livro.getPreco(),
-                    livro.getEstoque() - item.getQuantidade());
+    // Verifica o estoque para um item passar a ter 'quantidadeTotal' unidades. Com reservas
+    // ativadas, já ajusta a reserva; sem elas, só compara com o estoque disponível.
+    private boolean reservar(Livro livro, int quantidadeTotal, int quantidadeNecessaria) {
+        ReservasEstoque reservas = gerenciadorLivros.getReservas();
+        if (reservas != null) {
+            return reservas.ajustar(sessaoReservas(), livro.getIsbn(), quantidadeTotal);
+        }
+        return livro.getEstoque() >= quantidadeNecessaria;
+    }
+
+    // Sessão das reservas deste carrinho ("" para o carrinho único).
+    private String sessaoReservas() {
+        return idSessao == null ? "" : idSessao;
+    }
+
+    // Salva o carrinho no arquivo da sessão (ou no arquivo único, se não houver sessão).
+    // Com gravação em segundo plano, apenas marca o carrinho para o próximo lote.
+    private void salvar() {
+        GravadorAssincrono gravador = gerenciadorLivros.getGravador();
+        if (gravador != null) {
+            gravador.agendar(chaveDeGravacao(idSessao), this::gravarNoLote);
+        } else {
+            gerenciadorLivros.getRepositorio().salvarCarrinho(idSessao, itens, Durabilidade.FLUSH);
+        }
+    }
+
+    // Executada pelo gravador: grava o estado atual do carrinho.
+    private void gravarNoLote() {
+        List<ItemCarrinho> copia;
+        synchronized (this) {
+            copia = new ArrayList<>(itens); // Só a cópia usa a trava; o disco fica de fora.
         }
-        itens.clear(); // Limpa a lista de itens no carrinho após a compra.
-        DadosLivraria.salvarCarrinho(itens); // Salva o carrinho vazio no arquivo.
-        System.out.println("Compra finalizada com sucesso! Seu carrinho foi esvaziado.");
+        Durabilidade durabilidade = gerenciadorLivros.getGravador().getDurabilidade();
+        gerenciadorLivros.getRepositorio().salvarCarrinho(idSessao, copia, durabilidade);
+    }
+
+    /**
+     * Chave das gravações de um carrinho no GravadorAssincrono. Depende só da
+     * sessão, para que um carrinho recarregado do arquivo possa esperar a
+     * gravação pendente da instância anterior.
+     * 
+     * @param idSessao A sessão (null para o carrinho único).
+     * @return A chave.
+     */
+    static String chaveDeGravacao(String idSessao) {
+        return idSessao == null ? "carrinho" : "carrinho:" + idSessao;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Dinheiro;
+
+/**
+ * Uma página de navegação do catálogo para
+ * {@link GerenciadorLivros#navegar(ConsultaCatalogo)}: filtros por categoria,
+ * autor e faixa de preço, ordenação, tamanho da página e o cursor da página
+ * anterior. É imutável; cada método "com..." devolve uma nova consulta:
+ * <pre>
+ * ConsultaCatalogo.todos().naCategoria("Ficção").comPrecoEntre(20, 50)
+ *         .ordenadaPor(ConsultaCatalogo.Ordenacao.PRECO).comLimite(20)
+ * </pre>
+ */
+public final class ConsultaCatalogo {
+    private static final int LIMITE_PADRAO = 20;
+    private static final ConsultaCatalogo TODOS = new ConsultaCatalogo(null, null, Long.MIN_VALUE, Long.MAX_VALUE,
+            Ordenacao.TITULO, null, LIMITE_PADRAO);
+
+    /**
+     * Ordem dos livros na navegação. O ISBN desempata livros com o mesmo preço
+     * ou título, então a ordem é sempre a mesma entre uma página e outra.
+     */
+    public enum Ordenacao {
+        /** Do mais barato para o mais caro. */
+        PRECO,
+        /** Do mais caro para o mais barato. */
+        PRECO_DECRESCENTE,
+        /** Por título, sem diferenciar maiúsculas de minúsculas. */
+        TITULO
+    }
+
+    private final String categoria; // null: qualquer uma.
+    private final String autor; // null: qualquer um.
+    private final long precoMinimoCentavos;
+    private final long precoMaximoCentavos;
+    private final Ordenacao ordenacao;
+    private final String cursor; // null: primeira página.
+    private final int limite;
+
+    private ConsultaCatalogo(String categoria, String autor, long precoMinimoCentavos, long precoMaximoCentavos,
+            Ordenacao ordenacao, String cursor, int limite) {
+        this.categoria = categoria;
+        this.autor = autor;
+        this.precoMinimoCentavos = precoMinimoCentavos;
+        this.precoMaximoCentavos = precoMaximoCentavos;
+        this.ordenacao = ordenacao;
+        this.cursor = cursor;
+        this.limite = limite;
+    }
+
+    /**
+     * @return A primeira página de todo o catálogo, por título, com 20 livros.
+     */
+    public static ConsultaCatalogo todos() {
+        return TODOS;
+    }
+
+    /**
+     * @param categoria A categoria exata (como no cadastro), ou null para qualquer uma.
+     * @return Uma consulta só com livros dessa categoria.
+     */
+    public ConsultaCatalogo naCategoria(String categoria) {
+        return new ConsultaCatalogo(categoria, autor, precoMinimoCentavos, precoMaximoCentavos, ordenacao, cursor,
+                limite);
+    }
+
+    /**
+     * @param autor O autor exato (como no cadastro), ou null para qualquer um.
+     * @return Uma consulta só com livros desse autor.
+     */
+    public ConsultaCatalogo doAutor(String autor) {
+        return new ConsultaCatalogo(categoria, autor, precoMinimoCentavos, precoMaximoCentavos, ordenacao, cursor,
+                limite);
+    }
+
+    /**
+     * @param minimo O menor preço aceito (inclusive).
+     * @param maximo O maior preço aceito (inclusive).
+     * @return Uma consulta só com livros nessa faixa de preço.
+     */
+    public ConsultaCatalogo comPrecoEntre(double minimo, double maximo) {
+        return new ConsultaCatalogo(categoria, autor, Dinheiro.paraCentavos(minimo), Dinheiro.paraCentavos(maximo),
+                ordenacao, cursor, limite);
+    }
+
+    /**
+     * @param ordenacao A ordem dos livros.
+     * @return Uma consulta com essa ordem (e sem cursor, que só vale para a ordem em que foi gerado).
+     */
+    public ConsultaCatalogo ordenadaPor(Ordenacao ordenacao) {
+        return new ConsultaCatalogo(categoria, autor, precoMinimoCentavos, precoMaximoCentavos, ordenacao, null,
+                limite);
+    }
+
+    /**
+     * @param cursor O {@link PaginaLivros#getProximoCursor() cursor} da página anterior, ou null
+     *               para a primeira página.
+     * @return A consulta da página seguinte à do cursor.
+     */
+    public ConsultaCatalogo aPartirDe(String cursor) {
+        return new ConsultaCatalogo(categoria, autor, precoMinimoCentavos, precoMaximoCentavos, ordenacao, cursor,
+                limite);
+    }
+
+    /**
+     * @param limite Quantidade máxima de livros na página (pelo menos 1).
+     * @return Uma consulta com esse tamanho de página.
+     */
+    public ConsultaCatalogo comLimite(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("O limite da página deve ser pelo menos 1: " + limite);
+        }
+        return new ConsultaCatalogo(categoria, autor, precoMinimoCentavos, precoMaximoCentavos, ordenacao, cursor,
+                limite);
+    }
+
+    String getCategoria() {
+        return categoria;
+    }
+
+    String getAutor() {
+        return autor;
+    }
+
+    long getPrecoMinimoCentavos() {
+        return precoMinimoCentavos;
+    }
+
+    long getPrecoMaximoCentavos() {
+        return precoMaximoCentavos;
+    }
+
+    Ordenacao getOrdenacao() {
+        return ordenacao;
+    }
+
+    String getCursor() {
+        return cursor;
+    }
+
+    int getLimite() {
+        return limite;
+    }
+}
@@ -0,0 +1,129 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.GravadorAssincrono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap; // Mapa que aceita acesso simultâneo de várias threads.
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gerencia os carrinhos de compras de muitos clientes ao mesmo tempo, um por
+ * sessão. Os carrinhos em uso ficam em memória; cada um é persistido no seu
+ * próprio arquivo (veja DadosLivraria), então salvar um carrinho nunca reescreve
+ * os outros. Carrinhos sem acesso por um tempo são retirados da memória por uma
+ * limpeza periódica e recarregados do arquivo quando a sessão voltar.
+ */
+public class GerenciadorCarrinhos implements AutoCloseable {
+    private final GerenciadorLivros gerenciadorLivros;
+    private final long tempoInatividadeMillis; // Tempo sem acesso após o qual o carrinho sai da memória.
+    private final Map<String, Entrada> carrinhos = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService limpeza;
+
+    // Um carrinho em memória e o instante do seu último acesso. A entrada entra no mapa vazia
+    // e o carrinho é lido do arquivo depois, fora da trava do mapa (veja obterCarrinho).
+    private static class Entrada {
+        private CarrinhoDeCompras carrinho; // Protegido pela própria entrada; null até ser carregado.
+        volatile long ultimoAcesso = System.currentTimeMillis(); // Alterado só dentro de compute.
+
+        // Carrega o carrinho na primeira chamada; as seguintes (e as simultâneas) recebem o mesmo.
+        synchronized CarrinhoDeCompras carregar(GerenciadorLivros gerenciadorLivros, String idSessao) {
+            if (carrinho == null) {
+                GravadorAssincrono gravador = gerenciadorLivros.getGravador();
+                if (gravador != null) {
+                    // Um carrinho retirado da memória pode ter gravação pendente: grava antes de reler.
+                    gravador.gravarPendente(CarrinhoDeCompras.chaveDeGravacao(idSessao));
+                }
+                carrinho = new CarrinhoDeCompras(gerenciadorLivros, idSessao);
+            }
+            return carrinho;
+        }
+
+        synchronized void liberar() {
+            if (carrinho != null) {
+                carrinho.liberar(); // Deixa de receber avisos de mudança de preço.
+            }
+        }
+    }
+
+    /**
+     * Construtor do GerenciadorCarrinhos.
+     *
+     * @param gerenciadorLivros      O catálogo usado pelos carrinhos.
+     * @param tempoInatividadeMillis Tempo sem acesso após o qual um carrinho é
+     *                               retirado da memória.
+     */
+    public GerenciadorCarrinhos(GerenciadorLivros gerenciadorLivros, long tempoInatividadeMillis) {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.tempoInatividadeMillis = tempoInatividadeMillis;
+        // Thread 'daemon': não impede o programa de terminar.
+        this.limpeza = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "limpeza-carrinhos");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = Math.max(1, Math.min(tempoInatividadeMillis / 2, 60_000));
+        limpeza.scheduleWithFixedDelay(this::removerInativos, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Devolve o carrinho de uma sessão, carregando-o do arquivo (ou criando um
+     * carrinho vazio) se ele ainda não estiver em memória.
+     *
+     * @param idSessao O identificador da sessão (letras, dígitos, '-' e '_').
+     * @return O carrinho da sessão.
+     */
+    public CarrinhoDeCompras obterCarrinho(String idSessao) {
+        // compute garante uma única entrada por sessão e renova o último acesso sob a mesma
+        // trava em que removerInativos decide retirar a entrada, então um carrinho recém-obtido
+        // nunca é retirado. A leitura do arquivo fica fora dessa trava, que bloqueia outras sessões.
+        Entrada entrada = carrinhos.compute(idSessao, (id, atual) -> {
+            Entrada renovada = atual != null ? atual : new Entrada();
+            renovada.ultimoAcesso = System.currentTimeMillis();
+            return renovada;
+        });
+        return entrada.carregar(gerenciadorLivros, idSessao);
+    }
+
+    /**
+     * @return Quantidade de carrinhos atualmente em memória.
+     */
+    public int getQuantidadeEmMemoria() {
+        return carrinhos.size();
+    }
+
+    /**
+     * Retira da memória os carrinhos sem acesso há mais tempo que o limite. Como
+     * cada alteração já é salva no arquivo da sessão, nada precisa ser gravado
+     * aqui. Executado periodicamente, mas também pode ser chamado diretamente.
+     */
+    public void removerInativos() {
+        long limite = System.currentTimeMillis() - tempoInatividadeMillis;
+        for (Map.Entry<String, Entrada> par : carrinhos.entrySet()) {
+            if (par.getValue().ultimoAcesso >= limite) {
+                continue;
+            }
+            // Confere de novo sob a trava do mapa: um acesso no meio do caminho mantém a entrada.
+            Entrada[] retirada = new Entrada[1];
+            carrinhos.computeIfPresent(par.getKey(), (id, entrada) -> {
+                if (entrada.ultimoAcesso >= limite) {
+                    return entrada;
+                }
+                retirada[0] = entrada;
+                return null;
+            });
+            if (retirada[0] != null) {
+                retirada[0].liberar();
+            }
+        }
+    }
+
+    /**
+     * Encerra a limpeza periódica.
+     */
+    @Override
+    public void close() {
+        limpeza.shutdownNow();
+    }
+}
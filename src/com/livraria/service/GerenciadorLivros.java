@@ -1,35 +1,269 @@
 package com.livraria.service; // Pacote para classes de serviço (lógica de negócio). 
  
+import com.livraria.data.ConfirmacaoEmGrupo;
 import com.livraria.data.DadosLivraria; // Importa a classe de acesso a dados. 
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioLivraria;
+import com.livraria.data.RepositorioMapeado;
+import com.livraria.data.RepositorioTexto;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.Dinheiro;
 import com.livraria.model.Livro;     // Importa a classe de modelo Livro. 
  
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List; 
+import java.util.Map;
 import java.util.Optional; // Para lidar com a possibilidade de um livro não ser encontrado. 
-import java.util.stream.Collectors; // Usado para coletar resultados de operações de stream. 
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock; // Permite várias leituras simultâneas ou uma escrita.
  
 /** 
  * Classe responsável por gerenciar as operações relacionadas aos livros (catálogo). 
  * Esta é uma classe 'Controller' (Controlador) no padrão MVC, pois contém a lógica de negócio 
- * para manipular os objetos Livro e interage com a camada de persistência (DadosLivraria). 
- */ 
+ * para manipular os objetos Livro e interage com a camada de persistência (RepositorioLivraria). 
+ * <p>
+ * Pode ser usada por várias threads: consultas e baixas de estoque compartilham uma
+ * trava de leitura, e o estoque de cada livro é alterado de forma atômica, então
+ * compras de títulos diferentes não esperam umas pelas outras. Inclusões, remoções
+ * e a gravação em disco são serializadas.
+ * <p>
+ * As consultas devolvem cópias imutáveis (LivroImutavel) tiradas de uma fotografia
+ * do catálogo (SnapshotCatalogo). Cada alteração publica uma nova fotografia, que
+ * compartilha quase tudo com a anterior; a busca por ISBN e a listagem do catálogo
+ * só leem a fotografia atual, sem nenhuma trava.
+ * <p>
+ * No armazenamento SOB_DEMANDA, a fotografia e os índices de busca, navegação e
+ * sugestões não são mantidos: a busca por ISBN e as compras leem os livros do
+ * arquivo (com cache), e as outras consultas percorrem o arquivo, sempre com a
+ * trava de leitura.
+ */
 public class GerenciadorLivros { 
-    private List<Livro> livros; // Uma lista para manter os livros em memória enquanto o programa roda. 
+    // Índice primário do catálogo: ISBN -> Livro, com busca, inserção e remoção em O(1)
+    // e iteração na ordem de inserção (a mesma ordem do arquivo). Veja ArmazenamentoCatalogo.
+    private final ArmazemLivros livros;
+    // Protege a estrutura do catálogo (o mapa e os índices): leitura para consultas e
+    // compras, escrita para inclusões e remoções.
+    private final ReadWriteLock travaCatalogo = new ReentrantReadWriteLock();
+    // Índice invertido de palavras do título e do autor, mantido junto com o catálogo.
+    private final IndiceTextual indiceTextual = new IndiceTextual();
+    // Índices por categoria, autor e preço, para a navegação paginada (mesma trava do índice textual).
+    private final IndiceNavegacao indiceNavegacao = new IndiceNavegacao();
+    // Árvores de prefixos de títulos e autores para o autocompletar (com trava própria).
+    private final IndiceSugestoes indiceSugestoes = new IndiceSugestoes();
+    // A fotografia e os índices acima são mantidos. No armazenamento SOB_DEMANDA não são:
+    // as consultas percorrem o arquivo, para que a memória continue dependendo só do cache.
+    private final boolean completo;
+    // Livros guardados em memória pelo armazenamento SOB_DEMANDA.
+    private static final int CAPACIDADE_CACHE = Integer.getInteger("livraria.cache.livros", 10_000);
+    // Quantidade de registros no log a partir da qual o log é compactado em um novo arquivo.
+    private static final int LIMITE_REGISTROS_LOG = 10_000;
+    private final ModoPersistencia modoPersistencia; // Como as alterações são gravadas em disco.
+    private int registrosNoLog; // Registros acrescentados ao log desde a última compactação.
+    // Janela em que baixas de estoque de compras simultâneas são reunidas em uma única gravação.
+    private static final long JANELA_CONFIRMACAO_MILLIS = 2;
+    // Livros com baixa de estoque feita em memória e ainda não gravada em disco.
+    private final Set<Livro> estoquePendente = ConcurrentHashMap.newKeySet();
+    private final ConfirmacaoEmGrupo confirmacaoEstoque =
+            new ConfirmacaoEmGrupo(JANELA_CONFIRMACAO_MILLIS, this::persistirEstoquePendente);
+    // Motor de compras com escritor único (null: cada compra baixa o estoque na própria thread).
+    private volatile MotorCompras motorCompras;
+    // Reservas de estoque dos carrinhos, se ativadas (veja usarReservas).
+    private volatile ReservasEstoque reservas;
+    // Registro e análise das vendas, se ativados (veja usarAnaliseVendas).
+    private volatile AnaliseVendas analiseVendas;
+    // Se as operações do catálogo e dos carrinhos escrevem mensagens no console (veja usarMensagens).
+    private volatile boolean mensagens = true;
+    // Gravação em segundo plano (null: cada alteração é gravada na hora, na thread de quem alterou).
+    private final GravadorAssincrono gravador;
+    // Onde o catálogo e os carrinhos são guardados (veja TipoRepositorio).
+    private final RepositorioLivraria repositorio;
+    // ISBNs alterados desde o último lote do gravador (modo LOG_DE_ALTERACOES com gravador).
+    private final Set<String> isbnsAlterados = ConcurrentHashMap.newKeySet();
+    // Chaves das gravações do catálogo no gravador.
+    private final Object chaveCatalogo = new Object();
+    private final Object chaveCompactacao = new Object();
+    // Fotografia imutável do catálogo lida pelas consultas; substituída a cada alteração.
+    private volatile SnapshotCatalogo snapshot = SnapshotCatalogo.vazio();
+    // Serializa a publicação de novas fotografias (as leituras não usam trava).
+    private final Object travaPublicacao = new Object();
+    // Índice reverso ISBN -> carrinhos que contêm o livro. Quando um preço muda,
+    // somente esses carrinhos são recalculados.
+    private final Map<String, Set<CarrinhoDeCompras>> carrinhosPorIsbn = new ConcurrentHashMap<>();
+    // Unidades de reservas em aberto por ISBN: já estão fora do estoque (e do livros.txt), então
+    // uma importação de fornecedor, cujo estoque ainda as inclui, desconta-as do estoque lido (a
+    // recarga do nosso próprio arquivo, não). Alterado junto com o estoque, com a trava de
+    // leitura, para que a importação (com a de escrita) veja os dois valores coerentes.
+    private final Map<String, Integer> reservadoPorIsbn = new ConcurrentHashMap<>();
+
+    // Métricas de cada operação do catálogo (veja com.livraria.metricas.Metricas).
+    private static final Operacao BUSCA_ISBN = Metricas.operacao("catalogo.buscarPorIsbn");
+    private static final Operacao BUSCA_TITULO = Metricas.operacao("catalogo.buscarPorTitulo");
+    private static final Operacao BUSCA = Metricas.operacao("catalogo.buscar");
+    private static final Operacao NAVEGACAO = Metricas.operacao("catalogo.navegar");
+    private static final Operacao SUGESTAO = Metricas.operacao("catalogo.sugerir");
+    private static final Operacao ADICAO = Metricas.operacao("catalogo.adicionar");
+    private static final Operacao ATUALIZACAO = Metricas.operacao("catalogo.atualizar");
+    private static final Operacao REMOCAO = Metricas.operacao("catalogo.remover");
+    private static final Operacao BAIXA_ESTOQUE = Metricas.operacao("catalogo.baixarEstoque");
+    private static final Operacao IMPORTACAO = Metricas.operacao("catalogo.importar");
+    private static final Operacao RECARGA = Metricas.operacao("catalogo.recarregar");
+    // Livros aplicados por vez na importação em lote (a trava de escrita é solta entre os lotes).
+    private static final int LOTE_IMPORTACAO = 8192;
  
-    /** 
-     * Construtor do GerenciadorLivros. 
-     * Ao ser instanciado, ele carrega todos os livros existentes do arquivo de dados. 
-     */ 
-    public GerenciadorLivros() { 
-        this.livros = DadosLivraria.carregarLivros(); // Carrega os dados ao inicializar. 
+    /**
+     * Construtor do GerenciadorLivros.
+     * Ao ser instanciado, ele carrega todos os livros existentes do arquivo de dados.
+     * Cada alteração reescreve o arquivo de livros inteiro.
+     */
+    public GerenciadorLivros() {
+        this(ModoPersistencia.REESCRITA_COMPLETA);
+    }
+
+    /**
+     * Construtor do GerenciadorLivros com o modo de persistência escolhido.
+     * @param modoPersistencia Define se as alterações reescrevem o arquivo ou vão para o log.
+     */
+    public GerenciadorLivros(ModoPersistencia modoPersistencia) {
+        this(modoPersistencia, ArmazenamentoCatalogo.MAPA);
+    }
+
+    /**
+     * Construtor do GerenciadorLivros com o modo de persistência e a forma de
+     * armazenamento em memória escolhidos.
+     * @param modoPersistencia Define se as alterações reescrevem o arquivo ou vão para o log.
+     * @param armazenamento Define como o catálogo é guardado em memória (ex: COLUNAR para
+     *                      catálogos com milhões de livros).
+     */
+    public GerenciadorLivros(ModoPersistencia modoPersistencia, ArmazenamentoCatalogo armazenamento) {
+        this(modoPersistencia, armazenamento, null);
+    }
+
+    /**
+     * Construtor do GerenciadorLivros com gravação em segundo plano: as alterações
+     * (inclusive as baixas de estoque) são feitas em memória e gravadas em lotes
+     * pelo gravador, então quem altera não espera pelo disco. No modo
+     * LOG_DE_ALTERACOES, todas as alterações de um mesmo livro em um lote viram um
+     * único registro no log; no modo REESCRITA_COMPLETA, o lote reescreve o
+     * arquivo uma única vez. Os carrinhos que usam este catálogo também passam a
+     * ser gravados pelo mesmo gravador.
+     * @param modoPersistencia Define se as alterações reescrevem o arquivo ou vão para o log.
+     * @param armazenamento Define como o catálogo é guardado em memória.
+     * @param gravador O gravador em segundo plano (null para gravar cada alteração na hora).
+     *                 Chame flush() nele para garantir que tudo foi gravado.
+     */
+    public GerenciadorLivros(ModoPersistencia modoPersistencia, ArmazenamentoCatalogo armazenamento,
+            GravadorAssincrono gravador) {
+        this(modoPersistencia, armazenamento, gravador, new RepositorioTexto());
+    }
+
+    /**
+     * Construtor do GerenciadorLivros com o repositório escolhido (os outros
+     * construtores usam os arquivos de texto da pasta de dados). No modo
+     * LOG_DE_ALTERACOES, cada alteração é entregue ao repositório como uma
+     * gravação parcial; no modo REESCRITA_COMPLETA, o catálogo inteiro é regravado.
+     * @param modoPersistencia Define se as alterações reescrevem o catálogo ou são gravadas uma a uma.
+     * @param armazenamento Define como o catálogo é guardado em memória.
+     * @param gravador O gravador em segundo plano (null para gravar cada alteração na hora).
+     * @param repositorio Onde o catálogo e os carrinhos são guardados. Quem cria o
+     *                    repositório o fecha depois de terminar de usar o gerenciador.
+     * @throws IllegalArgumentException Se o armazenamento for SOB_DEMANDA sem um
+     *                                  RepositorioMapeado e o modo LOG_DE_ALTERACOES.
+     */
+    public GerenciadorLivros(ModoPersistencia modoPersistencia, ArmazenamentoCatalogo armazenamento,
+            GravadorAssincrono gravador, RepositorioLivraria repositorio) {
+        this.modoPersistencia = modoPersistencia;
+        this.gravador = gravador;
+        this.repositorio = repositorio;
+        if (armazenamento == ArmazenamentoCatalogo.SOB_DEMANDA) {
+            // Os registros são alterados no lugar; uma regravação completa trocaria o arquivo.
+            if (!(repositorio instanceof RepositorioMapeado)
+                    || modoPersistencia != ModoPersistencia.LOG_DE_ALTERACOES) {
+                throw new IllegalArgumentException(
+                        "O armazenamento SOB_DEMANDA exige o repositório MAPEADO e o modo LOG_DE_ALTERACOES.");
+            }
+            this.livros = new ArmazemSobDemanda((RepositorioMapeado) repositorio, CAPACIDADE_CACHE);
+            this.completo = false;
+            return; // Nada é carregado nem indexado.
+        }
+        List<Livro> carregados = repositorio.carregarLivros(); // Carrega os dados ao inicializar.
+        this.livros = armazenamento == ArmazenamentoCatalogo.MAPA
+                ? new ArmazemEmMapa(carregados.size())
+                : new ArmazemColunar(armazenamento == ArmazenamentoCatalogo.COLUNAR_FORA_DO_HEAP, carregados.size());
+        for (Livro livro : carregados) {
+            // Em caso de ISBN repetido no arquivo, prevalece a primeira ocorrência (como na busca antiga).
+            livros.adicionar(livro);
+        }
+        montarCatalogoCompleto();
+        this.completo = true;
     } 
+
+    // Monta os índices e a fotografia com todos os livros do armazém.
+    private void montarCatalogoCompleto() {
+        List<Livro> copias = new ArrayList<>(livros.tamanho());
+        for (Livro livro : livros.todos()) {
+            indiceTextual.adicionar(livro);
+            indiceNavegacao.adicionar(livro);
+            indiceSugestoes.adicionar(livro);
+            copias.add(livros.congelar(livro));
+        }
+        this.snapshot = SnapshotCatalogo.de(copias);
+    }
+
+    // SOB_DEMANDA: cópias de todos os livros do arquivo, percorrido com a trava de leitura.
+    // Quem chamou fica com as cópias; o gerenciador não guarda nada.
+    private List<Livro> copiarDoArquivo() {
+        travaCatalogo.readLock().lock();
+        try {
+            List<Livro> copias = new ArrayList<>(livros.tamanho());
+            for (Livro livro : livros.todos()) {
+                copias.add(livros.congelar(livro));
+            }
+            return copias;
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+    }
  
     /** 
-     * Retorna a lista completa de todos os livros atualmente carregados. 
-     * @return Uma lista de objetos Livro. 
-     */ 
-    public List<Livro> getTodosLivros() { 
-        return livros; 
-    } 
+     * Retorna todos os livros do catálogo, em ordem de ISBN, como estavam no
+     * momento da chamada: a coleção é a fotografia atual e não muda mesmo que o
+     * catálogo seja alterado enquanto ela é percorrida. No armazenamento
+     * SOB_DEMANDA, a lista é copiada do arquivo a cada chamada (e não fica
+     * guardada); para listar um catálogo grande, prefira {@link #navegar(ConsultaCatalogo)}.
+     * @return Uma lista somente leitura de livros imutáveis.
+     */
+    public List<Livro> getTodosLivros() {
+        if (!completo) {
+            List<Livro> copias = copiarDoArquivo();
+            copias.sort(Comparator.comparing(Livro::getIsbn));
+            return Collections.unmodifiableList(copias);
+        }
+        return snapshot.getLivros();
+    }
+
+    /**
+     * Retorna a fotografia atual do catálogo, para quem precisa fazer várias
+     * consultas sobre o mesmo estado (por exemplo, listar e depois buscar). No
+     * armazenamento SOB_DEMANDA, a fotografia é montada do arquivo a cada
+     * chamada (e não fica guardada).
+     * @return A fotografia atual; nunca muda.
+     */
+    public SnapshotCatalogo getSnapshot() {
+        return completo ? snapshot : SnapshotCatalogo.de(copiarDoArquivo());
+    }
  
     /** 
      * Busca um livro pelo seu ISBN. 
@@ -37,36 +271,239 @@ public class GerenciadorLivros {
      * @return Um Optional contendo o Livro se encontrado, ou um Optional vazio se não encontrado. 
      */ 
     public Optional<Livro> buscarLivroPorIsbn(String isbn) { 
-        // Usa Stream API para filtrar a lista de livros e encontrar o primeiro que corresponde ao ISBN. 
-        return livros.stream() 
-                     .filter(l -> l.getIsbn().equals(isbn)) // Filtra os livros pelo ISBN. 
-                     .findFirst();                          // Retorna o primeiro que encontrar (ou vazio). 
-    } 
+        // Consulta na fotografia atual, sem trava: o livro devolvido é uma cópia imutável.
+        long inicio = System.nanoTime();
+        try {
+            if (completo) {
+                return Optional.ofNullable(snapshot.buscar(isbn));
+            }
+            // SOB_DEMANDA, sem a fotografia: lê do armazém (cache ou arquivo) e devolve uma cópia.
+            travaCatalogo.readLock().lock();
+            try {
+                Livro livro = livros.buscar(isbn);
+                return Optional.ofNullable(livro == null ? null : livros.congelar(livro));
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        } finally {
+            BUSCA_ISBN.registrar(inicio);
+        }
+    }
  
-    /** 
-     * Busca livros que contenham um termo específico no título (busca case-insensitive). 
-     * @param termo O termo a ser buscado no título. 
-     * @return Uma lista de livros cujos títulos contêm o termo. 
-     */ 
-    public List<Livro> buscarLivrosPorTitulo(String termo) { 
-        return livros.stream() 
-                     .filter(l -> l.getTitulo().toLowerCase().contains(termo.toLowerCase())) 
-                     .collect(Collectors.toList()); // Coleta os resultados em uma nova lista. 
-    } 
+    /**
+     * Busca livros pelo título usando o índice invertido. A busca ignora
+     * maiúsculas e acentos ("principe" encontra "Príncipe"), cada palavra do termo
+     * é tratada como prefixo e todas precisam aparecer no título.
+     * @param termo O termo a ser buscado no título.
+     * @return Uma lista de livros cujos títulos contêm todas as palavras do termo.
+     */
+    public List<Livro> buscarLivrosPorTitulo(String termo) {
+        long inicio = System.nanoTime();
+        if (!completo) {
+            try {
+                return buscarNoArquivo(termo, false);
+            } finally {
+                BUSCA_TITULO.registrar(inicio);
+            }
+        }
+        Set<String> isbns;
+        SnapshotCatalogo fotografia;
+        travaCatalogo.readLock().lock();
+        try {
+            isbns = indiceTextual.buscar(termo, IndiceTextual.Campo.TITULO);
+            fotografia = snapshot; // A fotografia do mesmo instante que o índice.
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        try {
+            return resolverIsbns(isbns, fotografia);
+        } finally {
+            BUSCA_TITULO.registrar(inicio);
+        }
+    }
+
+    /**
+     * Busca livros cujo título ou autor contenham todas as palavras da consulta
+     * (por exemplo, "verne viagem").
+     * @param consulta As palavras a serem buscadas.
+     * @return Uma lista de livros que satisfazem todas as palavras da consulta.
+     */
+    public List<Livro> buscarLivros(String consulta) {
+        long inicio = System.nanoTime();
+        if (!completo) {
+            try {
+                return buscarNoArquivo(consulta, true);
+            } finally {
+                BUSCA.registrar(inicio);
+            }
+        }
+        Set<String> isbns;
+        SnapshotCatalogo fotografia;
+        travaCatalogo.readLock().lock();
+        try {
+            isbns = indiceTextual.buscar(consulta, IndiceTextual.Campo.TITULO, IndiceTextual.Campo.AUTOR);
+            fotografia = snapshot;
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        try {
+            return resolverIsbns(isbns, fotografia);
+        } finally {
+            BUSCA.registrar(inicio);
+        }
+    }
+
+    /**
+     * Navega pelo catálogo, uma página por vez: os livros de uma categoria, de um
+     * autor e/ou de uma faixa de preço, ordenados por preço ou por título. A
+     * página é lida de índices já ordenados, então o tempo depende do tamanho da
+     * página e não do catálogo (exceto ao combinar a ordem por título com uma
+     * faixa de preço: não há índice para essa combinação, e os livros do grupo
+     * fora da faixa são pulados um a um, o que fica lento com uma faixa estreita
+     * em um grupo grande). No armazenamento SOB_DEMANDA, cada página percorre o
+     * arquivo inteiro, guardando só os livros da página.
+     * @param consulta Os filtros, a ordem e o cursor da página anterior.
+     * @return A página, com o cursor da próxima.
+     * @throws IllegalArgumentException Se o cursor da consulta não for válido.
+     */
+    public PaginaLivros navegar(ConsultaCatalogo consulta) {
+        long inicio = System.nanoTime();
+        travaCatalogo.readLock().lock();
+        try {
+            if (!completo) {
+                return IndiceNavegacao.paginarPercorrendo(consulta, livros.todos(), livros::congelar);
+            }
+            return indiceNavegacao.paginar(consulta, snapshot);
+        } finally {
+            travaCatalogo.readLock().unlock();
+            NAVEGACAO.registrar(inicio);
+        }
+    }
+
+    /**
+     * Conta os livros de cada categoria (para mostrar os filtros com as
+     * quantidades). As contagens são mantidas a cada alteração, sem percorrer o
+     * catálogo (no armazenamento SOB_DEMANDA, que não as mantém, o arquivo é percorrido).
+     * @return Categoria -> quantidade de livros, em ordem alfabética.
+     */
+    public Map<String, Integer> contarPorCategoria() {
+        travaCatalogo.readLock().lock();
+        try {
+            if (!completo) {
+                Map<String, Integer> contagem = new TreeMap<>();
+                for (Livro livro : livros.todos()) {
+                    contagem.merge(livro.getCategoria(), 1, Integer::sum);
+                }
+                return contagem;
+            }
+            return indiceNavegacao.contarPorCategoria();
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sugere títulos e autores que começam com o texto digitado até agora
+     * (autocompletar): "o peq" sugere "O Pequeno Príncipe". Títulos e autores
+     * com estoque vêm primeiro e, entre eles, os mais vendidos. As sugestões
+     * saem prontas de uma árvore de prefixos, sem percorrer o catálogo. No
+     * armazenamento SOB_DEMANDA, que não mantém a árvore, o arquivo é percorrido
+     * e as vendas não entram na ordem.
+     * @param prefixo O texto digitado (maiúsculas, acentos e pontuação são ignorados).
+     * @param quantidade Quantidade de sugestões (no máximo 10).
+     * @return As sugestões, da melhor para a pior.
+     */
+    public List<Sugestao> sugerir(String prefixo, int quantidade) {
+        long inicio = System.nanoTime();
+        try {
+            if (!completo) {
+                travaCatalogo.readLock().lock();
+                try {
+                    return IndiceSugestoes.sugerirPercorrendo(prefixo, quantidade, livros.todos());
+                } finally {
+                    travaCatalogo.readLock().unlock();
+                }
+            }
+            return indiceSugestoes.sugerir(prefixo, quantidade);
+        } finally {
+            SUGESTAO.registrar(inicio);
+        }
+    }
+
+    // SOB_DEMANDA: a busca sem o índice textual, conferindo cada registro do arquivo com as
+    // mesmas regras. Uma consulta sem nenhuma palavra devolve o catálogo inteiro, como com o índice.
+    private List<Livro> buscarNoArquivo(String consulta, boolean comAutor) {
+        List<String> termos = IndiceTextual.tokenizar(consulta);
+        List<Livro> encontrados = new ArrayList<>();
+        travaCatalogo.readLock().lock();
+        try {
+            for (Livro livro : livros.todos()) {
+                boolean encontrado = comAutor
+                        ? IndiceTextual.contemTodos(termos, livro.getTitulo(), livro.getAutor())
+                        : IndiceTextual.contemTodos(termos, livro.getTitulo());
+                if (encontrado) {
+                    encontrados.add(livros.congelar(livro));
+                }
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        return encontrados;
+    }
+
+    // Converte os ISBNs encontrados no índice em objetos Livro. Uma consulta sem
+    // nenhuma palavra (null) devolve o catálogo inteiro, como a busca por substring fazia.
+    private static List<Livro> resolverIsbns(Set<String> isbns, SnapshotCatalogo fotografia) {
+        if (isbns == null) {
+            return new ArrayList<>(fotografia.getLivros());
+        }
+        List<Livro> resultado = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Livro livro = fotografia.buscar(isbn);
+            if (livro != null) {
+                resultado.add(livro);
+            }
+        }
+        return resultado;
+    }
  
     /** 
      * Adiciona um novo livro ao catálogo. 
      * @param novoLivro O objeto Livro a ser adicionado. 
+     * @throws IllegalArgumentException Se o livro não cabe no formato do repositório
+     *                                  (por exemplo, um ISBN longo demais para o livros.dat).
      */ 
-    public void adicionarLivro(Livro novoLivro) { 
+    public synchronized void adicionarLivro(Livro novoLivro) {
+        try {
+            repositorio.validar(novoLivro); // Antes de entrar no catálogo em memória.
+        } catch (IllegalArgumentException e) {
+            ADICAO.contarFalha();
+            throw e;
+        }
         // Verifica se já existe um livro com o mesmo ISBN para evitar duplicatas. 
-        if (!buscarLivroPorIsbn(novoLivro.getIsbn()).isPresent()) { 
-            livros.add(novoLivro); // Adiciona o livro à lista em memória. 
-            DadosLivraria.salvarLivros(livros); // Salva a lista atualizada no arquivo. 
-            System.out.println("Livro adicionado: " + novoLivro.getTitulo()); 
+        // putIfAbsent verifica e insere com uma única consulta ao índice.
+        long inicio = System.nanoTime();
+        boolean adicionado;
+        Livro armazenado = null; // O livro como ficou no armazém (pode ser uma cópia ou uma visão).
+        travaCatalogo.writeLock().lock();
+        try {
+            adicionado = livros.adicionar(novoLivro);
+            if (adicionado) {
+                indexar(novoLivro); // Mantém a busca por título/autor atualizada.
+                armazenado = livros.buscar(novoLivro.getIsbn());
+                publicar(armazenado);
+            }
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        if (adicionado) {
+            persistirAdicao(armazenado); // Grava a alteração no arquivo.
+            avisar("Livro adicionado: " + novoLivro.getTitulo()); 
         } else { 
-            System.out.println("Erro: Livro com ISBN " + novoLivro.getIsbn() + " já existe."); 
+            avisar("Erro: Livro com ISBN " + novoLivro.getIsbn() + " já existe."); 
+            ADICAO.contarFalha();
         } 
+        ADICAO.registrar(inicio);
     } 
  
     /** 
@@ -76,17 +513,49 @@ public class GerenciadorLivros {
      * @param novoEstoque O novo estoque do livro. 
      * @return true se o livro foi encontrado e atualizado, false caso contrário. 
      */ 
-    public boolean atualizarLivro(String isbn, double novoPreco, int novoEstoque) { 
-        Optional<Livro> livroOpt = buscarLivroPorIsbn(isbn); // Tenta encontrar o livro. 
-        if (livroOpt.isPresent()) { // Se o livro foi encontrado... 
-            Livro livro = livroOpt.get(); // Obtém o objeto Livro do Optional. 
-            livro.setPreco(novoPreco);    // Atualiza o preço. 
-            livro.setEstoque(novoEstoque); // Atualiza o estoque. 
-            DadosLivraria.salvarLivros(livros); // Salva as alterações no arquivo. 
-            System.out.println("Livro " + livro.getTitulo() + " atualizado."); 
+    public boolean atualizarLivro(String isbn, double novoPreco, int novoEstoque) {
+        long inicio = System.nanoTime();
+        long novoPrecoCentavos = Dinheiro.paraCentavos(novoPreco);
+        Livro livro; // O livro do armazém (as consultas devolvem cópias, que não podem ser alteradas).
+        boolean precoMudou = false;
+        synchronized (this) {
+            travaCatalogo.writeLock().lock(); // O índice de preços muda junto.
+            try {
+                livro = livros.buscar(isbn); // Tenta encontrar o livro. 
+                if (livro != null) {
+                    precoMudou = livro.getPrecoCentavos() != novoPrecoCentavos;
+                    if (precoMudou && completo) {
+                        indiceNavegacao.remover(livro); // Localizado pelo preço antigo.
+                    }
+                    livro.setPrecoCentavos(novoPrecoCentavos); // Atualiza o preço.
+                    livro.setEstoque(novoEstoque); // Atualiza o estoque. 
+                    if (completo) {
+                        indiceSugestoes.atualizarEstoque(isbn, novoEstoque);
+                        if (precoMudou) {
+                            indiceNavegacao.adicionar(livro);
+                        }
+                    }
+                    publicar(livro);
+                }
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+            if (livro != null) {
+                persistirAtualizacao(livro); // Grava as alterações no arquivo.
+            }
+        }
+        if (livro != null) { // Se o livro foi encontrado... 
+            if (precoMudou) {
+                // Fora do bloco sincronizado: cada carrinho tem a sua própria trava.
+                reprecificarCarrinhos(isbn);
+            }
+            avisar("Livro " + livro.getTitulo() + " atualizado."); 
+            ATUALIZACAO.registrar(inicio);
             return true; 
         } else { 
-            System.out.println("Erro: Livro com ISBN " + isbn + " não encontrado para atualização."); 
+            avisar("Erro: Livro com ISBN " + isbn + " não encontrado para atualização."); 
+            ATUALIZACAO.contarFalha();
+            ATUALIZACAO.registrar(inicio);
             return false; 
         } 
     } 
@@ -96,15 +565,851 @@ public class GerenciadorLivros {
      * @param isbn O ISBN do livro a ser removido. 
      * @return true se o livro foi removido, false caso contrário. 
      */ 
-    public boolean removerLivro(String isbn) { 
-        // removeIf: Remove todos os elementos da coleção que satisfazem a condição. 
-        boolean removido = livros.removeIf(l -> l.getIsbn().equals(isbn)); 
-        if (removido) { 
-            DadosLivraria.salvarLivros(livros); // Salva a lista após a remoção. 
-            System.out.println("Livro com ISBN " + isbn + " removido."); 
+    public synchronized boolean removerLivro(String isbn) {
+        // Remove diretamente pela chave do índice, sem percorrer o catálogo.
+        long inicio = System.nanoTime();
+        Livro livroRemovido;
+        travaCatalogo.writeLock().lock();
+        try {
+            livroRemovido = livros.remover(isbn);
+            if (livroRemovido != null) {
+                desindexar(livroRemovido); // Retira as palavras do livro do índice.
+                publicarRemocoes(List.of(isbn));
+            }
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        boolean removido = livroRemovido != null;
+        if (removido) {
+            persistirRemocao(isbn); // Grava a remoção no arquivo.
+            avisar("Livro com ISBN " + isbn + " removido."); 
         } else { 
-            System.out.println("Erro: Livro com ISBN " + isbn + " não encontrado para remoção."); 
+            avisar("Erro: Livro com ISBN " + isbn + " não encontrado para remoção."); 
+            REMOCAO.contarFalha();
         } 
+        REMOCAO.registrar(inicio);
         return removido; 
     } 
-}
\ No newline at end of file
+
+    /**
+     * Importa em lote um arquivo de livros (por exemplo, o catálogo de um
+     * fornecedor), no formato do livros.txt, comparando-o com o catálogo atual em
+     * uma única passada: ISBNs novos são incluídos, livros existentes são
+     * atualizados quando algum campo muda (o preço também nos carrinhos, e título
+     * e autor também no índice de busca) e, se pedido, livros que não estão no
+     * arquivo são removidos. O arquivo é lido em fluxo e aplicado em lotes (as
+     * consultas continuam sendo atendidas entre um lote e outro), e o catálogo é
+     * gravado em disco uma única vez, ao final. O estoque do arquivo do
+     * fornecedor é o total do livro, com as unidades reservadas em carrinhos
+     * (veja ReservasEstoque), que são descontadas: elas voltam ao estoque quando
+     * a reserva vence.
+     * @param arquivo O arquivo a ser importado.
+     * @param removerAusentes Se true, remove do catálogo os livros que não estão no arquivo.
+     * @return Quantos livros foram inseridos, atualizados e removidos.
+     */
+    public ResumoImportacao importarLivros(Path arquivo, boolean removerAusentes) {
+        long inicio = System.nanoTime();
+        try {
+            return importar(arquivo, removerAusentes, false);
+        } finally {
+            IMPORTACAO.registrar(inicio);
+        }
+    }
+
+    /**
+     * Relê o arquivo de livros (alterado fora do programa, por exemplo por uma
+     * rotina de preços) e aplica ao catálogo apenas as diferenças, como em
+     * {@link #importarLivros(Path, boolean)}: o arquivo passa a ser o catálogo,
+     * os carrinhos veem os novos preços e o índice de busca é atualizado livro a
+     * livro. Usado pelo MonitorCatalogo.
+     * <p>
+     * Ao contrário da importação, as reservas não são descontadas: o livros.txt
+     * é gravado por este programa com as unidades reservadas já fora do estoque.
+     * <p>
+     * O arquivo não é regravado, pois já contém o catálogo; no modo
+     * LOG_DE_ALTERACOES, o log (feito sobre o arquivo anterior) é descartado
+     * com uma compactação.
+     * <p>
+     * Só vale para o repositório de texto: nos outros, o livros.txt é no máximo a
+     * origem da primeira migração, e recarregá-lo (removendo os ausentes) voltaria
+     * o catálogo para aquele estado.
+     * @return Quantos livros foram inseridos, atualizados e removidos.
+     * @throws IllegalStateException Se o catálogo não é guardado no livros.txt (RepositorioTexto).
+     */
+    public ResumoImportacao recarregarLivros() {
+        if (!(repositorio instanceof RepositorioTexto)) {
+            RECARGA.contarFalha();
+            throw new IllegalStateException("A recarga exige o repositório TEXTO; o catálogo está em "
+                    + repositorio.getClass().getSimpleName() + ".");
+        }
+        long inicio = System.nanoTime();
+        try {
+            return importar(DadosLivraria.getArquivoLivros(), true, true);
+        } finally {
+            RECARGA.registrar(inicio);
+        }
+    }
+
+    // Corpo de importarLivros e recarregarLivros. Na recarga, o arquivo lido é o próprio livros.txt.
+    // Os carrinhos só são reprecificados depois de soltar o monitor, como em atualizarLivro: a
+    // finalização de compra trava o carrinho e depois espera a gravação em grupo, que usa o
+    // monitor; reprecificar com o monitor preso travaria na ordem inversa.
+    private ResumoImportacao importar(Path arquivo, boolean removerAusentes, boolean recarga) {
+        Set<String> precosAlterados = new HashSet<>(); // Só livros que estão em algum carrinho.
+        ResumoImportacao resumo;
+        synchronized (this) {
+            resumo = aplicarImportacao(arquivo, removerAusentes, recarga, precosAlterados);
+        }
+        for (String isbn : precosAlterados) {
+            reprecificarCarrinhos(isbn);
+        }
+        return resumo;
+    }
+
+    // Lê o arquivo e aplica as diferenças ao catálogo (com o monitor), juntando em
+    // 'precosAlterados' os livros que estão em carrinhos e mudaram de preço.
+    private ResumoImportacao aplicarImportacao(Path arquivo, boolean removerAusentes, boolean recarga,
+            Set<String> precosAlterados) {
+        Operacao operacao = recarga ? RECARGA : IMPORTACAO;
+        // Só o arquivo de um fornecedor traz as unidades reservadas no estoque.
+        Importacao importacao = new Importacao(removerAusentes, !recarga, precosAlterados);
+        int invalidas = 0;
+        boolean completa = true;
+        try {
+            invalidas = DadosLivraria.lerLivros(arquivo, importacao::receber);
+        } catch (IOException e) {
+            System.err.println("Erro ao importar livros de " + arquivo + ": " + e.getMessage());
+            operacao.contarFalha();
+            completa = false;
+        }
+        importacao.aplicarLote(); // O que sobrou no último lote.
+        if (recarga && importacao.vistos.isEmpty()) {
+            // Um livros.txt sem nenhum livro é, quase sempre, um arquivo ainda sendo escrito.
+            System.err.println("Recarga ignorada: " + arquivo + " não tem nenhum livro válido.");
+            operacao.contarFalha();
+            completa = false;
+        }
+        int removidos = 0;
+        if (removerAusentes && completa) { // Com leitura incompleta, faltariam livros que estão no arquivo.
+            removidos = importacao.removerAusentes();
+        }
+        // Na recarga, o arquivo já é o catálogo; só o log (do arquivo anterior) precisa ser descartado.
+        boolean gravar = !recarga || modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES;
+        if (gravar && importacao.inseridos + importacao.atualizados + removidos > 0) {
+            persistirCatalogoInteiro();
+        }
+        ResumoImportacao resumo = new ResumoImportacao(importacao.inseridos, importacao.atualizados,
+                importacao.inalterados, removidos, invalidas + importacao.rejeitados, completa);
+        avisar(resumo.toString());
+        return resumo;
+    }
+
+    // Estado de uma importação em andamento: o lote atual, os contadores, os ISBNs vistos e
+    // os livros de carrinhos que mudaram de preço (reprecificados só ao final de tudo).
+    private class Importacao {
+        final List<Livro> lote = new ArrayList<>(LOTE_IMPORTACAO);
+        final Set<String> vistos; // Só guardado quando os ausentes devem ser removidos.
+        final Set<String> precosAlterados;
+        final boolean descontarReservas;
+        int inseridos;
+        int atualizados;
+        int inalterados;
+        int rejeitados; // Livros que o repositório não consegue guardar (contados como linhas inválidas).
+
+        Importacao(boolean removerAusentes, boolean descontarReservas, Set<String> precosAlterados) {
+            this.vistos = removerAusentes ? new HashSet<>() : null;
+            this.descontarReservas = descontarReservas;
+            this.precosAlterados = precosAlterados;
+        }
+
+        void receber(Livro livro) {
+            try {
+                repositorio.validar(livro);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Livro ignorado na importação. " + e.getMessage());
+                rejeitados++;
+                if (vistos != null) {
+                    vistos.add(livro.getIsbn()); // O livro está no arquivo: não é um ausente.
+                }
+                return;
+            }
+            lote.add(livro);
+            if (lote.size() == LOTE_IMPORTACAO) {
+                aplicarLote();
+            }
+        }
+
+        // Aplica o lote com uma única aquisição da trava de escrita.
+        void aplicarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            List<Livro> alterados = new ArrayList<>();
+            travaCatalogo.writeLock().lock();
+            try {
+                for (Livro novo : lote) {
+                    String isbn = novo.getIsbn();
+                    if (vistos != null) {
+                        vistos.add(isbn);
+                    }
+                    if (descontarReservas) {
+                        descontarReservado(novo);
+                    }
+                    Livro existente = livros.buscar(isbn);
+                    if (existente == null) {
+                        livros.adicionar(novo);
+                        indexar(novo);
+                        alterados.add(livros.buscar(isbn));
+                        inseridos++;
+                    } else if (!mesmaDescricao(existente, novo)) {
+                        // Título, autor ou categoria mudaram: o livro é trocado, inclusive no índice.
+                        if (existente.getPrecoCentavos() != novo.getPrecoCentavos()
+                                && carrinhosPorIsbn.containsKey(isbn)) {
+                            precosAlterados.add(isbn);
+                        }
+                        Livro antigo = livros.remover(isbn);
+                        livros.adicionar(novo);
+                        if (completo) {
+                            indiceTextual.remover(antigo);
+                            indiceNavegacao.remover(antigo);
+                            indiceTextual.adicionar(novo);
+                            indiceNavegacao.adicionar(novo);
+                            indiceSugestoes.substituir(antigo, novo); // Mantém as vendas do livro.
+                        }
+                        alterados.add(livros.buscar(isbn));
+                        atualizados++;
+                    } else if (existente.getPrecoCentavos() != novo.getPrecoCentavos()
+                            || existente.getEstoque() != novo.getEstoque()) {
+                        boolean precoMudou = existente.getPrecoCentavos() != novo.getPrecoCentavos();
+                        if (precoMudou) {
+                            if (carrinhosPorIsbn.containsKey(isbn)) {
+                                precosAlterados.add(isbn);
+                            }
+                            if (completo) {
+                                indiceNavegacao.remover(existente); // Localizado pelo preço antigo.
+                            }
+                        }
+                        existente.setPrecoCentavos(novo.getPrecoCentavos());
+                        existente.setEstoque(novo.getEstoque());
+                        if (completo) {
+                            indiceSugestoes.atualizarEstoque(isbn, novo.getEstoque());
+                            if (precoMudou) {
+                                indiceNavegacao.adicionar(existente);
+                            }
+                        }
+                        alterados.add(existente);
+                        atualizados++;
+                    } else {
+                        inalterados++;
+                    }
+                }
+                publicar(alterados); // Uma única publicação por lote.
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+            lote.clear();
+        }
+
+        // O arquivo do fornecedor traz o estoque com as unidades que estão em carrinhos; no
+        // catálogo elas já saíram do estoque e voltam quando a reserva vence. Se o arquivo tiver
+        // menos unidades que as reservadas, o estoque fica zerado (as reservas continuam valendo).
+        private void descontarReservado(Livro novo) {
+            int reservado = reservadoPorIsbn.getOrDefault(novo.getIsbn(), 0);
+            if (reservado > 0) {
+                novo.setEstoque(Math.max(0, novo.getEstoque() - reservado));
+            }
+        }
+
+        private boolean mesmaDescricao(Livro existente, Livro novo) {
+            return existente.getTitulo().equals(novo.getTitulo()) && existente.getAutor().equals(novo.getAutor())
+                    && existente.getCategoria().equals(novo.getCategoria());
+        }
+
+        // Remove os livros do catálogo que não apareceram no arquivo.
+        int removerAusentes() {
+            travaCatalogo.writeLock().lock();
+            try {
+                List<String> ausentes = new ArrayList<>();
+                for (Livro livro : livros.todos()) {
+                    if (!vistos.contains(livro.getIsbn())) {
+                        ausentes.add(livro.getIsbn());
+                    }
+                }
+                for (String isbn : ausentes) {
+                    desindexar(livros.remover(isbn));
+                }
+                publicarRemocoes(ausentes);
+                return ausentes.size();
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Dá baixa no estoque de vários livros de uma vez (por exemplo, todos os itens
+     * de uma compra), no esquema tudo ou nada: cada quantidade é retirada de forma
+     * atômica e, se algum livro não tiver estoque suficiente, as retiradas já
+     * feitas são devolvidas. As baixas são gravadas em disco uma única vez;
+     * compras simultâneas que chegam dentro de uma pequena janela de tempo
+     * compartilham a mesma gravação.
+     * @param quantidadesPorIsbn Quantidade a ser retirada do estoque, por ISBN.
+     * Com gravação em segundo plano, as baixas são apenas marcadas para o próximo
+     * lote do gravador. Com um {@link #usarMotorCompras(MotorCompras) motor de
+     * compras}, o pedido entra na fila do motor e a chamada espera o resultado.
+     * @return true se todas as baixas foram aplicadas; false se algum ISBN não
+     *         existe ou não tem estoque suficiente (nesse caso nada é alterado).
+     * @throws IllegalArgumentException Se alguma quantidade não for maior que zero.
+     */
+    public boolean baixarEstoque(Map<String, Integer> quantidadesPorIsbn) {
+        validarQuantidades(quantidadesPorIsbn);
+        long inicio = System.nanoTime();
+        boolean aplicada = false;
+        try {
+            MotorCompras motor = motorCompras;
+            if (motor != null && !motor.isEscritor()) {
+                aplicada = motor.submeter(quantidadesPorIsbn).join() == ResultadoPedido.ACEITO;
+            } else {
+                aplicada = aplicarPedidos(List.of(quantidadesPorIsbn)).get(0) == ResultadoPedido.ACEITO;
+            }
+            return aplicada;
+        } finally {
+            if (!aplicada) {
+                BAIXA_ESTOQUE.contarFalha();
+            }
+            BAIXA_ESTOQUE.registrar(inicio); // Inclui a espera pela gravação em grupo (ou pelo motor).
+        }
+    }
+
+    // Rejeita o pedido inteiro antes de tocar no estoque, para não desfazer retiradas pela metade.
+    static void validarQuantidades(Map<String, Integer> quantidadesPorIsbn) {
+        for (Map.Entry<String, Integer> quantidade : quantidadesPorIsbn.entrySet()) {
+            if (quantidade.getValue() == null || quantidade.getValue() <= 0) {
+                throw new IllegalArgumentException("A quantidade do ISBN " + quantidade.getKey()
+                        + " deve ser maior que zero: " + quantidade.getValue());
+            }
+        }
+    }
+
+    /**
+     * Passa as baixas de estoque de {@link #baixarEstoque(Map)} (e, portanto,
+     * as compras dos carrinhos) para um motor de compras com escritor único, ou
+     * volta a aplicá-las na thread de quem compra.
+     * @param motor O motor (criado sobre este catálogo), ou null para voltar ao caminho direto.
+     *              Feche o motor só depois de trocá-lo por null.
+     */
+    public void usarMotorCompras(MotorCompras motor) {
+        this.motorCompras = motor;
+    }
+
+    /**
+     * Aplica vários pedidos de uma vez, na ordem, cada um no esquema tudo ou nada
+     * de {@link #baixarEstoque(Map)}: a trava é adquirida uma única vez, uma única
+     * fotografia é publicada e as baixas de todos os pedidos são gravadas juntas.
+     * Usado pelo MotorCompras para cada lote da fila.
+     * @param pedidos As quantidades de cada pedido, por ISBN.
+     * @return O resultado de cada pedido, na mesma ordem.
+     */
+    List<ResultadoPedido> aplicarPedidos(List<Map<String, Integer>> pedidos) {
+        List<ResultadoPedido> resultados = new ArrayList<>(pedidos.size());
+        List<Livro> vendidos = new ArrayList<>();
+        travaCatalogo.readLock().lock(); // Compras simultâneas compartilham a trava de leitura.
+        try {
+            List<Livro> tocados = new ArrayList<>();
+            for (Map<String, Integer> pedido : pedidos) {
+                resultados.add(retirarPedido(pedido, tocados, vendidos));
+            }
+            // Os devolvidos também: outra publicação pode ter copiado o estoque antes da devolução.
+            publicar(tocados);
+            if (!agendarEstoque(vendidos)) {
+                return resultados;
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        confirmacaoEstoque.confirmar(); // Espera a gravação em grupo que inclui estas baixas.
+        return resultados;
+    }
+
+    /**
+     * Ativa (ou desativa, com null) as reservas de estoque dos carrinhos: com
+     * elas, adicionar um livro ao carrinho já retira as unidades do estoque
+     * disponível até a compra ou até a reserva vencer.
+     * @param reservas As reservas (criadas sobre este catálogo), ou null.
+     *                 Feche-as só depois de trocá-las por null.
+     */
+    public void usarReservas(ReservasEstoque reservas) {
+        this.reservas = reservas;
+    }
+
+    /**
+     * Liga ou desliga as mensagens de console das operações do catálogo e dos
+     * carrinhos ("Livro adicionado", "Estoque insuficiente", ...). Elas servem à
+     * simulação do MainApp; num servidor, cada println de cada requisição disputa
+     * a trava do System.out, então o ServidorHttp as desliga.
+     * @param ligadas false para não escrever as mensagens.
+     */
+    public void usarMensagens(boolean ligadas) {
+        this.mensagens = ligadas;
+    }
+
+    // Escreve uma mensagem de operação no console, se as mensagens estão ligadas.
+    void avisar(String mensagem) {
+        if (mensagens) {
+            System.out.println(mensagem);
+        }
+    }
+
+    /**
+     * @return As reservas de estoque em uso, ou null se os carrinhos não reservam estoque.
+     */
+    ReservasEstoque getReservas() {
+        return reservas;
+    }
+
+    /**
+     * @return O repositório onde o catálogo e os carrinhos são guardados.
+     */
+    RepositorioLivraria getRepositorio() {
+        return repositorio;
+    }
+
+    /**
+     * Passa a registrar as compras concluídas dos carrinhos no registro de
+     * pedidos da análise (ou para de registrá-las, com null).
+     * @param analiseVendas A análise (criada sobre este catálogo), ou null.
+     *                      Feche-a só depois de trocá-la por null.
+     */
+    public void usarAnaliseVendas(AnaliseVendas analiseVendas) {
+        this.analiseVendas = analiseVendas;
+    }
+
+    /**
+     * @return A análise de vendas em uso, ou null se as compras não são registradas.
+     */
+    public AnaliseVendas getAnaliseVendas() {
+        return analiseVendas;
+    }
+
+    /**
+     * Retira unidades do estoque disponível para uma reserva, gravando o novo
+     * estoque como uma baixa de {@link #baixarEstoque(Map)}.
+     * @param isbn       O ISBN do livro.
+     * @param quantidade Unidades a reservar.
+     * @return true se havia estoque suficiente; false se não havia ou o livro não existe.
+     */
+    boolean reservarEstoque(String isbn, int quantidade) {
+        travaCatalogo.readLock().lock();
+        try {
+            Livro livro = livros.buscar(isbn);
+            if (livro == null || !livro.retirarEstoque(quantidade)) {
+                return false;
+            }
+            somarReservado(isbn, quantidade);
+            publicar(livro);
+            if (completo) {
+                indiceSugestoes.atualizarEstoque(isbn, livro.getEstoque());
+            }
+            if (!agendarEstoque(List.of(livro))) {
+                return true;
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        confirmacaoEstoque.confirmar();
+        return true;
+    }
+
+    /**
+     * Devolve ao estoque disponível as unidades de reservas encerradas sem compra
+     * (vencidas ou retiradas do carrinho). Livros que já saíram do catálogo são ignorados.
+     * @param quantidadesPorIsbn Unidades a devolver, por ISBN.
+     */
+    void devolverReservas(Map<String, Integer> quantidadesPorIsbn) {
+        if (quantidadesPorIsbn.isEmpty()) {
+            return;
+        }
+        travaCatalogo.readLock().lock();
+        try {
+            List<Livro> devolvidos = new ArrayList<>(quantidadesPorIsbn.size());
+            for (Map.Entry<String, Integer> devolucao : quantidadesPorIsbn.entrySet()) {
+                somarReservado(devolucao.getKey(), -devolucao.getValue());
+                Livro livro = livros.buscar(devolucao.getKey());
+                if (livro != null) {
+                    livro.devolverEstoque(devolucao.getValue());
+                    if (completo) {
+                        indiceSugestoes.atualizarEstoque(livro.getIsbn(), livro.getEstoque());
+                    }
+                    devolvidos.add(livro);
+                }
+            }
+            publicar(devolvidos);
+            if (!agendarEstoque(devolvidos)) {
+                return;
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        confirmacaoEstoque.confirmar();
+    }
+
+    /**
+     * Conta como vendidas as unidades reservadas de uma compra (o estoque delas
+     * já foi retirado na reserva), para a popularidade do autocompletar.
+     * @param quantidadesPorIsbn Unidades vendidas, por ISBN.
+     */
+    void registrarVendasReservadas(Map<String, Integer> quantidadesPorIsbn) {
+        for (Map.Entry<String, Integer> venda : quantidadesPorIsbn.entrySet()) {
+            somarReservado(venda.getKey(), -venda.getValue()); // Deixaram de ser reservas.
+        }
+        if (!completo) {
+            return; // Sem o autocompletar montado, não há popularidade a contar.
+        }
+        travaCatalogo.readLock().lock();
+        try {
+            for (Map.Entry<String, Integer> venda : quantidadesPorIsbn.entrySet()) {
+                Livro livro = livros.buscar(venda.getKey());
+                if (livro != null) {
+                    indiceSugestoes.registrarVenda(livro.getIsbn(), venda.getValue(), livro.getEstoque());
+                }
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Conta como reservadas unidades que já estavam fora do estoque gravado: as
+     * reservas recarregadas do log na criação das ReservasEstoque (inclusive as
+     * vencidas, devolvidas logo em seguida com {@link #devolverReservas(Map)}).
+     * @param quantidadesPorIsbn Unidades reservadas, por ISBN.
+     */
+    void contarReservas(Map<String, Integer> quantidadesPorIsbn) {
+        travaCatalogo.readLock().lock();
+        try {
+            for (Map.Entry<String, Integer> reserva : quantidadesPorIsbn.entrySet()) {
+                somarReservado(reserva.getKey(), reserva.getValue());
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+    }
+
+    // Soma 'diferenca' às unidades reservadas do livro; o ISBN sai do mapa ao chegar a zero.
+    private void somarReservado(String isbn, int diferenca) {
+        reservadoPorIsbn.merge(isbn, diferenca, (atual, soma) -> atual + soma == 0 ? null : atual + soma);
+    }
+
+    // Agenda a gravação do estoque dos livros alterados (com a trava de leitura): no próximo
+    // lote do gravador ou na gravação em grupo. Retorna true se quem chamou deve esperar
+    // a gravação em grupo (com confirmacaoEstoque.confirmar(), depois de soltar a trava).
+    private boolean agendarEstoque(Collection<Livro> alterados) {
+        if (alterados.isEmpty()) {
+            return false;
+        }
+        if (gravador != null) {
+            for (Livro livro : alterados) {
+                marcarAlterado(livro.getIsbn()); // Gravado no próximo lote, sem esperar.
+            }
+            return false;
+        }
+        estoquePendente.addAll(alterados);
+        return true;
+    }
+
+    // Retira o estoque de um pedido (com a trava de leitura). Os livros cujo estoque foi
+    // alterado, mesmo que devolvido em seguida, vão para 'tocados'; os vendidos, para 'vendidos'.
+    private ResultadoPedido retirarPedido(Map<String, Integer> quantidadesPorIsbn, List<Livro> tocados,
+            List<Livro> vendidos) {
+        // Primeiro localiza todos os livros, para aplicar tudo ou nada.
+        List<Livro> alvos = new ArrayList<>(quantidadesPorIsbn.size());
+        for (String isbn : quantidadesPorIsbn.keySet()) {
+            Livro livro = livros.buscar(isbn);
+            if (livro == null) {
+                avisar("Erro: Livro com ISBN " + isbn + " não encontrado para baixa de estoque.");
+                return ResultadoPedido.LIVRO_INEXISTENTE;
+            }
+            alvos.add(livro);
+        }
+        for (int i = 0; i < alvos.size(); i++) {
+            Livro livro = alvos.get(i);
+            if (!livro.retirarEstoque(quantidadesPorIsbn.get(livro.getIsbn()))) {
+                // Desfaz as retiradas anteriores deste pedido.
+                for (int j = 0; j < i; j++) {
+                    Livro retirado = alvos.get(j);
+                    retirado.devolverEstoque(quantidadesPorIsbn.get(retirado.getIsbn()));
+                }
+                tocados.addAll(alvos.subList(0, i));
+                avisar("Estoque insuficiente para " + livro.getTitulo() + ". Disponível: "
+                        + livro.getEstoque());
+                return ResultadoPedido.ESTOQUE_INSUFICIENTE;
+            }
+        }
+        tocados.addAll(alvos);
+        vendidos.addAll(alvos);
+        if (!completo) {
+            return ResultadoPedido.ACEITO;
+        }
+        for (Livro livro : alvos) {
+            // Popularidade para o autocompletar.
+            indiceSugestoes.registrarVenda(livro.getIsbn(), quantidadesPorIsbn.get(livro.getIsbn()),
+                    livro.getEstoque());
+        }
+        return ResultadoPedido.ACEITO;
+    }
+
+    // Publica uma nova fotografia com os valores atuais dos livros alterados. Chamado
+    // logo após a alteração, ainda com a trava do catálogo: assim uma remoção nunca é
+    // desfeita por uma publicação atrasada do mesmo livro.
+    private void publicar(Livro alterado) {
+        if (!completo) {
+            return; // SOB_DEMANDA sem fotografia: as consultas leem o próprio armazém.
+        }
+        synchronized (travaPublicacao) {
+            // A cópia é feita aqui dentro: a última publicação sempre vê os valores mais recentes.
+            snapshot = snapshot.com(livros.congelar(alterado));
+        }
+    }
+
+    private void publicar(Collection<Livro> alterados) {
+        if (alterados.isEmpty() || !completo) {
+            return;
+        }
+        synchronized (travaPublicacao) {
+            SnapshotCatalogo nova = snapshot;
+            for (Livro livro : alterados) {
+                nova = nova.com(livros.congelar(livro));
+            }
+            snapshot = nova;
+        }
+    }
+
+    private void publicarRemocoes(Collection<String> isbns) {
+        if (!completo) {
+            return;
+        }
+        synchronized (travaPublicacao) {
+            SnapshotCatalogo nova = snapshot;
+            for (String isbn : isbns) {
+                nova = nova.sem(isbn);
+            }
+            snapshot = nova;
+        }
+    }
+
+    // Inclui o livro nos índices de busca, navegação e sugestões, se já estiverem montados.
+    private void indexar(Livro livro) {
+        if (completo) {
+            indiceTextual.adicionar(livro);
+            indiceNavegacao.adicionar(livro);
+            indiceSugestoes.adicionar(livro);
+        }
+    }
+
+    private void desindexar(Livro livro) {
+        if (completo) {
+            indiceTextual.remover(livro);
+            indiceNavegacao.remover(livro);
+            indiceSugestoes.remover(livro);
+        }
+    }
+
+    /**
+     * Registra que um carrinho contém um livro, para que ele seja avisado quando o
+     * preço desse livro mudar.
+     * @param isbn O ISBN do livro.
+     * @param carrinho O carrinho que contém o livro.
+     */
+    void vincularCarrinho(String isbn, CarrinhoDeCompras carrinho) {
+        carrinhosPorIsbn.computeIfAbsent(isbn, chave -> ConcurrentHashMap.newKeySet()).add(carrinho);
+    }
+
+    /**
+     * Desfaz o registro feito por {@link #vincularCarrinho(String, CarrinhoDeCompras)}.
+     * @param isbn O ISBN do livro.
+     * @param carrinho O carrinho que não contém mais o livro.
+     */
+    void desvincularCarrinho(String isbn, CarrinhoDeCompras carrinho) {
+        carrinhosPorIsbn.computeIfPresent(isbn, (chave, carrinhos) -> {
+            carrinhos.remove(carrinho);
+            return carrinhos.isEmpty() ? null : carrinhos; // Não guarda conjuntos vazios.
+        });
+    }
+
+    // Atualiza o preço do livro somente nos carrinhos que o contêm. Deve ser chamado depois
+    // de publicar o novo preço: cada carrinho relê o preço da fotografia.
+    private void reprecificarCarrinhos(String isbn) {
+        Set<CarrinhoDeCompras> afetados = carrinhosPorIsbn.get(isbn);
+        if (afetados != null) {
+            for (CarrinhoDeCompras carrinho : afetados) {
+                carrinho.reprecificar(isbn);
+            }
+        }
+    }
+
+    /**
+     * @return O gravador em segundo plano, ou null se as alterações são gravadas na hora.
+     */
+    GravadorAssincrono getGravador() {
+        return gravador;
+    }
+
+    /**
+     * Compacta o log de alterações: grava o catálogo atual como novo arquivo de
+     * livros e descarta o log. Só tem efeito no modo LOG_DE_ALTERACOES. Com
+     * gravação em segundo plano, grava também tudo o que estiver pendente.
+     */
+    public synchronized void compactarCatalogo() {
+        if (gravador != null) {
+            // O log só é escrito pelos lotes do gravador: a compactação entra no lote.
+            gravador.agendar(chaveCompactacao, this::compactarAgora);
+            gravador.flush();
+        } else {
+            compactarAgora();
+        }
+    }
+
+    private void compactarAgora() {
+        if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            travaCatalogo.readLock().lock();
+            try {
+                repositorio.compactarLivros(livros.todos(), durabilidade());
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+            registrosNoLog = 0;
+        }
+    }
+
+    // Métodos auxiliares de persistência: cada alteração é gravada conforme o modo escolhido.
+
+    private void persistirAdicao(Livro livro) {
+        if (gravador != null) {
+            marcarAlterado(livro.getIsbn());
+        } else if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            repositorio.registrarAlteracoes(List.of(livro), List.of(), Durabilidade.FLUSH);
+            registroAcrescentado();
+        } else {
+            salvarCatalogoCompleto();
+        }
+    }
+
+    private void persistirAtualizacao(Livro livro) {
+        if (gravador != null) {
+            marcarAlterado(livro.getIsbn());
+        } else if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            repositorio.registrarAtualizacoes(List.of(livro), Durabilidade.FLUSH);
+            registroAcrescentado();
+        } else {
+            salvarCatalogoCompleto();
+        }
+    }
+
+    private void persistirRemocao(String isbn) {
+        if (gravador != null) {
+            marcarAlterado(isbn);
+        } else if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            repositorio.registrarAlteracoes(List.of(), List.of(isbn), Durabilidade.FLUSH);
+            registroAcrescentado();
+        } else {
+            salvarCatalogoCompleto();
+        }
+    }
+
+    // Marca um livro como alterado para o próximo lote do gravador em segundo plano.
+    private void marcarAlterado(String isbn) {
+        if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            isbnsAlterados.add(isbn);
+            gravador.agendar(chaveCatalogo, this::gravarAlteracoesPendentes);
+        } else {
+            gravador.agendar(chaveCatalogo, this::salvarCatalogoCompleto);
+        }
+    }
+
+    // Executada pelo gravador: grava um registro por livro alterado desde o último lote,
+    // com o estado atual do livro. Não usa a trava do gerenciador, para não atrasar
+    // as alterações feitas enquanto o log é gravado.
+    private void gravarAlteracoesPendentes() {
+        List<Livro> atuais = new ArrayList<>();
+        List<String> removidos = new ArrayList<>();
+        travaCatalogo.readLock().lock();
+        try {
+            for (Iterator<String> it = isbnsAlterados.iterator(); it.hasNext();) {
+                String isbn = it.next();
+                it.remove(); // Uma alteração feita depois daqui marca o ISBN de novo.
+                Livro livro = livros.buscar(isbn);
+                if (livro != null) {
+                    atuais.add(livro);
+                } else {
+                    removidos.add(isbn);
+                }
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+        // O estado de cada livro é lido na gravação, então inclui até as alterações feitas
+        // depois da leitura acima (que também serão regravadas no próximo lote).
+        repositorio.registrarAlteracoes(atuais, removidos, durabilidade());
+        registrosNoLog += atuais.size() + removidos.size();
+        if (registrosNoLog >= LIMITE_REGISTROS_LOG) {
+            compactarAgora(); // Já está na thread do gravador: nenhum outro lote escreve no log agora.
+        }
+    }
+
+    private Durabilidade durabilidade() {
+        return gravador != null ? gravador.getDurabilidade() : Durabilidade.FLUSH;
+    }
+
+    // Grava o catálogo inteiro de uma vez (após uma importação): no modo LOG_DE_ALTERACOES,
+    // como uma compactação, que também descarta o log.
+    private void persistirCatalogoInteiro() {
+        boolean log = modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES;
+        Runnable gravacao = log ? this::compactarAgora : this::salvarCatalogoCompleto;
+        if (gravador != null) {
+            gravador.agendar(log ? chaveCompactacao : chaveCatalogo, gravacao);
+        } else {
+            gravacao.run();
+        }
+    }
+
+    // Reescreve o arquivo de livros inteiro (modo REESCRITA_COMPLETA).
+    private void salvarCatalogoCompleto() {
+        travaCatalogo.readLock().lock();
+        try {
+            repositorio.salvarLivros(livros.todos(), durabilidade());
+        } finally {
+            travaCatalogo.readLock().unlock();
+        }
+    }
+
+    // Executada pela thread líder da gravação em grupo: grava de uma vez todas as
+    // baixas de estoque pendentes (um único append no log ou uma única reescrita).
+    private synchronized void persistirEstoquePendente() {
+        // Retira os livros pendentes do conjunto; baixas que chegarem depois ficam
+        // para a próxima gravação do grupo.
+        List<Livro> pendentes = new ArrayList<>();
+        for (Iterator<Livro> it = estoquePendente.iterator(); it.hasNext();) {
+            pendentes.add(it.next());
+            it.remove();
+        }
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        if (modoPersistencia == ModoPersistencia.LOG_DE_ALTERACOES) {
+            repositorio.registrarAtualizacoes(pendentes, Durabilidade.FLUSH);
+            registrosNoLog += pendentes.size();
+            if (registrosNoLog >= LIMITE_REGISTROS_LOG) {
+                compactarAgora();
+            }
+        } else {
+            salvarCatalogoCompleto();
+        }
+    }
+
+    // Compacta o log periodicamente, para que a carga na inicialização continue rápida.
+    private void registroAcrescentado() {
+        if (++registrosNoLog >= LIMITE_REGISTROS_LOG) {
+            compactarAgora();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Índices secundários para a navegação do catálogo: os livros de cada
+ * categoria, de cada autor, de cada par categoria e autor e do catálogo
+ * inteiro, cada grupo ordenado por preço e por título. Uma página é lida direto
+ * do conjunto ordenado do grupo, a partir do cursor, sem percorrer nem ordenar
+ * o catálogo; o custo depende do tamanho da página (mais log n), não do tamanho
+ * do catálogo. A contagem de livros por categoria é o tamanho de cada grupo,
+ * atualizado a cada inclusão e remoção.
+ * <p>
+ * Exceção: a ordem por título com uma faixa de preço não tem índice (seria
+ * preciso um por faixa). O grupo é lido em ordem de título e os livros fora da
+ * faixa são pulados, então o custo cresce com a quantidade de livros do grupo
+ * pulados até encher a página; com uma faixa estreita em um grupo grande, a
+ * página pode percorrer o grupo inteiro.
+ * <p>
+ * Como o IndiceTextual, não é sincronizado: o GerenciadorLivros o altera com a
+ * trava de escrita do catálogo e o consulta com a trava de leitura. Cada livro
+ * ocupa oito entradas de árvore (nas duas ordens, em quatro grupos).
+ */
+class IndiceNavegacao {
+
+    // Um livro nos índices: só os campos usados nos filtros e na ordenação. Nunca muda;
+    // quando o preço ou o título mudam, a entrada antiga é retirada e uma nova é incluída.
+    private static final class Entrada {
+        final String isbn;
+        final String titulo;
+        final String autor;
+        final String categoria;
+        final long precoCentavos;
+
+        Entrada(String isbn, String titulo, String autor, String categoria, long precoCentavos) {
+            this.isbn = isbn;
+            this.titulo = titulo;
+            this.autor = autor;
+            this.categoria = categoria;
+            this.precoCentavos = precoCentavos;
+        }
+
+        Entrada(Livro livro) {
+            this(livro.getIsbn(), livro.getTitulo(), livro.getAutor(), livro.getCategoria(), livro.getPrecoCentavos());
+        }
+    }
+
+    // O ISBN desempata, então duas entradas só são iguais se forem do mesmo livro.
+    private static final Comparator<Entrada> POR_PRECO = (a, b) -> {
+        int comparacao = Long.compare(a.precoCentavos, b.precoCentavos);
+        return comparacao != 0 ? comparacao : a.isbn.compareTo(b.isbn);
+    };
+    private static final Comparator<Entrada> POR_TITULO = (a, b) -> {
+        int comparacao = String.CASE_INSENSITIVE_ORDER.compare(a.titulo, b.titulo);
+        if (comparacao == 0) {
+            comparacao = a.titulo.compareTo(b.titulo);
+        }
+        return comparacao != 0 ? comparacao : a.isbn.compareTo(b.isbn);
+    };
+
+    // Os livros de um grupo (uma categoria, um autor ou o catálogo inteiro), nas duas ordens.
+    private static final class Grupo {
+        final NavigableSet<Entrada> porPreco = new TreeSet<>(POR_PRECO);
+        final NavigableSet<Entrada> porTitulo = new TreeSet<>(POR_TITULO);
+
+        void adicionar(Entrada entrada) {
+            porPreco.add(entrada);
+            porTitulo.add(entrada);
+        }
+
+        void remover(Entrada entrada) {
+            porPreco.remove(entrada);
+            porTitulo.remove(entrada);
+        }
+
+        int tamanho() {
+            return porPreco.size();
+        }
+    }
+
+    private final Grupo todos = new Grupo();
+    private final Map<String, Grupo> porCategoria = new HashMap<>();
+    private final Map<String, Grupo> porAutor = new HashMap<>();
+    private final Map<String, Grupo> porCategoriaEAutor = new HashMap<>(); // Veja chaveCategoriaEAutor.
+
+    /**
+     * Inclui um livro nos índices, com o preço e o título atuais.
+     *
+     * @param livro O livro a ser indexado.
+     */
+    void adicionar(Livro livro) {
+        Entrada entrada = new Entrada(livro);
+        todos.adicionar(entrada);
+        porCategoria.computeIfAbsent(entrada.categoria, chave -> new Grupo()).adicionar(entrada);
+        porAutor.computeIfAbsent(entrada.autor, chave -> new Grupo()).adicionar(entrada);
+        porCategoriaEAutor.computeIfAbsent(chaveCategoriaEAutor(entrada.categoria, entrada.autor),
+                chave -> new Grupo()).adicionar(entrada);
+    }
+
+    /**
+     * Retira um livro dos índices. Deve ser chamado antes de alterar o preço do
+     * livro (e {@link #adicionar(Livro)} depois), pois a entrada é localizada
+     * pelo preço e pelo título.
+     *
+     * @param livro O livro a ser retirado.
+     */
+    void remover(Livro livro) {
+        Entrada entrada = new Entrada(livro);
+        todos.remover(entrada);
+        removerDoGrupo(porCategoria, entrada.categoria, entrada);
+        removerDoGrupo(porAutor, entrada.autor, entrada);
+        removerDoGrupo(porCategoriaEAutor, chaveCategoriaEAutor(entrada.categoria, entrada.autor), entrada);
+    }
+
+    // O tamanho da categoria na frente evita que dois pares diferentes formem a mesma chave.
+    private static String chaveCategoriaEAutor(String categoria, String autor) {
+        return categoria.length() + ":" + categoria + autor;
+    }
+
+    private static void removerDoGrupo(Map<String, Grupo> grupos, String chave, Entrada entrada) {
+        Grupo grupo = grupos.get(chave);
+        if (grupo != null) {
+            grupo.remover(entrada);
+            if (grupo.tamanho() == 0) {
+                grupos.remove(chave); // Não guarda grupos vazios (nem os mostra nas contagens).
+            }
+        }
+    }
+
+    /**
+     * @return Quantidade de livros por categoria, em ordem alfabética de categoria.
+     */
+    Map<String, Integer> contarPorCategoria() {
+        Map<String, Integer> contagem = new TreeMap<>();
+        for (Map.Entry<String, Grupo> grupo : porCategoria.entrySet()) {
+            contagem.put(grupo.getKey(), grupo.getValue().tamanho());
+        }
+        return contagem;
+    }
+
+    /**
+     * Monta uma página da navegação. Com a ordem por título e uma faixa de preço,
+     * os livros fora da faixa são pulados um a um (veja a descrição da classe).
+     *
+     * @param consulta   Os filtros, a ordem, o cursor e o tamanho da página.
+     * @param fotografia A fotografia do catálogo do mesmo instante, de onde saem os livros.
+     * @return A página, com o cursor da próxima (se houver).
+     * @throws IllegalArgumentException Se o cursor não for válido.
+     */
+    PaginaLivros paginar(ConsultaCatalogo consulta, SnapshotCatalogo fotografia) {
+        String categoria = consulta.getCategoria();
+        String autor = consulta.getAutor();
+        long minimo = consulta.getPrecoMinimoCentavos();
+        long maximo = consulta.getPrecoMaximoCentavos();
+        // Parte do grupo que atende exatamente aos filtros de categoria e autor; a faixa de preço
+        // é um trecho do grupo na ordem por preço e conferida livro a livro na ordem por título.
+        Grupo grupo;
+        if (categoria != null && autor != null) {
+            grupo = porCategoriaEAutor.get(chaveCategoriaEAutor(categoria, autor));
+        } else if (categoria != null) {
+            grupo = porCategoria.get(categoria);
+        } else if (autor != null) {
+            grupo = porAutor.get(autor);
+        } else {
+            grupo = todos;
+        }
+        if (grupo == null || minimo > maximo) {
+            return new PaginaLivros(new ArrayList<>(), null);
+        }
+        NavigableSet<Entrada> ordenados;
+        if (consulta.getOrdenacao() == ConsultaCatalogo.Ordenacao.TITULO) {
+            ordenados = grupo.porTitulo; // A faixa de preço, se houver, é conferida livro a livro.
+        } else {
+            ordenados = grupo.porPreco;
+            // Por preço, a faixa é um trecho contínuo do conjunto: o ISBN vazio vem antes de todos.
+            if (minimo > Long.MIN_VALUE) {
+                ordenados = ordenados.tailSet(new Entrada("", "", "", "", minimo), true);
+            }
+            if (maximo < Long.MAX_VALUE) {
+                ordenados = ordenados.headSet(new Entrada("", "", "", "", maximo + 1), false);
+            }
+            if (consulta.getOrdenacao() == ConsultaCatalogo.Ordenacao.PRECO_DECRESCENTE) {
+                ordenados = ordenados.descendingSet();
+            }
+        }
+        if (consulta.getCursor() != null) {
+            ordenados = ordenados.tailSet(decodificarCursor(consulta.getCursor()), false);
+        }
+        List<Livro> livros = new ArrayList<>(Math.min(consulta.getLimite(), 1024));
+        Entrada ultima = null;
+        for (Entrada entrada : ordenados) {
+            if (entrada.precoCentavos < minimo || entrada.precoCentavos > maximo) {
+                continue; // Só na ordem por título: na ordem por preço, o trecho já é a faixa.
+            }
+            if (livros.size() == consulta.getLimite()) {
+                // Há pelo menos mais um livro: a página seguinte começa depois do último desta.
+                return new PaginaLivros(livros, codificarCursor(ultima));
+            }
+            Livro livro = fotografia.buscar(entrada.isbn);
+            if (livro != null) {
+                livros.add(livro);
+                ultima = entrada;
+            }
+        }
+        return new PaginaLivros(livros, null);
+    }
+
+    /**
+     * Monta uma página sem os índices, percorrendo os livros (armazenamento
+     * SOB_DEMANDA, em que os índices não são mantidos). Guarda só os primeiros
+     * livros depois do cursor, um a mais que a página, então a memória depende
+     * do tamanho da página; o tempo, porém, é o de percorrer o catálogo inteiro
+     * a cada página. A ordem e o cursor são os mesmos de
+     * {@link #paginar(ConsultaCatalogo, SnapshotCatalogo)}.
+     *
+     * @param consulta Os filtros, a ordem, o cursor e o tamanho da página.
+     * @param livros   Todos os livros do catálogo, em qualquer ordem.
+     * @param copiar   Faz a cópia de um livro que vai para a página.
+     * @return A página, com o cursor da próxima (se houver).
+     * @throws IllegalArgumentException Se o cursor não for válido.
+     */
+    static PaginaLivros paginarPercorrendo(ConsultaCatalogo consulta, Iterable<Livro> livros,
+            UnaryOperator<Livro> copiar) {
+        String categoria = consulta.getCategoria();
+        String autor = consulta.getAutor();
+        long minimo = consulta.getPrecoMinimoCentavos();
+        long maximo = consulta.getPrecoMaximoCentavos();
+        Comparator<Entrada> ordem;
+        if (consulta.getOrdenacao() == ConsultaCatalogo.Ordenacao.TITULO) {
+            ordem = POR_TITULO;
+        } else if (consulta.getOrdenacao() == ConsultaCatalogo.Ordenacao.PRECO_DECRESCENTE) {
+            ordem = POR_PRECO.reversed();
+        } else {
+            ordem = POR_PRECO;
+        }
+        Entrada cursor = consulta.getCursor() == null ? null : decodificarCursor(consulta.getCursor());
+        int limite = consulta.getLimite();
+        // Os primeiros livros na ordem pedida; o excedente (limite + 1) diz se há outra página.
+        TreeMap<Entrada, Livro> primeiros = new TreeMap<>(ordem);
+        for (Livro livro : livros) {
+            if ((categoria != null && !categoria.equals(livro.getCategoria()))
+                    || (autor != null && !autor.equals(livro.getAutor()))
+                    || livro.getPrecoCentavos() < minimo || livro.getPrecoCentavos() > maximo) {
+                continue;
+            }
+            Entrada entrada = new Entrada(livro);
+            if (cursor != null && ordem.compare(entrada, cursor) <= 0) {
+                continue; // Já saiu numa página anterior.
+            }
+            if (primeiros.size() > limite) {
+                if (ordem.compare(entrada, primeiros.lastKey()) > 0) {
+                    continue;
+                }
+                primeiros.pollLastEntry();
+            }
+            primeiros.put(entrada, copiar.apply(livro));
+        }
+        List<Livro> pagina = new ArrayList<>(Math.min(limite, primeiros.size()));
+        Entrada ultima = null;
+        for (Map.Entry<Entrada, Livro> item : primeiros.entrySet()) {
+            if (pagina.size() == limite) {
+                return new PaginaLivros(pagina, codificarCursor(ultima));
+            }
+            pagina.add(item.getValue());
+            ultima = item.getKey();
+        }
+        return new PaginaLivros(pagina, null);
+    }
+
+    // O cursor guarda os campos de ordenação do último livro da página (em Base64, para ir em URLs).
+    private static String codificarCursor(Entrada entrada) {
+        String texto = entrada.precoCentavos + "\n" + entrada.isbn + "\n" + entrada.titulo;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entrada decodificarCursor(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = texto.split("\n", 3);
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return new Entrada(partes[1], partes[2], null, null, Long.parseLong(partes[0]));
+        } catch (IllegalArgumentException e) { // Inclui Base64 e número inválidos.
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+}
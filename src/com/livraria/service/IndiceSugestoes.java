@@ -0,0 +1,558 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice do autocompletar: uma árvore de prefixos compacta (radix trie) dos
+ * títulos e outra dos autores, normalizados como no IndiceTextual ("O
+ * Pequeno Príncipe" vira "o pequeno principe"). Cada nó com muitos termos
+ * abaixo dele guarda os melhores termos da sua subárvore, então as sugestões
+ * de um prefixo saem prontas do nó em que o prefixo termina, sem percorrer os
+ * títulos que começam com ele. Nós com poucos termos não guardam nada e são
+ * percorridos na consulta; assim a memória extra fica limitada a uma pequena
+ * lista nos nós grandes.
+ * <p>
+ * Os termos são ordenados primeiro pelos que têm algum livro em estoque,
+ * depois pelas unidades vendidas e por fim em ordem alfabética. Como vendas e
+ * estoque mudam nas compras (feitas com a trava de leitura do catálogo), o
+ * índice tem trava própria, ao contrário do IndiceTextual.
+ */
+class IndiceSugestoes {
+
+    /** Quantidade máxima de sugestões por consulta (e de termos guardados em cada nó). */
+    static final int MAXIMO_SUGESTOES = 10;
+    // Nós com até esta quantidade de termos abaixo deles não guardam os melhores: são percorridos.
+    private static final int LIMITE_SEM_LISTA = 32;
+
+    // Um título ou autor normalizado, com os totais dos livros que o têm.
+    private static final class Termo {
+        final String chave; // Normalizado; caminho do termo na árvore.
+        final String texto; // Como no cadastro do primeiro livro.
+        final IndiceTextual.Campo campo;
+        int livros;
+        int livrosEmEstoque;
+        long vendas;
+
+        Termo(String chave, String texto, IndiceTextual.Campo campo) {
+            this.chave = chave;
+            this.texto = texto;
+            this.campo = campo;
+        }
+
+        Sugestao paraSugestao() {
+            return new Sugestao(texto, campo, livros, livrosEmEstoque, vendas);
+        }
+    }
+
+    private static final Comparator<Termo> MELHOR_PRIMEIRO = (a, b) -> {
+        int comparacao = Boolean.compare(b.livrosEmEstoque > 0, a.livrosEmEstoque > 0);
+        if (comparacao == 0) {
+            comparacao = Long.compare(b.vendas, a.vendas);
+        }
+        if (comparacao == 0) {
+            comparacao = a.chave.compareTo(b.chave);
+        }
+        return comparacao != 0 ? comparacao : a.campo.compareTo(b.campo);
+    };
+
+    // O que o índice sabe de cada livro, para desfazer a contribuição dele nos termos.
+    private static final class Registro {
+        final Termo titulo;
+        final Termo autor;
+        boolean emEstoque;
+        long vendas;
+
+        Registro(Termo titulo, Termo autor, boolean emEstoque, long vendas) {
+            this.titulo = titulo;
+            this.autor = autor;
+            this.emEstoque = emEstoque;
+            this.vendas = vendas;
+        }
+    }
+
+    private final Arvore titulos = new Arvore(IndiceTextual.Campo.TITULO);
+    private final Arvore autores = new Arvore(IndiceTextual.Campo.AUTOR);
+    private final Map<String, Registro> registros = new HashMap<>(); // ISBN -> registro.
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+    /**
+     * Inclui o título e o autor de um livro, ainda sem vendas.
+     *
+     * @param livro O livro a ser indexado.
+     */
+    void adicionar(Livro livro) {
+        trava.writeLock().lock();
+        try {
+            incluir(livro, 0);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira um livro do índice; títulos e autores sem nenhum outro livro deixam de ser sugeridos.
+     *
+     * @param livro O livro a ser retirado.
+     */
+    void remover(Livro livro) {
+        trava.writeLock().lock();
+        try {
+            excluir(livro.getIsbn());
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Troca um livro cujo título, autor ou categoria mudou, mantendo as vendas dele.
+     *
+     * @param antigo O livro como estava indexado.
+     * @param novo   O livro com os novos dados (mesmo ISBN).
+     */
+    void substituir(Livro antigo, Livro novo) {
+        trava.writeLock().lock();
+        try {
+            Registro registro = excluir(antigo.getIsbn());
+            incluir(novo, registro != null ? registro.vendas : 0);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Informa o estoque atual de um livro. Só muda a ordem das sugestões quando
+     * o livro passa a ter ou deixa de ter estoque.
+     *
+     * @param isbn    O ISBN do livro.
+     * @param estoque O estoque atual.
+     */
+    void atualizarEstoque(String isbn, int estoque) {
+        trava.writeLock().lock();
+        try {
+            Registro registro = registros.get(isbn);
+            if (registro != null && registro.emEstoque != (estoque > 0)) {
+                mudarEstoque(registro, estoque > 0);
+                reclassificar(registro, estoque > 0);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Soma uma venda à popularidade do livro (e ao título e autor dele).
+     *
+     * @param isbn              O ISBN do livro vendido.
+     * @param quantidade        Unidades vendidas.
+     * @param estoqueRestante   O estoque depois da venda.
+     */
+    void registrarVenda(String isbn, int quantidade, int estoqueRestante) {
+        trava.writeLock().lock();
+        try {
+            Registro registro = registros.get(isbn);
+            if (registro == null) {
+                return;
+            }
+            registro.vendas += quantidade;
+            registro.titulo.vendas += quantidade;
+            registro.autor.vendas += quantidade;
+            boolean esgotou = registro.emEstoque && estoqueRestante <= 0;
+            if (esgotou) {
+                mudarEstoque(registro, false);
+            }
+            reclassificar(registro, !esgotou);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca os títulos e autores que começam com o texto digitado, ignorando
+     * maiúsculas, acentos e pontuação. Só o início do título ou do autor é
+     * comparado; palavras em qualquer posição são a busca do IndiceTextual.
+     *
+     * @param prefixo    O texto digitado.
+     * @param quantidade Quantidade de sugestões (no máximo {@link #MAXIMO_SUGESTOES}).
+     * @return As melhores sugestões, da melhor para a pior; vazia se o texto não tiver nenhuma palavra.
+     */
+    List<Sugestao> sugerir(String prefixo, int quantidade) {
+        List<String> palavras = IndiceTextual.tokenizar(prefixo);
+        int limite = Math.min(quantidade, MAXIMO_SUGESTOES);
+        List<Sugestao> sugestoes = new ArrayList<>(Math.max(limite, 0));
+        if (palavras.isEmpty() || limite < 1) {
+            return sugestoes;
+        }
+        String chave = String.join(" ", palavras);
+        trava.readLock().lock();
+        try {
+            List<Termo> melhores = titulos.melhores(chave, limite);
+            melhores.addAll(autores.melhores(chave, limite));
+            melhores.sort(MELHOR_PRIMEIRO);
+            for (int i = 0; i < melhores.size() && i < limite; i++) {
+                sugestoes.add(melhores.get(i).paraSugestao()); // Cópia: os termos mudam depois da trava.
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return sugestoes;
+    }
+
+    /**
+     * Sugere títulos e autores sem o índice, percorrendo os livros (armazenamento
+     * SOB_DEMANDA, em que o índice não é mantido). A ordem é a de
+     * {@link #sugerir(String, int)}, mas sem vendas, que só o índice conta. Em
+     * memória ficam só os títulos e autores que começam com o prefixo.
+     *
+     * @param prefixo    O texto digitado.
+     * @param quantidade Quantidade de sugestões (no máximo MAXIMO_SUGESTOES).
+     * @param livros     Todos os livros do catálogo.
+     * @return As sugestões, da melhor para a pior.
+     */
+    static List<Sugestao> sugerirPercorrendo(String prefixo, int quantidade, Iterable<Livro> livros) {
+        List<String> palavras = IndiceTextual.tokenizar(prefixo);
+        int limite = Math.min(quantidade, MAXIMO_SUGESTOES);
+        List<Sugestao> sugestoes = new ArrayList<>(Math.max(limite, 0));
+        if (palavras.isEmpty() || limite < 1) {
+            return sugestoes;
+        }
+        String chave = String.join(" ", palavras);
+        Map<String, Termo> titulos = new HashMap<>();
+        Map<String, Termo> autores = new HashMap<>();
+        for (Livro livro : livros) {
+            boolean emEstoque = livro.getEstoque() > 0;
+            somarSeComeca(titulos, chave, livro.getTitulo(), IndiceTextual.Campo.TITULO, emEstoque);
+            somarSeComeca(autores, chave, livro.getAutor(), IndiceTextual.Campo.AUTOR, emEstoque);
+        }
+        List<Termo> termos = new ArrayList<>(titulos.values());
+        termos.addAll(autores.values());
+        termos.sort(MELHOR_PRIMEIRO);
+        for (int i = 0; i < termos.size() && i < limite; i++) {
+            sugestoes.add(termos.get(i).paraSugestao());
+        }
+        return sugestoes;
+    }
+
+    // Conta o livro no termo do texto (normalizado como na árvore), se o termo começa com o prefixo.
+    private static void somarSeComeca(Map<String, Termo> termos, String prefixo, String texto,
+            IndiceTextual.Campo campo, boolean emEstoque) {
+        String chave = String.join(" ", IndiceTextual.tokenizar(texto));
+        if (chave.startsWith(prefixo)) {
+            Termo termo = termos.computeIfAbsent(chave, c -> new Termo(c, texto, campo));
+            termo.livros++;
+            termo.livrosEmEstoque += emEstoque ? 1 : 0;
+        }
+    }
+
+    // Corpo de adicionar e substituir (com a trava de escrita).
+    private void incluir(Livro livro, long vendas) {
+        if (registros.containsKey(livro.getIsbn())) {
+            return;
+        }
+        boolean emEstoque = livro.getEstoque() > 0;
+        Termo titulo = titulos.obterOuCriar(livro.getTitulo());
+        Termo autor = autores.obterOuCriar(livro.getAutor());
+        Registro registro = new Registro(titulo, autor, emEstoque, vendas);
+        for (Termo termo : new Termo[] {titulo, autor}) {
+            termo.livros++;
+            termo.livrosEmEstoque += emEstoque ? 1 : 0;
+            termo.vendas += vendas;
+        }
+        registros.put(livro.getIsbn(), registro);
+        reclassificar(registro, true); // Mais um livro: o termo só pode subir.
+    }
+
+    // Corpo de remover e substituir (com a trava de escrita).
+    private Registro excluir(String isbn) {
+        Registro registro = registros.remove(isbn);
+        if (registro == null) {
+            return null;
+        }
+        for (Termo termo : new Termo[] {registro.titulo, registro.autor}) {
+            termo.livros--;
+            termo.livrosEmEstoque -= registro.emEstoque ? 1 : 0;
+            termo.vendas -= registro.vendas;
+        }
+        reclassificar(registro, false);
+        return registro;
+    }
+
+    private static void mudarEstoque(Registro registro, boolean emEstoque) {
+        int diferenca = emEstoque ? 1 : -1;
+        registro.emEstoque = emEstoque;
+        registro.titulo.livrosEmEstoque += diferenca;
+        registro.autor.livrosEmEstoque += diferenca;
+    }
+
+    private void reclassificar(Registro registro, boolean subiu) {
+        titulos.atualizar(registro.titulo, subiu);
+        autores.atualizar(registro.autor, subiu);
+    }
+
+    // Um nó da árvore. O rótulo é o trecho da chave entre o nó pai e este nó
+    // (vários caracteres, quando não há ramificação no caminho).
+    private static final class No {
+        private static final char[] SEM_INICIAIS = new char[0];
+        private static final No[] SEM_FILHOS = new No[0];
+
+        String rotulo;
+        char[] iniciais = SEM_INICIAIS; // Primeiro caractere do rótulo de cada filho, em ordem.
+        No[] filhos = SEM_FILHOS;
+        int quantidadeFilhos;
+        Termo termo; // O termo cuja chave termina neste nó, se houver.
+        int termos; // Termos nesta subárvore, incluindo o deste nó.
+        Termo[] melhores; // Os melhores termos da subárvore; null se ela tiver poucos termos.
+
+        No(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        // Posição do filho com a inicial, ou (-(posição de inserção) - 1), como em Arrays.binarySearch.
+        int posicao(char inicial) {
+            return Arrays.binarySearch(iniciais, 0, quantidadeFilhos, inicial);
+        }
+
+        void inserirFilho(int posicao, No filho) {
+            if (quantidadeFilhos == filhos.length) {
+                int capacidade = Math.max(2, quantidadeFilhos * 2);
+                iniciais = Arrays.copyOf(iniciais, capacidade);
+                filhos = Arrays.copyOf(filhos, capacidade);
+            }
+            System.arraycopy(iniciais, posicao, iniciais, posicao + 1, quantidadeFilhos - posicao);
+            System.arraycopy(filhos, posicao, filhos, posicao + 1, quantidadeFilhos - posicao);
+            iniciais[posicao] = filho.rotulo.charAt(0);
+            filhos[posicao] = filho;
+            quantidadeFilhos++;
+        }
+
+        void removerFilho(int posicao) {
+            quantidadeFilhos--;
+            System.arraycopy(iniciais, posicao + 1, iniciais, posicao, quantidadeFilhos - posicao);
+            System.arraycopy(filhos, posicao + 1, filhos, posicao, quantidadeFilhos - posicao);
+            filhos[quantidadeFilhos] = null;
+        }
+
+        // Absorve o único filho (o nó não tem termo próprio), mantendo a árvore compacta.
+        void absorverFilho() {
+            No filho = filhos[0];
+            rotulo = rotulo + filho.rotulo;
+            iniciais = filho.iniciais;
+            filhos = filho.filhos;
+            quantidadeFilhos = filho.quantidadeFilhos;
+            termo = filho.termo;
+            termos = filho.termos;
+            melhores = filho.melhores;
+        }
+    }
+
+    // Uma árvore de prefixos (títulos ou autores).
+    private static final class Arvore {
+        final IndiceTextual.Campo campo;
+        final No raiz = new No("");
+
+        Arvore(IndiceTextual.Campo campo) {
+            this.campo = campo;
+        }
+
+        // O termo do texto, criado (e incluído na árvore) se ainda não existir.
+        Termo obterOuCriar(String texto) {
+            String chave = String.join(" ", IndiceTextual.tokenizar(texto));
+            List<No> caminho = new ArrayList<>();
+            No no = raiz;
+            caminho.add(no);
+            int i = 0;
+            while (i < chave.length()) {
+                int posicao = no.posicao(chave.charAt(i));
+                if (posicao < 0) {
+                    No folha = new No(chave.substring(i));
+                    no.inserirFilho(-posicao - 1, folha);
+                    no = folha;
+                    caminho.add(no);
+                    break;
+                }
+                No filho = no.filhos[posicao];
+                int comum = prefixoComum(filho.rotulo, chave, i);
+                if (comum < filho.rotulo.length()) {
+                    // A chave termina ou se ramifica no meio do rótulo: divide o rótulo em dois nós.
+                    No meio = new No(filho.rotulo.substring(0, comum));
+                    filho.rotulo = filho.rotulo.substring(comum);
+                    meio.inserirFilho(0, filho);
+                    meio.termos = filho.termos;
+                    meio.melhores = filho.melhores != null ? filho.melhores.clone() : null;
+                    no.filhos[posicao] = meio;
+                    filho = meio;
+                }
+                no = filho;
+                caminho.add(no);
+                i += comum;
+            }
+            if (no.termo == null) {
+                no.termo = new Termo(chave, texto, campo);
+                for (No noDoCaminho : caminho) {
+                    noDoCaminho.termos++;
+                }
+            }
+            return no.termo;
+        }
+
+        // Acerta as listas dos nós do caminho do termo, depois de uma mudança nos totais
+        // dele; um termo sem nenhum livro sai da árvore. Se o termo só subiu na ordem, basta
+        // promovê-lo em cada lista; se desceu, as listas do caminho são refeitas.
+        void atualizar(Termo termo, boolean subiu) {
+            List<No> caminho = caminho(termo.chave);
+            if (caminho == null) {
+                return;
+            }
+            if (termo.livros == 0) {
+                retirar(caminho);
+            }
+            for (int i = caminho.size() - 1; i >= 0; i--) {
+                No no = caminho.get(i);
+                if (subiu && no.melhores != null && no.termos > LIMITE_SEM_LISTA) {
+                    promover(no, termo);
+                } else {
+                    refazerMelhores(no);
+                }
+            }
+        }
+
+        // Põe o termo na posição certa da lista do nó, entrando nela se passou o último.
+        private static void promover(No no, Termo termo) {
+            Termo[] melhores = no.melhores;
+            int posicao = melhores.length - 1;
+            while (posicao >= 0 && melhores[posicao] != termo) {
+                posicao--;
+            }
+            if (posicao < 0) {
+                if (melhores.length < MAXIMO_SUGESTOES) {
+                    melhores = Arrays.copyOf(melhores, melhores.length + 1);
+                    no.melhores = melhores;
+                } else if (MELHOR_PRIMEIRO.compare(termo, melhores[melhores.length - 1]) >= 0) {
+                    return; // Continua fora da lista.
+                }
+                posicao = melhores.length - 1;
+                melhores[posicao] = termo;
+            }
+            while (posicao > 0 && MELHOR_PRIMEIRO.compare(termo, melhores[posicao - 1]) < 0) {
+                melhores[posicao] = melhores[posicao - 1];
+                melhores[--posicao] = termo;
+            }
+        }
+
+        private void retirar(List<No> caminho) {
+            No no = caminho.get(caminho.size() - 1);
+            no.termo = null;
+            for (No noDoCaminho : caminho) {
+                noDoCaminho.termos--;
+            }
+            for (int i = caminho.size() - 1; i > 0; i--) {
+                No atual = caminho.get(i);
+                No pai = caminho.get(i - 1);
+                if (atual.termo == null && atual.quantidadeFilhos == 0) {
+                    pai.removerFilho(pai.posicao(atual.rotulo.charAt(0)));
+                } else if (atual.termo == null && atual.quantidadeFilhos == 1) {
+                    atual.absorverFilho();
+                    break;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        // Os nós da raiz até o nó em que a chave termina, ou null se ela não está na árvore.
+        private List<No> caminho(String chave) {
+            List<No> caminho = new ArrayList<>();
+            No no = raiz;
+            caminho.add(no);
+            int i = 0;
+            while (i < chave.length()) {
+                int posicao = no.posicao(chave.charAt(i));
+                if (posicao < 0) {
+                    return null;
+                }
+                no = no.filhos[posicao];
+                if (!chave.startsWith(no.rotulo, i)) {
+                    return null;
+                }
+                caminho.add(no);
+                i += no.rotulo.length();
+            }
+            return caminho;
+        }
+
+        // Os melhores termos que começam com o prefixo (já normalizado).
+        List<Termo> melhores(String prefixo, int quantidade) {
+            No no = raiz;
+            int i = 0;
+            while (i < prefixo.length()) {
+                int posicao = no.posicao(prefixo.charAt(i));
+                if (posicao < 0) {
+                    return new ArrayList<>();
+                }
+                no = no.filhos[posicao];
+                int comparar = Math.min(no.rotulo.length(), prefixo.length() - i);
+                if (!no.rotulo.regionMatches(0, prefixo, i, comparar)) {
+                    return new ArrayList<>();
+                }
+                i += comparar; // O prefixo pode terminar no meio do rótulo: a subárvore é a mesma.
+            }
+            List<Termo> termos = new ArrayList<>();
+            if (no.melhores != null) {
+                termos.addAll(Arrays.asList(no.melhores));
+            } else {
+                coletar(no, termos);
+                termos.sort(MELHOR_PRIMEIRO);
+            }
+            return termos.size() > quantidade ? new ArrayList<>(termos.subList(0, quantidade)) : termos;
+        }
+
+        // Nós grandes guardam os melhores da subárvore, calculados a partir das listas dos
+        // filhos grandes e de todos os termos dos filhos pequenos.
+        private static void refazerMelhores(No no) {
+            if (no.termos <= LIMITE_SEM_LISTA) {
+                no.melhores = null;
+                return;
+            }
+            List<Termo> candidatos = new ArrayList<>();
+            if (no.termo != null) {
+                candidatos.add(no.termo);
+            }
+            for (int i = 0; i < no.quantidadeFilhos; i++) {
+                No filho = no.filhos[i];
+                if (filho.melhores != null) {
+                    candidatos.addAll(Arrays.asList(filho.melhores));
+                } else {
+                    coletar(filho, candidatos);
+                }
+            }
+            candidatos.sort(MELHOR_PRIMEIRO);
+            no.melhores = candidatos.subList(0, Math.min(MAXIMO_SUGESTOES, candidatos.size())).toArray(new Termo[0]);
+        }
+
+        private static void coletar(No no, List<Termo> destino) {
+            if (no.termo != null) {
+                destino.add(no.termo);
+            }
+            for (int i = 0; i < no.quantidadeFilhos; i++) {
+                coletar(no.filhos[i], destino);
+            }
+        }
+
+        private static int prefixoComum(String rotulo, String chave, int inicio) {
+            int limite = Math.min(rotulo.length(), chave.length() - inicio);
+            int i = 0;
+            while (i < limite && rotulo.charAt(i) == chave.charAt(inicio + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
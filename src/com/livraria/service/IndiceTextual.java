@@ -0,0 +1,233 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.text.Normalizer; // Usado para decompor caracteres acentuados (ex: "í" -> "i" + acento).
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap; // Mapa ordenado: permite buscar todas as chaves que começam com um prefixo.
+
+/**
+ * Índice invertido de palavras (tokens) para busca por título e autor.
+ * Cada palavra normalizada (minúscula e sem acentos) aponta para o conjunto de
+ * ISBNs dos livros em que aparece. Assim a busca não precisa percorrer o
+ * catálogo: o custo depende apenas da quantidade de livros encontrados.
+ */
+public class IndiceTextual {
+
+    /**
+     * Campos do livro que podem ser consultados no índice.
+     */
+    public enum Campo {
+        TITULO, AUTOR
+    }
+
+    // Um índice por campo: palavra normalizada -> ISBNs dos livros que a contêm.
+    // O TreeMap mantém as palavras ordenadas, o que permite a busca por prefixo.
+    // O valor é o próprio ISBN (String) quando a palavra aparece em um só livro, o
+    // caso mais comum em catálogos grandes, ou um Set<String> quando aparece em
+    // vários; assim palavras raras não custam um conjunto inteiro cada uma.
+    private final TreeMap<String, Object> indiceTitulo = new TreeMap<>();
+    private final TreeMap<String, Object> indiceAutor = new TreeMap<>();
+
+    /**
+     * Indexa as palavras do título e do autor de um livro.
+     *
+     * @param livro O livro a ser indexado.
+     */
+    public void adicionar(Livro livro) {
+        String isbn = livro.getIsbn(); // Uma única instância compartilhada pelos dois índices.
+        indexar(indiceTitulo, livro.getTitulo(), isbn);
+        indexar(indiceAutor, livro.getAutor(), isbn);
+    }
+
+    /**
+     * Remove do índice todas as palavras associadas a um livro.
+     *
+     * @param livro O livro a ser removido do índice.
+     */
+    public void remover(Livro livro) {
+        desindexar(indiceTitulo, livro.getTitulo(), livro.getIsbn());
+        desindexar(indiceAutor, livro.getAutor(), livro.getIsbn());
+    }
+
+    /**
+     * Busca os ISBNs dos livros que contêm todos os termos da consulta (E lógico).
+     * Cada termo é tratado como prefixo: "princ" encontra "Príncipe". Um termo é
+     * satisfeito se aparecer em qualquer um dos campos informados.
+     *
+     * @param consulta O texto digitado pelo usuário.
+     * @param campos   Os campos em que os termos devem ser procurados.
+     * @return Os ISBNs encontrados, ou null se a consulta não tiver nenhum termo.
+     */
+    public Set<String> buscar(String consulta, Campo... campos) {
+        List<String> termos = tokenizar(consulta);
+        if (termos.isEmpty()) {
+            return null; // Sem termos, quem chama decide o que fazer (ex: listar tudo).
+        }
+
+        // Resolve cada termo no conjunto de ISBNs que o satisfazem.
+        List<Set<String>> conjuntos = new ArrayList<>();
+        for (String termo : new LinkedHashSet<>(termos)) {
+            Set<String> encontrados = buscarPrefixo(termo, campos);
+            if (encontrados.isEmpty()) {
+                return Collections.emptySet(); // Um termo sem resultado zera a interseção.
+            }
+            conjuntos.add(encontrados);
+        }
+
+        // Interseção começando pelo menor conjunto, para minimizar as verificações.
+        conjuntos.sort(Comparator.comparingInt(Set::size));
+        Set<String> resultado = new LinkedHashSet<>(conjuntos.get(0));
+        for (int i = 1; i < conjuntos.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(conjuntos.get(i));
+        }
+        return resultado;
+    }
+
+    /**
+     * Confere um livro sem o índice, com as mesmas regras de
+     * {@link #buscar(String, Campo...)}: cada termo precisa ser o começo de
+     * alguma palavra de algum dos textos. Usado quando o índice não é mantido
+     * (armazenamento SOB_DEMANDA), percorrendo o catálogo.
+     *
+     * @param termos Os termos da consulta, já tokenizados (veja {@link #tokenizar(String)}).
+     * @param textos Os campos do livro a conferir (por exemplo, título e autor).
+     * @return true se todos os termos aparecem.
+     */
+    static boolean contemTodos(List<String> termos, String... textos) {
+        List<String> palavras = new ArrayList<>();
+        for (String texto : textos) {
+            palavras.addAll(tokenizar(texto));
+        }
+        for (String termo : termos) {
+            boolean encontrado = false;
+            for (int i = 0; i < palavras.size() && !encontrado; i++) {
+                encontrado = palavras.get(i).startsWith(termo);
+            }
+            if (!encontrado) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Normaliza um texto para comparação: remove acentos e converte para
+     * minúsculas.
+     *
+     * @param texto O texto original.
+     * @return O texto normalizado.
+     */
+    public static String normalizar(String texto) {
+        // NFD separa a letra do acento; em seguida os acentos (marcas) são removidos.
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposto.length());
+        for (int i = 0; i < decomposto.length(); i++) {
+            char c = decomposto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Quebra um texto em palavras normalizadas, usando como separador qualquer
+     * caractere que não seja letra ou dígito.
+     *
+     * @param texto O texto original.
+     * @return A lista de palavras normalizadas, na ordem em que aparecem.
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        if (texto == null) {
+            return tokens;
+        }
+        String normalizado = normalizar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i; // Início de uma nova palavra.
+            } else if (!letra && inicio >= 0) {
+                tokens.add(normalizado.substring(inicio, i)); // Fim da palavra atual.
+                inicio = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Reúne os ISBNs de todas as palavras que começam com o prefixo, nos campos pedidos.
+    private Set<String> buscarPrefixo(String prefixo, Campo... campos) {
+        Set<String> encontrados = new HashSet<>();
+        for (Campo campo : campos) {
+            // subMap devolve apenas as palavras no intervalo [prefixo, prefixo + maior caractere).
+            NavigableMap<String, Object> faixa = indiceDo(campo)
+                    .subMap(prefixo, true, prefixo + Character.MAX_VALUE, false);
+            for (Object isbns : faixa.values()) {
+                adicionarIsbns(encontrados, isbns);
+            }
+        }
+        return encontrados;
+    }
+
+    private TreeMap<String, Object> indiceDo(Campo campo) {
+        return campo == Campo.TITULO ? indiceTitulo : indiceAutor;
+    }
+
+    // Acrescenta ao resultado os ISBNs de uma entrada do índice (um ISBN ou um conjunto).
+    @SuppressWarnings("unchecked")
+    private static void adicionarIsbns(Set<String> destino, Object isbns) {
+        if (isbns instanceof String) {
+            destino.add((String) isbns);
+        } else {
+            destino.addAll((Set<String>) isbns);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void indexar(Map<String, Object> indice, String texto, String isbn) {
+        for (String token : tokenizar(texto)) {
+            Object atual = indice.get(token);
+            if (atual == null) {
+                indice.put(token, isbn); // Primeiro livro com esta palavra: guarda só o ISBN.
+            } else if (atual instanceof String) {
+                if (!atual.equals(isbn)) {
+                    Set<String> isbns = new LinkedHashSet<>();
+                    isbns.add((String) atual);
+                    isbns.add(isbn);
+                    indice.put(token, isbns);
+                }
+            } else {
+                ((Set<String>) atual).add(isbn);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void desindexar(Map<String, Object> indice, String texto, String isbn) {
+        for (String token : tokenizar(texto)) {
+            Object atual = indice.get(token);
+            if (atual instanceof String) {
+                if (atual.equals(isbn)) {
+                    indice.remove(token); // Não mantém palavras sem nenhum livro.
+                }
+            } else if (atual != null) {
+                Set<String> isbns = (Set<String>) atual;
+                isbns.remove(isbn);
+                if (isbns.size() == 1) {
+                    indice.put(token, isbns.iterator().next()); // Volta à forma compacta.
+                }
+            }
+        }
+    }
+}
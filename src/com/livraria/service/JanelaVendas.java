@@ -0,0 +1,54 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Dinheiro;
+
+/**
+ * Vendas de um intervalo de tempo, devolvidas pelas consultas por período da
+ * {@link AnaliseVendas}.
+ */
+public class JanelaVendas {
+    private final long inicioMillis;
+    private final long fimMillis;
+    private final long unidades;
+    private final long receitaCentavos;
+
+    JanelaVendas(long inicioMillis, long fimMillis, long unidades, long receitaCentavos) {
+        this.inicioMillis = inicioMillis;
+        this.fimMillis = fimMillis;
+        this.unidades = unidades;
+        this.receitaCentavos = receitaCentavos;
+    }
+
+    /**
+     * @return Início do intervalo (inclusive), em milissegundos desde 1970.
+     */
+    public long getInicioMillis() {
+        return inicioMillis;
+    }
+
+    /**
+     * @return Fim do intervalo (exclusive), em milissegundos desde 1970.
+     */
+    public long getFimMillis() {
+        return fimMillis;
+    }
+
+    /**
+     * @return Unidades vendidas no intervalo.
+     */
+    public long getUnidades() {
+        return unidades;
+    }
+
+    /**
+     * @return Receita das vendas do intervalo, em centavos.
+     */
+    public long getReceitaCentavos() {
+        return receitaCentavos;
+    }
+
+    @Override
+    public String toString() {
+        return inicioMillis + "-" + fimMillis + ": " + unidades + " unidade(s), R$" + Dinheiro.formatar(receitaCentavos);
+    }
+}
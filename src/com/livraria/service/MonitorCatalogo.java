@@ -0,0 +1,139 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.DadosLivraria;
+import com.livraria.data.RepositorioTexto;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recarga automática do catálogo: observa o arquivo de livros (livros.txt) e,
+ * quando ele é alterado fora do programa (por exemplo, pela rotina noturna de
+ * preços), aplica as diferenças ao catálogo em memória com
+ * {@link GerenciadorLivros#recarregarLivros()}, sem reiniciar a aplicação.
+ * <p>
+ * A observação é feita com o WatchService do NIO, em uma thread própria. Como
+ * um arquivo costuma ser gravado em várias etapas, a recarga só começa depois
+ * que ele fica um intervalo sem mudar. As gravações feitas pelo próprio
+ * programa são reconhecidas pela assinatura do arquivo (tamanho, data e
+ * identificação) e não geram recarga.
+ */
+public class MonitorCatalogo implements AutoCloseable {
+    private final GerenciadorLivros gerenciadorLivros;
+    private final Path arquivo;
+    private final long esperaMillis; // Tempo sem novas alterações antes de recarregar.
+    private final WatchService observador;
+    private final Thread thread;
+    // Assinatura do arquivo na última carga ou recarga (só usada pela thread do monitor).
+    private String assinaturaCarregada;
+
+    /**
+     * Construtor do MonitorCatalogo. A observação começa em seguida.
+     *
+     * @param gerenciadorLivros O catálogo a ser mantido igual ao arquivo.
+     * @param esperaMillis      Tempo que o arquivo deve ficar sem mudar antes da recarga.
+     * @throws IOException Se a pasta de dados não puder ser observada.
+     * @throws IllegalArgumentException Se o catálogo não é guardado no livros.txt
+     *         (veja {@link GerenciadorLivros#recarregarLivros()}).
+     */
+    public MonitorCatalogo(GerenciadorLivros gerenciadorLivros, long esperaMillis) throws IOException {
+        if (!(gerenciadorLivros.getRepositorio() instanceof RepositorioTexto)) {
+            throw new IllegalArgumentException("A recarga automática exige o repositório TEXTO.");
+        }
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.arquivo = DadosLivraria.getArquivoLivros().toAbsolutePath();
+        this.esperaMillis = Math.max(1, esperaMillis);
+        this.assinaturaCarregada = DadosLivraria.assinaturaArquivoLivros();
+        this.observador = arquivo.getFileSystem().newWatchService();
+        // A pasta é observada, e não o arquivo: ele costuma ser substituído (gravado em outro e renomeado).
+        arquivo.getParent().register(observador, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        // Thread 'daemon': não impede o programa de terminar.
+        this.thread = new Thread(this::observar, "monitor-catalogo");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Encerra a observação (uma recarga em andamento termina antes).
+     */
+    @Override
+    public void close() {
+        try {
+            observador.close(); // Acorda a thread, que está esperando um evento.
+            thread.join();
+        } catch (IOException e) {
+            System.err.println("Erro ao encerrar o monitor do catálogo: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Laço da thread do monitor: espera eventos do arquivo de livros e recarrega quando ele se acalma.
+    private void observar() {
+        try {
+            long ultimaAlteracao = -1; // -1: nenhuma alteração esperando recarga.
+            while (true) {
+                WatchKey chave;
+                if (ultimaAlteracao < 0) {
+                    chave = observador.take();
+                } else {
+                    // Eventos de outros arquivos (o log, os carrinhos) não adiam a recarga.
+                    long restante = ultimaAlteracao + esperaMillis - System.currentTimeMillis();
+                    chave = restante > 0 ? observador.poll(restante, TimeUnit.MILLISECONDS) : null;
+                }
+                if (chave == null) {
+                    ultimaAlteracao = -1;
+                    recarregarSeAlterado();
+                    continue;
+                }
+                if (alterouArquivo(chave)) {
+                    ultimaAlteracao = System.currentTimeMillis();
+                }
+                if (!chave.reset()) {
+                    System.err.println("Monitor do catálogo encerrado: a pasta " + arquivo.getParent()
+                            + " não pode mais ser observada.");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Encerrado pelo close().
+        }
+    }
+
+    // true se algum evento da chave é do arquivo de livros (ou se eventos foram perdidos).
+    private boolean alterouArquivo(WatchKey chave) {
+        boolean alterou = false;
+        for (WatchEvent<?> evento : chave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW
+                    || arquivo.getFileName().equals(evento.context())) {
+                alterou = true;
+            }
+        }
+        return alterou;
+    }
+
+    private void recarregarSeAlterado() {
+        String assinatura = DadosLivraria.assinaturaArquivoLivros();
+        if (assinatura == null || assinatura.equals(assinaturaCarregada)) {
+            return; // Ainda sendo substituído (virá outro evento) ou sem mudança real.
+        }
+        assinaturaCarregada = assinatura;
+        if (DadosLivraria.isGravacaoPropria(assinatura)) {
+            return; // O catálogo em memória já é o que foi gravado.
+        }
+        gerenciadorLivros.avisar("Arquivo " + arquivo + " alterado: recarregando o catálogo.");
+        try {
+            gerenciadorLivros.recarregarLivros();
+        } catch (RuntimeException e) {
+            // Um erro em uma recarga não encerra o monitor: a próxima alteração tenta de novo.
+            System.err.println("Erro ao recarregar o catálogo: " + e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue; // Fila circular de tamanho fixo.
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Motor de compras com um único escritor de estoque, para títulos muito
+ * disputados (por exemplo, numa promoção relâmpago). Em vez de cada compra
+ * retirar o estoque na própria thread, disputando o mesmo livro com todas as
+ * outras, os pedidos entram numa fila de tamanho fixo e uma única thread os
+ * aplica em lotes: cada lote adquire a trava do catálogo, publica a fotografia
+ * e grava as baixas uma única vez (veja GerenciadorLivros#aplicarPedidos).
+ * <p>
+ * Quem envia um pedido recebe um CompletableFuture com o resultado, completado
+ * depois que a baixa foi gravada (com a mesma garantia do caminho direto).
+ * Quando a fila está cheia, {@link #submeter(Map)} espera até haver espaço
+ * (contenção de carga): os pedidos nunca são descartados, mas quem compra passa
+ * a esperar em vez de aumentar a fila. Para que as compras dos carrinhos usem o
+ * motor, passe-o a {@link GerenciadorLivros#usarMotorCompras(MotorCompras)}.
+ */
+public class MotorCompras implements AutoCloseable {
+    private static final int LOTE_MAXIMO = 512; // Pedidos aplicados por vez.
+
+    // Um pedido na fila e o seu resultado.
+    private static final class Pedido {
+        final Map<String, Integer> quantidades;
+        final CompletableFuture<ResultadoPedido> resultado = new CompletableFuture<>();
+
+        Pedido(Map<String, Integer> quantidades) {
+            this.quantidades = quantidades;
+        }
+    }
+
+    // Colocado na fila pelo close(): os pedidos anteriores a ele são aplicados e a thread termina.
+    private static final Pedido PARAR = new Pedido(Map.of());
+
+    private final GerenciadorLivros gerenciadorLivros;
+    private final BlockingQueue<Pedido> fila;
+    private final Thread escritor;
+    // Leitura para enviar pedidos, escrita para fechar: nenhum pedido entra na fila depois do PARAR.
+    private final ReadWriteLock travaFechamento = new ReentrantReadWriteLock();
+    private boolean fechado;
+
+    // Tempo de cada lote, pedidos aplicados e envios que esperaram por espaço na fila.
+    private static final Operacao LOTE = Metricas.operacao("compras.lote");
+    private static final Contador PEDIDOS = Metricas.contador("compras.pedidos");
+    private static final Contador FILA_CHEIA = Metricas.contador("compras.filaCheia");
+
+    /**
+     * Construtor do MotorCompras. A thread do escritor começa em seguida.
+     *
+     * @param gerenciadorLivros O catálogo cujo estoque o motor altera.
+     * @param capacidade        Quantidade máxima de pedidos aguardando na fila.
+     */
+    public MotorCompras(GerenciadorLivros gerenciadorLivros, int capacidade) {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.escritor = new Thread(this::executar, "motor-compras");
+        escritor.setDaemon(true); // Não impede o programa de terminar (o close() aplica o que faltar).
+        escritor.start();
+    }
+
+    /**
+     * Envia um pedido para a fila, esperando se ela estiver cheia.
+     *
+     * @param quantidadesPorIsbn Quantidade a ser retirada do estoque, por ISBN (tudo ou nada).
+     * @return O resultado do pedido, completado depois que a baixa foi aplicada e gravada.
+     *         Se a thread for interrompida enquanto espera espaço, o resultado é completado
+     *         com a InterruptedException.
+     * @throws IllegalStateException Se o motor já foi fechado.
+     * @throws IllegalArgumentException Se alguma quantidade não for maior que zero.
+     */
+    public CompletableFuture<ResultadoPedido> submeter(Map<String, Integer> quantidadesPorIsbn) {
+        GerenciadorLivros.validarQuantidades(quantidadesPorIsbn);
+        Pedido pedido = new Pedido(quantidadesPorIsbn);
+        travaFechamento.readLock().lock();
+        try {
+            if (fechado) {
+                throw new IllegalStateException("O motor de compras já foi fechado.");
+            }
+            if (!fila.offer(pedido)) {
+                FILA_CHEIA.adicionar(1);
+                fila.put(pedido);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pedido.resultado.completeExceptionally(e);
+        } finally {
+            travaFechamento.readLock().unlock();
+        }
+        return pedido.resultado;
+    }
+
+    /**
+     * @return Quantidade de pedidos aguardando na fila.
+     */
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    /**
+     * @return true se a thread atual é a do escritor (que não pode esperar por si mesma).
+     */
+    boolean isEscritor() {
+        return Thread.currentThread() == escritor;
+    }
+
+    /**
+     * Para de aceitar pedidos, aplica os que já estão na fila e encerra a thread do escritor.
+     */
+    @Override
+    public void close() {
+        travaFechamento.writeLock().lock();
+        try {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+        } finally {
+            travaFechamento.writeLock().unlock();
+        }
+        boolean interrompida = false;
+        while (true) {
+            try {
+                fila.put(PARAR);
+                escritor.join();
+                break;
+            } catch (InterruptedException e) {
+                interrompida = true; // Termina de fechar mesmo assim, para não perder pedidos.
+            }
+        }
+        if (interrompida) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Laço do escritor: espera o primeiro pedido e leva junto todos os que já estiverem na fila.
+    private void executar() {
+        List<Pedido> lote = new ArrayList<>(LOTE_MAXIMO);
+        List<Map<String, Integer>> quantidades = new ArrayList<>(LOTE_MAXIMO);
+        boolean parar = false;
+        while (!parar) {
+            try {
+                lote.add(fila.take());
+            } catch (InterruptedException e) {
+                continue; // Só o close() encerra o escritor.
+            }
+            fila.drainTo(lote, LOTE_MAXIMO - 1);
+            if (lote.get(lote.size() - 1) == PARAR) { // Nada entra na fila depois do PARAR.
+                lote.remove(lote.size() - 1);
+                parar = true;
+            }
+            if (!lote.isEmpty()) {
+                aplicar(lote, quantidades);
+            }
+            lote.clear();
+            quantidades.clear();
+        }
+    }
+
+    private void aplicar(List<Pedido> lote, List<Map<String, Integer>> quantidades) {
+        long inicio = System.nanoTime();
+        for (Pedido pedido : lote) {
+            quantidades.add(pedido.quantidades);
+        }
+        try {
+            List<ResultadoPedido> resultados = gerenciadorLivros.aplicarPedidos(quantidades);
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).resultado.complete(resultados.get(i));
+            }
+        } catch (RuntimeException e) {
+            // Um erro inesperado falha o lote, mas o escritor continua atendendo os próximos.
+            System.err.println("Erro no motor de compras: " + e);
+            LOTE.contarFalha();
+            for (Pedido pedido : lote) {
+                pedido.resultado.completeExceptionally(e);
+            }
+        } finally {
+            PEDIDOS.adicionar(lote.size());
+            LOTE.registrar(inicio);
+        }
+    }
+}
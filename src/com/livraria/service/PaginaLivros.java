@@ -0,0 +1,38 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Uma página da navegação do catálogo, devolvida por
+ * {@link GerenciadorLivros#navegar(ConsultaCatalogo)}.
+ */
+public class PaginaLivros {
+    private final List<Livro> livros;
+    private final String proximoCursor;
+
+    PaginaLivros(List<Livro> livros, String proximoCursor) {
+        this.livros = Collections.unmodifiableList(livros);
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * @return Os livros da página (cópias imutáveis), na ordem pedida.
+     */
+    public List<Livro> getLivros() {
+        return livros;
+    }
+
+    /**
+     * O cursor identifica o último livro da página, e não uma posição: livros
+     * incluídos ou removidos enquanto o usuário navega não fazem a página
+     * seguinte repetir nem pular livros.
+     *
+     * @return O cursor para {@link ConsultaCatalogo#aPartirDe(String)}, ou null se esta é a última página.
+     */
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+}
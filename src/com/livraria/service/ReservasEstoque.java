@@ -0,0 +1,359 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.DadosLivraria;
+import com.livraria.data.Durabilidade;
+import com.livraria.data.GravadorAssincrono;
+import com.livraria.metricas.Contador;
+import com.livraria.metricas.Metricas;
+import com.livraria.metricas.Operacao;
+import com.livraria.model.Reserva;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservas de estoque dos carrinhos. Enquanto um livro está num carrinho, as
+ * unidades ficam fora do estoque disponível, para que o cliente não descubra
+ * só na hora de pagar que outra pessoa levou o último exemplar. Cada reserva
+ * tem validade: se o carrinho for abandonado, ela vence e as unidades voltam
+ * ao estoque. Qualquer alteração no item renova a validade.
+ * <p>
+ * Os prazos ficam numa {@link RodaTemporizacao} (custo O(1) por reserva, mesmo
+ * com milhões delas), que uma thread anda a cada tique. As reservas são
+ * gravadas em data/reservas.log e recarregadas na inicialização: as que
+ * venceram com o programa parado são devolvidas ao estoque nesse momento.
+ * Para que os carrinhos reservem estoque, passe as reservas a
+ * {@link GerenciadorLivros#usarReservas(ReservasEstoque)}.
+ */
+public class ReservasEstoque implements AutoCloseable {
+    private static final long TIQUE_MILLIS = 100; // Precisão dos prazos.
+    // Registros acrescentados ao log antes de ele ser reescrito só com as reservas em aberto.
+    private static final int LIMITE_REGISTROS_LOG = 10_000;
+
+    // Uma reserva em aberto; é o próprio nó da roda de temporização.
+    private static final class Pendente extends RodaTemporizacao.Temporizador {
+        final String sessao;
+        final String isbn;
+        int quantidade;
+        long expiraEmMillis;
+
+        Pendente(String sessao, String isbn) {
+            this.sessao = sessao;
+            this.isbn = isbn;
+        }
+    }
+
+    private final GerenciadorLivros gerenciadorLivros;
+    private final long validadeMillis;
+    // Protege as reservas, a roda e as alterações ainda não gravadas.
+    private final Object trava = new Object();
+    private final Map<String, Map<String, Pendente>> porSessao = new HashMap<>();
+    private final RodaTemporizacao roda;
+    // Último estado de cada reserva alterada desde a última gravação ("sessão;ISBN" -> reserva).
+    private final Map<String, Reserva> alteradas = new LinkedHashMap<>();
+    // Uma gravação por vez, para que o log receba os estados na ordem em que aconteceram.
+    private final Object travaGravacao = new Object();
+    private final Object chaveGravacao = new Object();
+    private int registrosNoLog;
+    private final ScheduledExecutorService relogio;
+
+    // Tempo das alterações de reserva e quantidade de reservas vencidas.
+    private static final Operacao AJUSTE = Metricas.operacao("reservas.ajustar");
+    private static final Contador VENCIDAS = Metricas.contador("reservas.vencidas");
+
+    /**
+     * Construtor das ReservasEstoque. Carrega as reservas gravadas, devolve ao
+     * estoque as que já venceram e começa a thread que vence as próximas. As
+     * unidades reservadas são contadas no catálogo (para que uma importação não
+     * as conte duas vezes), então crie uma única ReservasEstoque por catálogo.
+     *
+     * @param gerenciadorLivros O catálogo cujo estoque é reservado.
+     * @param validadeMillis    Quanto tempo uma reserva dura sem ser renovada.
+     */
+    public ReservasEstoque(GerenciadorLivros gerenciadorLivros, long validadeMillis) {
+        this.gerenciadorLivros = gerenciadorLivros;
+        this.validadeMillis = validadeMillis;
+        long agora = System.currentTimeMillis();
+        this.roda = new RodaTemporizacao(TIQUE_MILLIS, agora);
+        Map<String, Integer> carregadas = new HashMap<>();
+        Map<String, Integer> vencidas = new HashMap<>();
+        List<Reserva> gravadas = DadosLivraria.carregarReservas();
+        for (Reserva reserva : gravadas) {
+            carregadas.merge(reserva.getIsbn(), reserva.getQuantidade(), Integer::sum);
+        }
+        // As unidades das reservas gravadas já estão fora do estoque gravado.
+        gerenciadorLivros.contarReservas(carregadas);
+        for (Reserva reserva : gravadas) {
+            if (reserva.getExpiraEmMillis() <= agora) {
+                vencidas.merge(reserva.getIsbn(), reserva.getQuantidade(), Integer::sum);
+                continue;
+            }
+            Pendente pendente = new Pendente(reserva.getIdSessao(), reserva.getIsbn());
+            pendente.quantidade = reserva.getQuantidade();
+            pendente.expiraEmMillis = reserva.getExpiraEmMillis();
+            porSessao.computeIfAbsent(pendente.sessao, chave -> new HashMap<>()).put(pendente.isbn, pendente);
+            roda.agendar(pendente, pendente.expiraEmMillis);
+        }
+        gerenciadorLivros.devolverReservas(vencidas);
+        VENCIDAS.adicionar(vencidas.size());
+        // Recomeça o log só com as reservas em aberto.
+        DadosLivraria.compactarReservas(emAberto(), durabilidade());
+        this.relogio = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "reservas-estoque");
+            thread.setDaemon(true); // Não impede o programa de terminar.
+            return thread;
+        });
+        relogio.scheduleAtFixedRate(this::vencer, TIQUE_MILLIS, TIQUE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ajusta a reserva de um livro num carrinho para a quantidade informada,
+     * retirando do estoque (ou devolvendo) só a diferença, e renova a validade.
+     *
+     * @param sessao     A sessão dona do carrinho ("" para o carrinho único).
+     * @param isbn       O ISBN do livro.
+     * @param quantidade A quantidade que deve ficar reservada (0 encerra a reserva).
+     * @return true se a reserva foi ajustada; false se não havia estoque suficiente
+     *         (nesse caso a reserva anterior é mantida como estava).
+     */
+    public boolean ajustar(String sessao, String isbn, int quantidade) {
+        long inicio = System.nanoTime();
+        try {
+            int atual;
+            synchronized (trava) {
+                Pendente pendente = buscar(sessao, isbn);
+                atual = pendente == null ? 0 : pendente.quantidade;
+            }
+            int diferenca = quantidade - atual;
+            // O estoque é alterado fora da trava (pode esperar a gravação em grupo). Só a
+            // diferença é aplicada à reserva, então uma reserva que vença no meio do caminho
+            // devolve exatamente o que tinha.
+            if (diferenca > 0 && !gerenciadorLivros.reservarEstoque(isbn, diferenca)) {
+                AJUSTE.contarFalha();
+                return false;
+            }
+            int devolver = 0;
+            synchronized (trava) {
+                Pendente pendente = buscar(sessao, isbn);
+                if (pendente == null && diferenca > 0) {
+                    pendente = new Pendente(sessao, isbn);
+                    porSessao.computeIfAbsent(sessao, chave -> new HashMap<>()).put(isbn, pendente);
+                }
+                if (pendente != null) {
+                    if (diferenca < 0) {
+                        devolver = Math.min(-diferenca, pendente.quantidade);
+                    }
+                    pendente.quantidade += diferenca > 0 ? diferenca : -devolver;
+                    if (pendente.quantidade > 0) {
+                        renovar(pendente);
+                    } else {
+                        encerrar(pendente);
+                    }
+                }
+            }
+            if (devolver > 0) {
+                gerenciadorLivros.devolverReservas(Map.of(isbn, devolver));
+            }
+            gravar();
+            return true;
+        } finally {
+            AJUSTE.registrar(inicio);
+        }
+    }
+
+    /**
+     * Encerra todas as reservas de uma sessão sem devolver o estoque, para uma
+     * compra: as unidades devolvidas aqui passam a ser da compra.
+     *
+     * @param sessao A sessão dona do carrinho ("" para o carrinho único).
+     * @return As unidades que estavam reservadas, por ISBN (vazio se não havia reservas).
+     */
+    public Map<String, Integer> tomar(String sessao) {
+        Map<String, Integer> tomadas = new HashMap<>();
+        synchronized (trava) {
+            Map<String, Pendente> daSessao = porSessao.get(sessao);
+            if (daSessao == null) {
+                return tomadas;
+            }
+            for (Pendente pendente : new ArrayList<>(daSessao.values())) {
+                tomadas.put(pendente.isbn, pendente.quantidade);
+                pendente.quantidade = 0;
+                encerrar(pendente);
+            }
+        }
+        gravar();
+        return tomadas;
+    }
+
+    /**
+     * Devolve a uma sessão reservas retiradas por {@link #tomar(String)} (quando
+     * a compra não foi concluída), com validade renovada. O estoque não é alterado.
+     *
+     * @param sessao   A sessão dona do carrinho.
+     * @param tomadas  As unidades retiradas, por ISBN.
+     */
+    public void restaurar(String sessao, Map<String, Integer> tomadas) {
+        if (tomadas.isEmpty()) {
+            return;
+        }
+        synchronized (trava) {
+            for (Map.Entry<String, Integer> tomada : tomadas.entrySet()) {
+                Pendente pendente = buscar(sessao, tomada.getKey());
+                if (pendente == null) {
+                    pendente = new Pendente(sessao, tomada.getKey());
+                    porSessao.computeIfAbsent(sessao, chave -> new HashMap<>()).put(pendente.isbn, pendente);
+                }
+                pendente.quantidade += tomada.getValue();
+                renovar(pendente);
+            }
+        }
+        gravar();
+    }
+
+    /**
+     * @param sessao A sessão dona do carrinho.
+     * @param isbn   O ISBN do livro.
+     * @return Unidades reservadas do livro por essa sessão (0 se não há reserva).
+     */
+    public int getReservado(String sessao, String isbn) {
+        synchronized (trava) {
+            Pendente pendente = buscar(sessao, isbn);
+            return pendente == null ? 0 : pendente.quantidade;
+        }
+    }
+
+    /**
+     * @return Quantidade de reservas em aberto.
+     */
+    public int getQuantidade() {
+        synchronized (trava) {
+            return roda.getQuantidade();
+        }
+    }
+
+    /**
+     * Para a thread que vence as reservas e grava as alterações pendentes. As
+     * reservas em aberto continuam gravadas e são retomadas na próxima inicialização.
+     */
+    @Override
+    public void close() {
+        relogio.shutdown();
+        try {
+            relogio.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        gravarAgora();
+    }
+
+    // Executada pelo relógio a cada tique: vence as reservas cujo prazo passou e devolve
+    // o estoque delas (fora da trava).
+    private void vencer() {
+        try {
+            List<RodaTemporizacao.Temporizador> vencidos = new ArrayList<>();
+            Map<String, Integer> devolucoes = new HashMap<>();
+            synchronized (trava) {
+                roda.avancar(System.currentTimeMillis(), vencidos);
+                for (RodaTemporizacao.Temporizador temporizador : vencidos) {
+                    Pendente pendente = (Pendente) temporizador;
+                    devolucoes.merge(pendente.isbn, pendente.quantidade, Integer::sum);
+                    pendente.quantidade = 0;
+                    encerrar(pendente);
+                }
+            }
+            if (vencidos.isEmpty()) {
+                return;
+            }
+            VENCIDAS.adicionar(vencidos.size());
+            gerenciadorLivros.devolverReservas(devolucoes);
+            gravar();
+        } catch (RuntimeException e) {
+            // Uma exceção cancelaria as próximas execuções do relógio.
+            System.err.println("Erro ao vencer reservas: " + e);
+        }
+    }
+
+    // Métodos auxiliares (chamados com a trava).
+
+    private Pendente buscar(String sessao, String isbn) {
+        Map<String, Pendente> daSessao = porSessao.get(sessao);
+        return daSessao == null ? null : daSessao.get(isbn);
+    }
+
+    private void renovar(Pendente pendente) {
+        pendente.expiraEmMillis = System.currentTimeMillis() + validadeMillis;
+        roda.agendar(pendente, pendente.expiraEmMillis);
+        alterada(pendente);
+    }
+
+    private void encerrar(Pendente pendente) {
+        roda.cancelar(pendente);
+        Map<String, Pendente> daSessao = porSessao.get(pendente.sessao);
+        if (daSessao != null && daSessao.remove(pendente.isbn) == pendente && daSessao.isEmpty()) {
+            porSessao.remove(pendente.sessao);
+        }
+        alterada(pendente);
+    }
+
+    private void alterada(Pendente pendente) {
+        alteradas.put(pendente.sessao + ";" + pendente.isbn,
+                new Reserva(pendente.sessao, pendente.isbn, pendente.quantidade, pendente.expiraEmMillis));
+    }
+
+    private List<Reserva> emAberto() {
+        List<Reserva> abertas = new ArrayList<>(roda.getQuantidade());
+        for (Map<String, Pendente> daSessao : porSessao.values()) {
+            for (Pendente pendente : daSessao.values()) {
+                abertas.add(new Reserva(pendente.sessao, pendente.isbn, pendente.quantidade,
+                        pendente.expiraEmMillis));
+            }
+        }
+        return abertas;
+    }
+
+    // Grava as alterações de reserva: no próximo lote do gravador em segundo plano, se houver,
+    // ou na hora.
+    private void gravar() {
+        GravadorAssincrono gravador = gerenciadorLivros.getGravador();
+        if (gravador != null) {
+            gravador.agendar(chaveGravacao, this::gravarAgora);
+        } else {
+            gravarAgora();
+        }
+    }
+
+    private void gravarAgora() {
+        synchronized (travaGravacao) {
+            List<Reserva> gravar;
+            synchronized (trava) {
+                if (alteradas.isEmpty()) {
+                    return;
+                }
+                gravar = new ArrayList<>(alteradas.values());
+                alteradas.clear();
+            }
+            DadosLivraria.registrarReservas(gravar, durabilidade());
+            registrosNoLog += gravar.size();
+            if (registrosNoLog >= LIMITE_REGISTROS_LOG) {
+                List<Reserva> abertas;
+                synchronized (trava) {
+                    // As alterações ainda não gravadas entram na cópia; a próxima gravação as repete.
+                    abertas = emAberto();
+                }
+                DadosLivraria.compactarReservas(abertas, durabilidade());
+                registrosNoLog = 0;
+            }
+        }
+    }
+
+    private Durabilidade durabilidade() {
+        GravadorAssincrono gravador = gerenciadorLivros.getGravador();
+        return gravador != null ? gravador.getDurabilidade() : Durabilidade.FLUSH;
+    }
+}
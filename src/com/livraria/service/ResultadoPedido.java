@@ -0,0 +1,14 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+/**
+ * Resultado da baixa de estoque de um pedido (todos os itens de uma compra),
+ * devolvido pelo {@link MotorCompras}.
+ */
+public enum ResultadoPedido {
+    /** Todas as quantidades foram retiradas do estoque. */
+    ACEITO,
+    /** Algum livro não tinha estoque suficiente; nada foi retirado. */
+    ESTOQUE_INSUFICIENTE,
+    /** Algum ISBN não está no catálogo; nada foi retirado. */
+    LIVRO_INEXISTENTE
+}
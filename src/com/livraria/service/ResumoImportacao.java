@@ -0,0 +1,74 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+/**
+ * Resultado de uma importação em lote feita por
+ * {@link GerenciadorLivros#importarLivros(java.nio.file.Path, boolean)}.
+ */
+public class ResumoImportacao {
+    private final int inseridos;
+    private final int atualizados;
+    private final int inalterados;
+    private final int removidos;
+    private final int linhasInvalidas;
+    private final boolean completa;
+
+    ResumoImportacao(int inseridos, int atualizados, int inalterados, int removidos, int linhasInvalidas,
+            boolean completa) {
+        this.inseridos = inseridos;
+        this.atualizados = atualizados;
+        this.inalterados = inalterados;
+        this.removidos = removidos;
+        this.linhasInvalidas = linhasInvalidas;
+        this.completa = completa;
+    }
+
+    /**
+     * @return Livros com ISBN novo, incluídos no catálogo.
+     */
+    public int getInseridos() {
+        return inseridos;
+    }
+
+    /**
+     * @return Livros já existentes cujo preço ou estoque mudou.
+     */
+    public int getAtualizados() {
+        return atualizados;
+    }
+
+    /**
+     * @return Livros já existentes sem nenhuma mudança.
+     */
+    public int getInalterados() {
+        return inalterados;
+    }
+
+    /**
+     * @return Livros do catálogo ausentes do arquivo e removidos (0 se a remoção não foi pedida).
+     */
+    public int getRemovidos() {
+        return removidos;
+    }
+
+    /**
+     * @return Linhas do arquivo que não puderam ser interpretadas.
+     */
+    public int getLinhasInvalidas() {
+        return linhasInvalidas;
+    }
+
+    /**
+     * @return false se o arquivo não pôde ser lido até o fim. Nesse caso, o que
+     *         foi lido antes do erro foi aplicado, mas nenhum livro foi removido.
+     */
+    public boolean isCompleta() {
+        return completa;
+    }
+
+    @Override
+    public String toString() {
+        return "Importação" + (completa ? "" : " (incompleta)") + ": " + inseridos + " inseridos, " + atualizados
+                + " atualizados, " + inalterados + " inalterados, " + removidos + " removidos, " + linhasInvalidas
+                + " linhas inválidas";
+    }
+}
@@ -0,0 +1,171 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import java.util.List;
+
+/**
+ * Roda de temporização hierárquica ("hierarchical timing wheel"): guarda
+ * milhões de prazos com custo O(1) para agendar, cancelar e vencer cada um,
+ * sem uma tarefa agendada por prazo nem uma fila ordenada.
+ * <p>
+ * O tempo anda em tiques. Há quatro níveis de 64 compartimentos: o nível 0
+ * tem um compartimento por tique, o nível 1 um por 64 tiques, e assim por
+ * diante (com tiques de 100 ms, os quatro níveis cobrem cerca de 19 dias;
+ * prazos mais distantes ficam no último nível e descem quando ele dá a volta).
+ * Cada compartimento é uma lista duplamente ligada dos próprios
+ * temporizadores, então agendar e cancelar só mexem em ponteiros. Quando o
+ * nível 0 dá uma volta, o compartimento seguinte do nível 1 é redistribuído
+ * pelos níveis de baixo (e assim por diante), de modo que cada temporizador
+ * desce no máximo três vezes antes de vencer.
+ * <p>
+ * Não é sincronizada: quem a usa (ReservasEstoque) a protege com a sua trava.
+ */
+class RodaTemporizacao {
+
+    /**
+     * Um prazo na roda. Quem usa a roda estende esta classe com os seus dados
+     * (a própria reserva é o nó da lista, sem objetos extras).
+     */
+    static class Temporizador {
+        private long prazo; // Em tiques.
+        private Temporizador anterior;
+        private Temporizador proximo;
+
+        /**
+         * @return true se o temporizador está agendado (nem vencido nem cancelado).
+         */
+        boolean isAgendado() {
+            return anterior != null;
+        }
+    }
+
+    private static final int BITS = 6;
+    private static final int COMPARTIMENTOS = 1 << BITS; // Por nível.
+    private static final int MASCARA = COMPARTIMENTOS - 1;
+    private static final int NIVEIS = 4;
+    private static final long ALCANCE = 1L << (BITS * NIVEIS); // Tiques cobertos pelos quatro níveis.
+
+    private final long tiqueMillis;
+    private final long origemMillis;
+    // Cabeça (sentinela) da lista circular de cada compartimento.
+    private final Temporizador[][] compartimentos = new Temporizador[NIVEIS][COMPARTIMENTOS];
+    private long proximoTique; // O próximo tique a ser processado.
+    private int quantidade;
+
+    /**
+     * @param tiqueMillis  Duração de um tique (a precisão dos prazos).
+     * @param origemMillis Instante do tique 0 (normalmente, agora).
+     */
+    RodaTemporizacao(long tiqueMillis, long origemMillis) {
+        this.tiqueMillis = tiqueMillis;
+        this.origemMillis = origemMillis;
+        for (Temporizador[] nivel : compartimentos) {
+            for (int i = 0; i < COMPARTIMENTOS; i++) {
+                Temporizador cabeca = new Temporizador();
+                cabeca.anterior = cabeca;
+                cabeca.proximo = cabeca;
+                nivel[i] = cabeca;
+            }
+        }
+    }
+
+    /**
+     * Agenda um temporizador (ou reagenda, se já estiver agendado).
+     *
+     * @param temporizador O temporizador.
+     * @param prazoMillis  Instante (System.currentTimeMillis) em que ele vence. Um prazo
+     *                     já passado vence no próximo tique.
+     */
+    void agendar(Temporizador temporizador, long prazoMillis) {
+        if (temporizador.isAgendado()) {
+            cancelar(temporizador);
+        }
+        // Arredonda para cima: um temporizador nunca vence antes do prazo.
+        long tique = Math.floorDiv(prazoMillis - origemMillis + tiqueMillis - 1, tiqueMillis);
+        temporizador.prazo = Math.max(tique, proximoTique);
+        inserir(temporizador);
+        quantidade++;
+    }
+
+    /**
+     * Retira um temporizador da roda. Não faz nada se ele não estiver agendado.
+     *
+     * @param temporizador O temporizador.
+     */
+    void cancelar(Temporizador temporizador) {
+        if (!temporizador.isAgendado()) {
+            return;
+        }
+        desligar(temporizador);
+        quantidade--;
+    }
+
+    /**
+     * Anda com a roda até o instante informado, processando todos os tiques
+     * que passaram desde a última chamada.
+     *
+     * @param agoraMillis O instante atual.
+     * @param vencidos    Recebe os temporizadores vencidos (já retirados da roda).
+     */
+    void avancar(long agoraMillis, List<Temporizador> vencidos) {
+        long ultimo = Math.floorDiv(agoraMillis - origemMillis, tiqueMillis);
+        while (proximoTique <= ultimo) {
+            if (quantidade == 0) {
+                proximoTique = ultimo + 1; // Roda vazia: nada a redistribuir nem a vencer.
+                return;
+            }
+            // No início de cada volta de um nível, o compartimento correspondente do nível
+            // acima desce para os níveis de baixo (antes de vencer o tique atual).
+            for (int nivel = 1; nivel < NIVEIS; nivel++) {
+                if ((proximoTique & ((1L << (BITS * nivel)) - 1)) != 0) {
+                    break;
+                }
+                redistribuir(compartimentos[nivel][(int) (proximoTique >>> (BITS * nivel)) & MASCARA]);
+            }
+            Temporizador cabeca = compartimentos[0][(int) proximoTique & MASCARA];
+            while (cabeca.proximo != cabeca) {
+                Temporizador vencido = cabeca.proximo;
+                desligar(vencido);
+                quantidade--;
+                vencidos.add(vencido);
+            }
+            proximoTique++;
+        }
+    }
+
+    /**
+     * @return Quantidade de temporizadores agendados.
+     */
+    int getQuantidade() {
+        return quantidade;
+    }
+
+    // Escolhe o compartimento pela distância até o prazo: quanto mais longe, mais alto o nível.
+    private void inserir(Temporizador temporizador) {
+        long distancia = temporizador.prazo - proximoTique;
+        long posicao = distancia < ALCANCE ? temporizador.prazo : proximoTique + ALCANCE - 1;
+        int nivel = 0;
+        while (nivel < NIVEIS - 1 && distancia >= 1L << (BITS * (nivel + 1))) {
+            nivel++;
+        }
+        Temporizador cabeca = compartimentos[nivel][(int) (posicao >>> (BITS * nivel)) & MASCARA];
+        temporizador.anterior = cabeca.anterior;
+        temporizador.proximo = cabeca;
+        cabeca.anterior.proximo = temporizador;
+        cabeca.anterior = temporizador;
+    }
+
+    private void redistribuir(Temporizador cabeca) {
+        while (cabeca.proximo != cabeca) {
+            Temporizador temporizador = cabeca.proximo;
+            desligar(temporizador);
+            inserir(temporizador); // Agora mais perto do prazo: vai para um nível mais baixo.
+        }
+    }
+
+    private static void desligar(Temporizador temporizador) {
+        temporizador.anterior.proximo = temporizador.proximo;
+        temporizador.proximo.anterior = temporizador.anterior;
+        temporizador.anterior = null;
+        temporizador.proximo = null;
+    }
+}
@@ -0,0 +1,283 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Livro;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Fotografia imutável do catálogo em um instante: todos os livros, como cópias
+ * que não mudam (LivroImutavel), ordenados por ISBN.
+ * <p>
+ * Os livros ficam em uma árvore AVL persistente: uma alteração cria uma nova
+ * versão copiando apenas o caminho da raiz até o livro alterado (cerca de
+ * log2(n) nós) e compartilha todo o resto com a versão anterior. O
+ * GerenciadorLivros publica cada nova versão em uma referência volátil, então
+ * quem lê pega a versão atual sem nenhuma trava e pode percorrê-la pelo tempo
+ * que quiser, sem ver alterações pela metade nem ConcurrentModificationException.
+ */
+public final class SnapshotCatalogo {
+    private static final SnapshotCatalogo VAZIO = new SnapshotCatalogo(null, 0);
+
+    private final No raiz;
+    private final long versao;
+
+    // Nó da árvore. Nunca é alterado depois de criado, então pode ser compartilhado entre versões.
+    private static final class No {
+        final Livro livro;
+        final No esquerda;
+        final No direita;
+        final int altura;
+        final int tamanho; // Livros nesta subárvore.
+
+        No(Livro livro, No esquerda, No direita) {
+            this.livro = livro;
+            this.esquerda = esquerda;
+            this.direita = direita;
+            this.altura = Math.max(altura(esquerda), altura(direita)) + 1;
+            this.tamanho = tamanho(esquerda) + tamanho(direita) + 1;
+        }
+    }
+
+    private SnapshotCatalogo(No raiz, long versao) {
+        this.raiz = raiz;
+        this.versao = versao;
+    }
+
+    /**
+     * Monta uma versão com os livros informados (já copiados), em tempo linear
+     * após a ordenação. Em caso de ISBN repetido, prevalece a primeira ocorrência.
+     *
+     * @param livros Os livros, que não podem mais ser alterados.
+     * @return A versão inicial.
+     */
+    static SnapshotCatalogo de(Collection<? extends Livro> livros) {
+        List<Livro> ordenados = new ArrayList<>(livros);
+        ordenados.sort(Comparator.comparing(Livro::getIsbn)); // Ordenação estável: a primeira ocorrência vem antes.
+        List<Livro> unicos = new ArrayList<>(ordenados.size());
+        for (Livro livro : ordenados) {
+            if (unicos.isEmpty() || !unicos.get(unicos.size() - 1).getIsbn().equals(livro.getIsbn())) {
+                unicos.add(livro);
+            }
+        }
+        return new SnapshotCatalogo(montar(unicos, 0, unicos.size()), 0);
+    }
+
+    /**
+     * @return Uma versão sem nenhum livro.
+     */
+    static SnapshotCatalogo vazio() {
+        return VAZIO;
+    }
+
+    /**
+     * @param isbn O ISBN procurado.
+     * @return O livro com esse ISBN nesta versão, ou null se não existir.
+     */
+    public Livro buscar(String isbn) {
+        No no = raiz;
+        while (no != null) {
+            int comparacao = isbn.compareTo(no.livro.getIsbn());
+            if (comparacao == 0) {
+                return no.livro;
+            }
+            no = comparacao < 0 ? no.esquerda : no.direita;
+        }
+        return null;
+    }
+
+    /**
+     * @return Quantidade de livros nesta versão.
+     */
+    public int getTamanho() {
+        return tamanho(raiz);
+    }
+
+    /**
+     * @return Número da versão; cresce a cada alteração publicada.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    /**
+     * @return Todos os livros desta versão, em ordem de ISBN (lista somente
+     *         leitura; get(i) desce pela árvore usando o tamanho das subárvores).
+     */
+    public List<Livro> getLivros() {
+        return new AbstractList<Livro>() {
+            @Override
+            public Livro get(int indice) {
+                if (indice < 0 || indice >= tamanho(raiz)) {
+                    throw new IndexOutOfBoundsException("Índice " + indice + ", tamanho " + tamanho(raiz));
+                }
+                No no = raiz;
+                while (true) {
+                    int esquerda = tamanho(no.esquerda);
+                    if (indice == esquerda) {
+                        return no.livro;
+                    }
+                    if (indice < esquerda) {
+                        no = no.esquerda;
+                    } else {
+                        indice -= esquerda + 1;
+                        no = no.direita;
+                    }
+                }
+            }
+
+            @Override
+            public Iterator<Livro> iterator() {
+                return new Percurso(raiz);
+            }
+
+            @Override
+            public int size() {
+                return tamanho(raiz);
+            }
+        };
+    }
+
+    /**
+     * @param livro O livro (já copiado) a incluir ou substituir.
+     * @return Uma nova versão com o livro; esta versão não muda.
+     */
+    SnapshotCatalogo com(Livro livro) {
+        return new SnapshotCatalogo(inserir(raiz, livro), versao + 1);
+    }
+
+    /**
+     * @param isbn O ISBN do livro a retirar.
+     * @return Uma nova versão sem o livro (ou esta mesma, se ele não existir).
+     */
+    SnapshotCatalogo sem(String isbn) {
+        No nova = remover(raiz, isbn);
+        return nova == raiz ? this : new SnapshotCatalogo(nova, versao + 1);
+    }
+
+    // --- Árvore AVL persistente ---
+
+    private static int altura(No no) {
+        return no == null ? 0 : no.altura;
+    }
+
+    private static int tamanho(No no) {
+        return no == null ? 0 : no.tamanho;
+    }
+
+    private static No montar(List<Livro> ordenados, int inicio, int fim) {
+        if (inicio >= fim) {
+            return null;
+        }
+        int meio = (inicio + fim) >>> 1;
+        return new No(ordenados.get(meio), montar(ordenados, inicio, meio), montar(ordenados, meio + 1, fim));
+    }
+
+    private static No inserir(No no, Livro livro) {
+        if (no == null) {
+            return new No(livro, null, null);
+        }
+        int comparacao = livro.getIsbn().compareTo(no.livro.getIsbn());
+        if (comparacao == 0) {
+            return new No(livro, no.esquerda, no.direita); // Substitui, mantendo as subárvores.
+        }
+        if (comparacao < 0) {
+            return balancear(no.livro, inserir(no.esquerda, livro), no.direita);
+        }
+        return balancear(no.livro, no.esquerda, inserir(no.direita, livro));
+    }
+
+    private static No remover(No no, String isbn) {
+        if (no == null) {
+            return null;
+        }
+        int comparacao = isbn.compareTo(no.livro.getIsbn());
+        if (comparacao < 0) {
+            No esquerda = remover(no.esquerda, isbn);
+            return esquerda == no.esquerda ? no : balancear(no.livro, esquerda, no.direita);
+        }
+        if (comparacao > 0) {
+            No direita = remover(no.direita, isbn);
+            return direita == no.direita ? no : balancear(no.livro, no.esquerda, direita);
+        }
+        if (no.esquerda == null) {
+            return no.direita;
+        }
+        if (no.direita == null) {
+            return no.esquerda;
+        }
+        // Dois filhos: o sucessor (menor livro da direita) ocupa o lugar do removido.
+        No sucessor = no.direita;
+        while (sucessor.esquerda != null) {
+            sucessor = sucessor.esquerda;
+        }
+        return balancear(sucessor.livro, no.esquerda, removerMenor(no.direita));
+    }
+
+    private static No removerMenor(No no) {
+        if (no.esquerda == null) {
+            return no.direita;
+        }
+        return balancear(no.livro, removerMenor(no.esquerda), no.direita);
+    }
+
+    // Cria o nó, com uma rotação simples ou dupla se as alturas diferirem em 2.
+    private static No balancear(Livro livro, No esquerda, No direita) {
+        int alturaEsquerda = altura(esquerda);
+        int alturaDireita = altura(direita);
+        if (alturaEsquerda > alturaDireita + 1) {
+            if (altura(esquerda.esquerda) >= altura(esquerda.direita)) {
+                return new No(esquerda.livro, esquerda.esquerda, new No(livro, esquerda.direita, direita));
+            }
+            No meio = esquerda.direita;
+            return new No(meio.livro, new No(esquerda.livro, esquerda.esquerda, meio.esquerda),
+                    new No(livro, meio.direita, direita));
+        }
+        if (alturaDireita > alturaEsquerda + 1) {
+            if (altura(direita.direita) >= altura(direita.esquerda)) {
+                return new No(direita.livro, new No(livro, esquerda, direita.esquerda), direita.direita);
+            }
+            No meio = direita.esquerda;
+            return new No(meio.livro, new No(livro, esquerda, meio.esquerda),
+                    new No(direita.livro, meio.direita, direita.direita));
+        }
+        return new No(livro, esquerda, direita);
+    }
+
+    // Percurso em ordem com uma pilha explícita (a altura da árvore é no máximo ~1,44 log2 n).
+    private static final class Percurso implements Iterator<Livro> {
+        private final Deque<No> pilha = new ArrayDeque<>();
+
+        Percurso(No raiz) {
+            descer(raiz);
+        }
+
+        private void descer(No no) {
+            for (; no != null; no = no.esquerda) {
+                pilha.push(no);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pilha.isEmpty();
+        }
+
+        @Override
+        public Livro next() {
+            if (pilha.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            No no = pilha.pop();
+            descer(no.direita);
+            return no.livro;
+        }
+    }
+}
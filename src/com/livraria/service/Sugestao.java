@@ -0,0 +1,63 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+/**
+ * Uma sugestão do autocompletar, devolvida por
+ * {@link GerenciadorLivros#sugerir(String, int)}: um título ou um autor do
+ * catálogo que começa com o texto digitado. Títulos (ou autores) iguais depois
+ * de normalizados são uma única sugestão, que soma os livros de todos eles.
+ */
+public class Sugestao {
+    private final String texto;
+    private final IndiceTextual.Campo campo;
+    private final int livros;
+    private final int livrosEmEstoque;
+    private final long vendas;
+
+    Sugestao(String texto, IndiceTextual.Campo campo, int livros, int livrosEmEstoque, long vendas) {
+        this.texto = texto;
+        this.campo = campo;
+        this.livros = livros;
+        this.livrosEmEstoque = livrosEmEstoque;
+        this.vendas = vendas;
+    }
+
+    /**
+     * @return O título ou o autor, como no cadastro.
+     */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * @return Se a sugestão é um título ou um autor.
+     */
+    public IndiceTextual.Campo getCampo() {
+        return campo;
+    }
+
+    /**
+     * @return Quantidade de livros com este título (ou deste autor).
+     */
+    public int getLivros() {
+        return livros;
+    }
+
+    /**
+     * @return Quantos desses livros têm estoque.
+     */
+    public int getLivrosEmEstoque() {
+        return livrosEmEstoque;
+    }
+
+    /**
+     * @return Unidades vendidas desses livros desde que o catálogo foi carregado.
+     */
+    public long getVendas() {
+        return vendas;
+    }
+
+    @Override
+    public String toString() {
+        return texto + " (" + campo + ", " + livros + " livro(s), " + vendas + " vendido(s))";
+    }
+}
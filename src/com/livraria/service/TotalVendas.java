@@ -0,0 +1,45 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.model.Dinheiro;
+
+/**
+ * Total vendido de um livro, de uma categoria ou de um autor, devolvido pelas
+ * consultas da {@link AnaliseVendas}.
+ */
+public class TotalVendas {
+    private final String chave;
+    private final long unidades;
+    private final long receitaCentavos;
+
+    TotalVendas(String chave, long unidades, long receitaCentavos) {
+        this.chave = chave;
+        this.unidades = unidades;
+        this.receitaCentavos = receitaCentavos;
+    }
+
+    /**
+     * @return O ISBN, a categoria ou o autor.
+     */
+    public String getChave() {
+        return chave;
+    }
+
+    /**
+     * @return Unidades vendidas.
+     */
+    public long getUnidades() {
+        return unidades;
+    }
+
+    /**
+     * @return Receita das vendas, em centavos.
+     */
+    public long getReceitaCentavos() {
+        return receitaCentavos;
+    }
+
+    @Override
+    public String toString() {
+        return chave + ": " + unidades + " unidade(s), R$" + Dinheiro.formatar(receitaCentavos);
+    }
+}
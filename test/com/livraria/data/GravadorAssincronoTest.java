@@ -0,0 +1,57 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes da gravação em segundo plano.
+ */
+class GravadorAssincronoTest {
+
+    @Test
+    void flushEsperaOLoteEmAndamento() throws InterruptedException {
+        // Intervalo longo: só os flush() deste teste gravam.
+        try (GravadorAssincrono gravador = new GravadorAssincrono(60_000, Durabilidade.FLUSH)) {
+            CountDownLatch entrou = new CountDownLatch(1);
+            CountDownLatch liberar = new CountDownLatch(1);
+            gravador.agendar("chave", () -> {
+                entrou.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Thread primeiro = new Thread(gravador::flush);
+            primeiro.start();
+            assertTrue(entrou.await(10, TimeUnit.SECONDS));
+
+            // A chave já saiu do mapa, mas a gravação dela ainda não terminou.
+            Thread segundo = new Thread(gravador::flush);
+            segundo.start();
+            segundo.join(200);
+            assertTrue(segundo.isAlive(), "flush() voltou antes do lote em andamento terminar");
+
+            liberar.countDown();
+            segundo.join(10_000);
+            primeiro.join(10_000);
+            assertFalse(segundo.isAlive());
+        }
+    }
+
+    @Test
+    void semGarantiaTambemGravaACadaLote() throws InterruptedException {
+        try (GravadorAssincrono gravador = new GravadorAssincrono(10, Durabilidade.NENHUMA)) {
+            CountDownLatch gravou = new CountDownLatch(1);
+            gravador.agendar("chave", gravou::countDown);
+
+            // Sem nenhum flush(): a thread de gravação grava no próximo lote.
+            assertTrue(gravou.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
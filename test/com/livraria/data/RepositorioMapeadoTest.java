@@ -0,0 +1,90 @@
+package com.livraria.data; // Pacote para classes que lidam com dados e persistência.
+
+import com.livraria.model.Livro;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Testes das visões de registro e dos espaços fixos do RepositorioMapeado.
+ */
+class RepositorioMapeadoTest {
+
+    @Test
+    void visaoDeLivroRemovidoNaoAlcancaOLivroIncluidoDepois() throws IOException {
+        Path pasta = Files.createTempDirectory("livraria-mapeado-");
+        Path arquivo = pasta.resolve("livros.dat");
+        try {
+            try (RepositorioMapeado repositorio = new RepositorioMapeado(arquivo)) {
+                repositorio.incluir(new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10));
+                Livro antigo = repositorio.ler("101");
+                repositorio.excluir("101");
+                repositorio.incluir(new Livro("102", "O Pequeno Príncipe", "Antoine de Saint-Exupéry",
+                        "Infantil", 30.0, 5));
+                Livro novo = repositorio.ler("102");
+
+                // A visão antiga continua sendo do livro removido, e alterá-la não muda o novo.
+                assertEquals("101", antigo.getIsbn());
+                assertEquals(10, antigo.getEstoque());
+                antigo.setEstoque(99);
+                assertEquals(5, novo.getEstoque());
+                assertEquals(3000, novo.getPrecoCentavos());
+                assertNotEquals(antigo, novo);
+                assertNull(repositorio.ler("101"));
+            }
+            // Depois de reabrir, o registro liberado volta a ser usado e o catálogo continua o mesmo.
+            try (RepositorioMapeado repositorio = new RepositorioMapeado(arquivo)) {
+                assertEquals(1, repositorio.getQuantidadeLivros());
+                repositorio.incluir(new Livro("103", "1984", "George Orwell", "Distopia", 30.5, 15));
+                assertEquals(15, repositorio.ler("103").getEstoque());
+                assertEquals(5, repositorio.ler("102").getEstoque());
+                assertEquals(2, repositorio.carregarLivros().size());
+            }
+        } finally {
+            for (String nome : new String[] {"livros.dat", "livros.dat.idx"}) {
+                Files.deleteIfExists(pasta.resolve(nome));
+            }
+            Files.delete(pasta);
+        }
+    }
+
+    @Test
+    void textoQueNaoCabeERejeitado() throws IOException {
+        Path pasta = Files.createTempDirectory("livraria-mapeado-");
+        Path arquivo = pasta.resolve("livros.dat");
+        try (RepositorioMapeado repositorio = new RepositorioMapeado(arquivo)) {
+            Livro existente = new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10);
+            repositorio.incluir(existente);
+            // 33 bytes: cortado em 32, seria confundido com outro ISBN de mesmo começo.
+            String isbnLongo = "9".repeat(33);
+            Livro longo = new Livro(isbnLongo, "Título", "Autor", "Categoria", 10.0, 1);
+            Livro tituloLongo = new Livro("102", "ã".repeat(121), "Autor", "Categoria", 10.0, 1);
+
+            assertThrows(IllegalArgumentException.class, () -> repositorio.incluir(longo));
+            assertThrows(IllegalArgumentException.class, () -> repositorio.incluir(tituloLongo));
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.registrarAlteracoes(List.of(longo), List.of("101"), Durabilidade.FLUSH));
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.salvarLivros(List.of(existente, tituloLongo), Durabilidade.FLUSH));
+
+            // Nada foi gravado, nem a remoção pedida junto com o livro rejeitado.
+            assertEquals(1, repositorio.getQuantidadeLivros());
+            assertEquals("Dom Quixote", repositorio.ler("101").getTitulo());
+            assertNull(repositorio.ler("102"));
+        } finally {
+            for (String nome : new String[] {"livros.dat", "livros.dat.idx"}) {
+                Files.deleteIfExists(pasta.resolve(nome));
+            }
+            Files.delete(pasta);
+        }
+    }
+}
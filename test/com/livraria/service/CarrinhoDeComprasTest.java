@@ -0,0 +1,91 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioMemoria;
+import com.livraria.model.Livro;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes do preço dos itens do carrinho quando o preço do livro muda no catálogo
+ * e do estoque conferido ao alterar a quantidade de um item.
+ */
+class CarrinhoDeComprasTest {
+
+    private static GerenciadorLivros catalogo() {
+        return new GerenciadorLivros(ModoPersistencia.REESCRITA_COMPLETA, ArmazenamentoCatalogo.MAPA, null,
+                new RepositorioMemoria(List.of(
+                        new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10))));
+    }
+
+    @Test
+    void alteracaoDePrecoChegaAoCarrinho() {
+        GerenciadorLivros catalogo = catalogo();
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+        assertTrue(carrinho.adicionarItem("101", 2));
+
+        assertTrue(catalogo.atualizarLivro("101", 40.0, 8));
+
+        assertEquals(4000, carrinho.copiarItens().get(0).getPrecoUnitarioCentavos());
+        assertEquals(8000, carrinho.getTotalCentavos());
+    }
+
+    @Test
+    void avisoAtrasadoNaoVoltaAoPrecoAntigo() {
+        GerenciadorLivros catalogo = catalogo();
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+        assertTrue(carrinho.adicionarItem("101", 2));
+        assertTrue(catalogo.atualizarLivro("101", 40.0, 8));
+        assertTrue(catalogo.atualizarLivro("101", 45.0, 8));
+
+        // O aviso da primeira alteração chega por último: o carrinho fica com o preço atual.
+        carrinho.reprecificar("101");
+
+        assertEquals(4500, carrinho.copiarItens().get(0).getPrecoUnitarioCentavos());
+        assertEquals(9000, carrinho.getTotalCentavos());
+    }
+
+    @Test
+    void importacaoReprecificaOCarrinho() throws IOException {
+        GerenciadorLivros catalogo = catalogo();
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+        assertTrue(carrinho.adicionarItem("101", 2));
+        Path arquivo = Files.createTempFile("livros", ".txt");
+        try {
+            Files.writeString(arquivo, "101;Dom Quixote;Miguel de Cervantes;Clássico;35.00;10\n",
+                    StandardCharsets.UTF_8);
+
+            ResumoImportacao resumo = catalogo.importarLivros(arquivo, false);
+
+            assertEquals(1, resumo.getAtualizados());
+            assertEquals(7000, carrinho.getTotalCentavos());
+        } finally {
+            Files.delete(arquivo);
+        }
+    }
+
+    @Test
+    void novaQuantidadeUsaOEstoqueAtual() {
+        GerenciadorLivros catalogo = catalogo();
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+        assertTrue(carrinho.adicionarItem("101", 1));
+
+        // Outra compra leva quase todo o estoque depois que o item entrou no carrinho.
+        assertTrue(catalogo.baixarEstoque(Map.of("101", 9)));
+
+        assertFalse(carrinho.atualizarQuantidadeItem("101", 10));
+        assertEquals(1, carrinho.copiarItens().get(0).getQuantidade());
+        assertTrue(carrinho.atualizarQuantidadeItem("101", 1));
+    }
+}
@@ -0,0 +1,101 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioMapeado;
+import com.livraria.data.RepositorioMemoria;
+import com.livraria.model.Livro;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testes das consultas do armazenamento SOB_DEMANDA, que percorrem o arquivo
+ * em vez de manter índices: os resultados são os mesmos do armazenamento MAPA.
+ */
+class CatalogoSobDemandaTest {
+
+    private static List<Livro> livros() {
+        return List.of(
+                new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10),
+                new Livro("102", "O Pequeno Príncipe", "Antoine de Saint-Exupéry", "Infantil", 30.0, 5),
+                new Livro("103", "1984", "George Orwell", "Distopia", 30.5, 0),
+                new Livro("104", "A Revolução dos Bichos", "George Orwell", "Distopia", 25.0, 3),
+                new Livro("105", "Grande Sertão: Veredas", "João Guimarães Rosa", "Clássico", 80.0, 2));
+    }
+
+    @Test
+    void consultasPercorrendoOArquivoDaoOMesmoResultado() throws IOException {
+        Path pasta = Files.createTempDirectory("livraria-sob-demanda-");
+        try (RepositorioMapeado repositorio = new RepositorioMapeado(pasta.resolve("livros.dat"))) {
+            for (Livro livro : livros()) {
+                repositorio.incluir(livro);
+            }
+            GerenciadorLivros sobDemanda = new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES,
+                    ArmazenamentoCatalogo.SOB_DEMANDA, null, repositorio);
+            GerenciadorLivros mapa = new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES,
+                    ArmazenamentoCatalogo.MAPA, null, new RepositorioMemoria(livros()));
+
+            for (String consulta : new String[] {"orwell", "o peq", "sertao veredas", "nada", ""}) {
+                assertEquals(isbns(mapa.buscarLivros(consulta)), isbns(sobDemanda.buscarLivros(consulta)), consulta);
+                assertEquals(isbns(mapa.buscarLivrosPorTitulo(consulta)),
+                        isbns(sobDemanda.buscarLivrosPorTitulo(consulta)), consulta);
+                assertEquals(textos(mapa.sugerir(consulta, 10)), textos(sobDemanda.sugerir(consulta, 10)), consulta);
+            }
+            assertEquals(mapa.contarPorCategoria(), sobDemanda.contarPorCategoria());
+            assertEquals(isbns(mapa.getTodosLivros()), isbns(sobDemanda.getTodosLivros()));
+
+            for (ConsultaCatalogo.Ordenacao ordem : ConsultaCatalogo.Ordenacao.values()) {
+                ConsultaCatalogo consulta = ConsultaCatalogo.todos().ordenadaPor(ordem).comLimite(2);
+                assertEquals(paginas(mapa, consulta), paginas(sobDemanda, consulta), ordem.name());
+                consulta = consulta.naCategoria("Distopia").comPrecoEntre(20, 30.5);
+                assertEquals(paginas(mapa, consulta), paginas(sobDemanda, consulta), ordem.name());
+            }
+        } finally {
+            for (String nome : new String[] {"livros.dat", "livros.dat.idx"}) {
+                Files.deleteIfExists(pasta.resolve(nome));
+            }
+            Files.delete(pasta);
+        }
+    }
+
+    private static List<String> isbns(List<Livro> livros) {
+        List<String> isbns = new ArrayList<>();
+        for (Livro livro : livros) {
+            isbns.add(livro.getIsbn());
+        }
+        isbns.sort(null); // A ordem da busca não é definida.
+        return isbns;
+    }
+
+    private static List<String> textos(List<Sugestao> sugestoes) {
+        List<String> textos = new ArrayList<>();
+        for (Sugestao sugestao : sugestoes) {
+            textos.add(sugestao.getCampo() + ":" + sugestao.getTexto() + ":" + sugestao.getLivros());
+        }
+        return textos;
+    }
+
+    // Todas as páginas, seguindo os cursores; '|' marca o fim de cada página.
+    private static List<String> paginas(GerenciadorLivros catalogo, ConsultaCatalogo consulta) {
+        List<String> isbns = new ArrayList<>();
+        ConsultaCatalogo pagina = consulta;
+        while (true) {
+            PaginaLivros resultado = catalogo.navegar(pagina);
+            for (Livro livro : resultado.getLivros()) {
+                isbns.add(livro.getIsbn());
+            }
+            isbns.add("|");
+            if (resultado.getProximoCursor() == null) {
+                return isbns;
+            }
+            pagina = consulta.aPartirDe(resultado.getProximoCursor());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioMemoria;
+import com.livraria.model.Livro;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes da retirada e da devolução de estoque: quantidades que não sejam
+ * maiores que zero são rejeitadas antes de alterar qualquer livro.
+ */
+class EstoqueTest {
+
+    private static GerenciadorLivros catalogo(ArmazenamentoCatalogo armazenamento) {
+        return new GerenciadorLivros(ModoPersistencia.REESCRITA_COMPLETA, armazenamento, null,
+                new RepositorioMemoria(List.of(
+                        new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10),
+                        new Livro("102", "O Pequeno Príncipe", "Antoine de Saint-Exupéry", "Infantil", 30.0, 5))));
+    }
+
+    private static int estoque(GerenciadorLivros catalogo, String isbn) {
+        return catalogo.buscarLivroPorIsbn(isbn).orElseThrow().getEstoque();
+    }
+
+    @Test
+    void livroRejeitaQuantidadeNaoPositiva() {
+        Livro livro = new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> livro.retirarEstoque(-5));
+        assertThrows(IllegalArgumentException.class, () -> livro.retirarEstoque(0));
+        assertThrows(IllegalArgumentException.class, () -> livro.devolverEstoque(-5));
+        assertEquals(10, livro.getEstoque());
+
+        assertTrue(livro.retirarEstoque(4));
+        assertFalse(livro.retirarEstoque(7));
+        assertEquals(6, livro.getEstoque());
+    }
+
+    @Test
+    void baixaComQuantidadeNaoPositivaNaoAlteraNada() {
+        for (ArmazenamentoCatalogo armazenamento : ArmazenamentoCatalogo.values()) {
+            if (armazenamento == ArmazenamentoCatalogo.SOB_DEMANDA) {
+                continue; // Exige o RepositorioMapeado.
+            }
+            GerenciadorLivros catalogo = catalogo(armazenamento);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> catalogo.baixarEstoque(Map.of("101", 2, "102", -5)), armazenamento.name());
+            assertEquals(10, estoque(catalogo, "101"), armazenamento.name());
+            assertEquals(5, estoque(catalogo, "102"), armazenamento.name());
+
+            assertTrue(catalogo.baixarEstoque(Map.of("101", 2, "102", 1)), armazenamento.name());
+            assertEquals(8, estoque(catalogo, "101"), armazenamento.name());
+            assertEquals(4, estoque(catalogo, "102"), armazenamento.name());
+        }
+    }
+
+    @Test
+    void carrinhoRejeitaQuantidadeNaoPositiva() {
+        GerenciadorLivros catalogo = catalogo(ArmazenamentoCatalogo.MAPA);
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+
+        assertThrows(IllegalArgumentException.class, () -> carrinho.adicionarItem("101", -5));
+        assertThrows(IllegalArgumentException.class, () -> carrinho.adicionarItem("101", 0));
+        assertTrue(carrinho.getItens().isEmpty());
+        assertEquals(0, carrinho.getTotalCentavos());
+
+        assertTrue(carrinho.adicionarItem("101", 2));
+        assertEquals(10000, carrinho.getTotalCentavos());
+    }
+}
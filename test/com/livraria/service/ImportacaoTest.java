@@ -0,0 +1,130 @@
+package com.livraria.service; // Pacote para classes de serviço (lógica de negócio).
+
+import com.livraria.data.ModoPersistencia;
+import com.livraria.data.RepositorioMemoria;
+import com.livraria.data.RepositorioTexto;
+import com.livraria.model.Livro;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Testes da importação e da recarga do arquivo de livros.
+ */
+class ImportacaoTest {
+
+    private static GerenciadorLivros catalogo() {
+        return new GerenciadorLivros(ModoPersistencia.LOG_DE_ALTERACOES, ArmazenamentoCatalogo.MAPA, null,
+                new RepositorioMemoria(List.of(
+                        new Livro("101", "Dom Quixote", "Miguel de Cervantes", "Clássico", 50.0, 10))));
+    }
+
+    @Test
+    void recargaExigeORepositorioDeTexto() {
+        GerenciadorLivros catalogo = catalogo();
+
+        assertThrows(IllegalStateException.class, catalogo::recarregarLivros);
+        assertThrows(IllegalArgumentException.class, () -> new MonitorCatalogo(catalogo, 10));
+        assertEquals(10, catalogo.buscarLivroPorIsbn("101").orElseThrow().getEstoque());
+    }
+
+    @Test
+    void importacaoDescontaAsReservasAteElasVencerem() throws IOException, InterruptedException {
+        // As reservas são gravadas na pasta de dados: a do Maven (veja nucleo/pom.xml), nunca data/.
+        String dados = System.getProperty("livraria.dados");
+        assertNotNull(dados, "Defina -Dlivraria.dados com uma pasta de teste.");
+        Files.createDirectories(Path.of(dados));
+        Files.deleteIfExists(Path.of(dados, "reservas.log"));
+        GerenciadorLivros catalogo = catalogo();
+        Path arquivo = Files.createTempFile("livros", ".txt");
+        try (ReservasEstoque reservas = new ReservasEstoque(catalogo, 300)) {
+            catalogo.usarReservas(reservas);
+            CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+            assertTrue(carrinho.adicionarItem("101", 3));
+            assertEquals(7, estoque(catalogo));
+
+            // O arquivo traz o total do livro, com as 3 unidades que estão no carrinho.
+            Files.writeString(arquivo, "101;Dom Quixote;Miguel de Cervantes;Clássico;50.00;10\n",
+                    StandardCharsets.UTF_8);
+            assertEquals(1, catalogo.importarLivros(arquivo, false).getInalterados());
+            assertEquals(7, estoque(catalogo));
+
+            Files.writeString(arquivo, "101;Dom Quixote;Miguel de Cervantes;Clássico;50.00;20\n",
+                    StandardCharsets.UTF_8);
+            assertEquals(1, catalogo.importarLivros(arquivo, false).getAtualizados());
+            assertEquals(17, estoque(catalogo));
+
+            // A reserva vence e as unidades voltam: o estoque fica igual ao do arquivo.
+            long limite = System.currentTimeMillis() + 10_000;
+            while (reservas.getQuantidade() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, reservas.getQuantidade());
+            assertEquals(20, estoque(catalogo));
+            catalogo.usarReservas(null);
+        } finally {
+            Files.delete(arquivo);
+        }
+    }
+
+    @Test
+    void recargaNaoDescontaAsReservasDeNovo() throws IOException {
+        // O livros.txt da recarga é o da pasta de dados: a do Maven (veja nucleo/pom.xml), nunca data/.
+        String dados = System.getProperty("livraria.dados");
+        assertNotNull(dados, "Defina -Dlivraria.dados com uma pasta de teste.");
+        Path pasta = Files.createDirectories(Path.of(dados));
+        Path livros = pasta.resolve("livros.txt");
+        String[] arquivos = {"livros.txt", "livros.bin", "livros.log", "reservas.log"};
+        apagar(pasta, arquivos);
+        try {
+            Files.writeString(livros, "101;Dom Quixote;Miguel de Cervantes;Clássico;50.00;10\n",
+                    StandardCharsets.UTF_8);
+            GerenciadorLivros catalogo = new GerenciadorLivros(ModoPersistencia.REESCRITA_COMPLETA,
+                    ArmazenamentoCatalogo.MAPA, null, new RepositorioTexto());
+            catalogo.usarMensagens(false);
+            try (ReservasEstoque reservas = new ReservasEstoque(catalogo, 60_000)) {
+                catalogo.usarReservas(reservas);
+                CarrinhoDeCompras carrinho = new CarrinhoDeCompras(catalogo, "sessao-teste");
+                assertTrue(carrinho.adicionarItem("101", 3));
+                assertEquals(7, estoque(catalogo));
+
+                // Só o preço muda no nosso arquivo, que já tem o estoque sem as 3 unidades reservadas.
+                Files.writeString(livros, "101;Dom Quixote;Miguel de Cervantes;Clássico;55.00;7\n",
+                        StandardCharsets.UTF_8);
+                assertEquals(1, catalogo.recarregarLivros().getAtualizados());
+                assertEquals(7, estoque(catalogo));
+
+                assertTrue(carrinho.removerItem("101"));
+                assertEquals(10, estoque(catalogo));
+                catalogo.usarReservas(null);
+            }
+        } finally {
+            apagar(pasta, arquivos);
+        }
+    }
+
+    private static void apagar(Path pasta, String... arquivos) {
+        for (String arquivo : arquivos) {
+            try {
+                Files.deleteIfExists(pasta.resolve(arquivo));
+            } catch (IOException e) {
+                fail("Não foi possível apagar " + arquivo + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static int estoque(GerenciadorLivros catalogo) {
+        return catalogo.buscarLivroPorIsbn("101").orElseThrow().getEstoque();
+    }
+}